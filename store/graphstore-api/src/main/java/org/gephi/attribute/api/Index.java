@@ -44,6 +44,56 @@ public interface Index<T extends Element> {
      */
     public Iterable<T> get(Column column, Object value);
 
+    /**
+     * Counts the elements with a value between <em>from</em> and <em>to</em>
+     * (both inclusive) in the given <em>column</em>.
+     * <p>
+     * Only applies for numerical columns. A null bound means the range is
+     * unbounded on that side. Elements with a null value are never counted.
+     * For array columns, elements are counted once for each value of their
+     * array in the range.
+     *
+     * @param column the column to count values
+     * @param from the lower bound, or null
+     * @param to the upper bound, or null
+     * @return the number of elements in the range, or zero if none
+     */
+    public int count(Column column, Number from, Number to);
+
+    /**
+     * Gets an Iterable of all elements in the index with a value between
+     * <em>from</em> and <em>to</em> (both inclusive) in the given
+     * <em>column</em>, in ascending order of value.
+     * <p>
+     * Same as <code>get(column, from, to, true)</code>.
+     *
+     * @param column the column to get values
+     * @param from the lower bound, or null
+     * @param to the upper bound, or null
+     * @return an iterable with elements in the range, in ascending order
+     */
+    public Iterable<T> get(Column column, Number from, Number to);
+
+    /**
+     * Gets an Iterable of all elements in the index with a value between
+     * <em>from</em> and <em>to</em> (both inclusive) in the given
+     * <em>column</em>, ordered by value.
+     * <p>
+     * Only applies for numerical columns. A null bound means the range is
+     * unbounded on that side, so <code>get(column, null, null, false)</code>
+     * iterates over all elements with a value by descending order. Elements
+     * with the same value come in no particular order. The iterable reflects
+     * the index at the time of the call.
+     *
+     * @param column the column to get values
+     * @param from the lower bound, or null
+     * @param to the upper bound, or null
+     * @param ascending true to iterate by ascending value, false for
+     * descending
+     * @return an iterable with elements in the range, ordered by value
+     */
+    public Iterable<T> get(Column column, Number from, Number to, boolean ascending);
+
     /**
      * Returns all unique values in the given column.
      *
@@ -0,0 +1,53 @@
+/*
+ * Copyright 2012-2013 Gephi Consortium
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.gephi.graph.api;
+
+import org.gephi.attribute.api.Column;
+
+/**
+ * Condition on a node or an edge.
+ * <p>
+ * Predicates are used to create views which maintain themselves, see
+ * {@link GraphModel#createView(org.gephi.graph.api.ElementPredicate, org.gephi.graph.api.ElementPredicate)}.
+ * Such views only evaluate the predicate again for elements which are added
+ * or whose attribute in a column the predicate depends on is set. The result
+ * of {@link #evaluate(org.gephi.graph.api.Element) } should therefore only
+ * depend on the element itself.
+ * <p>
+ * Common predicates can be obtained from {@link ElementPredicates}.
+ *
+ * @param <T> the element type
+ * @see ElementPredicates
+ */
+public interface ElementPredicate<T extends Element> {
+
+    /**
+     * Returns true if the element satisfies this predicate.
+     *
+     * @param element the element to test
+     * @return true if satisfied, false otherwise
+     */
+    public boolean evaluate(T element);
+
+    /**
+     * Returns true if the result of this predicate may change when the value
+     * of <code>column</code> changes.
+     *
+     * @param column the column
+     * @return true if this predicate depends on the column, false otherwise
+     */
+    public boolean dependsOn(Column column);
+}
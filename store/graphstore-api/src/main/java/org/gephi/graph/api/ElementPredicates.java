@@ -0,0 +1,308 @@
+/*
+ * Copyright 2012-2013 Gephi Consortium
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.gephi.graph.api;
+
+import org.gephi.attribute.api.Column;
+
+/**
+ * Factory for common element predicates.
+ * <p>
+ * Predicates compare the attribute value of an element in a column or an edge
+ * property and can be combined with {@link #and(org.gephi.graph.api.ElementPredicate[]) },
+ * {@link #or(org.gephi.graph.api.ElementPredicate[]) } and
+ * {@link #not(org.gephi.graph.api.ElementPredicate) }. For instance, edges of
+ * type <code>1</code> with a weight above <code>0.5</code>:
+ * <pre>
+ * Column weight = graphModel.getEdgeTable().getColumn("weight");
+ * ElementPredicate&lt;Edge&gt; predicate = ElementPredicates.and(
+ *         ElementPredicates.&lt;Edge&gt;greaterThan(weight, 0.5),
+ *         ElementPredicates.edgeType(1));
+ * </pre> Comparisons are false when the element has no value for the column.
+ * Numbers of different classes are compared as doubles.
+ *
+ * @see ElementPredicate
+ */
+public final class ElementPredicates {
+
+    //Operators
+    private static final int EQUAL = 0;
+    private static final int GREATER = 1;
+    private static final int GREATER_OR_EQUAL = 2;
+    private static final int LESS = 3;
+    private static final int LESS_OR_EQUAL = 4;
+
+    private ElementPredicates() {
+        // Only static methods
+    }
+
+    /**
+     * Returns a predicate satisfied by all elements.
+     *
+     * @param <T> the element type
+     * @return the predicate
+     */
+    public static <T extends Element> ElementPredicate<T> all() {
+        return new ElementPredicate<T>() {
+            @Override
+            public boolean evaluate(T element) {
+                return true;
+            }
+
+            @Override
+            public boolean dependsOn(Column column) {
+                return false;
+            }
+        };
+    }
+
+    /**
+     * Returns a predicate satisfied by elements whose value in
+     * <code>column</code> equals <code>value</code>.
+     *
+     * @param <T> the element type
+     * @param column the column
+     * @param value the value to compare with
+     * @return the predicate
+     */
+    public static <T extends Element> ElementPredicate<T> equal(Column column, Object value) {
+        return new ColumnPredicate<T>(column, EQUAL, value);
+    }
+
+    /**
+     * Returns a predicate satisfied by elements whose value in
+     * <code>column</code> is greater than <code>value</code>.
+     *
+     * @param <T> the element type
+     * @param column the column
+     * @param value the value to compare with
+     * @return the predicate
+     */
+    public static <T extends Element> ElementPredicate<T> greaterThan(Column column, Comparable value) {
+        return new ColumnPredicate<T>(column, GREATER, value);
+    }
+
+    /**
+     * Returns a predicate satisfied by elements whose value in
+     * <code>column</code> is greater than or equal to <code>value</code>.
+     *
+     * @param <T> the element type
+     * @param column the column
+     * @param value the value to compare with
+     * @return the predicate
+     */
+    public static <T extends Element> ElementPredicate<T> greaterOrEqual(Column column, Comparable value) {
+        return new ColumnPredicate<T>(column, GREATER_OR_EQUAL, value);
+    }
+
+    /**
+     * Returns a predicate satisfied by elements whose value in
+     * <code>column</code> is less than <code>value</code>.
+     *
+     * @param <T> the element type
+     * @param column the column
+     * @param value the value to compare with
+     * @return the predicate
+     */
+    public static <T extends Element> ElementPredicate<T> lessThan(Column column, Comparable value) {
+        return new ColumnPredicate<T>(column, LESS, value);
+    }
+
+    /**
+     * Returns a predicate satisfied by elements whose value in
+     * <code>column</code> is less than or equal to <code>value</code>.
+     *
+     * @param <T> the element type
+     * @param column the column
+     * @param value the value to compare with
+     * @return the predicate
+     */
+    public static <T extends Element> ElementPredicate<T> lessOrEqual(Column column, Comparable value) {
+        return new ColumnPredicate<T>(column, LESS_OR_EQUAL, value);
+    }
+
+    /**
+     * Returns a predicate satisfied by edges of the given type.
+     *
+     * @param type the edge type
+     * @return the predicate
+     */
+    public static ElementPredicate<Edge> edgeType(final int type) {
+        return new ElementPredicate<Edge>() {
+            @Override
+            public boolean evaluate(Edge element) {
+                return element.getType() == type;
+            }
+
+            @Override
+            public boolean dependsOn(Column column) {
+                return false;
+            }
+        };
+    }
+
+    /**
+     * Returns a predicate satisfied by elements which satisfy all the given
+     * predicates.
+     *
+     * @param <T> the element type
+     * @param predicates the predicates to combine
+     * @return the predicate
+     */
+    public static <T extends Element> ElementPredicate<T> and(final ElementPredicate<T>... predicates) {
+        checkPredicates(predicates);
+        return new CompositePredicate<T>(predicates) {
+            @Override
+            public boolean evaluate(T element) {
+                for (ElementPredicate<T> predicate : predicates) {
+                    if (!predicate.evaluate(element)) {
+                        return false;
+                    }
+                }
+                return true;
+            }
+        };
+    }
+
+    /**
+     * Returns a predicate satisfied by elements which satisfy at least one of
+     * the given predicates.
+     *
+     * @param <T> the element type
+     * @param predicates the predicates to combine
+     * @return the predicate
+     */
+    public static <T extends Element> ElementPredicate<T> or(final ElementPredicate<T>... predicates) {
+        checkPredicates(predicates);
+        return new CompositePredicate<T>(predicates) {
+            @Override
+            public boolean evaluate(T element) {
+                for (ElementPredicate<T> predicate : predicates) {
+                    if (predicate.evaluate(element)) {
+                        return true;
+                    }
+                }
+                return false;
+            }
+        };
+    }
+
+    /**
+     * Returns a predicate satisfied by elements which don't satisfy
+     * <code>predicate</code>.
+     *
+     * @param <T> the element type
+     * @param predicate the predicate to negate
+     * @return the predicate
+     */
+    public static <T extends Element> ElementPredicate<T> not(final ElementPredicate<T> predicate) {
+        if (predicate == null) {
+            throw new NullPointerException();
+        }
+        return new ElementPredicate<T>() {
+            @Override
+            public boolean evaluate(T element) {
+                return !predicate.evaluate(element);
+            }
+
+            @Override
+            public boolean dependsOn(Column column) {
+                return predicate.dependsOn(column);
+            }
+        };
+    }
+
+    private static void checkPredicates(ElementPredicate[] predicates) {
+        if (predicates.length == 0) {
+            throw new IllegalArgumentException("At least one predicate is required");
+        }
+        for (ElementPredicate predicate : predicates) {
+            if (predicate == null) {
+                throw new NullPointerException();
+            }
+        }
+    }
+
+    private static class ColumnPredicate<T extends Element> implements ElementPredicate<T> {
+
+        private final Column column;
+        private final int operator;
+        private final Object value;
+
+        public ColumnPredicate(Column column, int operator, Object value) {
+            if (column == null || value == null) {
+                throw new NullPointerException();
+            }
+            this.column = column;
+            this.operator = operator;
+            this.value = value;
+        }
+
+        @Override
+        public boolean evaluate(T element) {
+            Object attribute = element.getAttribute(column);
+            if (attribute == null) {
+                return false;
+            }
+            if (operator == EQUAL && !(attribute instanceof Number && value instanceof Number)) {
+                return attribute.equals(value);
+            }
+            int comparison = compare(attribute, value);
+            switch (operator) {
+                case EQUAL:
+                    return comparison == 0;
+                case GREATER:
+                    return comparison > 0;
+                case GREATER_OR_EQUAL:
+                    return comparison >= 0;
+                case LESS:
+                    return comparison < 0;
+                default:
+                    return comparison <= 0;
+            }
+        }
+
+        @Override
+        public boolean dependsOn(Column column) {
+            return this.column.equals(column);
+        }
+
+        private int compare(Object attribute, Object value) {
+            if (attribute instanceof Number && value instanceof Number && !attribute.getClass().equals(value.getClass())) {
+                return Double.compare(((Number) attribute).doubleValue(), ((Number) value).doubleValue());
+            }
+            return ((Comparable) attribute).compareTo(value);
+        }
+    }
+
+    private static abstract class CompositePredicate<T extends Element> implements ElementPredicate<T> {
+
+        private final ElementPredicate<T>[] predicates;
+
+        public CompositePredicate(ElementPredicate<T>[] predicates) {
+            this.predicates = predicates;
+        }
+
+        @Override
+        public boolean dependsOn(Column column) {
+            for (ElementPredicate<T> predicate : predicates) {
+                if (predicate.dependsOn(column)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+}
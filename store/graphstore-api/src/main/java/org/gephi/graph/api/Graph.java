@@ -176,6 +176,40 @@ public interface Graph {
      */
     public NodeIterable getNeighbors(Node node, int type);
 
+    /**
+     * Gets the number of common neighbors of node1 and node2.
+     * <p>
+     * Neighbors are counted once whatever the edge direction, type or
+     * multiplicity. A node isn't considered as its own neighbor.
+     * <p>
+     * If an adjacency snapshot of the whole graph has been built and no edge
+     * was added or removed since, the query runs on it. Otherwise it walks
+     * the adjacency lists of both nodes and sorts their neighbors. The query
+     * never builds the snapshot itself, so editing edges between queries
+     * costs no rebuild.
+     *
+     * @param node1 the first node
+     * @param node2 the second node
+     * @return the number of nodes adjacent to both nodes
+     */
+    public int countCommonNeighbors(Node node1, Node node2);
+
+    /**
+     * Gets the common neighbors of node1 and node2.
+     * <p>
+     * Neighbors are returned once whatever the edge direction, type or
+     * multiplicity. A node isn't considered as its own neighbor.
+     * <p>
+     * Answered like {@link #countCommonNeighbors(Node, Node)}: from the
+     * adjacency snapshot if one is built and up to date, otherwise by walking
+     * the adjacency lists of both nodes.
+     *
+     * @param node1 the first node
+     * @param node2 the second node
+     * @return a node iterable over the nodes adjacent to both nodes
+     */
+    public NodeIterable getCommonNeighbors(Node node1, Node node2);
+
     /**
      * Gets all edges incident to a given node.
      *
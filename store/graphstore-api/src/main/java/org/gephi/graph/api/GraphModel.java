@@ -15,6 +15,7 @@
  */
 package org.gephi.graph.api;
 
+import org.gephi.attribute.api.Column;
 import org.gephi.attribute.api.Index;
 import org.gephi.attribute.api.Table;
 import org.gephi.attribute.api.TimestampIndex;
@@ -101,6 +102,31 @@ public interface GraphModel {
      */
     public UndirectedSubgraph getUndirectedGraph(GraphView view);
 
+    /**
+     * Returns an immutable snapshot of the full graph.
+     * <p>
+     * The snapshot captures the topology at the time of the call and doesn't
+     * hold any lock afterwards, so it can be iterated for as long as needed
+     * while the graph keeps being modified. Node and edge attributes are not
+     * copied. All write operations on the snapshot throw
+     * <code>UnsupportedOperationException</code>.
+     * <p>
+     * Taking a snapshot copies the whole topology, in time and memory linear
+     * in the number of nodes and edges, and holds the read lock while doing
+     * so. It suits long reads of a graph that is changing, not frequent calls.
+     *
+     * @return the graph snapshot
+     */
+    public Graph snapshot();
+
+    /**
+     * Creates a new write batch, which buffers mutations of the main graph
+     * and applies them under a single write lock.
+     *
+     * @return a new empty write batch
+     */
+    public GraphWriteBatch createWriteBatch();
+
     /**
      * Gets the visible view.
      *
@@ -198,6 +224,55 @@ public interface GraphModel {
      */
     public GraphView createView(boolean node, boolean edge);
 
+    /**
+     * Creates a new graph view with the elements satisfying the given
+     * predicates.
+     * <p>
+     * Unlike other views, this view maintains itself. Predicates are evaluated
+     * again for elements added to the graph and for elements whose attribute
+     * is set in a column the predicate depends on. Attributes set while the
+     * current thread holds the read lock are applied to the view once the
+     * read locks are released, at the latest before the next write lock or
+     * outermost read lock is granted. Readers already holding the read lock
+     * may see the view before the change.
+     * <p>
+     * Predicates aren't serialized. A predicate view read back from a
+     * serialized model contains the same elements but doesn't maintain itself
+     * anymore.
+     * <p>
+     * If <code>nodePredicate</code> is null, the view only filters edges. If
+     * <code>edgePredicate</code> is null, the view only filters nodes and
+     * contains the edges between its nodes. Otherwise, the view contains the
+     * edges satisfying <code>edgePredicate</code> between its nodes.
+     *
+     * @param nodePredicate the node predicate, or null
+     * @param edgePredicate the edge predicate, or null
+     * @return the newly created graph view
+     * @throws IllegalArgumentException if both predicates are null
+     */
+    public GraphView createView(ElementPredicate<Node> nodePredicate, ElementPredicate<Edge> edgePredicate);
+
+    /**
+     * Creates a new graph view with the elements having <code>value</code>
+     * in the given indexed <code>column</code>.
+     * <p>
+     * For a node column, the view filters nodes and contains the edges between
+     * them. For an edge column, the view only filters edges. The elements are
+     * read from the main index without being visited, except for a node
+     * column where the edges between the indexed nodes are found by walking
+     * their out edges. The view is cheap to combine with {@link #createIntersectionView(org.gephi.graph.api.GraphView[]) },
+     * {@link #createUnionView(org.gephi.graph.api.GraphView[]) } or
+     * {@link #createDifferenceView(org.gephi.graph.api.GraphView, org.gephi.graph.api.GraphView) }.
+     * Unlike predicate views, it isn't updated when attributes change.
+     *
+     * @param column the indexed node or edge column
+     * @param value the value, or null
+     * @return the newly created graph view
+     * @throws IllegalArgumentException if the column isn't indexed or doesn't
+     * belong to this graph
+     */
+    public GraphView createIndexView(Column column, Object value);
+
     /**
      * Creates a new graph view based on an existing view.
      *
@@ -220,6 +295,53 @@ public interface GraphModel {
      */
     public GraphView copyView(GraphView view, boolean node, boolean edge);
 
+    /**
+     * Creates a new graph view with the nodes and edges in any of the given
+     * views.
+     * <p>
+     * All views should filter the same elements, i.e. have the same node and
+     * edge flags. The main view can be used and contains every element.
+     *
+     * @param views the views to combine
+     * @return the newly created graph view
+     */
+    public GraphView createUnionView(GraphView... views);
+
+    /**
+     * Creates a new graph view with the nodes and edges in all of the given
+     * views.
+     * <p>
+     * All views should filter the same elements, i.e. have the same node and
+     * edge flags. The main view can be used and contains every element.
+     *
+     * @param views the views to combine
+     * @return the newly created graph view
+     */
+    public GraphView createIntersectionView(GraphView... views);
+
+    /**
+     * Creates a new graph view with the nodes and edges in <code>view</code>
+     * but not in <code>other</code>.
+     * <p>
+     * Edges whose source or target isn't in the result are excluded.
+     *
+     * @param view the view to subtract from
+     * @param other the view to subtract
+     * @return the newly created graph view
+     */
+    public GraphView createDifferenceView(GraphView view, GraphView other);
+
+    /**
+     * Creates a new graph view with the nodes and edges not in the given view.
+     * <p>
+     * If the view filters nodes, the result contains the edges between the
+     * nodes not in the view.
+     *
+     * @param view the view to complement
+     * @return the newly created graph view
+     */
+    public GraphView createComplementView(GraphView view);
+
     /**
      * Destroys the given view.
      *
@@ -238,6 +360,39 @@ public interface GraphModel {
      */
     public void setTimeInterval(GraphView view, Interval interval);
 
+    /**
+     * Sets whether <code>view</code> keeps the in, out and mutual degree of
+     * each node, making degree queries on its subgraph constant-time.
+     * <p>
+     * The counts are built on the first degree query and then updated as
+     * edges are added to or removed from the view, at the cost of three
+     * integers per node in the graph. Disabling releases them. Views don't
+     * keep degrees by default.
+     *
+     * @param view the view to configure
+     * @param cached true to keep the degrees, false otherwise
+     */
+    public void setCachedDegrees(GraphView view, boolean cached);
+
+    /**
+     * Sets whether the adjacency snapshot of the whole graph keeps each node's
+     * neighbors sorted.
+     * <p>
+     * A sorted snapshot answers adjacency tests with binary searches and keeps
+     * the neighbor set of every node, which makes repeated common-neighbor
+     * queries cheap. Building it costs a sort per node and an extra array of
+     * up to twice the number of edges. Snapshots aren't sorted by default.
+     * <p>
+     * Neighbor queries never build the snapshot. They use it only if it was
+     * built by the store and no edge changed since, and walk the adjacency
+     * lists otherwise. This setting therefore only applies to snapshots the
+     * store builds on explicit request, after the call. Changing it drops the
+     * current snapshot.
+     *
+     * @param sorted true to sort the adjacency snapshot, false otherwise
+     */
+    public void setSortedAdjacency(boolean sorted);
+
     /**
      * Gets the node table.
      *
@@ -343,6 +498,30 @@ public interface GraphModel {
      */
     public Interval getTimeBounds(GraphView view);
 
+    /**
+     * Returns the contention and hold time metrics of the graph lock.
+     * <p>
+     * Metrics are only recorded when enabled in the configuration the model
+     * was created with, which they aren't by default.
+     *
+     * @return the graph lock metrics, or null if disabled
+     */
+    public LockStatistics getGraphLockMetrics();
+
+    /**
+     * Returns the contention and hold time metrics of the node table lock.
+     *
+     * @return the node table lock metrics, or null if disabled
+     */
+    public LockStatistics getNodeTableLockMetrics();
+
+    /**
+     * Returns the contention and hold time metrics of the edge table lock.
+     *
+     * @return the edge table lock metrics, or null if disabled
+     */
+    public LockStatistics getEdgeTableLockMetrics();
+
     /**
      * Creates and returns a new graph observer.
      *
@@ -0,0 +1,103 @@
+/*
+ * Copyright 2012-2013 Gephi Consortium
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.gephi.graph.api;
+
+import org.gephi.attribute.api.Column;
+
+/**
+ * Buffer of graph mutations applied at once.
+ * <p>
+ * Operations are recorded without touching the graph and {@link #apply()}
+ * replays them in order under a single write lock acquisition. Node, edge
+ * and column versions are incremented at most once per batch, so observers
+ * see a single change.
+ * <p>
+ * A batch isn't thread-safe and should be filled by a single thread. If an
+ * operation fails while applying, the previous ones remain applied and the
+ * exception is thrown. The batch is emptied in any case.
+ *
+ * @see GraphModel#createWriteBatch()
+ */
+public interface GraphWriteBatch {
+
+    /**
+     * Records the addition of <code>node</code>.
+     *
+     * @param node the node to add
+     * @return this batch
+     */
+    public GraphWriteBatch addNode(Node node);
+
+    /**
+     * Records the addition of <code>edge</code>.
+     *
+     * @param edge the edge to add
+     * @return this batch
+     */
+    public GraphWriteBatch addEdge(Edge edge);
+
+    /**
+     * Records the removal of <code>node</code>.
+     *
+     * @param node the node to remove
+     * @return this batch
+     */
+    public GraphWriteBatch removeNode(Node node);
+
+    /**
+     * Records the removal of <code>edge</code>.
+     *
+     * @param edge the edge to remove
+     * @return this batch
+     */
+    public GraphWriteBatch removeEdge(Edge edge);
+
+    /**
+     * Records setting <code>value</code> in <code>column</code> for
+     * <code>element</code>.
+     *
+     * @param element the element
+     * @param column the column
+     * @param value the value
+     * @return this batch
+     */
+    public GraphWriteBatch setAttribute(Element element, Column column, Object value);
+
+    /**
+     * Returns the number of buffered operations.
+     *
+     * @return the number of operations
+     */
+    public int size();
+
+    /**
+     * Returns true if no operation is buffered.
+     *
+     * @return true if empty, false otherwise
+     */
+    public boolean isEmpty();
+
+    /**
+     * Discards all the buffered operations.
+     */
+    public void clear();
+
+    /**
+     * Applies all the buffered operations under one write lock and empties
+     * the batch.
+     */
+    public void apply();
+}
@@ -0,0 +1,97 @@
+/*
+ * Copyright 2012-2013 Gephi Consortium
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.gephi.graph.api;
+
+/**
+ * Acquisition counts and wait and hold times of a graph or table lock.
+ * <p>
+ * Only outermost acquisitions are counted, reentrant ones are ignored.
+ * Histograms have one bucket per power of two nanoseconds: bucket
+ * <code>i</code> counts durations in <code>[2^(i-1), 2^i)</code> ns, bucket 0
+ * counts zero durations and the last bucket everything above.
+ *
+ * @see GraphModel#getGraphLockMetrics()
+ */
+public interface LockStatistics {
+
+    /**
+     * Returns the number of read lock acquisitions.
+     *
+     * @return the read acquisition count
+     */
+    public long getReadAcquisitionCount();
+
+    /**
+     * Returns the number of write lock acquisitions.
+     *
+     * @return the write acquisition count
+     */
+    public long getWriteAcquisitionCount();
+
+    /**
+     * Returns the histogram of the time spent waiting for the read lock.
+     *
+     * @return the read wait histogram
+     */
+    public long[] getReadWaitHistogram();
+
+    /**
+     * Returns the histogram of the time spent waiting for the write lock.
+     *
+     * @return the write wait histogram
+     */
+    public long[] getWriteWaitHistogram();
+
+    /**
+     * Returns the histogram of the time the read lock was held.
+     *
+     * @return the read hold histogram
+     */
+    public long[] getReadHoldHistogram();
+
+    /**
+     * Returns the histogram of the time the write lock was held.
+     *
+     * @return the write hold histogram
+     */
+    public long[] getWriteHoldHistogram();
+
+    /**
+     * Returns the number of read holds currently on the lock.
+     *
+     * @return the current reader count
+     */
+    public int getCurrentReaderCount();
+
+    /**
+     * Returns the longest time the write lock was held, in nanoseconds.
+     *
+     * @return the longest write hold
+     */
+    public long getLongestWriteHoldNanos();
+
+    /**
+     * Returns the name of the thread which held the write lock the longest.
+     *
+     * @return the thread name or null if the write lock was never held
+     */
+    public String getLongestWriteHoldThread();
+
+    /**
+     * Resets all counts and histograms.
+     */
+    public void reset();
+}
@@ -0,0 +1,149 @@
+/*
+ * Copyright 2012-2013 Gephi Consortium
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.gephi.graph.store;
+
+/**
+ * Opens {@link IntCursor} on the adjacency of the store, or of a view.
+ * <p>
+ * Nodes and edges are designated by store id. Methods without a type walk
+ * all edge types, and methods taking a cursor reuse it instead of allocating
+ * a new one.
+ *
+ * @author mbastian
+ */
+public final class AdjacencyCursors {
+
+    protected final GraphStore graphStore;
+    protected final GraphViewImpl view;
+
+    public AdjacencyCursors(final GraphStore graphStore, final GraphViewImpl view) {
+        this.graphStore = graphStore;
+        this.view = view;
+    }
+
+    public IntCursor outNeighbors(final int nodeStoreId) {
+        return outNeighbors(nodeStoreId, new IntCursor());
+    }
+
+    public IntCursor outNeighbors(final int nodeStoreId, final IntCursor cursor) {
+        return open(cursor, nodeStoreId, GraphStore.ALL_TYPES, true, true);
+    }
+
+    public IntCursor outNeighbors(final int nodeStoreId, final int type) {
+        return outNeighbors(nodeStoreId, type, new IntCursor());
+    }
+
+    public IntCursor outNeighbors(final int nodeStoreId, final int type, final IntCursor cursor) {
+        return open(cursor, nodeStoreId, type, true, true);
+    }
+
+    public IntCursor inNeighbors(final int nodeStoreId) {
+        return inNeighbors(nodeStoreId, new IntCursor());
+    }
+
+    public IntCursor inNeighbors(final int nodeStoreId, final IntCursor cursor) {
+        return open(cursor, nodeStoreId, GraphStore.ALL_TYPES, false, true);
+    }
+
+    public IntCursor inNeighbors(final int nodeStoreId, final int type) {
+        return inNeighbors(nodeStoreId, type, new IntCursor());
+    }
+
+    public IntCursor inNeighbors(final int nodeStoreId, final int type, final IntCursor cursor) {
+        return open(cursor, nodeStoreId, type, false, true);
+    }
+
+    public IntCursor outEdges(final int nodeStoreId) {
+        return outEdges(nodeStoreId, new IntCursor());
+    }
+
+    public IntCursor outEdges(final int nodeStoreId, final IntCursor cursor) {
+        return open(cursor, nodeStoreId, GraphStore.ALL_TYPES, true, false);
+    }
+
+    public IntCursor outEdges(final int nodeStoreId, final int type) {
+        return outEdges(nodeStoreId, type, new IntCursor());
+    }
+
+    public IntCursor outEdges(final int nodeStoreId, final int type, final IntCursor cursor) {
+        return open(cursor, nodeStoreId, type, true, false);
+    }
+
+    public IntCursor inEdges(final int nodeStoreId) {
+        return inEdges(nodeStoreId, new IntCursor());
+    }
+
+    public IntCursor inEdges(final int nodeStoreId, final IntCursor cursor) {
+        return open(cursor, nodeStoreId, GraphStore.ALL_TYPES, false, false);
+    }
+
+    public IntCursor inEdges(final int nodeStoreId, final int type) {
+        return inEdges(nodeStoreId, type, new IntCursor());
+    }
+
+    public IntCursor inEdges(final int nodeStoreId, final int type, final IntCursor cursor) {
+        return open(cursor, nodeStoreId, type, false, false);
+    }
+
+    private IntCursor open(final IntCursor cursor, final int nodeStoreId, final int type, final boolean out, final boolean neighbors) {
+        graphStore.edgeStore.checkNonNullObject(cursor);
+
+        //Releases the lock of a reused cursor that wasn't walked to the end
+        cursor.doBreak();
+        if (view != null) {
+            //The view is read as the cursor moves, so the lock is held until the end
+            cursor.readLock(graphStore.edgeStore);
+        }
+        try {
+            AdjacencySnapshot snapshot = graphStore.edgeStore.getCurrentAdjacencySnapshot();
+            if (snapshot == null) {
+                //Copies the adjacency lists instead of rebuilding the snapshot between writes
+                openOnLists(cursor, nodeStoreId, type, out, neighbors);
+            } else if (out) {
+                int start = type == GraphStore.ALL_TYPES ? snapshot.outStart(nodeStoreId) : snapshot.outStart(nodeStoreId, type);
+                int end = type == GraphStore.ALL_TYPES ? snapshot.outEnd(nodeStoreId) : snapshot.outEnd(nodeStoreId, type);
+                cursor.reset(neighbors ? snapshot.outNeighbors : snapshot.outEdges, snapshot.outEdges, start, end, view);
+            } else {
+                int start = type == GraphStore.ALL_TYPES ? snapshot.inStart(nodeStoreId) : snapshot.inStart(nodeStoreId, type);
+                int end = type == GraphStore.ALL_TYPES ? snapshot.inEnd(nodeStoreId) : snapshot.inEnd(nodeStoreId, type);
+                cursor.reset(neighbors ? snapshot.inNeighbors : snapshot.inEdges, snapshot.inEdges, start, end, view);
+            }
+        } catch (RuntimeException e) {
+            cursor.doBreak();
+            throw e;
+        }
+        return cursor;
+    }
+
+    private void openOnLists(final IntCursor cursor, final int nodeStoreId, final int type, final boolean out, final boolean neighbors) {
+        graphStore.autoReadLock();
+        try {
+            NodeStore nodeStore = graphStore.nodeStore;
+            NodeImpl node = nodeStore.isValidIndex(nodeStoreId) ? nodeStore.get(nodeStoreId) : null;
+            if (node == null || (type != GraphStore.ALL_TYPES && type < 0)) {
+                cursor.reset(null, null, 0, 0, view);
+                return;
+            }
+            int degree = out ? node.outDegree : node.inDegree;
+            int[] nodes = cursor.getValueBuffer(degree);
+            int[] edges = cursor.getEdgeBuffer(degree);
+            int length = graphStore.edgeStore.copyAdjacency(node, type, out, nodes, edges, 0);
+            cursor.reset(neighbors ? nodes : edges, edges, 0, length, view);
+        } finally {
+            graphStore.autoReadUnlock();
+        }
+    }
+}
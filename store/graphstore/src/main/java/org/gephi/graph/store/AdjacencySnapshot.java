@@ -0,0 +1,446 @@
+/*
+ * Copyright 2012-2013 Gephi Consortium
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.gephi.graph.store;
+
+import java.util.Arrays;
+
+/**
+ * Immutable compressed sparse row (CSR) copy of the edge store adjacency.
+ * <p>
+ * Neighbors and edges are stored as node and edge store ids in flat int
+ * arrays. The slice of a node for a given type goes from
+ * <code>outStart(node, type)</code> (inclusive) to
+ * <code>outEnd(node, type)</code> (exclusive). Slices of all types are
+ * contiguous so <code>outStart(node)</code> and <code>outEnd(node)</code>
+ * cover every type at once.
+ * <p>
+ * Self-loops appear in both the out and in slices of their node.
+ * <p>
+ * Slices are in edge store order unless the snapshot is <em>sorted</em>. A
+ * sorted snapshot orders each slice by neighbor store id, so adjacency tests
+ * are binary searches, and also holds, for every node, the sorted and
+ * deduplicated set of its neighbors regardless of direction and type
+ * (excluding the node itself). Common-neighbor queries run as merge or
+ * galloping intersections on these sets, or on sets collected for the two
+ * nodes only when the snapshot isn't sorted. Unsorted snapshots build the
+ * neighbor sets on demand, the first time they are accessed.
+ * <p>
+ * Snapshots are built once, on request, and dropped by the edge store on any
+ * edge change, so they pay off for read-mostly phases. Cursors and
+ * common-neighbor queries use the snapshot while it's current and walk the
+ * adjacency lists otherwise, they never rebuild it.
+ *
+ * @author mbastian
+ */
+public class AdjacencySnapshot {
+
+    //Version
+    protected final int version;
+    protected final boolean sorted;
+    //Dimensions
+    protected final int nodeCount;
+    protected final int typeCount;
+    //Out
+    protected final int[] outOffsets;
+    protected final int[] outNeighbors;
+    protected final int[] outEdges;
+    //In
+    protected final int[] inOffsets;
+    protected final int[] inNeighbors;
+    protected final int[] inEdges;
+    //Neighbors (undirected, all types, built on demand unless sorted)
+    protected final Object neighborsMonitor = new Object();
+    protected volatile int[] neighborOffsets;
+    protected volatile int[] neighbors;
+    //Const
+    protected final static int GALLOP_RATIO = 32;
+
+    public AdjacencySnapshot(EdgeStore edgeStore, int version, boolean sorted) {
+        this.version = version;
+        this.sorted = sorted;
+        this.typeCount = Math.max(1, edgeStore.longDictionary.length);
+
+        int maxNodeId = -1;
+        for (EdgeStore.EdgeStoreIterator itr = edgeStore.iterator(); itr.hasNext();) {
+            EdgeImpl edge = itr.next();
+            maxNodeId = Math.max(maxNodeId, Math.max(edge.source.storeId, edge.target.storeId));
+        }
+        this.nodeCount = maxNodeId + 1;
+
+        int slots = nodeCount * typeCount;
+        int edgeCount = edgeStore.size();
+        this.outOffsets = new int[slots + 1];
+        this.inOffsets = new int[slots + 1];
+        this.outNeighbors = new int[edgeCount];
+        this.outEdges = new int[edgeCount];
+        this.inNeighbors = new int[edgeCount];
+        this.inEdges = new int[edgeCount];
+
+        //Count
+        for (EdgeStore.EdgeStoreIterator itr = edgeStore.iterator(); itr.hasNext();) {
+            EdgeImpl edge = itr.next();
+            outOffsets[edge.source.storeId * typeCount + edge.type + 1]++;
+            inOffsets[edge.target.storeId * typeCount + edge.type + 1]++;
+        }
+        for (int i = 0; i < slots; i++) {
+            outOffsets[i + 1] += outOffsets[i];
+            inOffsets[i + 1] += inOffsets[i];
+        }
+
+        int[] outCursors = new int[slots];
+        int[] inCursors = new int[slots];
+        System.arraycopy(outOffsets, 0, outCursors, 0, slots);
+        System.arraycopy(inOffsets, 0, inCursors, 0, slots);
+        if (!sorted) {
+            //Fill
+            for (EdgeStore.EdgeStoreIterator itr = edgeStore.iterator(); itr.hasNext();) {
+                EdgeImpl edge = itr.next();
+                int sourceId = edge.source.storeId;
+                int targetId = edge.target.storeId;
+                int outIndex = outCursors[sourceId * typeCount + edge.type]++;
+                outNeighbors[outIndex] = targetId;
+                outEdges[outIndex] = edge.storeId;
+                int inIndex = inCursors[targetId * typeCount + edge.type]++;
+                inNeighbors[inIndex] = sourceId;
+                inEdges[inIndex] = edge.storeId;
+            }
+            return;
+        }
+
+        //Fill, neighbor and edge ids are packed together so slices can be sorted by neighbor
+        long[] outKeys = new long[edgeCount];
+        long[] inKeys = new long[edgeCount];
+        for (EdgeStore.EdgeStoreIterator itr = edgeStore.iterator(); itr.hasNext();) {
+            EdgeImpl edge = itr.next();
+            int sourceId = edge.source.storeId;
+            int targetId = edge.target.storeId;
+            outKeys[outCursors[sourceId * typeCount + edge.type]++] = ((long) targetId << 32) | edge.storeId;
+            inKeys[inCursors[targetId * typeCount + edge.type]++] = ((long) sourceId << 32) | edge.storeId;
+        }
+        for (int i = 0; i < slots; i++) {
+            Arrays.sort(outKeys, outOffsets[i], outOffsets[i + 1]);
+            Arrays.sort(inKeys, inOffsets[i], inOffsets[i + 1]);
+        }
+        for (int i = 0; i < edgeCount; i++) {
+            outNeighbors[i] = (int) (outKeys[i] >>> 32);
+            outEdges[i] = (int) outKeys[i];
+            inNeighbors[i] = (int) (inKeys[i] >>> 32);
+            inEdges[i] = (int) inKeys[i];
+        }
+
+        buildNeighbors();
+    }
+
+    public int getVersion() {
+        return version;
+    }
+
+    public boolean isSorted() {
+        return sorted;
+    }
+
+    public int getNodeCount() {
+        return nodeCount;
+    }
+
+    public int getTypeCount() {
+        return typeCount;
+    }
+
+    public int getEdgeCount() {
+        return outEdges.length;
+    }
+
+    public int[] getOutNeighbors() {
+        return outNeighbors;
+    }
+
+    public int[] getOutEdges() {
+        return outEdges;
+    }
+
+    public int[] getInNeighbors() {
+        return inNeighbors;
+    }
+
+    public int[] getInEdges() {
+        return inEdges;
+    }
+
+    public int outStart(int node) {
+        return isValidNode(node) ? outOffsets[node * typeCount] : 0;
+    }
+
+    public int outEnd(int node) {
+        return isValidNode(node) ? outOffsets[(node + 1) * typeCount] : 0;
+    }
+
+    public int outStart(int node, int type) {
+        return isValidSlot(node, type) ? outOffsets[node * typeCount + type] : 0;
+    }
+
+    public int outEnd(int node, int type) {
+        return isValidSlot(node, type) ? outOffsets[node * typeCount + type + 1] : 0;
+    }
+
+    public int inStart(int node) {
+        return isValidNode(node) ? inOffsets[node * typeCount] : 0;
+    }
+
+    public int inEnd(int node) {
+        return isValidNode(node) ? inOffsets[(node + 1) * typeCount] : 0;
+    }
+
+    public int inStart(int node, int type) {
+        return isValidSlot(node, type) ? inOffsets[node * typeCount + type] : 0;
+    }
+
+    public int inEnd(int node, int type) {
+        return isValidSlot(node, type) ? inOffsets[node * typeCount + type + 1] : 0;
+    }
+
+    public int getOutDegree(int node) {
+        return outEnd(node) - outStart(node);
+    }
+
+    public int getOutDegree(int node, int type) {
+        return outEnd(node, type) - outStart(node, type);
+    }
+
+    public int getInDegree(int node) {
+        return inEnd(node) - inStart(node);
+    }
+
+    public int getInDegree(int node, int type) {
+        return inEnd(node, type) - inStart(node, type);
+    }
+
+    public int[] getNeighbors() {
+        ensureNeighbors();
+        return neighbors;
+    }
+
+    public int neighborStart(int node) {
+        ensureNeighbors();
+        return isValidNode(node) ? neighborOffsets[node] : 0;
+    }
+
+    public int neighborEnd(int node) {
+        ensureNeighbors();
+        return isValidNode(node) ? neighborOffsets[node + 1] : 0;
+    }
+
+    public int getNeighborCount(int node) {
+        return neighborEnd(node) - neighborStart(node);
+    }
+
+    public boolean isAdjacent(int source, int target, int type) {
+        int from = outStart(source, type);
+        int to = outEnd(source, type);
+        if (sorted) {
+            return from < to && Arrays.binarySearch(outNeighbors, from, to, target) >= 0;
+        }
+        for (int i = from; i < to; i++) {
+            if (outNeighbors[i] == target) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public int countCommonNeighbors(int node1, int node2) {
+        if (!sorted) {
+            int[] neighbors1 = getNeighbors(node1);
+            int[] neighbors2 = getNeighbors(node2);
+            return intersect(neighbors1, 0, neighbors1.length, neighbors2, 0, neighbors2.length, null);
+        }
+        return intersect(neighbors, neighborStart(node1), neighborEnd(node1), neighbors, neighborStart(node2), neighborEnd(node2), null);
+    }
+
+    public int[] getCommonNeighbors(int node1, int node2) {
+        if (!sorted) {
+            int[] neighbors1 = getNeighbors(node1);
+            int[] neighbors2 = getNeighbors(node2);
+            int[] result = new int[Math.min(neighbors1.length, neighbors2.length)];
+            int count = intersect(neighbors1, 0, neighbors1.length, neighbors2, 0, neighbors2.length, result);
+            return count == result.length ? result : Arrays.copyOf(result, count);
+        }
+        int[] result = new int[Math.min(getNeighborCount(node1), getNeighborCount(node2))];
+        int count = intersect(neighbors, neighborStart(node1), neighborEnd(node1), neighbors, neighborStart(node2), neighborEnd(node2), result);
+        return count == result.length ? result : Arrays.copyOf(result, count);
+    }
+
+    /**
+     * Returns the sorted and deduplicated neighbors of <code>node</code>
+     * regardless of direction and type, excluding the node itself.
+     *
+     * @param node node store id
+     * @return new array of neighbor store ids
+     */
+    public int[] getNeighbors(int node) {
+        if (sorted) {
+            return Arrays.copyOfRange(neighbors, neighborStart(node), neighborEnd(node));
+        }
+        int[] result = new int[getOutDegree(node) + getInDegree(node)];
+        return Arrays.copyOf(result, collectNeighbors(node, result, 0));
+    }
+
+    /**
+     * Sorts the ids in <code>[from, to)</code> and removes duplicates and
+     * <code>node</code> itself.
+     *
+     * @param array ids
+     * @param from slice start (inclusive)
+     * @param to slice end (exclusive)
+     * @param node id to exclude
+     * @return new slice end (exclusive)
+     */
+    public static int distinct(int[] array, int from, int to, int node) {
+        Arrays.sort(array, from, to);
+        int length = from;
+        for (int i = from; i < to; i++) {
+            int value = array[i];
+            if (value != node && (length == from || array[length - 1] != value)) {
+                array[length++] = value;
+            }
+        }
+        return length;
+    }
+
+    /**
+     * Intersects two sorted slices of distinct ids.
+     * <p>
+     * A linear merge is used when both slices have similar lengths, otherwise
+     * each id of the shortest slice is searched in the longest one with a
+     * galloping (exponential) search.
+     *
+     * @param a first array
+     * @param aFrom first slice start (inclusive)
+     * @param aTo first slice end (exclusive)
+     * @param b second array
+     * @param bFrom second slice start (inclusive)
+     * @param bTo second slice end (exclusive)
+     * @param result array receiving the common ids, or null to only count
+     * @return number of common ids
+     */
+    public static int intersect(int[] a, int aFrom, int aTo, int[] b, int bFrom, int bTo, int[] result) {
+        int aLength = aTo - aFrom;
+        int bLength = bTo - bFrom;
+        if (aLength > bLength) {
+            return intersect(b, bFrom, bTo, a, aFrom, aTo, result);
+        }
+        if (aLength == 0) {
+            return 0;
+        }
+        int count = 0;
+        if (aLength * GALLOP_RATIO < bLength) {
+            int j = bFrom;
+            for (int i = aFrom; i < aTo && j < bTo; i++) {
+                int value = a[i];
+                j = gallop(b, j, bTo, value);
+                if (j < bTo && b[j] == value) {
+                    if (result != null) {
+                        result[count] = value;
+                    }
+                    count++;
+                    j++;
+                }
+            }
+        } else {
+            int i = aFrom;
+            int j = bFrom;
+            while (i < aTo && j < bTo) {
+                int x = a[i];
+                int y = b[j];
+                if (x < y) {
+                    i++;
+                } else if (x > y) {
+                    j++;
+                } else {
+                    if (result != null) {
+                        result[count] = x;
+                    }
+                    count++;
+                    i++;
+                    j++;
+                }
+            }
+        }
+        return count;
+    }
+
+    private int collectNeighbors(int node, int[] array, int from) {
+        int length = from;
+        for (int i = outStart(node); i < outEnd(node); i++) {
+            array[length++] = outNeighbors[i];
+        }
+        for (int i = inStart(node); i < inEnd(node); i++) {
+            array[length++] = inNeighbors[i];
+        }
+        return distinct(array, from, length, node);
+    }
+
+    private static int gallop(int[] array, int from, int to, int key) {
+        //Returns the first index in [from, to) whose value is >= key, or to
+        int bound = 1;
+        while (from + bound < to && array[from + bound] < key) {
+            bound <<= 1;
+        }
+        int low = from + (bound >> 1);
+        int high = Math.min(from + bound + 1, to);
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (array[mid] < key) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    private void ensureNeighbors() {
+        if (neighbors == null) {
+            //Concurrent readers wait for a single build
+            synchronized (neighborsMonitor) {
+                if (neighbors == null) {
+                    buildNeighbors();
+                }
+            }
+        }
+    }
+
+    private void buildNeighbors() {
+        int[] offsets = new int[nodeCount + 1];
+        int[] allNeighbors = new int[outEdges.length * 2];
+        int length = 0;
+        for (int node = 0; node < nodeCount; node++) {
+            length = collectNeighbors(node, allNeighbors, length);
+            offsets[node + 1] = length;
+        }
+        //Offsets are published first, readers check the neighbors
+        this.neighborOffsets = offsets;
+        this.neighbors = Arrays.copyOf(allNeighbors, length);
+    }
+
+    private boolean isValidNode(int node) {
+        return node >= 0 && node < nodeCount;
+    }
+
+    private boolean isValidSlot(int node, int type) {
+        return node >= 0 && node < nodeCount && type >= 0 && type < typeCount;
+    }
+}
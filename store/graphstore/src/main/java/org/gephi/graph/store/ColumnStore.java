@@ -43,6 +43,7 @@ public class ColumnStore<T extends Element> implements Iterable<Column> {
     protected final static short NULL_SHORT = Short.MIN_VALUE;
     //Element
     protected final Class<T> elementType;
+    protected final GraphStore graphStore;
     //Columns
     protected final Object2ShortMap<String> idMap;
     protected final ColumnImpl[] columns;
@@ -58,20 +59,32 @@ public class ColumnStore<T extends Element> implements Iterable<Column> {
     protected int length;
 
     public ColumnStore(Class<T> elementType, boolean indexed) {
+        this(null, elementType, indexed);
+    }
+
+    public ColumnStore(GraphStore graphStore, Class<T> elementType, boolean indexed) {
         if (MAX_SIZE >= Short.MAX_VALUE - Short.MIN_VALUE + 1) {
             throw new RuntimeException("Column Store size can't exceed 65534");
         }
-        this.lock = GraphStoreConfiguration.ENABLE_AUTO_LOCKING ? new TableLock() : null;
+        this.lock = GraphStoreConfiguration.ENABLE_AUTO_LOCKING ? new TableLock(isLockMetricsEnabled(graphStore)) : null;
         this.garbageQueue = new ShortRBTreeSet();
         this.idMap = new Object2ShortOpenHashMap<String>(MAX_SIZE);
         this.columns = new ColumnImpl[MAX_SIZE];
         this.timestampMaps = new TimestampMap[MAX_SIZE];
         this.elementType = elementType;
+        this.graphStore = graphStore;
         this.indexStore = indexed ? new IndexStore<T>(this) : null;
         idMap.defaultReturnValue(NULL_SHORT);
         this.observers = GraphStoreConfiguration.ENABLE_OBSERVERS ? new ArrayList<TableObserverImpl>() : null;
     }
 
+    private static boolean isLockMetricsEnabled(GraphStore graphStore) {
+        if (graphStore != null && graphStore.graphModel != null) {
+            return graphStore.graphModel.configuration.isEnableLockMetrics();
+        }
+        return GraphStoreConfiguration.ENABLE_LOCK_METRICS;
+    }
+
     public void addColumn(final Column column) {
         checkNonNullColumnObject(column);
         checkIndexStatus(column);
@@ -23,12 +23,19 @@ public class ColumnVersion {
 
     protected final ColumnImpl column;
     protected int version = Integer.MIN_VALUE + 1;
+    //Batch
+    protected int batchDepth;
+    protected boolean changed;
 
     public ColumnVersion(ColumnImpl column) {
         this.column = column;
     }
 
     public synchronized int incrementAndGetVersion() {
+        if (batchDepth > 0) {
+            changed = true;
+            return version;
+        }
         version++;
         if (version == Integer.MAX_VALUE) {
             version = Integer.MIN_VALUE + 1;
@@ -37,6 +44,28 @@ public class ColumnVersion {
         return version;
     }
 
+    /**
+     * Starts deferring version increments until the matching
+     * {@link #endBatch()}. Calls can be nested.
+     */
+    public synchronized void beginBatch() {
+        batchDepth++;
+    }
+
+    /**
+     * Ends a batch started with {@link #beginBatch()} and increments the
+     * version once if it changed during the outermost batch.
+     */
+    public synchronized void endBatch() {
+        if (batchDepth == 0) {
+            return;
+        }
+        if (--batchDepth == 0 && changed) {
+            changed = false;
+            incrementAndGetVersion();
+        }
+    }
+
     private void handleReset() {
 
     }
@@ -34,6 +34,7 @@ public class EdgeImpl extends ElementImpl implements Edge {
     //Const
     protected static final byte DIRECTED_BYTE = 1;
     protected static final byte MUTUAL_BYTE = 1 << 1;
+    protected static final EdgePropertiesImpl DEFAULT_PROPERTIES = new EdgePropertiesImpl();
     //Final Data
     protected final NodeImpl source;
     protected final NodeImpl target;
@@ -46,8 +47,8 @@ public class EdgeImpl extends ElementImpl implements Edge {
     protected int previousInEdge = EdgeStore.NULL_ID;
     //Flags
     protected byte flags;
-    //Props
-    protected final EdgePropertiesImpl properties;
+    //Props (allocated on first write)
+    protected volatile EdgePropertiesImpl properties;
 
     public EdgeImpl(Object id, GraphStore graphStore, NodeImpl source, NodeImpl target, int type, double weight, boolean directed) {
         super(id, graphStore);
@@ -55,7 +56,6 @@ public class EdgeImpl extends ElementImpl implements Edge {
         this.target = target;
         this.flags = (byte) (directed ? 1 : 0);
         this.type = type;
-        this.properties = GraphStoreConfiguration.ENABLE_EDGE_PROPERTIES ? new EdgePropertiesImpl() : null;
         this.attributes = new Object[GraphStoreConfiguration.EDGE_WEIGHT_INDEX + 1];
         this.attributes[GraphStoreConfiguration.ELEMENT_ID_INDEX] = id;
         this.attributes[GraphStoreConfiguration.EDGE_WEIGHT_INDEX] = weight;
@@ -77,16 +77,12 @@ public class EdgeImpl extends ElementImpl implements Edge {
 
     @Override
     public double getWeight() {
-        synchronized (this) {
-            return (Double) attributes[GraphStoreConfiguration.EDGE_WEIGHT_INDEX];
-        }
+        return (Double) attributes[GraphStoreConfiguration.EDGE_WEIGHT_INDEX];
     }
 
     @Override
     public boolean hasDynamicWeight() {
-        synchronized (this) {
-            return !(attributes[GraphStoreConfiguration.EDGE_WEIGHT_INDEX] instanceof Double);
-        }
+        return !(attributes[GraphStoreConfiguration.EDGE_WEIGHT_INDEX] instanceof Double);
     }
 
     @Override
@@ -164,7 +160,14 @@ public class EdgeImpl extends ElementImpl implements Edge {
 
     @Override
     public void setWeight(double weight) {
-        attributes[GraphStoreConfiguration.EDGE_WEIGHT_INDEX] = weight;
+        synchronized (this) {
+            Object[] newArray = copyAttributes(0);
+            newArray[GraphStoreConfiguration.EDGE_WEIGHT_INDEX] = weight;
+            attributes = newArray;
+        }
+        if (graphStore != null && graphStore.viewStore.predicateViews.length > 0) {
+            updateViews(getColumnStore().getColumnByIndex(GraphStoreConfiguration.EDGE_WEIGHT_INDEX));
+        }
     }
 
     public int getNextOutEdge() {
@@ -251,69 +254,92 @@ public class EdgeImpl extends ElementImpl implements Edge {
 
     @Override
     public float r() {
-        return properties.r();
+        return readProperties().r();
     }
 
     @Override
     public float g() {
-        return properties.g();
+        return readProperties().g();
     }
 
     @Override
     public float b() {
-        return properties.b();
+        return readProperties().b();
     }
 
     @Override
     public float alpha() {
-        return properties.alpha();
+        return readProperties().alpha();
     }
 
     @Override
     public TextProperties getTextProperties() {
-        return properties.getTextProperties();
+        return getProperties().getTextProperties();
     }
 
     protected void setEdgeProperties(EdgePropertiesImpl edgeProperties) {
-        properties.rgba = edgeProperties.rgba;
-        if (properties.textProperties != null) {
-            properties.setTextProperties(edgeProperties.textProperties);
+        EdgePropertiesImpl props = getProperties();
+        props.rgba = edgeProperties.rgba;
+        if (props.textProperties != null) {
+            props.setTextProperties(edgeProperties.textProperties);
         }
     }
 
     @Override
     public int getRGBA() {
-        return properties.rgba;
+        return readProperties().rgba;
     }
 
     @Override
     public Color getColor() {
-        return properties.getColor();
+        return readProperties().getColor();
     }
 
     @Override
     public void setR(float r) {
-        properties.setR(r);
+        getProperties().setR(r);
     }
 
     @Override
     public void setG(float g) {
-        properties.setG(g);
+        getProperties().setG(g);
     }
 
     @Override
     public void setB(float b) {
-        properties.setB(b);
+        getProperties().setB(b);
     }
 
     @Override
     public void setAlpha(float a) {
-        properties.setAlpha(a);
+        getProperties().setAlpha(a);
     }
 
     @Override
     public void setColor(Color color) {
-        properties.setColor(color);
+        getProperties().setColor(color);
+    }
+
+    protected EdgePropertiesImpl getProperties() {
+        EdgePropertiesImpl props = properties;
+        if (props == null && GraphStoreConfiguration.ENABLE_EDGE_PROPERTIES) {
+            synchronized (this) {
+                props = properties;
+                if (props == null) {
+                    props = new EdgePropertiesImpl();
+                    properties = props;
+                }
+            }
+        }
+        return props;
+    }
+
+    private EdgePropertiesImpl readProperties() {
+        EdgePropertiesImpl props = properties;
+        if (props == null && GraphStoreConfiguration.ENABLE_EDGE_PROPERTIES) {
+            return DEFAULT_PROPERTIES;
+        }
+        return props;
     }
 
     protected static class EdgePropertiesImpl implements EdgeProperties {
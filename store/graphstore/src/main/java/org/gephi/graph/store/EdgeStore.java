@@ -15,11 +15,14 @@
  */
 package org.gephi.graph.store;
 
+import it.unimi.dsi.fastutil.ints.IntArrayList;
+import it.unimi.dsi.fastutil.ints.IntRBTreeSet;
+import it.unimi.dsi.fastutil.ints.IntSortedSet;
 import it.unimi.dsi.fastutil.longs.Long2IntOpenHashMap;
-import it.unimi.dsi.fastutil.objects.Object2IntOpenHashMap;
 import it.unimi.dsi.fastutil.objects.ObjectOpenHashSet;
 import it.unimi.dsi.fastutil.objects.ObjectSet;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Iterator;
 import java.util.List;
@@ -39,12 +42,17 @@ public class EdgeStore implements Collection<Edge>, EdgeIterable {
     protected int currentBlockIndex;
     protected EdgeBlock blocks[];
     protected EdgeBlock currentBlock;
-    protected Object2IntOpenHashMap dictionary;
+    protected IntArrayList garbageQueue;
+    protected IdDictionary dictionary;
+    protected final Class idType;
     protected Long2IntOpenHashMap[] longDictionary;
     //Stats
     protected int undirectedSize;
     protected int mutualEdgesSize;
     protected int[] mutualEdgesTypeSize;
+    //Self-loops and mutual edges per type
+    protected IntSortedSet[] selfLoops;
+    protected IntSortedSet[] mutualEdges;
     //Locking (optional)
     protected final GraphLock lock;
     //Version
@@ -53,8 +61,15 @@ public class EdgeStore implements Collection<Edge>, EdgeIterable {
     protected final EdgeTypeStore edgeTypeStore;
     //View store
     protected final GraphViewStore viewStore;
+    //Incremented when mutual flags change, views recount their mutual edges lazily
+    protected int mutualVersion;
+    //Adjacency snapshot (built on request, dropped on every edge change)
+    protected final Object snapshotMonitor = new Object();
+    protected volatile AdjacencySnapshot snapshot;
+    protected volatile boolean sortedAdjacency;
 
     public EdgeStore() {
+        this.idType = Object.class;
         initStore();
         this.lock = null;
         this.edgeTypeStore = null;
@@ -63,6 +78,11 @@ public class EdgeStore implements Collection<Edge>, EdgeIterable {
     }
 
     public EdgeStore(final EdgeTypeStore edgeTypeStore, final GraphLock lock, final GraphViewStore viewStore, final GraphVersion graphVersion) {
+        this(edgeTypeStore, lock, viewStore, graphVersion, Object.class);
+    }
+
+    public EdgeStore(final EdgeTypeStore edgeTypeStore, final GraphLock lock, final GraphViewStore viewStore, final GraphVersion graphVersion, final Class idType) {
+        this.idType = idType;
         initStore();
         this.lock = lock;
         this.edgeTypeStore = edgeTypeStore;
@@ -78,12 +98,16 @@ public class EdgeStore implements Collection<Edge>, EdgeIterable {
         this.blocks = new EdgeBlock[GraphStoreConfiguration.EDGESTORE_DEFAULT_BLOCKS];
         this.blocks[0] = new EdgeBlock(0);
         this.currentBlock = blocks[currentBlockIndex];
-        this.dictionary = new Object2IntOpenHashMap(GraphStoreConfiguration.EDGESTORE_BLOCK_SIZE);
-        this.dictionary.defaultReturnValue(NULL_ID);
+        this.garbageQueue = new IntArrayList();
+        this.dictionary = new IdDictionary(GraphStoreConfiguration.EDGESTORE_BLOCK_SIZE, GraphStoreConfiguration.EDGESTORE_DICTIONARY_LOAD_FACTOR, idType);
         this.longDictionary = new Long2IntOpenHashMap[GraphStoreConfiguration.EDGESTORE_DEFAULT_TYPE_COUNT];
         this.longDictionary[0] = new Long2IntOpenHashMap(GraphStoreConfiguration.EDGESTORE_DEFAULT_DICTIONARY_SIZE, GraphStoreConfiguration.EDGESTORE_DICTIONARY_LOAD_FACTOR);
         this.longDictionary[0].defaultReturnValue(NULL_ID);
         this.mutualEdgesTypeSize = new int[GraphStoreConfiguration.EDGESTORE_DEFAULT_TYPE_COUNT];
+        this.selfLoops = new IntSortedSet[GraphStoreConfiguration.EDGESTORE_DEFAULT_TYPE_COUNT];
+        this.selfLoops[0] = new IntRBTreeSet();
+        this.mutualEdges = new IntSortedSet[GraphStoreConfiguration.EDGESTORE_DEFAULT_TYPE_COUNT];
+        this.mutualEdges[0] = new IntRBTreeSet();
     }
 
     private void ensureCapacity(final int capacity) {
@@ -119,6 +143,25 @@ public class EdgeStore implements Collection<Edge>, EdgeIterable {
         }
     }
 
+    private void ensureDictionaryCapacity(final int incoming) {
+        int expectedSize = dictionary.size() + incoming;
+        if (incoming > dictionary.size() && expectedSize > GraphStoreConfiguration.EDGESTORE_BLOCK_SIZE) {
+            dictionary.ensureCapacity(expectedSize);
+        }
+    }
+
+    private void ensureLongDictionaryCapacity(final int type, final int incoming) {
+        ensureLongDictionaryCapacity(type);
+        Long2IntOpenHashMap dico = longDictionary[type];
+        int expectedSize = dico.size() + incoming;
+        if (incoming > dico.size() && expectedSize > GraphStoreConfiguration.EDGESTORE_DEFAULT_DICTIONARY_SIZE) {
+            Long2IntOpenHashMap newMap = new Long2IntOpenHashMap(expectedSize, GraphStoreConfiguration.EDGESTORE_DICTIONARY_LOAD_FACTOR);
+            newMap.defaultReturnValue(NULL_ID);
+            newMap.putAll(dico);
+            longDictionary[type] = newMap;
+        }
+    }
+
     private void trimDictionary() {
         dictionary.trim(Math.max(GraphStoreConfiguration.EDGESTORE_BLOCK_SIZE, size * 2));
     }
@@ -177,6 +220,17 @@ public class EdgeStore implements Collection<Edge>, EdgeIterable {
             int[] newSizeArray = new int[type + 1];
             System.arraycopy(mutualEdgesTypeSize, 0, newSizeArray, 0, length);
             mutualEdgesTypeSize = newSizeArray;
+
+            IntSortedSet[] newSelfLoops = new IntSortedSet[type + 1];
+            System.arraycopy(selfLoops, 0, newSelfLoops, 0, length);
+            IntSortedSet[] newMutualEdges = new IntSortedSet[type + 1];
+            System.arraycopy(mutualEdges, 0, newMutualEdges, 0, length);
+            for (int i = length; i <= type; i++) {
+                newSelfLoops[i] = new IntRBTreeSet();
+                newMutualEdges[i] = new IntRBTreeSet();
+            }
+            selfLoops = newSelfLoops;
+            mutualEdges = newMutualEdges;
         }
     }
 
@@ -312,12 +366,43 @@ public class EdgeStore implements Collection<Edge>, EdgeIterable {
         return new EdgeStoreIterator();
     }
 
+    public EdgeIterable[] partition(final int count) {
+        if (count <= 0) {
+            throw new IllegalArgumentException("The partition count should be positive");
+        }
+        readLock();
+        try {
+            int blocksPerPartition = (int) Math.ceil(blocksCount / (double) count);
+            int partitionCount = (int) Math.ceil(blocksCount / (double) blocksPerPartition);
+            EdgeIterable[] partitions = new EdgeIterable[partitionCount];
+            for (int i = 0; i < partitionCount; i++) {
+                int fromBlock = i * blocksPerPartition;
+                partitions[i] = new EdgeStorePartition(fromBlock, Math.min(fromBlock + blocksPerPartition, blocksCount));
+            }
+            return partitions;
+        } finally {
+            readUnlock();
+        }
+    }
+
     public EdgeStoreIterator iteratorUndirected() {
         return new UndirectedEdgeStoreIterator();
     }
 
     public SelfLoopIterator iteratorSelfLoop() {
-        return new SelfLoopIterator();
+        return new SelfLoopIterator(GraphStore.ALL_TYPES);
+    }
+
+    public SelfLoopIterator iteratorSelfLoop(int type) {
+        return new SelfLoopIterator(type);
+    }
+
+    public MutualEdgeIterator iteratorMutual() {
+        return new MutualEdgeIterator(GraphStore.ALL_TYPES);
+    }
+
+    public MutualEdgeIterator iteratorMutual(int type) {
+        return new MutualEdgeIterator(type);
     }
 
     public EdgeOutIterator edgeOutIterator(final Node node) {
@@ -390,6 +475,118 @@ public class EdgeStore implements Collection<Edge>, EdgeIterable {
         return new NeighborsUndirectedIterator((NodeImpl) node, new EdgeTypeInOutIterator((NodeImpl) node, type));
     }
 
+    /**
+     * Returns the adjacency snapshot, building it if the edges changed since
+     * the last build.
+     * <p>
+     * The snapshot is a build-once, read-mostly structure. Any edge change
+     * drops it and the next call rebuilds it in O(V+E), so it should be
+     * requested for read phases of the graph, not between writes. The read
+     * lock is held while building so the edges can't change meanwhile.
+     *
+     * @return the adjacency snapshot
+     */
+    public AdjacencySnapshot getAdjacencySnapshot() {
+        readLock();
+        try {
+            AdjacencySnapshot current = snapshot;
+            if (current == null) {
+                //Concurrent readers wait for a single build
+                synchronized (snapshotMonitor) {
+                    current = snapshot;
+                    if (current == null) {
+                        current = new AdjacencySnapshot(this, version != null ? version.edgeVersion : 0, sortedAdjacency);
+                        snapshot = current;
+                    }
+                }
+            }
+            return current;
+        } finally {
+            readUnlock();
+        }
+    }
+
+    /**
+     * Returns the adjacency snapshot if it's up to date, without building it.
+     *
+     * @return the adjacency snapshot, or null if the edges changed since it
+     * was last built
+     */
+    public AdjacencySnapshot getCurrentAdjacencySnapshot() {
+        return snapshot;
+    }
+
+    /**
+     * Copies the store ids of the out or in edges of <code>node</code>, and
+     * of the node at their other end, by walking the adjacency lists.
+     * <p>
+     * The arrays must hold at least <code>offset</code> plus the out or in
+     * degree of the node.
+     *
+     * @param node the node
+     * @param type the edge type, or {@link GraphStore#ALL_TYPES}
+     * @param out true for out edges, false for in edges
+     * @param neighbors array receiving the neighbor store ids
+     * @param edges array receiving the edge store ids, or null
+     * @param offset index of the first copied edge in the arrays
+     * @return index following the last copied edge
+     */
+    protected int copyAdjacency(final NodeImpl node, final int type, final boolean out, final int[] neighbors, final int[] edges, final int offset) {
+        EdgeImpl[] heads = out ? node.headOut : node.headIn;
+        int fromType = type == GraphStore.ALL_TYPES ? 0 : type;
+        int toType = type == GraphStore.ALL_TYPES ? heads.length : Math.min(type + 1, heads.length);
+        int length = offset;
+        for (int t = fromType; t < toType; t++) {
+            EdgeImpl edge = heads[t];
+            while (edge != null) {
+                neighbors[length] = out ? edge.target.storeId : edge.source.storeId;
+                if (edges != null) {
+                    edges[length] = edge.storeId;
+                }
+                length++;
+                int next = out ? edge.nextOutEdge : edge.nextInEdge;
+                edge = next != NULL_ID ? get(next) : null;
+            }
+        }
+        return length;
+    }
+
+    /**
+     * Returns the sorted and deduplicated neighbors of <code>node</code>
+     * regardless of direction and type, excluding the node itself, by walking
+     * the adjacency lists.
+     *
+     * @param node the node
+     * @param view view the edges must belong to, or null
+     * @return new array of neighbor store ids
+     */
+    protected int[] getNeighborSet(final NodeImpl node, final GraphViewImpl view) {
+        int[] neighbors = new int[node.outDegree + node.inDegree];
+        int[] edges = view != null ? new int[neighbors.length] : null;
+        int length = copyAdjacency(node, GraphStore.ALL_TYPES, true, neighbors, edges, 0);
+        length = copyAdjacency(node, GraphStore.ALL_TYPES, false, neighbors, edges, length);
+        if (view != null) {
+            int kept = 0;
+            for (int i = 0; i < length; i++) {
+                if (view.containsEdge(edges[i])) {
+                    neighbors[kept++] = neighbors[i];
+                }
+            }
+            length = kept;
+        }
+        return Arrays.copyOf(neighbors, AdjacencySnapshot.distinct(neighbors, 0, length, node.storeId));
+    }
+
+    public void setSortedAdjacency(boolean sorted) {
+        //Under the build monitor so a build in progress can't publish a snapshot in the old mode
+        synchronized (snapshotMonitor) {
+            if (sortedAdjacency != sorted) {
+                sortedAdjacency = sorted;
+                snapshot = null;
+            }
+        }
+    }
+
     public EdgeImpl get(int id) {
         checkValidId(id);
 
@@ -483,15 +680,14 @@ public class EdgeStore implements Collection<Edge>, EdgeIterable {
             incrementVersion();
 
             if (garbageSize > 0) {
-                for (int i = 0; i < blocksCount; i++) {
-                    EdgeBlock edgeBlock = blocks[i];
-                    if (edgeBlock.hasGarbage()) {
-                        edgeBlock.set(edge);
-                        garbageSize--;
-                        dictionary.put(edge.getId(), edge.storeId);
-                        break;
-                    }
+                int blockIndex = garbageQueue.topInt();
+                EdgeBlock edgeBlock = blocks[blockIndex];
+                edgeBlock.set(edge);
+                if (!edgeBlock.hasGarbage()) {
+                    removeGarbageBlock(blockIndex);
                 }
+                garbageSize--;
+                dictionary.put(edge.getId(), edge.storeId);
             } else {
                 ensureCapacity(1);
                 currentBlock.add(edge);
@@ -510,15 +706,20 @@ public class EdgeStore implements Collection<Edge>, EdgeIterable {
             }
             edge.indexAttributes();
 
-            if (directed && !edge.isSelfLoop()) {
+            if (edge.isSelfLoop()) {
+                selfLoops[type].add(edge.storeId);
+            } else if (directed) {
                 EdgeImpl mutual = getMutual(edge);
                 if (mutual != null) {
                     edge.setMutual(true);
                     mutual.setMutual(true);
+                    mutualVersion++;
                     source.mutualDegree++;
                     target.mutualDegree++;
                     mutualEdgesSize++;
                     mutualEdgesTypeSize[type]++;
+                    mutualEdges[type].add(edge.storeId);
+                    mutualEdges[type].add(mutual.storeId);
                 }
             }
 
@@ -555,6 +756,7 @@ public class EdgeStore implements Collection<Edge>, EdgeIterable {
             int storeIndex = id / GraphStoreConfiguration.EDGESTORE_BLOCK_SIZE;
             EdgeBlock block = blocks[storeIndex];
             block.remove(edge);
+            addGarbageBlock(storeIndex);
 
             removeOutEdge(edge);
             removeInEdge(edge);
@@ -573,6 +775,7 @@ public class EdgeStore implements Collection<Edge>, EdgeIterable {
 
             for (int i = storeIndex; i == (blocksCount - 1) && block.garbageLength == block.nodeLength && i >= 0;) {
                 if (i != 0) {
+                    removeGarbageBlock(i);
                     blocks[i] = null;
                     blocksCount--;
                     garbageSize -= block.nodeLength;
@@ -582,6 +785,7 @@ public class EdgeStore implements Collection<Edge>, EdgeIterable {
                 } else {
                     currentBlock.clear();
                     garbageSize = 0;
+                    removeGarbageBlock(0);
                     break;
                 }
             }
@@ -589,15 +793,20 @@ public class EdgeStore implements Collection<Edge>, EdgeIterable {
             int type = edge.type;
             longDictionary[type].remove(getLongId(source, target, directed));
 
-            if (directed && !edge.isSelfLoop()) {
+            if (edge.isSelfLoop()) {
+                selfLoops[type].remove(id);
+            } else if (directed) {
                 EdgeImpl mutual = getMutual(edge);
                 if (mutual != null) {
                     edge.setMutual(false);
                     mutual.setMutual(false);
+                    mutualVersion++;
                     source.mutualDegree--;
                     target.mutualDegree--;
                     mutualEdgesSize--;
                     mutualEdgesTypeSize[type]--;
+                    mutualEdges[type].remove(id);
+                    mutualEdges[type].remove(mutual.storeId);
                 }
             }
 
@@ -614,6 +823,138 @@ public class EdgeStore implements Collection<Edge>, EdgeIterable {
         return false;
     }
 
+    private void addGarbageBlock(int blockIndex) {
+        EdgeBlock block = blocks[blockIndex];
+        if (block.garbageQueueIndex == NULL_ID) {
+            block.garbageQueueIndex = garbageQueue.size();
+            garbageQueue.push(blockIndex);
+        }
+    }
+
+    private void removeGarbageBlock(int blockIndex) {
+        //The last queued block takes the place of the removed one
+        EdgeBlock block = blocks[blockIndex];
+        int queueIndex = block.garbageQueueIndex;
+        if (queueIndex != NULL_ID) {
+            int lastIndex = garbageQueue.popInt();
+            if (lastIndex != blockIndex) {
+                garbageQueue.set(queueIndex, lastIndex);
+                blocks[lastIndex].garbageQueueIndex = queueIndex;
+            }
+            block.garbageQueueIndex = NULL_ID;
+        }
+    }
+
+    /**
+     * Relocates the edges into dense store ids, starting at zero.
+     * <p>
+     * Linked-list pointers, dictionaries, view bit vectors and observer caches
+     * are rewritten. Runs in time linear in the number of edges and does
+     * nothing if the store has no garbage.
+     *
+     * @return true if edges were relocated, false otherwise
+     */
+    public boolean compact() {
+        checkWriteLock();
+
+        if (garbageSize == 0) {
+            return false;
+        }
+
+        //Collect edges in store id order
+        EdgeImpl[] edges = new EdgeImpl[size];
+        int index = 0;
+        for (int i = 0; i < blocksCount; i++) {
+            EdgeBlock block = blocks[i];
+            EdgeImpl[] backingArray = block.backingArray;
+            for (int j = 0; j < block.nodeLength; j++) {
+                EdgeImpl edge = backingArray[j];
+                if (edge != null) {
+                    edges[index++] = edge;
+                }
+            }
+        }
+        relocate(edges);
+        return true;
+    }
+
+    void reorder(final EdgeImpl[] order) {
+        checkWriteLock();
+
+        if (order.length != size) {
+            throw new IllegalArgumentException("The order should contain every edge of the store");
+        }
+        boolean[] seen = new boolean[maxStoreId()];
+        for (EdgeImpl edge : order) {
+            checkNonNullEdgeObject(edge);
+            checkEdgeExists(edge);
+            if (seen[edge.storeId]) {
+                throw new IllegalArgumentException("The edge appears twice in the order");
+            }
+            seen[edge.storeId] = true;
+        }
+        relocate(order);
+    }
+
+    private void relocate(final EdgeImpl[] edges) {
+        incrementVersion();
+
+        //Map old ids to new ids
+        int[] map = new int[maxStoreId()];
+        Arrays.fill(map, NULL_ID);
+        for (int i = 0; i < edges.length; i++) {
+            map[edges[i].storeId] = i;
+        }
+
+        //Rewrite linked-list pointers
+        for (EdgeImpl edge : edges) {
+            edge.nextOutEdge = edge.nextOutEdge != NULL_ID ? map[edge.nextOutEdge] : NULL_ID;
+            edge.nextInEdge = edge.nextInEdge != NULL_ID ? map[edge.nextInEdge] : NULL_ID;
+            edge.previousOutEdge = edge.previousOutEdge != NULL_ID ? map[edge.previousOutEdge] : NULL_ID;
+            edge.previousInEdge = edge.previousInEdge != NULL_ID ? map[edge.previousInEdge] : NULL_ID;
+        }
+
+        //Relocate in dense blocks
+        int blocksNeeded = Math.max(1, (int) Math.ceil(size / (double) GraphStoreConfiguration.EDGESTORE_BLOCK_SIZE));
+        blocks = new EdgeBlock[Math.max(GraphStoreConfiguration.EDGESTORE_DEFAULT_BLOCKS, blocksNeeded)];
+        for (int i = 0; i < blocksNeeded; i++) {
+            blocks[i] = new EdgeBlock(i);
+        }
+        blocksCount = blocksNeeded;
+        currentBlockIndex = 0;
+        currentBlock = blocks[0];
+
+        //Node store ids may have changed as well so the long keys are rebuilt
+        for (Long2IntOpenHashMap dico : longDictionary) {
+            if (dico != null) {
+                dico.clear();
+            }
+        }
+        for (int i = 0; i < selfLoops.length; i++) {
+            selfLoops[i].clear();
+            mutualEdges[i].clear();
+        }
+        for (EdgeImpl edge : edges) {
+            if (currentBlock.getCapacity() == 0) {
+                currentBlock = blocks[++currentBlockIndex];
+            }
+            currentBlock.add(edge);
+            dictionary.put(edge.getId(), edge.storeId);
+            longDictionary[edge.type].put(getLongId(edge.source, edge.target, edge.isDirected()), edge.storeId);
+            if (edge.isSelfLoop()) {
+                selfLoops[edge.type].add(edge.storeId);
+            } else if (edge.isMutual()) {
+                mutualEdges[edge.type].add(edge.storeId);
+            }
+        }
+        garbageSize = 0;
+        garbageQueue.clear();
+
+        if (viewStore != null) {
+            viewStore.compactEdges(map, size);
+        }
+    }
+
     @Override
     public boolean contains(Object o) {
         checkNonNullEdgeObject(o);
@@ -744,23 +1085,138 @@ public class EdgeStore implements Collection<Edge>, EdgeIterable {
         checkCollection(c);
 
         if (!c.isEmpty()) {
+            //Presize blocks and dictionaries
+            int[] typeCounts = new int[longDictionary.length];
+            for (Edge e : c) {
+                checkNonNullEdgeObject(e);
+                int type = ((EdgeImpl) e).type;
+                if (type >= typeCounts.length) {
+                    int[] newArray = new int[type + 1];
+                    System.arraycopy(typeCounts, 0, newArray, 0, typeCounts.length);
+                    typeCounts = newArray;
+                }
+                typeCounts[type]++;
+            }
+            for (int i = 0; i < typeCounts.length; i++) {
+                if (typeCounts[i] > 0) {
+                    ensureLongDictionaryCapacity(i, typeCounts[i]);
+                }
+            }
+            ensureDictionaryCapacity(c.size());
             int capacityNeeded = c.size() - garbageSize;
             if (capacityNeeded > 0) {
                 ensureCapacity(capacityNeeded);
             }
-            boolean changed = false;
-            Iterator<? extends Edge> itr = c.iterator();
-            while (itr.hasNext()) {
-                Edge e = itr.next();
-                if (add(e)) {
-                    changed = true;
+
+            //Fill blocks, degrees, mutual flags, views and indexing are deferred
+            EdgeImpl[] added = new EdgeImpl[c.size()];
+            int addedCount = 0;
+            try {
+                for (Edge e : c) {
+                    EdgeImpl edge = (EdgeImpl) e;
+                    if (bulkAdd(edge)) {
+                        added[addedCount++] = edge;
+                    }
+                }
+            } finally {
+                if (addedCount > 0) {
+                    incrementVersion();
+                    completeBulkAdd(added, addedCount);
                 }
             }
-            return changed;
+            return addedCount > 0;
         }
         return false;
     }
 
+    private boolean bulkAdd(final EdgeImpl edge) {
+        if (edge.storeId == EdgeStore.NULL_ID) {
+            checkIdDoesntExist(edge.getId());
+            checkSourceTargets(edge);
+            checkUndirectedNotExist(edge);
+
+            int type = edge.type;
+            boolean directed = edge.isDirected();
+
+            Long2IntOpenHashMap dico = longDictionary[type];
+            long longId = getLongId(edge.source, edge.target, directed);
+            if (dico.containsKey(longId)) {
+                return false;
+            }
+
+            if (garbageSize > 0) {
+                int blockIndex = garbageQueue.topInt();
+                EdgeBlock edgeBlock = blocks[blockIndex];
+                edgeBlock.set(edge);
+                if (!edgeBlock.hasGarbage()) {
+                    removeGarbageBlock(blockIndex);
+                }
+                garbageSize--;
+            } else {
+                ensureCapacity(1);
+                currentBlock.add(edge);
+            }
+            dictionary.put(edge.getId(), edge.storeId);
+            dico.put(longId, edge.storeId);
+
+            insertOutEdge(edge);
+            insertInEdge(edge);
+
+            if (!directed) {
+                undirectedSize++;
+            }
+            size++;
+            return true;
+        } else if (isValidIndex(edge.storeId) && get(edge.storeId) == edge) {
+            return false;
+        } else {
+            throw new IllegalArgumentException("The edge already belongs to another store");
+        }
+    }
+
+    private void completeBulkAdd(final EdgeImpl[] edges, final int count) {
+        for (int i = 0; i < count; i++) {
+            EdgeImpl edge = edges[i];
+            NodeImpl source = edge.source;
+            NodeImpl target = edge.target;
+
+            source.outDegree++;
+            target.inDegree++;
+
+            if (edge.isSelfLoop()) {
+                selfLoops[edge.type].add(edge.storeId);
+            } else if (edge.isDirected() && !edge.isMutual()) {
+                EdgeImpl mutual = getMutual(edge);
+                if (mutual != null) {
+                    edge.setMutual(true);
+                    mutual.setMutual(true);
+                    mutualVersion++;
+                    source.mutualDegree++;
+                    target.mutualDegree++;
+                    mutualEdgesSize++;
+                    mutualEdgesTypeSize[edge.type]++;
+                    mutualEdges[edge.type].add(edge.storeId);
+                    mutualEdges[edge.type].add(mutual.storeId);
+                }
+            }
+        }
+
+        if (viewStore != null) {
+            viewStore.addEdges(edges, count);
+        }
+
+        ColumnStore columnStore = edges[0].getColumnStore();
+        if (columnStore != null) {
+            columnStore.indexStore.index(edges, count);
+        }
+        TimestampIndexStore timestampIndexStore = edges[0].getTimestampIndexStore();
+        if (timestampIndexStore != null) {
+            for (int i = 0; i < count; i++) {
+                timestampIndexStore.index(edges[i]);
+            }
+        }
+    }
+
     @Override
     public boolean removeAll(Collection<?> c) {
         checkCollection(c);
@@ -905,6 +1361,7 @@ public class EdgeStore implements Collection<Edge>, EdgeIterable {
     }
 
     void checkIdDoesntExist(Object id) {
+        dictionary.checkIdType(id);
         if (dictionary.containsKey(id)) {
             throw new IllegalArgumentException("The node id already exist");
         }
@@ -1002,6 +1459,8 @@ public class EdgeStore implements Collection<Edge>, EdgeIterable {
         if (version != null) {
             version.incrementAndGetEdgeVersion();
         }
+        //Versions may be deferred by a batch, so don't rely on them
+        snapshot = null;
     }
 
     boolean isUndirectedToIgnore(EdgeImpl edge) {
@@ -1031,6 +1490,7 @@ public class EdgeStore implements Collection<Edge>, EdgeIterable {
         protected final EdgeImpl[] backingArray;
         protected int nodeLength;
         protected int garbageLength;
+        protected int garbageQueueIndex = NULL_ID;
 
         public EdgeBlock(int index) {
             this.offset = index * GraphStoreConfiguration.EDGESTORE_BLOCK_SIZE;
@@ -1154,25 +1614,71 @@ public class EdgeStore implements Collection<Edge>, EdgeIterable {
         }
     }
 
-    protected final class SelfLoopIterator extends EdgeStoreIterator {
+    protected class EdgeIdSetIterator implements Iterator<Edge> {
 
-        public SelfLoopIterator() {
-            super();
+        protected final IntSortedSet[] sets;
+        protected final int typeLength;
+        protected int typeIndex;
+        protected int lastId = NULL_ID;
+        protected EdgeImpl pointer;
+
+        public EdgeIdSetIterator(IntSortedSet[] sets, int type) {
+            readLock();
+            this.sets = sets;
+            if (type == GraphStore.ALL_TYPES) {
+                this.typeIndex = 0;
+                this.typeLength = sets.length;
+            } else {
+                this.typeIndex = type;
+                this.typeLength = type >= 0 ? Math.min(type + 1, sets.length) : 0;
+            }
         }
 
         @Override
         public boolean hasNext() {
+            //Ids are looked up after the last one so removing while iterating is supported
             pointer = null;
-            while (pointer == null) {
-                if (!super.hasNext()) {
-                    return false;
-                }
-                if (!pointer.isSelfLoop()) {
-                    pointer = null;
+            while (pointer == null && typeIndex < typeLength) {
+                IntSortedSet tail = sets[typeIndex].tailSet(lastId + 1);
+                if (tail.isEmpty()) {
+                    typeIndex++;
+                    lastId = NULL_ID;
+                } else {
+                    lastId = tail.firstInt();
+                    pointer = get(lastId);
                 }
             }
+            if (pointer == null) {
+                readUnlock();
+                return false;
+            }
             return true;
         }
+
+        @Override
+        public EdgeImpl next() {
+            return pointer;
+        }
+
+        @Override
+        public void remove() {
+            checkWriteLock();
+            EdgeStore.this.remove(pointer);
+        }
+    }
+
+    protected final class SelfLoopIterator extends EdgeIdSetIterator {
+
+        public SelfLoopIterator(int type) {
+            super(selfLoops, type);
+        }
+    }
+
+    protected final class MutualEdgeIterator extends EdgeIdSetIterator {
+
+        public MutualEdgeIterator(int type) {
+            super(mutualEdges, type);
+        }
     }
 
     protected final class EdgeInOutIterator implements Iterator<Edge> {
@@ -1619,4 +2125,119 @@ public class EdgeStore implements Collection<Edge>, EdgeIterable {
             EdgeStore.this.remove(pointer);
         }
     }
+
+    protected final class EdgeStorePartition implements EdgeIterable {
+
+        protected final int fromBlock;
+        protected final int toBlock;
+        protected EdgeStoreRangeIterator iterator;
+
+        public EdgeStorePartition(int fromBlock, int toBlock) {
+            this.fromBlock = fromBlock;
+            this.toBlock = toBlock;
+        }
+
+        @Override
+        public Iterator<Edge> iterator() {
+            iterator = new EdgeStoreRangeIterator(fromBlock, toBlock);
+            return iterator;
+        }
+
+        @Override
+        public Edge[] toArray() {
+            List<Edge> list = new ArrayList<Edge>();
+            for (EdgeStoreRangeIterator itr = new EdgeStoreRangeIterator(fromBlock, toBlock); itr.hasNext();) {
+                list.add(itr.next());
+            }
+            return list.toArray(new Edge[0]);
+        }
+
+        @Override
+        public Collection<Edge> toCollection() {
+            List<Edge> list = new ArrayList<Edge>();
+            for (EdgeStoreRangeIterator itr = new EdgeStoreRangeIterator(fromBlock, toBlock); itr.hasNext();) {
+                list.add(itr.next());
+            }
+            return list;
+        }
+
+        @Override
+        public void doBreak() {
+            if (iterator != null) {
+                iterator.doBreak();
+            }
+        }
+    }
+
+    protected final class EdgeStoreRangeIterator implements Iterator<Edge> {
+
+        protected final int toBlock;
+        protected int blockIndex;
+        protected EdgeImpl[] backingArray;
+        protected int blockLength;
+        protected int cursor;
+        protected EdgeImpl pointer;
+        protected boolean started;
+        protected boolean finished;
+
+        public EdgeStoreRangeIterator(int fromBlock, int toBlock) {
+            this.blockIndex = fromBlock;
+            this.toBlock = toBlock;
+        }
+
+        @Override
+        public boolean hasNext() {
+            if (finished) {
+                return false;
+            }
+            if (!started) {
+                //The read lock is taken by the consuming thread
+                started = true;
+                readLock();
+                if (blockIndex >= Math.min(toBlock, blocksCount)) {
+                    finished = true;
+                    readUnlock();
+                    return false;
+                }
+                backingArray = blocks[blockIndex].backingArray;
+                blockLength = blocks[blockIndex].nodeLength;
+            }
+            pointer = null;
+            while (cursor == blockLength || ((pointer = backingArray[cursor++]) == null)) {
+                if (cursor == blockLength) {
+                    if (++blockIndex < Math.min(toBlock, blocksCount)) {
+                        backingArray = blocks[blockIndex].backingArray;
+                        blockLength = blocks[blockIndex].nodeLength;
+                        cursor = 0;
+                    } else {
+                        break;
+                    }
+                }
+            }
+            if (pointer == null) {
+                finished = true;
+                readUnlock();
+                return false;
+            }
+            return true;
+        }
+
+        @Override
+        public EdgeImpl next() {
+            return pointer;
+        }
+
+        @Override
+        public void remove() {
+            throw new UnsupportedOperationException("Remove not supported for this iterator");
+        }
+
+        public void doBreak() {
+            //The read lock is only held between the first hasNext() and the end
+            if (started && !finished) {
+                finished = true;
+                readUnlock();
+            }
+        }
+    }
 }
@@ -37,6 +37,13 @@ import org.gephi.graph.api.Element;
 import org.gephi.graph.api.GraphView;
 
 /**
+ * Base class of nodes and edges.
+ * <p>
+ * Attribute values are kept in a copy-on-write array: writers synchronize on
+ * the element, copy the array, modify the copy and publish it through the
+ * volatile <code>attributes</code> field. Static attribute reads therefore
+ * never lock and always see a consistent array. Dynamic values are mutated in
+ * place so reading them still synchronizes on the element.
  *
  * @author mbastian
  */
@@ -44,8 +51,8 @@ public abstract class ElementImpl implements Element {
 
     //Reference to store
     protected final GraphStore graphStore;
-    //Attributes
-    protected Object[] attributes;
+    //Attributes, copy-on-write
+    protected volatile Object[] attributes;
 
     public ElementImpl(Object id, GraphStore graphStore) {
         if (id == null) {
@@ -69,8 +76,9 @@ public abstract class ElementImpl implements Element {
 
     @Override
     public String getLabel() {
-        if (GraphStoreConfiguration.ENABLE_ELEMENT_LABEL && attributes.length > GraphStoreConfiguration.ELEMENT_LABEL_INDEX) {
-            return (String) attributes[GraphStoreConfiguration.ELEMENT_LABEL_INDEX];
+        final Object[] array = attributes;
+        if (GraphStoreConfiguration.ENABLE_ELEMENT_LABEL && array.length > GraphStoreConfiguration.ELEMENT_LABEL_INDEX) {
+            return (String) array[GraphStoreConfiguration.ELEMENT_LABEL_INDEX];
         }
         return null;
     }
@@ -86,10 +94,9 @@ public abstract class ElementImpl implements Element {
 
         int index = column.getIndex();
         Object res = null;
-        synchronized (this) {
-            if (index < attributes.length) {
-                res = attributes[index];
-            }
+        final Object[] array = attributes;
+        if (index < array.length) {
+            res = array[index];
         }
 
         if (res == null) {
@@ -193,18 +200,23 @@ public abstract class ElementImpl implements Element {
 
         ColumnStore columnStore = getColumnStore();
         int index = column.getIndex();
+        Object oldValue = null;
         synchronized (this) {
             if (index < attributes.length) {
-                Object oldValue = attributes[index];
-                attributes[index] = null;
+                Object[] newArray = copyAttributes(0);
+                oldValue = newArray[index];
+                newArray[index] = null;
                 if (column.isIndexed() && columnStore != null && isValid()) {
                     columnStore.indexStore.set(column, oldValue, column.getDefaultValue(), this);
                 }
+                attributes = newArray;
                 ((ColumnImpl)column).incrementVersion();
-                return oldValue;
+            } else {
+                return null;
             }
         }
-        return null;
+        updateViews(column);
+        return oldValue;
     }
 
     @Override
@@ -212,12 +224,12 @@ public abstract class ElementImpl implements Element {
         if (GraphStoreConfiguration.ENABLE_ELEMENT_LABEL) {
             int index = GraphStoreConfiguration.ELEMENT_LABEL_INDEX;
             synchronized (this) {
-                if (index >= attributes.length) {
-                    Object[] newArray = new Object[index + 1];
-                    System.arraycopy(attributes, 0, newArray, 0, attributes.length);
-                    attributes = newArray;
-                }
-                attributes[index] = label;
+                Object[] newArray = copyAttributes(index + 1);
+                newArray[index] = label;
+                attributes = newArray;
+            }
+            if (graphStore != null && graphStore.viewStore.predicateViews.length > 0) {
+                updateViews(getColumnStore().getColumnByIndex(index));
             }
         }
     }
@@ -238,20 +250,17 @@ public abstract class ElementImpl implements Element {
         Object oldValue = null;
 
         synchronized (this) {
-            if (index >= attributes.length) {
-                Object[] newArray = new Object[index + 1];
-                System.arraycopy(attributes, 0, newArray, 0, attributes.length);
-                attributes = newArray;
-            } else {
-                oldValue = attributes[index];
-            }
+            Object[] newArray = copyAttributes(index + 1);
+            oldValue = newArray[index];
 
             if (column.isIndexed() && columnStore != null && isValid()) {
                 value = columnStore.indexStore.set(column, oldValue, value, this);
             }
-            attributes[index] = value;
+            newArray[index] = value;
+            attributes = newArray;
             ((ColumnImpl)column).incrementVersion();
         }
+        updateViews(column);
     }
 
     @Override
@@ -273,21 +282,20 @@ public abstract class ElementImpl implements Element {
             int index = column.getIndex();
             Object oldValue = null;
             synchronized (this) {
-                if (index >= attributes.length) {
-                    Object[] newArray = new Object[index + 1];
-                    System.arraycopy(attributes, 0, newArray, 0, attributes.length);
-                    attributes = newArray;
-                } else {
+                if (index < attributes.length) {
                     oldValue = attributes[index];
                 }
 
                 TimestampValueSet dynamicValue = null;
                 if (oldValue == null) {
                     try {
-                        attributes[index] = dynamicValue = (TimestampValueSet) column.getTypeClass().newInstance();
+                        dynamicValue = (TimestampValueSet) column.getTypeClass().newInstance();
                     } catch (Exception ex) {
                         throw new RuntimeException(ex);
                     }
+                    Object[] newArray = copyAttributes(index + 1);
+                    newArray[index] = dynamicValue;
+                    attributes = newArray;
                 } else {
                     dynamicValue = (TimestampValueSet) oldValue;
                 }
@@ -313,12 +321,9 @@ public abstract class ElementImpl implements Element {
                 if (timestampSet == null) {
                     timestampSet = new TimestampSet();
                     int index = GraphStoreConfiguration.ELEMENT_TIMESTAMP_INDEX;
-                    if (index >= attributes.length) {
-                        Object[] newArray = new Object[index + 1];
-                        System.arraycopy(attributes, 0, newArray, 0, attributes.length);
-                        attributes = newArray;
-                    }
-                    attributes[index] = timestampSet;
+                    Object[] newArray = copyAttributes(index + 1);
+                    newArray[index] = timestampSet;
+                    attributes = newArray;
                 }
                 final int timestampIndex = timestampStore.add(timestamp, this);
                 return timestampSet.add(timestampIndex);
@@ -406,12 +411,29 @@ public abstract class ElementImpl implements Element {
     }
 
     protected TimestampSet getTimestampSet() {
-        if (GraphStoreConfiguration.ENABLE_ELEMENT_TIMESTAMP_SET && GraphStoreConfiguration.ELEMENT_TIMESTAMP_INDEX < attributes.length) {
-            return (TimestampSet) attributes[GraphStoreConfiguration.ELEMENT_TIMESTAMP_INDEX];
+        final Object[] array = attributes;
+        if (GraphStoreConfiguration.ENABLE_ELEMENT_TIMESTAMP_SET && GraphStoreConfiguration.ELEMENT_TIMESTAMP_INDEX < array.length) {
+            return (TimestampSet) array[GraphStoreConfiguration.ELEMENT_TIMESTAMP_INDEX];
         }
         return null;
     }
 
+    /**
+     * Returns a copy of the attribute array, at least <em>length</em> long.
+     * <p>
+     * Must be called while synchronized on this element, the copy is then
+     * modified and published by assigning it to <code>attributes</code>.
+     *
+     * @param length minimum length of the copy
+     * @return copy of the attribute array
+     */
+    protected Object[] copyAttributes(int length) {
+        final Object[] array = attributes;
+        Object[] newArray = new Object[Math.max(length, array.length)];
+        System.arraycopy(array, 0, newArray, 0, array.length);
+        return newArray;
+    }
+
     protected void indexAttributes() {
         synchronized (this) {
             ColumnStore columnStore = getColumnStore();
@@ -476,6 +498,18 @@ public abstract class ElementImpl implements Element {
         return graphStore;
     }
 
+    /**
+     * Notifies the predicate views that the value in <code>column</code> has
+     * changed. Must not be called while synchronized on this element.
+     *
+     * @param column the changed column
+     */
+    void updateViews(Column column) {
+        if (graphStore != null && graphStore.viewStore.predicateViews.length > 0 && isValid()) {
+            graphStore.viewStore.attributeChanged(this, column);
+        }
+    }
+
     void checkEnabledTimestampSet() {
         if (!GraphStoreConfiguration.ENABLE_ELEMENT_TIMESTAMP_SET) {
             throw new RuntimeException("Can't call timestamp methods if they are disabled");
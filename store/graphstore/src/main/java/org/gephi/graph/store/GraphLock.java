@@ -20,28 +20,72 @@ import java.util.concurrent.locks.ReentrantReadWriteLock.ReadLock;
 import java.util.concurrent.locks.ReentrantReadWriteLock.WriteLock;
 
 /**
+ * Read-write lock of the graph store.
+ * <p>
+ * When created with metrics, see
+ * {@link GraphModelConfiguration#setEnableLockMetrics(boolean)}, outermost
+ * acquisitions and releases are recorded in a {@link LockMetrics}.
  *
  * @author mbastian
  */
 public class GraphLock {
 
+    //Lock
     protected final ReentrantReadWriteLock readWriteLock;
     protected final ReadLock readLock;
     protected final WriteLock writeLock;
+    //Metrics
+    protected final LockMetrics metrics;
+    protected final ThreadLocal<long[]> readHold;
+    protected long writeHoldStart;
 
     public GraphLock() {
+        this(GraphStoreConfiguration.ENABLE_LOCK_METRICS);
+    }
+
+    public GraphLock(boolean withMetrics) {
         readWriteLock = new ReentrantReadWriteLock();
         readLock = readWriteLock.readLock();
         writeLock = readWriteLock.writeLock();
+        if (withMetrics) {
+            metrics = new LockMetrics(readWriteLock);
+            readHold = new ThreadLocal<long[]>() {
+                @Override
+                protected long[] initialValue() {
+                    //Hold count and start time
+                    return new long[2];
+                }
+            };
+        } else {
+            metrics = null;
+            readHold = null;
+        }
     }
 
     //Locking
     public void readLock() {
+        if (metrics == null) {
+            readLock.lock();
+            return;
+        }
+        long start = System.nanoTime();
         readLock.lock();
+        long[] hold = readHold.get();
+        if (hold[0]++ == 0) {
+            long now = System.nanoTime();
+            hold[1] = now;
+            metrics.readAcquired(now - start);
+        }
     }
 
     public void readUnlock() {
         readLock.unlock();
+        if (metrics != null) {
+            long[] hold = readHold.get();
+            if (hold[0] > 0 && --hold[0] == 0) {
+                metrics.readReleased(System.nanoTime() - hold[1]);
+            }
+        }
     }
 
     public void readUnlockAll() {
@@ -49,19 +93,50 @@ public class GraphLock {
         for (int n = 0; n < nReadLocks; n++) {
             readLock.unlock();
         }
+        if (metrics != null) {
+            long[] hold = readHold.get();
+            if (hold[0] > 0) {
+                hold[0] = 0;
+                metrics.readReleased(System.nanoTime() - hold[1]);
+            }
+        }
     }
 
     public void writeLock() {
         if (readWriteLock.getReadHoldCount() > 0 && !readWriteLock.isWriteLockedByCurrentThread()) {
             throw new IllegalMonitorStateException("Impossible to acquire a write lock when currently holding a read lock. Use toArray() methods on NodeIterable and EdgeIterable to avoid holding a readLock or wrap your loop with a write lock.");
         }
+        long start = metrics != null ? System.nanoTime() : 0l;
         writeLock.lock();
+        if (metrics != null && readWriteLock.getWriteHoldCount() == 1) {
+            long now = System.nanoTime();
+            writeHoldStart = now;
+            metrics.writeAcquired(now - start);
+        }
+    }
+
+    public boolean tryWriteLock() {
+        if (!writeLock.tryLock()) {
+            return false;
+        }
+        if (metrics != null && readWriteLock.getWriteHoldCount() == 1) {
+            writeHoldStart = System.nanoTime();
+            metrics.writeAcquired(0l);
+        }
+        return true;
     }
 
     public void writeUnlock() {
+        if (metrics != null && readWriteLock.getWriteHoldCount() == 1) {
+            metrics.writeReleased(System.nanoTime() - writeHoldStart);
+        }
         writeLock.unlock();
     }
 
+    public LockMetrics getMetrics() {
+        return metrics;
+    }
+
     public void checkHoldWriteLock() {
         if (!readWriteLock.isWriteLockedByCurrentThread()) {
             throw new IllegalArgumentException("Impossible to perform a write operation while holding only a read lock. Wrap your code with a write loop to solve this.");
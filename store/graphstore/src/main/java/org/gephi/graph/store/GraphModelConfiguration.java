@@ -0,0 +1,114 @@
+/*
+ * Copyright 2012-2013 Gephi Consortium
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.gephi.graph.store;
+
+/**
+ * Options of a graph model, set when the model is created.
+ * <p>
+ * Unlike {@link GraphStoreConfiguration}, these options can differ between
+ * models of the same application:
+ * <pre>
+ * GraphModelConfiguration configuration = new GraphModelConfiguration();
+ * configuration.setEnableLockMetrics(true);
+ * configuration.setNodeIdType(Long.class);
+ * GraphModelImpl graphModel = new GraphModelImpl(configuration);
+ * </pre>
+ *
+ * @author mbastian
+ */
+public class GraphModelConfiguration {
+
+    private boolean enableLockMetrics = GraphStoreConfiguration.ENABLE_LOCK_METRICS;
+    private Class nodeIdType = Object.class;
+    private Class edgeIdType = Object.class;
+
+    /**
+     * Returns true if the graph and table locks record contention and hold
+     * time metrics.
+     *
+     * @return true if lock metrics are enabled, false otherwise
+     */
+    public boolean isEnableLockMetrics() {
+        return enableLockMetrics;
+    }
+
+    /**
+     * Sets whether the graph and table locks record contention and hold time
+     * metrics.
+     * <p>
+     * Recording adds a thread-local lookup on every read lock acquisition and
+     * release, plus two calls to <code>System.nanoTime()</code> and a few
+     * atomic counter updates per outermost acquisition. That is significant
+     * next to an uncontended lock on hot read paths, so metrics are disabled
+     * by default and meant for profiling sessions.
+     *
+     * @param enableLockMetrics true to enable lock metrics, false otherwise
+     */
+    public void setEnableLockMetrics(boolean enableLockMetrics) {
+        this.enableLockMetrics = enableLockMetrics;
+    }
+
+    /**
+     * Returns the type of node ids, <code>Object</code> if any type is
+     * accepted.
+     *
+     * @return the node id type
+     */
+    public Class getNodeIdType() {
+        return nodeIdType;
+    }
+
+    /**
+     * Sets the type of node ids.
+     * <p>
+     * With <code>Object</code>, the default, the id dictionary picks its key
+     * type from the first node added. With <code>String</code>,
+     * <code>Long</code> or <code>Integer</code> the dictionary is allocated
+     * for that type when the model is created, <code>Long</code> and
+     * <code>Integer</code> ids without boxing, and adding a node with an id of
+     * another type throws <code>IllegalArgumentException</code>.
+     *
+     * @param nodeIdType <code>Object</code>, <code>String</code>,
+     * <code>Long</code> or <code>Integer</code>
+     * @throws IllegalArgumentException if the type isn't supported
+     */
+    public void setNodeIdType(Class nodeIdType) {
+        IdDictionary.checkSupportedIdType(nodeIdType);
+        this.nodeIdType = nodeIdType;
+    }
+
+    /**
+     * Returns the type of edge ids, <code>Object</code> if any type is
+     * accepted.
+     *
+     * @return the edge id type
+     */
+    public Class getEdgeIdType() {
+        return edgeIdType;
+    }
+
+    /**
+     * Sets the type of edge ids, see {@link #setNodeIdType(java.lang.Class)}.
+     *
+     * @param edgeIdType <code>Object</code>, <code>String</code>,
+     * <code>Long</code> or <code>Integer</code>
+     * @throws IllegalArgumentException if the type isn't supported
+     */
+    public void setEdgeIdType(Class edgeIdType) {
+        IdDictionary.checkSupportedIdType(edgeIdType);
+        this.edgeIdType = edgeIdType;
+    }
+}
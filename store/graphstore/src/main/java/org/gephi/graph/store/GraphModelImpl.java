@@ -16,6 +16,7 @@
 package org.gephi.graph.store;
 
 import org.gephi.attribute.api.AttributeModel;
+import org.gephi.attribute.api.Column;
 import org.gephi.attribute.api.Index;
 import org.gephi.attribute.api.Table;
 import org.gephi.attribute.api.TimeFormat;
@@ -24,11 +25,13 @@ import org.gephi.attribute.time.Interval;
 import org.gephi.graph.api.DirectedGraph;
 import org.gephi.graph.api.DirectedSubgraph;
 import org.gephi.graph.api.Edge;
+import org.gephi.graph.api.ElementPredicate;
 import org.gephi.graph.api.Graph;
 import org.gephi.graph.api.GraphFactory;
 import org.gephi.graph.api.GraphModel;
 import org.gephi.graph.api.GraphObserver;
 import org.gephi.graph.api.GraphView;
+import org.gephi.graph.api.GraphWriteBatch;
 import org.gephi.graph.api.Node;
 import org.gephi.graph.api.Subgraph;
 import org.gephi.graph.api.UndirectedGraph;
@@ -40,11 +43,17 @@ import org.gephi.graph.api.UndirectedSubgraph;
  */
 public class GraphModelImpl implements GraphModel, AttributeModel {
 
+    protected final GraphModelConfiguration configuration;
     protected final GraphStore store;
     protected final TableImpl<Node> nodeTable;
     protected final TableImpl<Edge> edgeTable;
 
     public GraphModelImpl() {
+        this(new GraphModelConfiguration());
+    }
+
+    public GraphModelImpl(GraphModelConfiguration configuration) {
+        this.configuration = configuration;
         store = new GraphStore(this);
         nodeTable = new TableImpl<Node>(store.nodeColumnStore);
         edgeTable = new TableImpl<Edge>(store.edgeColumnStore);
@@ -103,6 +112,11 @@ public class GraphModelImpl implements GraphModel, AttributeModel {
         return store.viewStore.getUndirectedGraph(view);
     }
 
+    @Override
+    public Graph snapshot() {
+        return new GraphSnapshot(store);
+    }
+
     @Override
     public GraphView getVisibleView() {
         return store.viewStore.getVisibleView();
@@ -193,6 +207,16 @@ public class GraphModelImpl implements GraphModel, AttributeModel {
         return store.viewStore.createView(node, edge);
     }
 
+    @Override
+    public GraphView createView(ElementPredicate<Node> nodePredicate, ElementPredicate<Edge> edgePredicate) {
+        return store.viewStore.createView(nodePredicate, edgePredicate);
+    }
+
+    @Override
+    public GraphView createIndexView(Column column, Object value) {
+        return store.viewStore.createIndexView(column, value);
+    }
+
     @Override
     public GraphView copyView(GraphView view) {
         return store.viewStore.createView(view);
@@ -203,6 +227,26 @@ public class GraphModelImpl implements GraphModel, AttributeModel {
         return store.viewStore.createView(view, node, edge);
     }
 
+    @Override
+    public GraphView createUnionView(GraphView... views) {
+        return store.viewStore.createUnionView(views);
+    }
+
+    @Override
+    public GraphView createIntersectionView(GraphView... views) {
+        return store.viewStore.createIntersectionView(views);
+    }
+
+    @Override
+    public GraphView createDifferenceView(GraphView view, GraphView other) {
+        return store.viewStore.createDifferenceView(view, other);
+    }
+
+    @Override
+    public GraphView createComplementView(GraphView view) {
+        return store.viewStore.createComplementView(view);
+    }
+
     @Override
     public void destroyView(GraphView view) {
         store.viewStore.destroyView(view);
@@ -213,6 +257,21 @@ public class GraphModelImpl implements GraphModel, AttributeModel {
         store.viewStore.setTimeInterval(view, interval);
     }
 
+    @Override
+    public GraphWriteBatch createWriteBatch() {
+        return store.createWriteBatch();
+    }
+
+    @Override
+    public void setCachedDegrees(GraphView view, boolean cached) {
+        store.viewStore.setCachedDegrees(view, cached);
+    }
+
+    @Override
+    public void setSortedAdjacency(boolean sorted) {
+        store.setSortedAdjacency(sorted);
+    }
+
     @Override
     public Table getNodeTable() {
         return nodeTable;
@@ -305,6 +364,54 @@ public class GraphModelImpl implements GraphModel, AttributeModel {
         }
     }
 
+    @Override
+    public LockMetrics getGraphLockMetrics() {
+        return store.lock.getMetrics();
+    }
+
+    @Override
+    public LockMetrics getNodeTableLockMetrics() {
+        TableLock lock = store.nodeColumnStore.lock;
+        return lock != null ? lock.getMetrics() : null;
+    }
+
+    @Override
+    public LockMetrics getEdgeTableLockMetrics() {
+        TableLock lock = store.edgeColumnStore.lock;
+        return lock != null ? lock.getMetrics() : null;
+    }
+
+    /**
+     * Registers the graph and table lock metrics as JMX MBeans named
+     * <code>org.gephi.graph:type=...,name=<em>name</em></code>.
+     *
+     * @param name the name distinguishing this model's MBeans
+     */
+    public void registerLockMetrics(String name) {
+        LockMetrics graphMetrics = getGraphLockMetrics();
+        if (graphMetrics != null) {
+            graphMetrics.register(getLockMetricsName("GraphLock", name));
+        }
+        LockMetrics nodeMetrics = getNodeTableLockMetrics();
+        if (nodeMetrics != null) {
+            nodeMetrics.register(getLockMetricsName("NodeTableLock", name));
+        }
+        LockMetrics edgeMetrics = getEdgeTableLockMetrics();
+        if (edgeMetrics != null) {
+            edgeMetrics.register(getLockMetricsName("EdgeTableLock", name));
+        }
+    }
+
+    public void unregisterLockMetrics(String name) {
+        LockMetrics.unregister(getLockMetricsName("GraphLock", name));
+        LockMetrics.unregister(getLockMetricsName("NodeTableLock", name));
+        LockMetrics.unregister(getLockMetricsName("EdgeTableLock", name));
+    }
+
+    private String getLockMetricsName(String type, String name) {
+        return "org.gephi.graph:type=" + type + ",name=" + name;
+    }
+
     @Override
     public TimeFormat getTimeFormat() {
         return store.timeFormat;
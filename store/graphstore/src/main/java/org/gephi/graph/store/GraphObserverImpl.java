@@ -163,6 +163,54 @@ public class GraphObserverImpl implements GraphObserver {
 
     }
 
+    protected void compactEdgeCache(int size) {
+        if (edgeCache != null) {
+            //Edges no longer in the store are kept after the live ones so the next diff still reports them
+            int staleCount = 0;
+            for (EdgeImpl edge : edgeCache) {
+                if (edge != null && !graphStore.edgeStore.contains(edge)) {
+                    staleCount++;
+                }
+            }
+            EdgeImpl[] newCache = new EdgeImpl[size + staleCount];
+            int staleIndex = size;
+            for (EdgeImpl edge : edgeCache) {
+                if (edge != null) {
+                    if (graphStore.edgeStore.contains(edge)) {
+                        newCache[edge.storeId] = edge;
+                    } else {
+                        newCache[staleIndex++] = edge;
+                    }
+                }
+            }
+            edgeCache = newCache;
+        }
+    }
+
+    protected void compactNodeCache(int size) {
+        if (nodeCache != null) {
+            //Nodes no longer in the store are kept after the live ones so the next diff still reports them
+            int staleCount = 0;
+            for (NodeImpl node : nodeCache) {
+                if (node != null && !graphStore.nodeStore.contains(node)) {
+                    staleCount++;
+                }
+            }
+            NodeImpl[] newCache = new NodeImpl[size + staleCount];
+            int staleIndex = size;
+            for (NodeImpl node : nodeCache) {
+                if (node != null) {
+                    if (graphStore.nodeStore.contains(node)) {
+                        newCache[node.storeId] = node;
+                    } else {
+                        newCache[staleIndex++] = node;
+                    }
+                }
+            }
+            nodeCache = newCache;
+        }
+    }
+
     protected void resetNodeVersion() {
         nodeVersion = Integer.MIN_VALUE;
     }
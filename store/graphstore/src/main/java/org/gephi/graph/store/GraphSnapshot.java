@@ -0,0 +1,741 @@
+/*
+ * Copyright 2012-2013 Gephi Consortium
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.gephi.graph.store;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import org.gephi.graph.api.DirectedGraph;
+import org.gephi.graph.api.Edge;
+import org.gephi.graph.api.EdgeIterable;
+import org.gephi.graph.api.GraphView;
+import org.gephi.graph.api.Node;
+import org.gephi.graph.api.NodeIterable;
+
+/**
+ * Immutable point-in-time copy of the graph topology.
+ * <p>
+ * The snapshot is captured once under the read lock and then holds no lock
+ * at all: it can be iterated for as long as needed, from any thread, while
+ * writers keep modifying the store. Nodes and edges are the live elements so
+ * their attributes and properties are not isolated, only the topology is.
+ * Adjacency queries run on a sorted {@link AdjacencySnapshot} for the same
+ * version, the store's own one when sorted adjacency is enabled or a private
+ * sorted copy otherwise.
+ * <p>
+ * This is a full copy, no storage is shared with the store: the constructor
+ * walks every node and edge and fills element arrays and id dictionaries,
+ * plus the sorted adjacency arrays when the store's snapshot can't be reused.
+ * That's O(V+E) time and memory, all spent under the read lock, so writers
+ * wait for the whole copy.
+ * <p>
+ * All write operations throw <code>UnsupportedOperationException</code>.
+ *
+ * @author mbastian
+ */
+public class GraphSnapshot implements DirectedGraph {
+
+    protected final GraphStore graphStore;
+    //Versions
+    protected final int nodeVersion;
+    protected final int edgeVersion;
+    //Elements, indexed by store id at the time of the snapshot
+    protected final NodeImpl[] nodes;
+    protected final EdgeImpl[] edges;
+    protected final int nodeCount;
+    protected final int edgeCount;
+    protected final int[] typeCounts;
+    //Dictionaries
+    protected final IdDictionary nodeDictionary;
+    protected final IdDictionary edgeDictionary;
+    //Adjacency
+    protected final AdjacencySnapshot adjacency;
+    //Type
+    protected final boolean directed;
+    protected final boolean undirected;
+    protected final boolean mixed;
+
+    public GraphSnapshot(GraphStore graphStore) {
+        this.graphStore = graphStore;
+        graphStore.autoReadLock();
+        try {
+            GraphVersion version = graphStore.version;
+            this.nodeVersion = version != null ? version.nodeVersion : 0;
+            this.edgeVersion = version != null ? version.edgeVersion : 0;
+            //Reuses the store's snapshot only if it's already built and sorted
+            AdjacencySnapshot storeAdjacency = graphStore.edgeStore.getCurrentAdjacencySnapshot();
+            this.adjacency = storeAdjacency != null && storeAdjacency.isSorted() ? storeAdjacency : new AdjacencySnapshot(graphStore.edgeStore, edgeVersion, true);
+            this.directed = graphStore.edgeStore.isDirectedGraph();
+            this.undirected = graphStore.edgeStore.isUndirectedGraph();
+            this.mixed = graphStore.edgeStore.isMixedGraph();
+
+            //Nodes
+            NodeStore nodeStore = graphStore.nodeStore;
+            this.nodeCount = nodeStore.size();
+            this.nodeDictionary = new IdDictionary(nodeCount, GraphStoreConfiguration.NODESTORE_DICTIONARY_LOAD_FACTOR);
+            NodeImpl[] nodeList = new NodeImpl[nodeCount];
+            int nodeLength = 0;
+            int index = 0;
+            for (NodeStore.NodeStoreIterator itr = nodeStore.iterator(); itr.hasNext();) {
+                NodeImpl node = itr.next();
+                nodeList[index++] = node;
+                nodeLength = Math.max(nodeLength, node.storeId + 1);
+                nodeDictionary.put(node.getId(), node.storeId);
+            }
+            this.nodes = new NodeImpl[nodeLength];
+            for (NodeImpl node : nodeList) {
+                nodes[node.storeId] = node;
+            }
+
+            //Edges
+            EdgeStore edgeStore = graphStore.edgeStore;
+            this.edgeCount = edgeStore.size();
+            this.edgeDictionary = new IdDictionary(edgeCount, GraphStoreConfiguration.EDGESTORE_DICTIONARY_LOAD_FACTOR);
+            this.typeCounts = new int[adjacency.getTypeCount()];
+            EdgeImpl[] edgeList = new EdgeImpl[edgeCount];
+            int edgeLength = 0;
+            index = 0;
+            for (EdgeStore.EdgeStoreIterator itr = edgeStore.iterator(); itr.hasNext();) {
+                EdgeImpl edge = itr.next();
+                edgeList[index++] = edge;
+                edgeLength = Math.max(edgeLength, edge.storeId + 1);
+                edgeDictionary.put(edge.getId(), edge.storeId);
+                typeCounts[edge.type]++;
+            }
+            this.edges = new EdgeImpl[edgeLength];
+            for (EdgeImpl edge : edgeList) {
+                edges[edge.storeId] = edge;
+            }
+        } finally {
+            graphStore.autoReadUnlock();
+        }
+    }
+
+    public int getNodeVersion() {
+        return nodeVersion;
+    }
+
+    public int getEdgeVersion() {
+        return edgeVersion;
+    }
+
+    /**
+     * Returns true if the store has been modified since this snapshot was
+     * taken.
+     *
+     * @return true if stale, false otherwise
+     */
+    public boolean isStale() {
+        GraphVersion version = graphStore.version;
+        if (version == null) {
+            return false;
+        }
+        return version.nodeVersion != nodeVersion || version.edgeVersion != edgeVersion;
+    }
+
+    @Override
+    public boolean addEdge(Edge edge) {
+        throw new UnsupportedOperationException("Graph snapshots are read-only");
+    }
+
+    @Override
+    public boolean addNode(Node node) {
+        throw new UnsupportedOperationException("Graph snapshots are read-only");
+    }
+
+    @Override
+    public boolean addAllEdges(Collection<? extends Edge> edges) {
+        throw new UnsupportedOperationException("Graph snapshots are read-only");
+    }
+
+    @Override
+    public boolean addAllNodes(Collection<? extends Node> nodes) {
+        throw new UnsupportedOperationException("Graph snapshots are read-only");
+    }
+
+    @Override
+    public boolean removeEdge(Edge edge) {
+        throw new UnsupportedOperationException("Graph snapshots are read-only");
+    }
+
+    @Override
+    public boolean removeNode(Node node) {
+        throw new UnsupportedOperationException("Graph snapshots are read-only");
+    }
+
+    @Override
+    public boolean removeAllEdges(Collection<? extends Edge> edges) {
+        throw new UnsupportedOperationException("Graph snapshots are read-only");
+    }
+
+    @Override
+    public boolean removeAllNodes(Collection<? extends Node> nodes) {
+        throw new UnsupportedOperationException("Graph snapshots are read-only");
+    }
+
+    @Override
+    public boolean contains(Node node) {
+        checkNonNullNodeObject(node);
+        return getNodeIndex(node) != NodeStore.NULL_ID;
+    }
+
+    @Override
+    public boolean contains(Edge edge) {
+        checkNonNullEdgeObject(edge);
+        return getEdgeIndex(edge) != EdgeStore.NULL_ID;
+    }
+
+    @Override
+    public Node getNode(Object id) {
+        checkNonNullObject(id);
+        int index = nodeDictionary.getInt(id);
+        return index != NodeStore.NULL_ID ? nodes[index] : null;
+    }
+
+    @Override
+    public Edge getEdge(Object id) {
+        checkNonNullObject(id);
+        int index = edgeDictionary.getInt(id);
+        return index != EdgeStore.NULL_ID ? edges[index] : null;
+    }
+
+    @Override
+    public Edge getEdge(Node node1, Node node2) {
+        return getEdge(node1, node2, EdgeTypeStore.NULL_LABEL);
+    }
+
+    @Override
+    public Edge getEdge(Node node1, Node node2, int type) {
+        int index1 = checkNodeIndex(node1);
+        int index2 = checkNodeIndex(node2);
+        EdgeImpl edge = getEdge(index1, index2, type);
+        if (edge == null) {
+            //Undirected edges can be stored in the other direction
+            edge = getEdge(index2, index1, type);
+            if (edge != null && edge.isDirected()) {
+                edge = null;
+            }
+        }
+        return edge;
+    }
+
+    @Override
+    public NodeIterable getNodes() {
+        return new NodeArrayIterable(nodes, nodeCount);
+    }
+
+    @Override
+    public EdgeIterable getEdges() {
+        return new EdgeArrayIterable(edges, edgeCount);
+    }
+
+    @Override
+    public EdgeIterable getSelfLoops() {
+        EdgeImpl[] selfLoops = new EdgeImpl[edgeCount];
+        int length = 0;
+        for (EdgeImpl edge : edges) {
+            if (edge != null && edge.isSelfLoop()) {
+                selfLoops[length++] = edge;
+            }
+        }
+        return new EdgeArrayIterable(selfLoops, length);
+    }
+
+    @Override
+    public NodeIterable getNeighbors(Node node) {
+        int index = checkNodeIndex(node);
+        return toNodeIterable(adjacency.getNeighbors(), adjacency.neighborStart(index), adjacency.neighborEnd(index));
+    }
+
+    @Override
+    public NodeIterable getNeighbors(Node node, int type) {
+        int index = checkNodeIndex(node);
+        int[] neighbors = new int[adjacency.getOutDegree(index, type) + adjacency.getInDegree(index, type)];
+        int length = 0;
+        for (int i = adjacency.outStart(index, type); i < adjacency.outEnd(index, type); i++) {
+            neighbors[length++] = adjacency.outNeighbors[i];
+        }
+        for (int i = adjacency.inStart(index, type); i < adjacency.inEnd(index, type); i++) {
+            neighbors[length++] = adjacency.inNeighbors[i];
+        }
+        Arrays.sort(neighbors);
+        int to = 0;
+        for (int i = 0; i < length; i++) {
+            if (neighbors[i] != index && (to == 0 || neighbors[to - 1] != neighbors[i])) {
+                neighbors[to++] = neighbors[i];
+            }
+        }
+        return toNodeIterable(neighbors, 0, to);
+    }
+
+    @Override
+    public int countCommonNeighbors(Node node1, Node node2) {
+        return adjacency.countCommonNeighbors(checkNodeIndex(node1), checkNodeIndex(node2));
+    }
+
+    @Override
+    public NodeIterable getCommonNeighbors(Node node1, Node node2) {
+        int[] common = adjacency.getCommonNeighbors(checkNodeIndex(node1), checkNodeIndex(node2));
+        return toNodeIterable(common, 0, common.length);
+    }
+
+    @Override
+    public NodeIterable getPredecessors(Node node) {
+        int index = checkNodeIndex(node);
+        return toNodeIterable(adjacency.inNeighbors, adjacency.inStart(index), adjacency.inEnd(index));
+    }
+
+    @Override
+    public NodeIterable getPredecessors(Node node, int type) {
+        int index = checkNodeIndex(node);
+        return toNodeIterable(adjacency.inNeighbors, adjacency.inStart(index, type), adjacency.inEnd(index, type));
+    }
+
+    @Override
+    public NodeIterable getSuccessors(Node node) {
+        int index = checkNodeIndex(node);
+        return toNodeIterable(adjacency.outNeighbors, adjacency.outStart(index), adjacency.outEnd(index));
+    }
+
+    @Override
+    public NodeIterable getSuccessors(Node node, int type) {
+        int index = checkNodeIndex(node);
+        return toNodeIterable(adjacency.outNeighbors, adjacency.outStart(index, type), adjacency.outEnd(index, type));
+    }
+
+    @Override
+    public EdgeIterable getEdges(Node node) {
+        int index = checkNodeIndex(node);
+        return toEdgeIterable(index, adjacency.outStart(index), adjacency.outEnd(index), adjacency.inStart(index), adjacency.inEnd(index));
+    }
+
+    @Override
+    public EdgeIterable getEdges(Node node, int type) {
+        int index = checkNodeIndex(node);
+        return toEdgeIterable(index, adjacency.outStart(index, type), adjacency.outEnd(index, type), adjacency.inStart(index, type), adjacency.inEnd(index, type));
+    }
+
+    @Override
+    public EdgeIterable getInEdges(Node node) {
+        int index = checkNodeIndex(node);
+        return toEdgeIterable(adjacency.inEdges, adjacency.inStart(index), adjacency.inEnd(index));
+    }
+
+    @Override
+    public EdgeIterable getInEdges(Node node, int type) {
+        int index = checkNodeIndex(node);
+        return toEdgeIterable(adjacency.inEdges, adjacency.inStart(index, type), adjacency.inEnd(index, type));
+    }
+
+    @Override
+    public EdgeIterable getOutEdges(Node node) {
+        int index = checkNodeIndex(node);
+        return toEdgeIterable(adjacency.outEdges, adjacency.outStart(index), adjacency.outEnd(index));
+    }
+
+    @Override
+    public EdgeIterable getOutEdges(Node node, int type) {
+        int index = checkNodeIndex(node);
+        return toEdgeIterable(adjacency.outEdges, adjacency.outStart(index, type), adjacency.outEnd(index, type));
+    }
+
+    @Override
+    public Edge getMutualEdge(Edge edge) {
+        checkEdgeIndex(edge);
+        return getEdge(edge.getTarget(), edge.getSource(), edge.getType());
+    }
+
+    @Override
+    public int getNodeCount() {
+        return nodeCount;
+    }
+
+    @Override
+    public int getEdgeCount() {
+        return edgeCount;
+    }
+
+    @Override
+    public int getEdgeCount(int type) {
+        return type >= 0 && type < typeCounts.length ? typeCounts[type] : 0;
+    }
+
+    @Override
+    public Node getOpposite(Node node, Edge edge) {
+        checkNonNullNodeObject(node);
+        checkNonNullEdgeObject(edge);
+        return edge.getSource() == node ? edge.getTarget() : edge.getSource();
+    }
+
+    @Override
+    public int getDegree(Node node) {
+        int index = checkNodeIndex(node);
+        return adjacency.getOutDegree(index) + adjacency.getInDegree(index);
+    }
+
+    @Override
+    public int getInDegree(Node node) {
+        return adjacency.getInDegree(checkNodeIndex(node));
+    }
+
+    @Override
+    public int getOutDegree(Node node) {
+        return adjacency.getOutDegree(checkNodeIndex(node));
+    }
+
+    @Override
+    public boolean isSelfLoop(Edge edge) {
+        return edge.isSelfLoop();
+    }
+
+    @Override
+    public boolean isDirected(Edge edge) {
+        return edge.isDirected();
+    }
+
+    @Override
+    public boolean isAdjacent(Node node1, Node node2) {
+        return getEdge(node1, node2) != null;
+    }
+
+    @Override
+    public boolean isAdjacent(Node node1, Node node2, int type) {
+        return getEdge(node1, node2, type) != null;
+    }
+
+    @Override
+    public boolean isIncident(Edge edge1, Edge edge2) {
+        checkEdgeIndex(edge1);
+        checkEdgeIndex(edge2);
+        return edge1.getSource() == edge2.getSource() || edge1.getSource() == edge2.getTarget() || edge1.getTarget() == edge2.getSource() || edge1.getTarget() == edge2.getTarget();
+    }
+
+    @Override
+    public boolean isIncident(Node node, Edge edge) {
+        checkNodeIndex(node);
+        checkEdgeIndex(edge);
+        return edge.getSource() == node || edge.getTarget() == node;
+    }
+
+    @Override
+    public void clearEdges(Node node) {
+        throw new UnsupportedOperationException("Graph snapshots are read-only");
+    }
+
+    @Override
+    public void clearEdges(Node node, int type) {
+        throw new UnsupportedOperationException("Graph snapshots are read-only");
+    }
+
+    @Override
+    public void clear() {
+        throw new UnsupportedOperationException("Graph snapshots are read-only");
+    }
+
+    @Override
+    public void clearEdges() {
+        throw new UnsupportedOperationException("Graph snapshots are read-only");
+    }
+
+    @Override
+    public GraphView getView() {
+        return graphStore.mainGraphView;
+    }
+
+    @Override
+    public Object getAttribute(String key) {
+        return graphStore.getAttribute(key);
+    }
+
+    @Override
+    public Object getAttribute(String key, double timestamp) {
+        return graphStore.getAttribute(key, timestamp);
+    }
+
+    @Override
+    public void setAttribute(String key, Object value) {
+        throw new UnsupportedOperationException("Graph snapshots are read-only");
+    }
+
+    @Override
+    public void setAttribute(String key, Object value, double timestamp) {
+        throw new UnsupportedOperationException("Graph snapshots are read-only");
+    }
+
+    @Override
+    public Set<String> getAttributeKeys() {
+        return graphStore.getAttributeKeys();
+    }
+
+    @Override
+    public boolean isDirected() {
+        return directed;
+    }
+
+    @Override
+    public boolean isUndirected() {
+        return undirected;
+    }
+
+    @Override
+    public boolean isMixed() {
+        return mixed;
+    }
+
+    @Override
+    public void readLock() {
+        //Snapshots are immutable, no lock required
+    }
+
+    @Override
+    public void readUnlock() {
+    }
+
+    @Override
+    public void readUnlockAll() {
+    }
+
+    @Override
+    public void writeLock() {
+        throw new UnsupportedOperationException("Graph snapshots are read-only");
+    }
+
+    @Override
+    public void writeUnlock() {
+        throw new UnsupportedOperationException("Graph snapshots are read-only");
+    }
+
+    private EdgeImpl getEdge(int source, int target, int type) {
+        int from = adjacency.outStart(source, type);
+        int to = adjacency.outEnd(source, type);
+        if (from < to) {
+            int i = Arrays.binarySearch(adjacency.outNeighbors, from, to, target);
+            if (i >= 0) {
+                return edges[adjacency.outEdges[i]];
+            }
+        }
+        return null;
+    }
+
+    private int getNodeIndex(Node node) {
+        NodeImpl nodeImpl = (NodeImpl) node;
+        int index = nodeImpl.storeId;
+        if (index >= 0 && index < nodes.length && nodes[index] == nodeImpl) {
+            return index;
+        }
+        //The store id may have changed since the snapshot
+        index = nodeDictionary.getInt(nodeImpl.getId());
+        return index != NodeStore.NULL_ID && nodes[index] == nodeImpl ? index : NodeStore.NULL_ID;
+    }
+
+    private int getEdgeIndex(Edge edge) {
+        EdgeImpl edgeImpl = (EdgeImpl) edge;
+        int index = edgeImpl.storeId;
+        if (index >= 0 && index < edges.length && edges[index] == edgeImpl) {
+            return index;
+        }
+        //The store id may have changed since the snapshot
+        index = edgeDictionary.getInt(edgeImpl.getId());
+        return index != EdgeStore.NULL_ID && edges[index] == edgeImpl ? index : EdgeStore.NULL_ID;
+    }
+
+    private NodeIterable toNodeIterable(int[] ids, int from, int to) {
+        NodeImpl[] result = new NodeImpl[to - from];
+        for (int i = from; i < to; i++) {
+            result[i - from] = nodes[ids[i]];
+        }
+        return new NodeArrayIterable(result, result.length);
+    }
+
+    private EdgeIterable toEdgeIterable(int[] ids, int from, int to) {
+        EdgeImpl[] result = new EdgeImpl[to - from];
+        for (int i = from; i < to; i++) {
+            result[i - from] = edges[ids[i]];
+        }
+        return new EdgeArrayIterable(result, result.length);
+    }
+
+    private EdgeIterable toEdgeIterable(int node, int outFrom, int outTo, int inFrom, int inTo) {
+        EdgeImpl[] result = new EdgeImpl[outTo - outFrom + inTo - inFrom];
+        int length = 0;
+        for (int i = outFrom; i < outTo; i++) {
+            result[length++] = edges[adjacency.outEdges[i]];
+        }
+        for (int i = inFrom; i < inTo; i++) {
+            //Self-loops are already in the out slice
+            if (adjacency.inNeighbors[i] != node) {
+                result[length++] = edges[adjacency.inEdges[i]];
+            }
+        }
+        return new EdgeArrayIterable(result, length);
+    }
+
+    private int checkNodeIndex(final Node node) {
+        checkNonNullNodeObject(node);
+        int index = getNodeIndex(node);
+        if (index == NodeStore.NULL_ID) {
+            throw new IllegalArgumentException("The node doesn't belong to this snapshot");
+        }
+        return index;
+    }
+
+    private int checkEdgeIndex(final Edge edge) {
+        checkNonNullEdgeObject(edge);
+        int index = getEdgeIndex(edge);
+        if (index == EdgeStore.NULL_ID) {
+            throw new IllegalArgumentException("The edge doesn't belong to this snapshot");
+        }
+        return index;
+    }
+
+    private void checkNonNullObject(final Object o) {
+        if (o == null) {
+            throw new NullPointerException();
+        }
+    }
+
+    private void checkNonNullNodeObject(final Object o) {
+        if (o == null) {
+            throw new NullPointerException();
+        }
+        if (!(o instanceof NodeImpl)) {
+            throw new ClassCastException("Object must be a NodeImpl object");
+        }
+    }
+
+    private void checkNonNullEdgeObject(final Object o) {
+        if (o == null) {
+            throw new NullPointerException();
+        }
+        if (!(o instanceof EdgeImpl)) {
+            throw new ClassCastException("Object must be a EdgeImpl object");
+        }
+    }
+
+    protected static class NodeArrayIterable implements NodeIterable {
+
+        protected final NodeImpl[] array;
+        protected final int size;
+
+        public NodeArrayIterable(NodeImpl[] array, int size) {
+            this.array = array;
+            this.size = size;
+        }
+
+        @Override
+        public Iterator<Node> iterator() {
+            return new ArrayIterator<Node>(array);
+        }
+
+        @Override
+        public Node[] toArray() {
+            Node[] result = new Node[size];
+            int index = 0;
+            for (NodeImpl node : array) {
+                if (node != null) {
+                    result[index++] = node;
+                }
+            }
+            return result;
+        }
+
+        @Override
+        public Collection<Node> toCollection() {
+            return new ArrayList<Node>(Arrays.asList(toArray()));
+        }
+
+        @Override
+        public void doBreak() {
+        }
+    }
+
+    protected static class EdgeArrayIterable implements EdgeIterable {
+
+        protected final EdgeImpl[] array;
+        protected final int size;
+
+        public EdgeArrayIterable(EdgeImpl[] array, int size) {
+            this.array = array;
+            this.size = size;
+        }
+
+        @Override
+        public Iterator<Edge> iterator() {
+            return new ArrayIterator<Edge>(array);
+        }
+
+        @Override
+        public Edge[] toArray() {
+            Edge[] result = new Edge[size];
+            int index = 0;
+            for (EdgeImpl edge : array) {
+                if (edge != null) {
+                    result[index++] = edge;
+                }
+            }
+            return result;
+        }
+
+        @Override
+        public Collection<Edge> toCollection() {
+            return new ArrayList<Edge>(Arrays.asList(toArray()));
+        }
+
+        @Override
+        public void doBreak() {
+        }
+    }
+
+    protected static class ArrayIterator<T> implements Iterator<T> {
+
+        protected final Object[] array;
+        protected int index;
+
+        public ArrayIterator(Object[] array) {
+            this.array = array;
+            skipNulls();
+        }
+
+        @Override
+        public boolean hasNext() {
+            return index < array.length;
+        }
+
+        @Override
+        public T next() {
+            if (index >= array.length) {
+                throw new NoSuchElementException();
+            }
+            T element = (T) array[index++];
+            skipNulls();
+            return element;
+        }
+
+        @Override
+        public void remove() {
+            throw new UnsupportedOperationException("Graph snapshots are read-only");
+        }
+
+        private void skipNulls() {
+            while (index < array.length && array[index] == null) {
+                index++;
+            }
+        }
+    }
+}
@@ -15,7 +15,10 @@
  */
 package org.gephi.graph.store;
 
+import it.unimi.dsi.fastutil.ints.AbstractIntComparator;
+import it.unimi.dsi.fastutil.ints.IntArrays;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Iterator;
 import java.util.List;
@@ -42,6 +45,9 @@ import org.gephi.graph.api.Subgraph;
  */
 public class GraphStore implements DirectedGraph, DirectedSubgraph {
 
+    //Cursors
+    protected final static int ALL_TYPES = -1;
+
     protected final GraphModelImpl graphModel;
     //Stores
     protected final NodeStore nodeStore;
@@ -63,6 +69,8 @@ public class GraphStore implements DirectedGraph, DirectedSubgraph {
     protected final UndirectedDecorator undirectedDecorator;
     //Main Graph view
     protected final GraphView mainGraphView;
+    //Cursors
+    protected final AdjacencyCursors adjacencyCursors;
     //TimeFormat
     protected TimeFormat timeFormat;
 
@@ -72,22 +80,63 @@ public class GraphStore implements DirectedGraph, DirectedSubgraph {
 
     public GraphStore(GraphModelImpl model) {
         graphModel = model;
-        lock = new GraphLock();
+        lock = new GraphLock(model != null ? model.configuration.isEnableLockMetrics() : GraphStoreConfiguration.ENABLE_LOCK_METRICS) {
+            @Override
+            public void readLock() {
+                if (viewStore != null && viewStore.hasPendingElements) {
+                    flushPendingElements(true);
+                }
+                super.readLock();
+            }
+
+            @Override
+            public void readUnlock() {
+                super.readUnlock();
+                if (viewStore != null && viewStore.hasPendingElements) {
+                    flushPendingElements(false);
+                }
+            }
+
+            @Override
+            public void readUnlockAll() {
+                super.readUnlockAll();
+                if (viewStore != null && viewStore.hasPendingElements) {
+                    flushPendingElements(false);
+                }
+            }
+
+            @Override
+            public void writeLock() {
+                super.writeLock();
+                if (viewStore != null && viewStore.hasPendingElements) {
+                    boolean flushed = false;
+                    try {
+                        viewStore.flushPendingElements();
+                        flushed = true;
+                    } finally {
+                        if (!flushed) {
+                            super.writeUnlock();
+                        }
+                    }
+                }
+            }
+        };
         edgeTypeStore = new EdgeTypeStore();
         mainGraphView = new MainGraphView();
         viewStore = new GraphViewStore(this);
         version = GraphStoreConfiguration.ENABLE_OBSERVERS ? new GraphVersion(this) : null;
         observers = GraphStoreConfiguration.ENABLE_OBSERVERS ? new ArrayList<GraphObserverImpl>() : null;
-        edgeStore = new EdgeStore(edgeTypeStore, GraphStoreConfiguration.ENABLE_AUTO_LOCKING ? lock : null, viewStore, GraphStoreConfiguration.ENABLE_OBSERVERS ? version : null);
-        nodeStore = new NodeStore(edgeStore, GraphStoreConfiguration.ENABLE_AUTO_LOCKING ? lock : null, viewStore, GraphStoreConfiguration.ENABLE_OBSERVERS ? version : null);
-        nodeColumnStore = new ColumnStore<Node>(Node.class, GraphStoreConfiguration.ENABLE_INDEX_NODES);
-        edgeColumnStore = new ColumnStore<Edge>(Edge.class, GraphStoreConfiguration.ENABLE_INDEX_EDGES);
+        edgeStore = new EdgeStore(edgeTypeStore, GraphStoreConfiguration.ENABLE_AUTO_LOCKING ? lock : null, viewStore, GraphStoreConfiguration.ENABLE_OBSERVERS ? version : null, model != null ? model.configuration.getEdgeIdType() : Object.class);
+        nodeStore = new NodeStore(edgeStore, GraphStoreConfiguration.ENABLE_AUTO_LOCKING ? lock : null, viewStore, GraphStoreConfiguration.ENABLE_OBSERVERS ? version : null, model != null ? model.configuration.getNodeIdType() : Object.class);
+        nodeColumnStore = new ColumnStore<Node>(this, Node.class, GraphStoreConfiguration.ENABLE_INDEX_NODES);
+        edgeColumnStore = new ColumnStore<Edge>(this, Edge.class, GraphStoreConfiguration.ENABLE_INDEX_EDGES);
         timestampStore = new TimestampStore(this, GraphStoreConfiguration.ENABLE_AUTO_LOCKING ? lock : null);
         attributes = new GraphAttributesImpl();
         factory = new GraphFactoryImpl(this);
         timeFormat = GraphStoreConfiguration.DEFAULT_TIME_FORMAT;
 
         undirectedDecorator = new UndirectedDecorator(this);
+        adjacencyCursors = new AdjacencyCursors(this, null);
 
         //Default cols
         nodeColumnStore.addColumn(new ColumnImpl(model != null ? model.nodeTable : null, "id", Object.class, "Id", null, Origin.PROPERTY, false, true));
@@ -191,11 +240,27 @@ public class GraphStore implements DirectedGraph, DirectedSubgraph {
         return edgeStore;
     }
 
+    public NodeIterable[] getNodePartitions(final int count) {
+        return nodeStore.partition(count);
+    }
+
+    public EdgeIterable[] getEdgePartitions(final int count) {
+        return edgeStore.partition(count);
+    }
+
     @Override
     public EdgeIterable getSelfLoops() {
         return new EdgeIterableWrapper(edgeStore.iteratorSelfLoop());
     }
 
+    public EdgeIterable getMutualEdges() {
+        return new EdgeIterableWrapper(edgeStore.iteratorMutual());
+    }
+
+    public EdgeIterable getMutualEdges(final int type) {
+        return new EdgeIterableWrapper(edgeStore.iteratorMutual(type));
+    }
+
     @Override
     public boolean removeNode(final Node node) {
         autoWriteLock();
@@ -248,6 +313,144 @@ public class GraphStore implements DirectedGraph, DirectedSubgraph {
         }
     }
 
+    public boolean compact() {
+        autoWriteLock();
+        try {
+            if (edgeStore.compact()) {
+                if (observers != null) {
+                    for (GraphObserverImpl observer : observers) {
+                        observer.compactEdgeCache(edgeStore.maxStoreId());
+                    }
+                }
+                return true;
+            }
+            return false;
+        } finally {
+            autoWriteUnlock();
+        }
+    }
+
+    public void reorder() {
+        autoWriteLock();
+        try {
+            if (nodeStore.isEmpty()) {
+                return;
+            }
+            NodeImpl[] nodeOrder = getCuthillMcKeeOrder();
+            EdgeImpl[] edgeOrder = getSourceGroupedEdgeOrder(nodeOrder);
+
+            nodeStore.reorder(nodeOrder);
+            edgeStore.reorder(edgeOrder);
+            //Mutual pairs are counted on the edge with the lowest source id, which depends on node ids
+            edgeStore.mutualVersion++;
+            if (observers != null) {
+                for (GraphObserverImpl observer : observers) {
+                    observer.compactNodeCache(nodeStore.maxStoreId());
+                    observer.compactEdgeCache(edgeStore.maxStoreId());
+                }
+            }
+        } finally {
+            autoWriteUnlock();
+        }
+    }
+
+    private NodeImpl[] getCuthillMcKeeOrder() {
+        AdjacencySnapshot snapshot = edgeStore.getAdjacencySnapshot();
+        int[] outNeighbors = snapshot.getOutNeighbors();
+        int[] inNeighbors = snapshot.getInNeighbors();
+
+        //Components are started from their lowest degree node
+        final int[] degrees = new int[nodeStore.maxStoreId()];
+        int[] starts = new int[nodeStore.size()];
+        int index = 0;
+        for (NodeStore.NodeStoreIterator itr = nodeStore.iterator(); itr.hasNext();) {
+            NodeImpl node = itr.next();
+            degrees[node.storeId] = snapshot.getOutDegree(node.storeId) + snapshot.getInDegree(node.storeId);
+            starts[index++] = node.storeId;
+        }
+        AbstractIntComparator degreeComparator = new AbstractIntComparator() {
+            @Override
+            public int compare(int k1, int k2) {
+                int diff = degrees[k1] - degrees[k2];
+                return diff != 0 ? diff : k1 - k2;
+            }
+        };
+        IntArrays.quickSort(starts, degreeComparator);
+
+        //Breadth-first search, visiting neighbors by increasing degree
+        boolean[] visited = new boolean[degrees.length];
+        int[] queue = new int[starts.length];
+        int head = 0;
+        int tail = 0;
+        for (int start : starts) {
+            if (visited[start]) {
+                continue;
+            }
+            visited[start] = true;
+            queue[tail++] = start;
+            while (head < tail) {
+                int node = queue[head++];
+                int from = tail;
+                for (int i = snapshot.outStart(node); i < snapshot.outEnd(node); i++) {
+                    int neighbor = outNeighbors[i];
+                    if (!visited[neighbor]) {
+                        visited[neighbor] = true;
+                        queue[tail++] = neighbor;
+                    }
+                }
+                for (int i = snapshot.inStart(node); i < snapshot.inEnd(node); i++) {
+                    int neighbor = inNeighbors[i];
+                    if (!visited[neighbor]) {
+                        visited[neighbor] = true;
+                        queue[tail++] = neighbor;
+                    }
+                }
+                IntArrays.quickSort(queue, from, tail, degreeComparator);
+            }
+        }
+
+        NodeImpl[] order = new NodeImpl[queue.length];
+        for (int i = 0; i < queue.length; i++) {
+            order[i] = nodeStore.get(queue[i]);
+        }
+        return order;
+    }
+
+    private EdgeImpl[] getSourceGroupedEdgeOrder(NodeImpl[] nodeOrder) {
+        EdgeImpl[] order = new EdgeImpl[edgeStore.size()];
+        int index = 0;
+        for (NodeImpl node : nodeOrder) {
+            for (EdgeImpl head : node.headOut) {
+                for (EdgeImpl edge = head; edge != null;) {
+                    order[index++] = edge;
+                    edge = edge.nextOutEdge != EdgeStore.NULL_ID ? edgeStore.get(edge.nextOutEdge) : null;
+                }
+            }
+        }
+        return order;
+    }
+
+    public GraphWriteBatchImpl createWriteBatch() {
+        return new GraphWriteBatchImpl(this);
+    }
+
+    public AdjacencySnapshot getAdjacencySnapshot() {
+        return edgeStore.getAdjacencySnapshot();
+    }
+
+    public void setSortedAdjacency(boolean sorted) {
+        autoWriteLock();
+        try {
+            edgeStore.setSortedAdjacency(sorted);
+        } finally {
+            autoWriteUnlock();
+        }
+    }
+
+    public AdjacencyCursors getAdjacencyCursors() {
+        return adjacencyCursors;
+    }
+
     public NodeStore getNodeStore() {
         return nodeStore;
     }
@@ -306,6 +509,53 @@ public class GraphStore implements DirectedGraph, DirectedSubgraph {
         return new NodeIterableWrapper(edgeStore.neighborIterator(node, type));
     }
 
+    @Override
+    public int countCommonNeighbors(final Node node1, final Node node2) {
+        nodeStore.checkNonNullNodeObject(node1);
+        nodeStore.checkNonNullNodeObject(node2);
+        autoReadLock();
+        try {
+            AdjacencySnapshot snapshot = edgeStore.getCurrentAdjacencySnapshot();
+            if (snapshot != null) {
+                return snapshot.countCommonNeighbors(((NodeImpl) node1).storeId, ((NodeImpl) node2).storeId);
+            }
+            //Not worth rebuilding the snapshot between writes
+            int[] neighbors1 = edgeStore.getNeighborSet((NodeImpl) node1, null);
+            int[] neighbors2 = edgeStore.getNeighborSet((NodeImpl) node2, null);
+            return AdjacencySnapshot.intersect(neighbors1, 0, neighbors1.length, neighbors2, 0, neighbors2.length, null);
+        } finally {
+            autoReadUnlock();
+        }
+    }
+
+    @Override
+    public NodeIterable getCommonNeighbors(final Node node1, final Node node2) {
+        nodeStore.checkNonNullNodeObject(node1);
+        nodeStore.checkNonNullNodeObject(node2);
+        autoReadLock();
+        try {
+            AdjacencySnapshot snapshot = edgeStore.getCurrentAdjacencySnapshot();
+            int[] ids;
+            int count;
+            if (snapshot != null) {
+                ids = snapshot.getCommonNeighbors(((NodeImpl) node1).storeId, ((NodeImpl) node2).storeId);
+                count = ids.length;
+            } else {
+                int[] neighbors1 = edgeStore.getNeighborSet((NodeImpl) node1, null);
+                int[] neighbors2 = edgeStore.getNeighborSet((NodeImpl) node2, null);
+                ids = new int[Math.min(neighbors1.length, neighbors2.length)];
+                count = AdjacencySnapshot.intersect(neighbors1, 0, neighbors1.length, neighbors2, 0, neighbors2.length, ids);
+            }
+            Node[] nodes = new Node[count];
+            for (int i = 0; i < count; i++) {
+                nodes[i] = nodeStore.get(ids[i]);
+            }
+            return new NodeIterableWrapper(Arrays.asList(nodes).iterator(), false);
+        } finally {
+            autoReadUnlock();
+        }
+    }
+
     @Override
     public NodeIterable getPredecessors(final Node node) {
         return new NodeIterableWrapper(edgeStore.neighborInIterator(node));
@@ -576,6 +826,37 @@ public class GraphStore implements DirectedGraph, DirectedSubgraph {
         lock.writeUnlock();
     }
 
+    /**
+     * Re-evaluates the predicate views for the attributes set while a read
+     * lock was held, if the current thread holds no lock.
+     * <p>
+     * Called when a thread releases its outermost read lock, with
+     * <code>wait</code> false, and before it acquires an outermost read lock,
+     * with <code>wait</code> true. Without waiting, it does nothing if another
+     * thread holds the lock. When waiting, it takes the write lock and so
+     * waits for the current readers to finish. Acquiring the write lock also
+     * flushes the queue, so the views are up to date for any lock taken after
+     * the queuing thread released its own.
+     *
+     * @param wait true to wait for the write lock, false to give up if it is
+     * not free
+     */
+    protected void flushPendingElements(boolean wait) {
+        if (viewStore == null || !viewStore.hasPendingElements || lock.readWriteLock.getReadHoldCount() > 0 || lock.readWriteLock.isWriteLockedByCurrentThread()) {
+            return;
+        }
+        if (wait) {
+            lock.writeLock();
+        } else if (!lock.tryWriteLock()) {
+            return;
+        }
+        try {
+            viewStore.flushPendingElements();
+        } finally {
+            lock.writeUnlock();
+        }
+    }
+
     protected void autoReadLock() {
         if (GraphStoreConfiguration.ENABLE_AUTO_LOCKING) {
             readLock();
@@ -588,6 +869,28 @@ public class GraphStore implements DirectedGraph, DirectedSubgraph {
         }
     }
 
+    protected void beginVersionBatch() {
+        if (version != null) {
+            version.beginBatch();
+        }
+        for (GraphViewImpl view : viewStore.views) {
+            if (view != null && view.version != null) {
+                view.version.beginBatch();
+            }
+        }
+    }
+
+    protected void endVersionBatch() {
+        if (version != null) {
+            version.endBatch();
+        }
+        for (GraphViewImpl view : viewStore.views) {
+            if (view != null && view.version != null) {
+                view.version.endBatch();
+            }
+        }
+    }
+
     protected void autoWriteLock() {
         if (GraphStoreConfiguration.ENABLE_AUTO_LOCKING) {
             writeLock();
@@ -25,9 +25,13 @@ public final class GraphStoreConfiguration {
 
     //Features
     public static final boolean ENABLE_AUTO_LOCKING = true;
+    public static final boolean ENABLE_LOCK_METRICS = false;
+    public static final boolean ENABLE_VIEW_CACHE = true;
+    public static final boolean ENABLE_VIEW_DEGREES = true;
     public static final boolean ENABLE_AUTO_TYPE_REGISTRATION = true;
     public static final boolean ENABLE_INDEX_NODES = true;
     public static final boolean ENABLE_INDEX_EDGES = true;
+    public static final boolean ENABLE_INDEX_BITMAP_POSTINGS = true;
     public static final boolean ENABLE_INDEX_TIMESTAMP = true;
     public static final boolean ENABLE_OBSERVERS = true;
     public static final boolean ENABLE_NODE_PROPERTIES = true;
@@ -43,6 +47,8 @@ public final class GraphStoreConfiguration {
     public static final int EDGESTORE_DEFAULT_TYPE_COUNT = 1;
     public static final int EDGESTORE_DEFAULT_DICTIONARY_SIZE = 1000;
     public static final float EDGESTORE_DICTIONARY_LOAD_FACTOR = .7f;
+    //Index
+    public static final int INDEX_BITMAP_MAX_VALUES = 64;
     //GraphView
     public static final int VIEW_DEFAULT_TYPE_COUNT = 1;
     public static final double VIEW_GROWING_FACTOR = 1.1;
@@ -26,12 +26,20 @@ public class GraphVersion {
     protected final Graph graph;
     protected int nodeVersion = Integer.MIN_VALUE + 1;
     protected int edgeVersion = Integer.MIN_VALUE + 1;
+    //Batch
+    protected int batchDepth;
+    protected boolean nodeChanged;
+    protected boolean edgeChanged;
 
     public GraphVersion(Graph graph) {
         this.graph = graph;
     }
 
     public int incrementAndGetNodeVersion() {
+        if (batchDepth > 0) {
+            nodeChanged = true;
+            return nodeVersion;
+        }
         nodeVersion++;
         if (nodeVersion == Integer.MAX_VALUE) {
             nodeVersion = Integer.MIN_VALUE + 1;
@@ -41,6 +49,10 @@ public class GraphVersion {
     }
 
     public int incrementAndGetEdgeVersion() {
+        if (batchDepth > 0) {
+            edgeChanged = true;
+            return edgeVersion;
+        }
         edgeVersion++;
         if (edgeVersion == Integer.MAX_VALUE) {
             edgeVersion = Integer.MIN_VALUE + 1;
@@ -49,6 +61,37 @@ public class GraphVersion {
         return edgeVersion;
     }
 
+    /**
+     * Starts deferring version increments.
+     * <p>
+     * Until the matching {@link #endBatch()}, changes are only recorded and
+     * the node and edge versions are incremented at most once when the
+     * outermost batch ends. Calls can be nested.
+     */
+    public void beginBatch() {
+        batchDepth++;
+    }
+
+    /**
+     * Ends a batch started with {@link #beginBatch()} and applies the
+     * deferred version increments if this is the outermost batch.
+     */
+    public void endBatch() {
+        if (batchDepth == 0) {
+            return;
+        }
+        if (--batchDepth == 0) {
+            if (nodeChanged) {
+                nodeChanged = false;
+                incrementAndGetNodeVersion();
+            }
+            if (edgeChanged) {
+                edgeChanged = false;
+                incrementAndGetEdgeVersion();
+            }
+        }
+    }
+
     private void handleNodeReset() {
         if (graph != null) {
             if (graph.getView().isMainView()) {
@@ -15,6 +15,7 @@
  */
 package org.gephi.graph.store;
 
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Iterator;
 import java.util.Set;
@@ -89,49 +90,49 @@ public class GraphViewDecorator implements DirectedSubgraph, UndirectedSubgraph
     @Override
     public NodeIterable getPredecessors(Node node) {
         checkValidInViewNodeObject(node);
-        return graphStore.getNodeIterableWrapper(new NeighborsIterator((NodeImpl) node, new EdgeViewIterator(graphStore.edgeStore.edgeInIterator(node))));
+        return graphStore.getNodeIterableWrapper(new NeighborsIterator((NodeImpl) node, getInEdgeIterator(node)));
     }
 
     @Override
     public NodeIterable getPredecessors(Node node, int type) {
         checkValidInViewNodeObject(node);
-        return graphStore.getNodeIterableWrapper(new NeighborsIterator((NodeImpl) node, new EdgeViewIterator(graphStore.edgeStore.edgeInIterator(node, type))));
+        return graphStore.getNodeIterableWrapper(new NeighborsIterator((NodeImpl) node, getInEdgeIterator(node, type)));
     }
 
     @Override
     public NodeIterable getSuccessors(Node node) {
         checkValidInViewNodeObject(node);
-        return graphStore.getNodeIterableWrapper(new NeighborsIterator((NodeImpl) node, new EdgeViewIterator(graphStore.edgeStore.edgeOutIterator(node))));
+        return graphStore.getNodeIterableWrapper(new NeighborsIterator((NodeImpl) node, getOutEdgeIterator(node)));
     }
 
     @Override
     public NodeIterable getSuccessors(Node node, int type) {
         checkValidInViewNodeObject(node);
-        return graphStore.getNodeIterableWrapper(new NeighborsIterator((NodeImpl) node, new EdgeViewIterator(graphStore.edgeStore.edgeOutIterator(node, type))));
+        return graphStore.getNodeIterableWrapper(new NeighborsIterator((NodeImpl) node, getOutEdgeIterator(node, type)));
     }
 
     @Override
     public EdgeIterable getInEdges(Node node) {
         checkValidInViewNodeObject(node);
-        return graphStore.getEdgeIterableWrapper(new EdgeViewIterator(graphStore.edgeStore.edgeInIterator(node)));
+        return graphStore.getEdgeIterableWrapper(getInEdgeIterator(node));
     }
 
     @Override
     public EdgeIterable getInEdges(Node node, int type) {
         checkValidInViewNodeObject(node);
-        return graphStore.getEdgeIterableWrapper(new EdgeViewIterator(graphStore.edgeStore.edgeInIterator(node, type)));
+        return graphStore.getEdgeIterableWrapper(getInEdgeIterator(node, type));
     }
 
     @Override
     public EdgeIterable getOutEdges(Node node) {
         checkValidInViewNodeObject(node);
-        return graphStore.getEdgeIterableWrapper(new EdgeViewIterator(graphStore.edgeStore.edgeOutIterator(node)));
+        return graphStore.getEdgeIterableWrapper(getOutEdgeIterator(node));
     }
 
     @Override
     public EdgeIterable getOutEdges(Node node, int type) {
         checkValidInViewNodeObject(node);
-        return graphStore.getEdgeIterableWrapper(new EdgeViewIterator(graphStore.edgeStore.edgeOutIterator(node, type)));
+        return graphStore.getEdgeIterableWrapper(getOutEdgeIterator(node, type));
     }
 
     @Override
@@ -295,15 +296,18 @@ public class GraphViewDecorator implements DirectedSubgraph, UndirectedSubgraph
 
     @Override
     public NodeIterable getNodes() {
+        if (view.nodeView) {
+            return graphStore.getNodeIterableWrapper(new NodeBitmapIterator());
+        }
         return graphStore.getNodeIterableWrapper(new NodeViewIterator(graphStore.nodeStore.iterator()));
     }
 
     @Override
     public EdgeIterable getEdges() {
         if (undirected) {
-            return graphStore.getEdgeIterableWrapper(new UndirectedEdgeViewIterator(graphStore.edgeStore.iterator()));
+            return graphStore.getEdgeIterableWrapper(new UndirectedEdgeViewIterator(new EdgeBitmapIterator()));
         } else {
-            return graphStore.getEdgeIterableWrapper(new EdgeViewIterator(graphStore.edgeStore.iterator()));
+            return graphStore.getEdgeIterableWrapper(new EdgeBitmapIterator());
         }
     }
 
@@ -315,22 +319,58 @@ public class GraphViewDecorator implements DirectedSubgraph, UndirectedSubgraph
     @Override
     public NodeIterable getNeighbors(Node node) {
         checkValidInViewNodeObject(node);
-        return graphStore.getNodeIterableWrapper(new NeighborsIterator((NodeImpl) node, new UndirectedEdgeViewIterator(graphStore.edgeStore.edgeIterator(node))));
+        return graphStore.getNodeIterableWrapper(new NeighborsIterator((NodeImpl) node, new UndirectedEdgeViewIterator(getEdgeIterator(node))));
     }
 
     @Override
     public NodeIterable getNeighbors(Node node, int type) {
         checkValidInViewNodeObject(node);
-        return graphStore.getNodeIterableWrapper(new NeighborsIterator((NodeImpl) node, new UndirectedEdgeViewIterator(graphStore.edgeStore.edgeIterator(node, type))));
+        return graphStore.getNodeIterableWrapper(new NeighborsIterator((NodeImpl) node, new UndirectedEdgeViewIterator(getEdgeIterator(node, type))));
+    }
+
+    @Override
+    public int countCommonNeighbors(Node node1, Node node2) {
+        checkValidInViewNodeObject(node1);
+        checkValidInViewNodeObject(node2);
+        graphStore.autoReadLock();
+        try {
+            AdjacencySnapshot snapshot = graphStore.edgeStore.getCurrentAdjacencySnapshot();
+            int[] neighbors1 = getViewNeighbors(snapshot, (NodeImpl) node1);
+            int[] neighbors2 = getViewNeighbors(snapshot, (NodeImpl) node2);
+            return AdjacencySnapshot.intersect(neighbors1, 0, neighbors1.length, neighbors2, 0, neighbors2.length, null);
+        } finally {
+            graphStore.autoReadUnlock();
+        }
+    }
+
+    @Override
+    public NodeIterable getCommonNeighbors(Node node1, Node node2) {
+        checkValidInViewNodeObject(node1);
+        checkValidInViewNodeObject(node2);
+        graphStore.autoReadLock();
+        try {
+            AdjacencySnapshot snapshot = graphStore.edgeStore.getCurrentAdjacencySnapshot();
+            int[] neighbors1 = getViewNeighbors(snapshot, (NodeImpl) node1);
+            int[] neighbors2 = getViewNeighbors(snapshot, (NodeImpl) node2);
+            int[] common = new int[Math.min(neighbors1.length, neighbors2.length)];
+            int count = AdjacencySnapshot.intersect(neighbors1, 0, neighbors1.length, neighbors2, 0, neighbors2.length, common);
+            Node[] nodes = new Node[count];
+            for (int i = 0; i < count; i++) {
+                nodes[i] = graphStore.nodeStore.get(common[i]);
+            }
+            return graphStore.getNodeIterableWrapper(Arrays.asList(nodes).iterator(), false);
+        } finally {
+            graphStore.autoReadUnlock();
+        }
     }
 
     @Override
     public EdgeIterable getEdges(Node node) {
         checkValidInViewNodeObject(node);
         if (undirected) {
-            return graphStore.getEdgeIterableWrapper(new UndirectedEdgeViewIterator(graphStore.edgeStore.edgeIterator(node)));
+            return graphStore.getEdgeIterableWrapper(new UndirectedEdgeViewIterator(getEdgeIterator(node)));
         } else {
-            return graphStore.getEdgeIterableWrapper(new EdgeViewIterator(graphStore.edgeStore.edgeIterator(node)));
+            return graphStore.getEdgeIterableWrapper(getEdgeIterator(node));
         }
     }
 
@@ -338,13 +378,17 @@ public class GraphViewDecorator implements DirectedSubgraph, UndirectedSubgraph
     public EdgeIterable getEdges(Node node, int type) {
         checkValidInViewNodeObject(node);
         if (undirected) {
-            return graphStore.getEdgeIterableWrapper(new UndirectedEdgeViewIterator(graphStore.edgeStore.edgeIterator(node, type)));
+            return graphStore.getEdgeIterableWrapper(new UndirectedEdgeViewIterator(getEdgeIterator(node, type)));
         } else {
-            return graphStore.getEdgeIterableWrapper(new EdgeViewIterator(graphStore.edgeStore.edgeIterator(node, type)));
+            return graphStore.getEdgeIterableWrapper(getEdgeIterator(node, type));
         }
 
     }
 
+    public AdjacencyCursors getAdjacencyCursors() {
+        return new AdjacencyCursors(graphStore, view);
+    }
+
     @Override
     public int getNodeCount() {
         return view.getNodeCount();
@@ -375,20 +419,33 @@ public class GraphViewDecorator implements DirectedSubgraph, UndirectedSubgraph
 
     @Override
     public int getDegree(Node node) {
-        if (undirected) {
-            int count = 0;
-            EdgeStore.EdgeInOutIterator itr = graphStore.edgeStore.edgeIterator(node);
-            while (itr.hasNext()) {
-                EdgeImpl edge = itr.next();
-                if (view.containsEdge(edge) && !isUndirectedToIgnore(edge)) {
-                    count++;
-                    if (edge.isSelfLoop()) {
+        graphStore.autoReadLock();
+        try {
+            GraphViewDegrees degrees = view.getDegrees();
+            if (degrees != null) {
+                if (undirected) {
+                    return degrees.getUndirectedDegree((NodeImpl) node);
+                }
+                return degrees.getDegree((NodeImpl) node);
+            }
+            if (undirected) {
+                int count = 0;
+                Iterator<Edge> itr = getEdgeIterator(node);
+                while (itr.hasNext()) {
+                    EdgeImpl edge = (EdgeImpl) itr.next();
+                    if (view.containsEdge(edge) && !isUndirectedToIgnore(edge)) {
                         count++;
+                        if (edge.isSelfLoop()) {
+                            count++;
+                        }
                     }
                 }
+                return count;
+            }
+            GraphViewCache cache = view.getCache();
+            if (cache != null) {
+                return cache.getOutDegree((NodeImpl) node) + cache.getInDegree((NodeImpl) node);
             }
-            return count;
-        } else {
             int count = 0;
             EdgeStore.EdgeInOutIterator itr = graphStore.edgeStore.edgeIterator(node);
             while (itr.hasNext()) {
@@ -401,31 +458,59 @@ public class GraphViewDecorator implements DirectedSubgraph, UndirectedSubgraph
                 }
             }
             return count;
+        } finally {
+            graphStore.autoReadUnlock();
         }
     }
 
     @Override
     public int getInDegree(Node node) {
-        int count = 0;
-        EdgeStore.EdgeInIterator itr = graphStore.edgeStore.edgeInIterator(node);
-        while (itr.hasNext()) {
-            if (view.containsEdge(itr.next())) {
-                count++;
+        graphStore.autoReadLock();
+        try {
+            GraphViewDegrees degrees = view.getDegrees();
+            if (degrees != null) {
+                return degrees.getInDegree((NodeImpl) node);
+            }
+            GraphViewCache cache = view.getCache();
+            if (cache != null) {
+                return cache.getInDegree((NodeImpl) node);
+            }
+            int count = 0;
+            EdgeStore.EdgeInIterator itr = graphStore.edgeStore.edgeInIterator(node);
+            while (itr.hasNext()) {
+                if (view.containsEdge(itr.next())) {
+                    count++;
+                }
             }
+            return count;
+        } finally {
+            graphStore.autoReadUnlock();
         }
-        return count;
     }
 
     @Override
     public int getOutDegree(Node node) {
-        int count = 0;
-        EdgeStore.EdgeOutIterator itr = graphStore.edgeStore.edgeOutIterator(node);
-        while (itr.hasNext()) {
-            if (view.containsEdge(itr.next())) {
-                count++;
+        graphStore.autoReadLock();
+        try {
+            GraphViewDegrees degrees = view.getDegrees();
+            if (degrees != null) {
+                return degrees.getOutDegree((NodeImpl) node);
+            }
+            GraphViewCache cache = view.getCache();
+            if (cache != null) {
+                return cache.getOutDegree((NodeImpl) node);
+            }
+            int count = 0;
+            EdgeStore.EdgeOutIterator itr = graphStore.edgeStore.edgeOutIterator(node);
+            while (itr.hasNext()) {
+                if (view.containsEdge(itr.next())) {
+                    count++;
+                }
             }
+            return count;
+        } finally {
+            graphStore.autoReadUnlock();
         }
-        return count;
     }
 
     @Override
@@ -564,7 +649,7 @@ public class GraphViewDecorator implements DirectedSubgraph, UndirectedSubgraph
 
     @Override
     public void writeUnlock() {
-        graphStore.lock.writeUnlock();
+        graphStore.writeUnlock();
     }
 
     @Override
@@ -629,6 +714,118 @@ public class GraphViewDecorator implements DirectedSubgraph, UndirectedSubgraph
         }
     }
 
+    private Iterator<Edge> getOutEdgeIterator(Node node) {
+        //The cache is read under the lock so a writer can't drop it meanwhile
+        graphStore.autoReadLock();
+        try {
+            GraphViewCache cache = view.getCache();
+            if (cache != null) {
+                int rank = cache.rank((NodeImpl) node);
+                return new CachedEdgeIterator(cache.getOutEdges(), cache.outStart(rank), cache.outEnd(rank), null, 0, 0);
+            }
+        } finally {
+            graphStore.autoReadUnlock();
+        }
+        return new EdgeViewIterator(graphStore.edgeStore.edgeOutIterator(node));
+    }
+
+    private Iterator<Edge> getOutEdgeIterator(Node node, int type) {
+        graphStore.autoReadLock();
+        try {
+            GraphViewCache cache = view.getCache();
+            if (cache != null && cache.isValidType(type)) {
+                int rank = cache.rank((NodeImpl) node);
+                return new CachedEdgeIterator(cache.getOutEdges(), cache.outStart(rank, type), cache.outEnd(rank, type), null, 0, 0);
+            }
+        } finally {
+            graphStore.autoReadUnlock();
+        }
+        return new EdgeViewIterator(graphStore.edgeStore.edgeOutIterator(node, type));
+    }
+
+    private Iterator<Edge> getInEdgeIterator(Node node) {
+        graphStore.autoReadLock();
+        try {
+            GraphViewCache cache = view.getCache();
+            if (cache != null) {
+                int rank = cache.rank((NodeImpl) node);
+                return new CachedEdgeIterator(null, 0, 0, cache.getInEdges(), cache.inStart(rank), cache.inEnd(rank));
+            }
+        } finally {
+            graphStore.autoReadUnlock();
+        }
+        return new EdgeViewIterator(graphStore.edgeStore.edgeInIterator(node));
+    }
+
+    private Iterator<Edge> getInEdgeIterator(Node node, int type) {
+        graphStore.autoReadLock();
+        try {
+            GraphViewCache cache = view.getCache();
+            if (cache != null && cache.isValidType(type)) {
+                int rank = cache.rank((NodeImpl) node);
+                return new CachedEdgeIterator(null, 0, 0, cache.getInEdges(), cache.inStart(rank, type), cache.inEnd(rank, type));
+            }
+        } finally {
+            graphStore.autoReadUnlock();
+        }
+        return new EdgeViewIterator(graphStore.edgeStore.edgeInIterator(node, type));
+    }
+
+    private Iterator<Edge> getEdgeIterator(Node node) {
+        graphStore.autoReadLock();
+        try {
+            GraphViewCache cache = view.getCache();
+            if (cache != null) {
+                int rank = cache.rank((NodeImpl) node);
+                return new CachedEdgeIterator(cache.getOutEdges(), cache.outStart(rank), cache.outEnd(rank), cache.getInEdges(), cache.inStart(rank), cache.inEnd(rank));
+            }
+        } finally {
+            graphStore.autoReadUnlock();
+        }
+        return new EdgeViewIterator(graphStore.edgeStore.edgeIterator(node));
+    }
+
+    private Iterator<Edge> getEdgeIterator(Node node, int type) {
+        graphStore.autoReadLock();
+        try {
+            GraphViewCache cache = view.getCache();
+            if (cache != null && cache.isValidType(type)) {
+                int rank = cache.rank((NodeImpl) node);
+                return new CachedEdgeIterator(cache.getOutEdges(), cache.outStart(rank, type), cache.outEnd(rank, type), cache.getInEdges(), cache.inStart(rank, type), cache.inEnd(rank, type));
+            }
+        } finally {
+            graphStore.autoReadUnlock();
+        }
+        return new EdgeViewIterator(graphStore.edgeStore.edgeIterator(node, type));
+    }
+
+    private int[] getViewNeighbors(AdjacencySnapshot snapshot, NodeImpl nodeImpl) {
+        if (snapshot == null) {
+            //Not worth rebuilding the snapshot between writes
+            return graphStore.edgeStore.getNeighborSet(nodeImpl, view);
+        }
+        int node = nodeImpl.storeId;
+        int[] neighbors = new int[snapshot.getOutDegree(node) + snapshot.getInDegree(node)];
+        int length = 0;
+        int[] outNeighbors = snapshot.getOutNeighbors();
+        int[] outEdges = snapshot.getOutEdges();
+        for (int i = snapshot.outStart(node); i < snapshot.outEnd(node); i++) {
+            if (view.containsEdge(outEdges[i])) {
+                neighbors[length++] = outNeighbors[i];
+            }
+        }
+        int[] inNeighbors = snapshot.getInNeighbors();
+        int[] inEdges = snapshot.getInEdges();
+        for (int i = snapshot.inStart(node); i < snapshot.inEnd(node); i++) {
+            if (view.containsEdge(inEdges[i])) {
+                neighbors[length++] = inNeighbors[i];
+            }
+        }
+
+        //Sort, remove duplicates and the node itself
+        return Arrays.copyOf(neighbors, AdjacencySnapshot.distinct(neighbors, 0, length, node));
+    }
+
     void checkValidInViewNodeObject(final Node n) {
         checkValidNodeObject(n);
 
@@ -750,6 +947,158 @@ public class GraphViewDecorator implements DirectedSubgraph, UndirectedSubgraph
         }
     }
 
+    protected final class CachedEdgeIterator implements Iterator<Edge> {
+
+        //Out slice, then in slice without self-loops as they're already in the out slice
+        private final EdgeImpl[] outEdges;
+        private final int outEnd;
+        private final EdgeImpl[] inEdges;
+        private final int inEnd;
+        private int outIndex;
+        private int inIndex;
+        private EdgeImpl pointer;
+        private boolean locked;
+
+        public CachedEdgeIterator(EdgeImpl[] outEdges, int outStart, int outEnd, EdgeImpl[] inEdges, int inStart, int inEnd) {
+            this.outEdges = outEdges;
+            this.outIndex = outStart;
+            this.outEnd = outEnd;
+            this.inEdges = inEdges;
+            this.inIndex = inStart;
+            this.inEnd = inEnd;
+            graphStore.autoReadLock();
+            this.locked = true;
+        }
+
+        @Override
+        public boolean hasNext() {
+            if (outIndex < outEnd) {
+                return true;
+            }
+            while (inIndex < inEnd) {
+                if (outEdges == null || !inEdges[inIndex].isSelfLoop()) {
+                    return true;
+                }
+                inIndex++;
+            }
+            if (locked) {
+                locked = false;
+                graphStore.autoReadUnlock();
+            }
+            return false;
+        }
+
+        @Override
+        public Edge next() {
+            if (outIndex < outEnd) {
+                pointer = outEdges[outIndex++];
+            } else {
+                pointer = inEdges[inIndex++];
+            }
+            return pointer;
+        }
+
+        @Override
+        public void remove() {
+            checkWriteLock();
+            removeEdge(pointer);
+        }
+    }
+
+    /**
+     * Iterates over the nodes set in the view's bitmap rather than over the
+     * whole store, so the cost is proportional to the view size.
+     */
+    protected final class NodeBitmapIterator implements Iterator<Node> {
+
+        private int nextId;
+        private NodeImpl pointer;
+        private boolean locked;
+
+        public NodeBitmapIterator() {
+            graphStore.autoReadLock();
+            this.locked = true;
+            this.nextId = view.nodeBitVector.nextSetBit(0);
+        }
+
+        @Override
+        public boolean hasNext() {
+            RoaringBitmap bitmap = view.nodeBitVector;
+            //The view may have been modified since, while holding the write lock
+            while (nextId >= 0 && !bitmap.get(nextId)) {
+                nextId = bitmap.nextSetBit(nextId + 1);
+            }
+            if (nextId >= 0) {
+                return true;
+            }
+            if (locked) {
+                locked = false;
+                graphStore.autoReadUnlock();
+            }
+            return false;
+        }
+
+        @Override
+        public Node next() {
+            pointer = graphStore.nodeStore.get(nextId);
+            nextId = view.nodeBitVector.nextSetBit(nextId + 1);
+            return pointer;
+        }
+
+        @Override
+        public void remove() {
+            checkWriteLock();
+            removeNode(pointer);
+        }
+    }
+
+    /**
+     * Iterates over the edges set in the view's bitmap rather than over the
+     * whole store, so the cost is proportional to the view size.
+     */
+    protected final class EdgeBitmapIterator implements Iterator<Edge> {
+
+        private int nextId;
+        private EdgeImpl pointer;
+        private boolean locked;
+
+        public EdgeBitmapIterator() {
+            graphStore.autoReadLock();
+            this.locked = true;
+            this.nextId = view.edgeBitVector.nextSetBit(0);
+        }
+
+        @Override
+        public boolean hasNext() {
+            RoaringBitmap bitmap = view.edgeBitVector;
+            //The view may have been modified since, while holding the write lock
+            while (nextId >= 0 && !bitmap.get(nextId)) {
+                nextId = bitmap.nextSetBit(nextId + 1);
+            }
+            if (nextId >= 0) {
+                return true;
+            }
+            if (locked) {
+                locked = false;
+                graphStore.autoReadUnlock();
+            }
+            return false;
+        }
+
+        @Override
+        public Edge next() {
+            pointer = graphStore.edgeStore.get(nextId);
+            nextId = view.edgeBitVector.nextSetBit(nextId + 1);
+            return pointer;
+        }
+
+        @Override
+        public void remove() {
+            checkWriteLock();
+            removeEdge(pointer);
+        }
+    }
+
     protected final class UndirectedEdgeViewIterator implements Iterator<Edge> {
 
         protected final Iterator<Edge> itr;
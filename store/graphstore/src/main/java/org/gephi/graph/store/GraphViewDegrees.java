@@ -0,0 +1,140 @@
+/*
+ * Copyright 2012-2013 Gephi Consortium
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.gephi.graph.store;
+
+import java.util.Arrays;
+
+/**
+ * Degrees of the nodes in a view, indexed by node store id.
+ * <p>
+ * In and out degrees count the edges of the view, self-loops appearing in
+ * both. The mutual degree counts the mutual pairs whose two edges are in the
+ * view, so the undirected degree is <code>in + out - mutual</code>.
+ * <p>
+ * Views only keep degrees when enabled with
+ * {@link GraphViewStore#setCachedDegrees(org.gephi.graph.api.GraphView, boolean)}.
+ * The degrees are then built by {@link GraphViewImpl#getDegrees()} and
+ * updated by the view as edges are added or removed, while holding the write
+ * lock. Operations replacing the whole view drop them instead.
+ *
+ * @author mbastian
+ */
+public final class GraphViewDegrees {
+
+    protected final GraphViewImpl view;
+    protected final EdgeStore edgeStore;
+    //Degrees
+    protected int[] inDegrees;
+    protected int[] outDegrees;
+    protected int[] mutualDegrees;
+
+    public GraphViewDegrees(final GraphViewImpl view) {
+        this.view = view;
+        this.edgeStore = view.graphStore.edgeStore;
+
+        RoaringBitmap edgeBitVector = view.edgeBitVector;
+        int length = view.graphStore.nodeStore.maxStoreId();
+        this.inDegrees = new int[length];
+        this.outDegrees = new int[length];
+        this.mutualDegrees = new int[length];
+        for (int i = edgeBitVector.nextSetBit(0); i >= 0; i = edgeBitVector.nextSetBit(i + 1)) {
+            EdgeImpl edge = edgeStore.get(i);
+            ensureCapacity(Math.max(edge.source.storeId, edge.target.storeId));
+            outDegrees[edge.source.storeId]++;
+            inDegrees[edge.target.storeId]++;
+            //Pairs are counted once, from the edge with the lowest source id
+            if (edge.source.storeId < edge.target.storeId && isMutualInView(edge)) {
+                mutualDegrees[edge.source.storeId]++;
+                mutualDegrees[edge.target.storeId]++;
+            }
+        }
+    }
+
+    /**
+     * Counts <code>edge</code>, which must just have been added to the view.
+     *
+     * @param edge the added edge
+     */
+    public void addEdge(final EdgeImpl edge) {
+        int source = edge.source.storeId;
+        int target = edge.target.storeId;
+        ensureCapacity(Math.max(source, target));
+        outDegrees[source]++;
+        inDegrees[target]++;
+        if (isMutualInView(edge)) {
+            mutualDegrees[source]++;
+            mutualDegrees[target]++;
+        }
+    }
+
+    /**
+     * Uncounts <code>edge</code>, which must just have been removed from the
+     * view but still be in the store.
+     *
+     * @param edge the removed edge
+     */
+    public void removeEdge(final EdgeImpl edge) {
+        int source = edge.source.storeId;
+        int target = edge.target.storeId;
+        outDegrees[source]--;
+        inDegrees[target]--;
+        if (isMutualInView(edge)) {
+            mutualDegrees[source]--;
+            mutualDegrees[target]--;
+        }
+    }
+
+    public int getInDegree(final NodeImpl node) {
+        int id = node.storeId;
+        return id < inDegrees.length ? inDegrees[id] : 0;
+    }
+
+    public int getOutDegree(final NodeImpl node) {
+        int id = node.storeId;
+        return id < outDegrees.length ? outDegrees[id] : 0;
+    }
+
+    public int getMutualDegree(final NodeImpl node) {
+        int id = node.storeId;
+        return id < mutualDegrees.length ? mutualDegrees[id] : 0;
+    }
+
+    public int getDegree(final NodeImpl node) {
+        return getInDegree(node) + getOutDegree(node);
+    }
+
+    public int getUndirectedDegree(final NodeImpl node) {
+        return getInDegree(node) + getOutDegree(node) - getMutualDegree(node);
+    }
+
+    private boolean isMutualInView(final EdgeImpl edge) {
+        //Same test as the edge store, which may not have flagged the edge yet
+        if (!edge.isDirected() || edge.isSelfLoop()) {
+            return false;
+        }
+        EdgeImpl mutual = edgeStore.get(edge.target, edge.source, edge.type);
+        return mutual != null && view.edgeBitVector.get(mutual.storeId);
+    }
+
+    private void ensureCapacity(final int storeId) {
+        if (storeId >= inDegrees.length) {
+            int length = (int) Math.max(storeId + 1, inDegrees.length * GraphStoreConfiguration.VIEW_GROWING_FACTOR);
+            inDegrees = Arrays.copyOf(inDegrees, length);
+            outDegrees = Arrays.copyOf(outDegrees, length);
+            mutualDegrees = Arrays.copyOf(mutualDegrees, length);
+        }
+    }
+}
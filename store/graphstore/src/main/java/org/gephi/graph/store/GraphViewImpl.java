@@ -15,16 +15,16 @@
  */
 package org.gephi.graph.store;
 
-import cern.colt.bitvector.BitVector;
-import cern.colt.bitvector.QuickBitVector;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Iterator;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
 import org.gephi.attribute.time.Interval;
 import org.gephi.graph.api.DirectedSubgraph;
 import org.gephi.graph.api.Edge;
+import org.gephi.graph.api.ElementPredicate;
 import org.gephi.graph.api.Graph;
 import org.gephi.graph.api.GraphView;
 import org.gephi.graph.api.Node;
@@ -42,8 +42,8 @@ public class GraphViewImpl implements GraphView {
     protected final boolean nodeView;
     protected final boolean edgeView;
     protected final GraphAttributesImpl attributes;
-    protected BitVector nodeBitVector;
-    protected BitVector edgeBitVector;
+    protected RoaringBitmap nodeBitVector;
+    protected RoaringBitmap edgeBitVector;
     protected int storeId;
     //Version
     protected final GraphVersion version;
@@ -57,28 +57,52 @@ public class GraphViewImpl implements GraphView {
     protected int[] typeCounts;
     protected int[] mutualEdgeTypeCounts;
     protected int mutualEdgesCount;
+    //Store mutual version the mutual counts are up to date with (lazy)
+    protected final Object mutualCountsMonitor = new Object();
+    protected volatile int mutualVersion;
     //Dynamic
     protected Interval interval;
+    //Cache, cache and degrees are built under the monitor
+    protected final Object cacheMonitor = new Object();
+    protected volatile GraphViewCache cache;
+    protected final AtomicInteger cacheQueries = new AtomicInteger();
+    //Degrees
+    protected volatile boolean cachedDegrees;
+    protected volatile GraphViewDegrees degrees;
+    //Predicates
+    protected final ElementPredicate<Node> nodePredicate;
+    protected final ElementPredicate<Edge> edgePredicate;
 
     public GraphViewImpl(final GraphStore store, boolean nodes, boolean edges) {
+        this(store, nodes, edges, null, null);
+    }
+
+    public GraphViewImpl(final GraphStore store, final ElementPredicate<Node> nodePredicate, final ElementPredicate<Edge> edgePredicate) {
+        this(store, nodePredicate != null, edgePredicate != null, nodePredicate, edgePredicate);
+    }
+
+    private GraphViewImpl(final GraphStore store, boolean nodes, boolean edges, final ElementPredicate<Node> nodePredicate, final ElementPredicate<Edge> edgePredicate) {
         this.graphStore = store;
         this.nodeView = nodes;
         this.edgeView = edges;
         this.attributes = new GraphAttributesImpl();
         if (nodes) {
-            this.nodeBitVector = new BitVector(store.nodeStore.maxStoreId());
+            this.nodeBitVector = new RoaringBitmap();
         } else {
             this.nodeBitVector = null;
         }
-        this.edgeBitVector = new BitVector(store.edgeStore.maxStoreId());
+        this.edgeBitVector = new RoaringBitmap();
         this.typeCounts = new int[GraphStoreConfiguration.VIEW_DEFAULT_TYPE_COUNT];
         this.mutualEdgeTypeCounts = new int[GraphStoreConfiguration.VIEW_DEFAULT_TYPE_COUNT];
+        this.mutualVersion = store.edgeStore.mutualVersion;
 
         this.directedDecorator = new GraphViewDecorator(graphStore, this, false);
         this.undirectedDecorator = new GraphViewDecorator(graphStore, this, true);
         this.version = graphStore.version != null ? new GraphVersion(directedDecorator) : null;
         this.observers = graphStore.version != null ? new ArrayList<GraphObserverImpl>() : null;
         this.interval = Interval.INFINITY_INTERVAL;
+        this.nodePredicate = nodePredicate;
+        this.edgePredicate = edgePredicate;
     }
 
     public GraphViewImpl(final GraphViewImpl view, boolean nodes, boolean edges) {
@@ -96,8 +120,14 @@ public class GraphViewImpl implements GraphView {
         this.edgeBitVector = view.edgeBitVector.copy();
         this.typeCounts = new int[view.typeCounts.length];
         System.arraycopy(view.typeCounts, 0, typeCounts, 0, view.typeCounts.length);
+        view.ensureMutualCounts();
+        this.mutualVersion = view.mutualVersion;
         this.mutualEdgeTypeCounts = new int[view.mutualEdgeTypeCounts.length];
         System.arraycopy(view.mutualEdgeTypeCounts, 0, mutualEdgeTypeCounts, 0, view.mutualEdgeTypeCounts.length);
+        this.mutualEdgesCount = view.mutualEdgesCount;
+        this.cachedDegrees = view.cachedDegrees;
+        this.nodePredicate = null;
+        this.edgePredicate = null;
         this.directedDecorator = new GraphViewDecorator(graphStore, this, false);
         this.undirectedDecorator = new GraphViewDecorator(graphStore, this, true);
         this.version = graphStore.version != null ? new GraphVersion(directedDecorator) : null;
@@ -298,6 +328,8 @@ public class GraphViewImpl implements GraphView {
         typeCounts = new int[GraphStoreConfiguration.VIEW_DEFAULT_TYPE_COUNT];
         mutualEdgeTypeCounts = new int[GraphStoreConfiguration.VIEW_DEFAULT_TYPE_COUNT];
         mutualEdgesCount = 0;
+        mutualVersion = graphStore.edgeStore.mutualVersion;
+        degrees = null;
     }
 
     public void clearEdges() {
@@ -309,20 +341,30 @@ public class GraphViewImpl implements GraphView {
         typeCounts = new int[GraphStoreConfiguration.VIEW_DEFAULT_TYPE_COUNT];
         mutualEdgeTypeCounts = new int[GraphStoreConfiguration.VIEW_DEFAULT_TYPE_COUNT];
         mutualEdgesCount = 0;
+        mutualVersion = graphStore.edgeStore.mutualVersion;
+        degrees = null;
     }
 
     public void fill() {
         if (nodeView) {
-            if (nodeCount > 0) {
-                nodeBitVector = new BitVector(graphStore.nodeStore.maxStoreId());
+            nodeBitVector.clear();
+            NodeStore nodeStore = graphStore.nodeStore;
+            int maxStoreId = nodeStore.maxStoreId();
+            for (int i = 0; i < maxStoreId; i++) {
+                if (nodeStore.get(i) != null) {
+                    nodeBitVector.set(i);
+                }
             }
-            nodeBitVector.not();
             this.nodeCount = graphStore.nodeStore.size();
         }
-        if (edgeCount > 0) {
-            edgeBitVector = new BitVector(graphStore.edgeStore.maxStoreId());
+        edgeBitVector.clear();
+        EdgeStore edgeStore = graphStore.edgeStore;
+        int maxStoreId = edgeStore.maxStoreId();
+        for (int i = 0; i < maxStoreId; i++) {
+            if (edgeStore.get(i) != null) {
+                edgeBitVector.set(i);
+            }
         }
-        edgeBitVector.not();
 
         this.edgeCount = graphStore.edgeStore.size();
         int typeLength = graphStore.edgeStore.longDictionary.length;
@@ -334,6 +376,8 @@ public class GraphViewImpl implements GraphView {
         this.mutualEdgeTypeCounts = new int[graphStore.edgeStore.mutualEdgesTypeSize.length];
         System.arraycopy(graphStore.edgeStore.mutualEdgesTypeSize, 0, this.mutualEdgeTypeCounts, 0, this.mutualEdgeTypeCounts.length);
         this.mutualEdgesCount = graphStore.edgeStore.mutualEdgesSize;
+        this.mutualVersion = graphStore.edgeStore.mutualVersion;
+        this.degrees = null;
 
         if (edgeCount > 0) {
             incrementEdgeVersion();
@@ -354,47 +398,39 @@ public class GraphViewImpl implements GraphView {
         return edgeBitVector.get(edge.storeId);
     }
 
+    public boolean containsEdge(final int edgeStoreId) {
+        return edgeBitVector.get(edgeStoreId);
+    }
+
     public void intersection(final GraphViewImpl otherView) {
-        BitVector nodeOtherBitVector = otherView.nodeBitVector;
-        BitVector edgeOtherBitVector = otherView.edgeBitVector;
-
-        int nodeSize = nodeBitVector.size();
-        for (int i = 0; i < nodeSize; i++) {
-            boolean t = nodeBitVector.get(i);
-            boolean o = nodeOtherBitVector.get(i);
-            if (t && !o) {
+        RoaringBitmap nodeOtherBitVector = otherView.nodeBitVector;
+        RoaringBitmap edgeOtherBitVector = otherView.edgeBitVector;
+
+        for (int i = nodeBitVector.nextSetBit(0); i >= 0; i = nodeBitVector.nextSetBit(i + 1)) {
+            if (!nodeOtherBitVector.get(i)) {
                 removeNode(getNode(i));
             }
         }
 
-        int edgeSize = edgeBitVector.size();
-        for (int i = 0; i < edgeSize; i++) {
-            boolean t = edgeBitVector.get(i);
-            boolean o = edgeOtherBitVector.get(i);
-            if (t && !o) {
+        for (int i = edgeBitVector.nextSetBit(0); i >= 0; i = edgeBitVector.nextSetBit(i + 1)) {
+            if (!edgeOtherBitVector.get(i)) {
                 removeEdge(getEdge(i));
             }
         }
     }
 
     public void union(final GraphViewImpl otherView) {
-        BitVector nodeOtherBitVector = otherView.nodeBitVector;
-        BitVector edgeOtherBitVector = otherView.edgeBitVector;
-
-        int nodeSize = nodeBitVector.size();
-        for (int i = 0; i < nodeSize; i++) {
-            boolean t = nodeBitVector.get(i);
-            boolean o = nodeOtherBitVector.get(i);
-            if (!t && o) {
+        RoaringBitmap nodeOtherBitVector = otherView.nodeBitVector;
+        RoaringBitmap edgeOtherBitVector = otherView.edgeBitVector;
+
+        for (int i = nodeOtherBitVector.nextSetBit(0); i >= 0; i = nodeOtherBitVector.nextSetBit(i + 1)) {
+            if (!nodeBitVector.get(i)) {
                 addNode(getNode(i));
             }
         }
 
-        int edgeSize = edgeBitVector.size();
-        for (int i = 0; i < edgeSize; i++) {
-            boolean t = edgeBitVector.get(i);
-            boolean o = edgeOtherBitVector.get(i);
-            if (!t && o) {
+        for (int i = edgeOtherBitVector.nextSetBit(0); i >= 0; i = edgeOtherBitVector.nextSetBit(i + 1)) {
+            if (!edgeBitVector.get(i)) {
                 addEdge(getEdge(i));
             }
         }
@@ -408,6 +444,86 @@ public class GraphViewImpl implements GraphView {
         }
     }
 
+    public void removeEdgeInNodeView(EdgeImpl edge) {
+        if (edgeBitVector.get(edge.storeId)) {
+            removeEdge(edge);
+        }
+    }
+
+    public boolean isPredicateView() {
+        return nodePredicate != null || edgePredicate != null;
+    }
+
+    /**
+     * Sets the nodes and edges of this view to the elements satisfying its
+     * predicates.
+     */
+    protected void fillFromPredicates() {
+        RoaringBitmap nodes = null;
+        if (nodePredicate != null) {
+            nodes = new RoaringBitmap();
+            for (NodeStore.NodeStoreIterator itr = graphStore.nodeStore.iterator(); itr.hasNext();) {
+                NodeImpl node = itr.next();
+                if (nodePredicate.evaluate(node)) {
+                    nodes.set(node.storeId);
+                }
+            }
+        }
+        RoaringBitmap edges = new RoaringBitmap();
+        if (edgePredicate != null) {
+            for (EdgeStore.EdgeStoreIterator itr = graphStore.edgeStore.iterator(); itr.hasNext();) {
+                EdgeImpl edge = itr.next();
+                if (edgePredicate.evaluate(edge)) {
+                    edges.set(edge.storeId);
+                }
+            }
+        }
+        setBitVectors(nodes, edges);
+    }
+
+    /**
+     * Evaluates the node predicate for <code>node</code> and adds or removes
+     * it accordingly, together with its edges.
+     *
+     * @param node the node to evaluate
+     */
+    protected void evaluateNode(final NodeImpl node) {
+        boolean matches = nodePredicate.evaluate(node);
+        if (matches != nodeBitVector.get(node.storeId)) {
+            if (matches) {
+                addNode(node);
+                if (edgeView) {
+                    EdgeInOutIterator itr = graphStore.edgeStore.edgeIterator(node);
+                    while (itr.hasNext()) {
+                        evaluateEdge(itr.next());
+                    }
+                }
+            } else {
+                removeNode(node);
+            }
+        }
+    }
+
+    /**
+     * Evaluates the edge predicate for <code>edge</code> and adds or removes
+     * it accordingly. Edges are only added if both nodes are in the view.
+     *
+     * @param edge the edge to evaluate
+     */
+    protected void evaluateEdge(final EdgeImpl edge) {
+        boolean matches = edgePredicate.evaluate(edge);
+        if (matches && nodeView) {
+            matches = nodeBitVector.get(edge.source.storeId) && nodeBitVector.get(edge.target.storeId);
+        }
+        if (matches != edgeBitVector.get(edge.storeId)) {
+            if (matches) {
+                addEdge(edge);
+            } else {
+                removeEdge(edge);
+            }
+        }
+    }
+
     public int getNodeCount() {
         if (nodeView) {
             return nodeCount;
@@ -420,6 +536,7 @@ public class GraphViewImpl implements GraphView {
     }
 
     public int getUndirectedEdgeCount() {
+        ensureMutualCounts();
         return edgeCount - mutualEdgesCount;
     }
 
@@ -434,6 +551,7 @@ public class GraphViewImpl implements GraphView {
         if (type < 0 || type >= typeCounts.length) {
             throw new IllegalArgumentException("Incorrect type=" + type);
         }
+        ensureMutualCounts();
         return typeCounts[type] - mutualEdgeTypeCounts[type];
     }
 
@@ -495,31 +613,136 @@ public class GraphViewImpl implements GraphView {
         }
     }
 
-    protected void ensureNodeVectorSize(NodeImpl node) {
-        int sid = node.storeId;
-        if (sid >= nodeBitVector.size()) {
-            int newSize = Math.min(Math.max(sid + 1, (int) (sid * GraphStoreConfiguration.VIEW_GROWING_FACTOR)), Integer.MAX_VALUE);
-            nodeBitVector = growBitVector(nodeBitVector, newSize);
+    protected void compactEdges(int[] map, int size) {
+        RoaringBitmap newBitVector = new RoaringBitmap();
+        for (int i = edgeBitVector.nextSetBit(0); i >= 0 && i < map.length; i = edgeBitVector.nextSetBit(i + 1)) {
+            if (map[i] != EdgeStore.NULL_ID) {
+                newBitVector.set(map[i]);
+            }
+        }
+        edgeBitVector = newBitVector;
+        incrementEdgeVersion();
+
+        if (observers != null) {
+            for (GraphObserverImpl observer : observers) {
+                observer.compactEdgeCache(size);
+            }
         }
     }
 
-    private void ensureNodeVectorSize(int size) {
-        if (size > nodeBitVector.size()) {
-            nodeBitVector = growBitVector(nodeBitVector, size);
+    protected void reorderNodes(int[] map, int size) {
+        invalidateCache();
+        degrees = null;
+        if (nodeView) {
+            RoaringBitmap newBitVector = new RoaringBitmap();
+            for (int i = nodeBitVector.nextSetBit(0); i >= 0 && i < map.length; i = nodeBitVector.nextSetBit(i + 1)) {
+                if (map[i] != NodeStore.NULL_ID) {
+                    newBitVector.set(map[i]);
+                }
+            }
+            nodeBitVector = newBitVector;
+            incrementNodeVersion();
+        }
+
+        if (observers != null) {
+            for (GraphObserverImpl observer : observers) {
+                observer.compactNodeCache(size);
+            }
         }
     }
 
-    private void ensureEdgeVectorSize(int size) {
-        if (size > edgeBitVector.size()) {
-            edgeBitVector = growBitVector(edgeBitVector, size);
+    /**
+     * Replaces the nodes and edges of this view and recomputes its counts.
+     * <p>
+     * If this view filters nodes, edges with an endpoint outside
+     * <code>nodes</code> are dropped. If it filters nodes but not edges, edges
+     * are instead induced from the store.
+     *
+     * @param nodes the new node bitmap, ignored if not a node view
+     * @param edges the new edge bitmap, ignored if a node only view
+     */
+    protected void setBitVectors(final RoaringBitmap nodes, final RoaringBitmap edges) {
+        EdgeStore edgeStore = graphStore.edgeStore;
+        if (nodeView) {
+            nodeBitVector = nodes;
+            if (edgeView) {
+                for (int i = edges.nextSetBit(0); i >= 0; i = edges.nextSetBit(i + 1)) {
+                    EdgeImpl edge = edgeStore.get(i);
+                    if (!nodes.get(edge.source.storeId) || !nodes.get(edge.target.storeId)) {
+                        edges.clear(i);
+                    }
+                }
+            } else {
+                //Edges are found from the out edges of the nodes, every edge being out of its source
+                edges.clear();
+                for (int i = nodes.nextSetBit(0); i >= 0; i = nodes.nextSetBit(i + 1)) {
+                    NodeImpl node = graphStore.nodeStore.get(i);
+                    for (EdgeImpl head : node.headOut) {
+                        for (EdgeImpl edge = head; edge != null;) {
+                            if (nodes.get(edge.target.storeId)) {
+                                edges.set(edge.storeId);
+                            }
+                            edge = edge.nextOutEdge != EdgeStore.NULL_ID ? edgeStore.get(edge.nextOutEdge) : null;
+                        }
+                    }
+                }
+            }
+            nodeCount = nodes.cardinality();
+        }
+        edgeBitVector = edges;
+        edgeCount = edges.cardinality();
+
+        typeCounts = new int[Math.max(GraphStoreConfiguration.VIEW_DEFAULT_TYPE_COUNT, edgeStore.longDictionary.length)];
+        mutualEdgeTypeCounts = new int[typeCounts.length];
+        mutualEdgesCount = 0;
+        mutualVersion = edgeStore.mutualVersion;
+        for (int i = edges.nextSetBit(0); i >= 0; i = edges.nextSetBit(i + 1)) {
+            EdgeImpl edge = edgeStore.get(i);
+            ensureTypeCountArrayCapacity(edge.type);
+            typeCounts[edge.type]++;
+            if (edge.isMutual() && edge.source.storeId < edge.target.storeId) {
+                mutualEdgeTypeCounts[edge.type]++;
+                mutualEdgesCount++;
+            }
         }
+        degrees = null;
+
+        incrementNodeVersion();
+        incrementEdgeVersion();
     }
 
-    protected void ensureEdgeVectorSize(EdgeImpl edge) {
-        int sid = edge.storeId;
-        if (sid >= edgeBitVector.size()) {
-            int newSize = Math.min(Math.max(sid + 1, (int) (sid * GraphStoreConfiguration.VIEW_GROWING_FACTOR)), Integer.MAX_VALUE);
-            edgeBitVector = growBitVector(edgeBitVector, newSize);
+    /**
+     * Recounts the mutual edges of this view if the mutual flags of the store
+     * edges changed since they were last counted.
+     * <p>
+     * Mutual pairs are counted on the edge with the lowest source id, so the
+     * counts depend on edges which may not belong to this view. Rather than
+     * notifying every view when a pair is formed or broken, the store bumps
+     * its mutual version and views recount lazily, at most once per version.
+     * Concurrent readers wait for a single recount.
+     */
+    protected void ensureMutualCounts() {
+        final EdgeStore edgeStore = graphStore.edgeStore;
+        if (mutualVersion == edgeStore.mutualVersion) {
+            return;
+        }
+        synchronized (mutualCountsMonitor) {
+            int storeVersion = edgeStore.mutualVersion;
+            if (mutualVersion == storeVersion) {
+                return;
+            }
+            int[] counts = new int[typeCounts.length];
+            int count = 0;
+            for (int i = edgeBitVector.nextSetBit(0); i >= 0; i = edgeBitVector.nextSetBit(i + 1)) {
+                EdgeImpl edge = edgeStore.get(i);
+                if (edge.isMutual() && edge.source.storeId < edge.target.storeId) {
+                    counts[edge.type]++;
+                    count++;
+                }
+            }
+            mutualEdgeTypeCounts = counts;
+            mutualEdgesCount = count;
+            mutualVersion = storeVersion;
         }
     }
 
@@ -538,6 +761,11 @@ public class GraphViewImpl implements GraphView {
             mutualEdgeTypeCounts[type]++;
             mutualEdgesCount++;
         }
+
+        GraphViewDegrees currentDegrees = degrees;
+        if (currentDegrees != null) {
+            currentDegrees.addEdge(edgeImpl);
+        }
     }
 
     private void removeEdge(EdgeImpl edgeImpl) {
@@ -551,13 +779,11 @@ public class GraphViewImpl implements GraphView {
             mutualEdgeTypeCounts[edgeImpl.type]--;
             mutualEdgesCount--;
         }
-    }
 
-    private BitVector growBitVector(BitVector bitVector, int size) {
-        long[] elements = bitVector.elements();
-        long[] newElements = QuickBitVector.makeBitVector(size, 1);
-        System.arraycopy(elements, 0, newElements, 0, elements.length);
-        return new BitVector(newElements, size);
+        GraphViewDegrees currentDegrees = degrees;
+        if (currentDegrees != null) {
+            currentDegrees.removeEdge(edgeImpl);
+        }
     }
 
     private NodeImpl getNode(int id) {
@@ -590,8 +816,7 @@ public class GraphViewImpl implements GraphView {
         hash = 11 * hash + this.nodeCount;
         hash = 11 * hash + this.edgeCount;
         hash = 11 * hash + Arrays.hashCode(this.typeCounts);
-        hash = 11 * hash + Arrays.hashCode(this.mutualEdgeTypeCounts);
-        hash = 11 * hash + this.mutualEdgesCount;
+        //Mutual counts follow from the edges, and are recounted lazily
         return hash;
     }
 
@@ -625,16 +850,93 @@ public class GraphViewImpl implements GraphView {
         if (!Arrays.equals(this.typeCounts, other.typeCounts)) {
             return false;
         }
-        if (!Arrays.equals(this.mutualEdgeTypeCounts, other.mutualEdgeTypeCounts)) {
-            return false;
+        return true;
+    }
+
+    /**
+     * Returns the adjacency cache of this view, building it if the view has
+     * been queried enough since its last change to amortize the build.
+     * <p>
+     * Uncached queries walk the full store adjacency of the node, about the
+     * average store degree each. The cache is therefore built once these
+     * queries together have walked as many edges as the view contains.
+     *
+     * @return the cache or null if not (yet) worth building
+     */
+    protected GraphViewCache getCache() {
+        if (!GraphStoreConfiguration.ENABLE_VIEW_CACHE) {
+            return null;
+        }
+        GraphViewCache current = cache;
+        if (current != null) {
+            return current;
+        }
+        int nodes = Math.max(1, graphStore.nodeStore.size());
+        long averageDegree = Math.max(1, 2l * graphStore.edgeStore.size() / nodes);
+        if (cacheQueries.incrementAndGet() * averageDegree < edgeCount) {
+            return null;
+        }
+        graphStore.autoReadLock();
+        try {
+            //Readers share the lock, the monitor lets a single one build
+            synchronized (cacheMonitor) {
+                current = cache;
+                if (current == null) {
+                    current = new GraphViewCache(this);
+                    cache = current;
+                }
+                return current;
+            }
+        } finally {
+            graphStore.autoReadUnlock();
+        }
+    }
+
+    /**
+     * Returns the degrees of the nodes in this view, building them on first
+     * call. They are then kept up to date as edges are added or removed.
+     *
+     * @return the degrees or null if not enabled for this view
+     */
+    protected GraphViewDegrees getDegrees() {
+        if (!GraphStoreConfiguration.ENABLE_VIEW_DEGREES || !cachedDegrees) {
+            return null;
+        }
+        GraphViewDegrees current = degrees;
+        if (current != null) {
+            return current;
+        }
+        graphStore.autoReadLock();
+        try {
+            synchronized (cacheMonitor) {
+                current = degrees;
+                if (current == null && cachedDegrees) {
+                    current = new GraphViewDegrees(this);
+                    degrees = current;
+                }
+                return current;
+            }
+        } finally {
+            graphStore.autoReadUnlock();
         }
-        if (this.mutualEdgesCount != other.mutualEdgesCount) {
-            return false;
+    }
+
+    protected void setCachedDegrees(boolean cachedDegrees) {
+        synchronized (cacheMonitor) {
+            this.cachedDegrees = cachedDegrees;
+            if (!cachedDegrees) {
+                degrees = null;
+            }
         }
-        return true;
+    }
+
+    private void invalidateCache() {
+        cache = null;
+        cacheQueries.set(0);
     }
 
     private int incrementNodeVersion() {
+        invalidateCache();
         if (version != null) {
             return version.incrementAndGetNodeVersion();
         }
@@ -642,6 +944,7 @@ public class GraphViewImpl implements GraphView {
     }
 
     private int incrementEdgeVersion() {
+        invalidateCache();
         if (version != null) {
             return version.incrementAndGetEdgeVersion();
         }
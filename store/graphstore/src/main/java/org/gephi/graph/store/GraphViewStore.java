@@ -17,10 +17,14 @@ package org.gephi.graph.store;
 
 import it.unimi.dsi.fastutil.ints.IntRBTreeSet;
 import it.unimi.dsi.fastutil.ints.IntSortedSet;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.List;
+import org.gephi.attribute.api.Column;
 import org.gephi.attribute.time.Interval;
 import org.gephi.graph.api.DirectedSubgraph;
 import org.gephi.graph.api.Edge;
+import org.gephi.graph.api.ElementPredicate;
 import org.gephi.graph.api.Graph;
 import org.gephi.graph.api.GraphView;
 import org.gephi.graph.api.Node;
@@ -28,6 +32,13 @@ import org.gephi.graph.api.Subgraph;
 import org.gephi.graph.api.UndirectedSubgraph;
 
 /**
+ * Store of the graph views.
+ * <p>
+ * Views created from predicates are re-evaluated for the changed element only
+ * when nodes and edges are added or attributes are set. Attribute changes
+ * require the write lock, so changes made while the current thread holds the
+ * read lock are queued and applied before the next write lock or outermost
+ * read lock is granted.
  *
  * @author mbastian
  */
@@ -37,6 +48,10 @@ public class GraphViewStore {
     protected static final int NULL_VIEW = -1;
     //Config
     protected static final int DEFAULT_VIEWS = 0;
+    //Operations
+    protected static final int UNION = 0;
+    protected static final int INTERSECTION = 1;
+    protected static final int DIFFERENCE = 2;
     //Data
     protected final IntSortedSet garbageQueue;
     protected final GraphStore graphStore;
@@ -44,6 +59,11 @@ public class GraphViewStore {
     protected int length;
     //Visible view
     protected GraphView visibleView;
+    //Views updated on insertion
+    protected GraphViewImpl[] nodeOnlyViews;
+    protected volatile GraphViewImpl[] predicateViews;
+    protected final List<ElementImpl> pendingElements;
+    protected volatile boolean hasPendingElements;
 
     public GraphViewStore(GraphStore graphStore) {
         if (graphStore == null) {
@@ -53,6 +73,9 @@ public class GraphViewStore {
         this.views = new GraphViewImpl[DEFAULT_VIEWS];
         this.garbageQueue = new IntRBTreeSet();
         this.visibleView = graphStore.mainGraphView;
+        this.nodeOnlyViews = new GraphViewImpl[0];
+        this.predicateViews = new GraphViewImpl[0];
+        this.pendingElements = new ArrayList<ElementImpl>();
     }
 
     public GraphViewImpl createView() {
@@ -70,6 +93,51 @@ public class GraphViewStore {
         }
     }
 
+    public GraphViewImpl createView(ElementPredicate<Node> nodePredicate, ElementPredicate<Edge> edgePredicate) {
+        if (nodePredicate == null && edgePredicate == null) {
+            throw new IllegalArgumentException("At least one predicate is required");
+        }
+        graphStore.autoWriteLock();
+        try {
+            GraphViewImpl graphView = new GraphViewImpl(graphStore, nodePredicate, edgePredicate);
+            graphView.fillFromPredicates();
+            addView(graphView);
+            return graphView;
+        } finally {
+            graphStore.autoWriteUnlock();
+        }
+    }
+
+    public GraphViewImpl createIndexView(Column column, Object value) {
+        if (column == null) {
+            throw new NullPointerException();
+        }
+        if (!column.isIndexed()) {
+            throw new IllegalArgumentException("The column must be indexed");
+        }
+
+        graphStore.autoWriteLock();
+        try {
+            ColumnImpl columnImpl = (ColumnImpl) column;
+            GraphViewImpl graphView;
+            if (isColumnOf(graphStore.nodeColumnStore, columnImpl)) {
+                RoaringBitmap nodes = graphStore.nodeColumnStore.indexStore.getBitmap(columnImpl, value);
+                graphView = new GraphViewImpl(graphStore, true, false);
+                graphView.setBitVectors(nodes, new RoaringBitmap());
+            } else if (isColumnOf(graphStore.edgeColumnStore, columnImpl)) {
+                RoaringBitmap edges = graphStore.edgeColumnStore.indexStore.getBitmap(columnImpl, value);
+                graphView = new GraphViewImpl(graphStore, false, true);
+                graphView.setBitVectors(null, edges);
+            } else {
+                throw new IllegalArgumentException("The column doesn't belong to this graph");
+            }
+            addView(graphView);
+            return graphView;
+        } finally {
+            graphStore.autoWriteUnlock();
+        }
+    }
+
     public GraphViewImpl createView(GraphView view) {
         return createView(view, true, true);
     }
@@ -144,6 +212,140 @@ public class GraphViewStore {
         }
     }
 
+    public void setCachedDegrees(GraphView view, boolean cached) {
+        checkNonNullViewObject(view);
+        checkViewExist((GraphViewImpl) view);
+
+        graphStore.autoWriteLock();
+        try {
+            GraphViewImpl graphView = (GraphViewImpl) view;
+            graphView.setCachedDegrees(cached);
+        } finally {
+            graphStore.autoWriteUnlock();
+        }
+    }
+
+    public GraphViewImpl createUnionView(GraphView... views) {
+        return createCombinedView(UNION, views);
+    }
+
+    public GraphViewImpl createIntersectionView(GraphView... views) {
+        return createCombinedView(INTERSECTION, views);
+    }
+
+    public GraphViewImpl createDifferenceView(GraphView view, GraphView other) {
+        return createCombinedView(DIFFERENCE, view, other);
+    }
+
+    public GraphViewImpl createComplementView(GraphView view) {
+        checkNonNullViewObject(view);
+
+        graphStore.autoWriteLock();
+        try {
+            GraphViewImpl graphView;
+            if (view.isMainView()) {
+                graphView = new GraphViewImpl(graphStore, true, true);
+                graphView.setBitVectors(new RoaringBitmap(), new RoaringBitmap());
+            } else {
+                GraphViewImpl viewImpl = (GraphViewImpl) view;
+                checkViewExist(viewImpl);
+                graphView = new GraphViewImpl(graphStore, viewImpl.nodeView, viewImpl.edgeView);
+                if (viewImpl.nodeView) {
+                    RoaringBitmap nodes = RoaringBitmap.andNot(getNodeUniverse(), viewImpl.nodeBitVector);
+                    graphView.setBitVectors(nodes, viewImpl.edgeView ? getEdgeUniverse() : new RoaringBitmap());
+                } else {
+                    graphView.setBitVectors(null, RoaringBitmap.andNot(getEdgeUniverse(), viewImpl.edgeBitVector));
+                }
+            }
+            addView(graphView);
+            return graphView;
+        } finally {
+            graphStore.autoWriteUnlock();
+        }
+    }
+
+    private GraphViewImpl createCombinedView(int operation, GraphView... views) {
+        if (views.length == 0) {
+            throw new IllegalArgumentException("At least one view is required");
+        }
+        for (GraphView view : views) {
+            checkNonNullViewObject(view);
+        }
+
+        graphStore.autoWriteLock();
+        try {
+            //The main view takes the kind of the other views, and is read as all nodes or edges
+            GraphViewImpl kind = null;
+            for (GraphView view : views) {
+                if (!view.isMainView()) {
+                    GraphViewImpl viewImpl = (GraphViewImpl) view;
+                    checkViewExist(viewImpl);
+                    if (kind == null) {
+                        kind = viewImpl;
+                    } else if (viewImpl.nodeView != kind.nodeView || viewImpl.edgeView != kind.edgeView) {
+                        throw new IllegalArgumentException("The views should filter the same elements (nodes, edges or both)");
+                    }
+                }
+            }
+            boolean nodeView = kind == null || kind.nodeView;
+            boolean edgeView = kind == null || kind.edgeView;
+
+            //Edges of node-only views are derived from the nodes, and edges of a difference only depend on the remaining nodes
+            boolean combineEdges = edgeView && (operation != DIFFERENCE || !nodeView);
+            RoaringBitmap nodes = nodeView ? getNodeBitVector(views[0]).copy() : null;
+            RoaringBitmap edges = edgeView ? getEdgeBitVector(views[0]).copy() : new RoaringBitmap();
+            for (int i = 1; i < views.length; i++) {
+                if (nodeView) {
+                    nodes = combine(operation, nodes, getNodeBitVector(views[i]));
+                }
+                if (combineEdges) {
+                    edges = combine(operation, edges, getEdgeBitVector(views[i]));
+                }
+            }
+            GraphViewImpl graphView = new GraphViewImpl(graphStore, nodeView, edgeView);
+            graphView.setBitVectors(nodes, edges);
+            addView(graphView);
+            return graphView;
+        } finally {
+            graphStore.autoWriteUnlock();
+        }
+    }
+
+    private RoaringBitmap combine(int operation, RoaringBitmap a, RoaringBitmap b) {
+        switch (operation) {
+            case UNION:
+                return RoaringBitmap.or(a, b);
+            case INTERSECTION:
+                return RoaringBitmap.and(a, b);
+            default:
+                return RoaringBitmap.andNot(a, b);
+        }
+    }
+
+    private RoaringBitmap getNodeBitVector(GraphView view) {
+        return view.isMainView() ? getNodeUniverse() : ((GraphViewImpl) view).nodeBitVector;
+    }
+
+    private RoaringBitmap getEdgeBitVector(GraphView view) {
+        return view.isMainView() ? getEdgeUniverse() : ((GraphViewImpl) view).edgeBitVector;
+    }
+
+    private RoaringBitmap getNodeUniverse() {
+        RoaringBitmap bitmap = new RoaringBitmap();
+        for (NodeStore.NodeStoreIterator itr = graphStore.nodeStore.iterator(); itr.hasNext();) {
+            bitmap.set(itr.next().storeId);
+        }
+        return bitmap;
+    }
+
+    private RoaringBitmap getEdgeUniverse() {
+        RoaringBitmap bitmap = new RoaringBitmap();
+        for (EdgeStore.EdgeStoreIterator itr = graphStore.edgeStore.iterator(); itr.hasNext();) {
+            bitmap.set(itr.next().storeId);
+        }
+        return bitmap;
+    }
+
     public boolean contains(GraphView view) {
         graphStore.autoReadLock();
         try {
@@ -227,9 +429,9 @@ public class GraphViewStore {
     }
 
     protected void addNode(NodeImpl node) {
-        if (views.length > 0) {
-            for (GraphViewImpl view : views) {
-                view.ensureNodeVectorSize(node);
+        for (GraphViewImpl view : predicateViews) {
+            if (view.nodePredicate != null) {
+                view.evaluateNode(node);
             }
         }
     }
@@ -237,27 +439,158 @@ public class GraphViewStore {
     protected void removeNode(NodeImpl node) {
         if (views.length > 0) {
             for (GraphViewImpl view : views) {
-                view.removeNode(node);
+                if (view != null && view.nodeView) {
+                    view.removeNode(node);
+                }
             }
         }
     }
 
     protected void addEdge(EdgeImpl edge) {
-        if (views.length > 0) {
-            for (GraphViewImpl view : views) {
-                view.ensureEdgeVectorSize(edge);
-                
-                if(view.nodeView && !view.edgeView) {
-                    view.addEdgeInNodeView(edge);
+        for (GraphViewImpl view : nodeOnlyViews) {
+            view.addEdgeInNodeView(edge);
+        }
+        for (GraphViewImpl view : predicateViews) {
+            if (view.edgePredicate != null) {
+                view.evaluateEdge(edge);
+            }
+        }
+    }
+
+    protected void compactEdges(int[] map, int size) {
+        for (GraphViewImpl view : views) {
+            if (view != null) {
+                view.compactEdges(map, size);
+            }
+        }
+        //Index postings are kept by store id as well
+        if (graphStore.edgeColumnStore != null && graphStore.edgeColumnStore.indexStore != null) {
+            graphStore.edgeColumnStore.indexStore.remap(map);
+        }
+    }
+
+    protected void reorderNodes(int[] map, int size) {
+        for (GraphViewImpl view : views) {
+            if (view != null) {
+                view.reorderNodes(map, size);
+            }
+        }
+        //Index postings are kept by store id as well
+        if (graphStore.nodeColumnStore != null && graphStore.nodeColumnStore.indexStore != null) {
+            graphStore.nodeColumnStore.indexStore.remap(map);
+        }
+    }
+
+    protected void addEdges(EdgeImpl[] edges, int count) {
+        for (GraphViewImpl view : nodeOnlyViews) {
+            for (int i = 0; i < count; i++) {
+                view.addEdgeInNodeView(edges[i]);
+            }
+        }
+        for (GraphViewImpl view : predicateViews) {
+            if (view.edgePredicate != null) {
+                for (int i = 0; i < count; i++) {
+                    view.evaluateEdge(edges[i]);
+                }
+            }
+        }
+    }
+
+    /**
+     * Re-evaluates the predicate views after an attribute of
+     * <code>element</code> has been set in <code>column</code>.
+     * <p>
+     * Returns immediately if no predicate view depends on the column. The
+     * views are updated right away, taking the write lock if the current
+     * thread holds no lock. If it holds the read lock, the write lock can't be
+     * acquired so the element is queued instead. The queue is flushed when the
+     * thread releases its outermost read lock if no other thread holds the
+     * lock. Otherwise it is flushed by the next thread acquiring the write
+     * lock or an outermost read lock, which first waits for the current
+     * readers to finish. Reads made under a read lock already held may see
+     * the views before the change.
+     *
+     * @param element the changed element
+     * @param column the changed column
+     */
+    protected void attributeChanged(ElementImpl element, Column column) {
+        GraphViewImpl[] views = predicateViews;
+        if (views.length == 0 || !dependsOn(views, element, column)) {
+            return;
+        }
+        if (!GraphStoreConfiguration.ENABLE_AUTO_LOCKING || graphStore.lock.readWriteLock.isWriteLockedByCurrentThread()) {
+            flushPendingElements();
+            evaluate(element, column);
+        } else if (graphStore.lock.readWriteLock.getReadHoldCount() > 0) {
+            synchronized (pendingElements) {
+                pendingElements.add(element);
+                hasPendingElements = true;
+            }
+        } else {
+            graphStore.writeLock();
+            try {
+                flushPendingElements();
+                evaluate(element, column);
+            } finally {
+                graphStore.writeUnlock();
+            }
+        }
+    }
+
+    /**
+     * Re-evaluates the predicate views for the queued elements. Must be called
+     * while holding the write lock.
+     */
+    protected void flushPendingElements() {
+        if (!hasPendingElements) {
+            return;
+        }
+        ElementImpl[] elements;
+        synchronized (pendingElements) {
+            elements = pendingElements.toArray(new ElementImpl[0]);
+            pendingElements.clear();
+            hasPendingElements = false;
+        }
+        for (ElementImpl element : elements) {
+            evaluate(element, null);
+        }
+    }
+
+    private void evaluate(ElementImpl element, Column column) {
+        if (!element.isValid()) {
+            return;
+        }
+        for (GraphViewImpl view : predicateViews) {
+            if (element instanceof NodeImpl) {
+                if (view.nodePredicate != null && (column == null || view.nodePredicate.dependsOn(column))) {
+                    view.evaluateNode((NodeImpl) element);
                 }
+            } else if (view.edgePredicate != null && (column == null || view.edgePredicate.dependsOn(column))) {
+                view.evaluateEdge((EdgeImpl) element);
             }
         }
     }
 
+    private boolean dependsOn(GraphViewImpl[] views, ElementImpl element, Column column) {
+        for (GraphViewImpl view : views) {
+            ElementPredicate predicate = element instanceof NodeImpl ? view.nodePredicate : view.edgePredicate;
+            if (predicate != null && predicate.dependsOn(column)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
     protected void removeEdge(EdgeImpl edge) {
         if (views.length > 0) {
             for (GraphViewImpl view : views) {
-                view.removeEdge(edge);
+                if (view != null) {
+                    if (view.edgeView) {
+                        view.removeEdge(edge);
+                    } else {
+                        view.removeEdgeInNodeView(edge);
+                    }
+                }
             }
         }
     }
@@ -275,6 +608,13 @@ public class GraphViewStore {
         }
         views[id] = view;
         view.storeId = id;
+
+        if (view.nodeView && !view.edgeView) {
+            nodeOnlyViews = addToArray(nodeOnlyViews, view);
+        }
+        if (view.isPredicateView()) {
+            predicateViews = addToArray(predicateViews, view);
+        }
         return id;
     }
 
@@ -286,6 +626,13 @@ public class GraphViewStore {
         garbageQueue.add(id);
         view.storeId = NULL_VIEW;
 
+        if (view.nodeView && !view.edgeView) {
+            nodeOnlyViews = removeFromArray(nodeOnlyViews, view);
+        }
+        if (view.isPredicateView()) {
+            predicateViews = removeFromArray(predicateViews, view);
+        }
+
         view.destroyAllObservers();
 
         //Check if not visible view
@@ -294,6 +641,40 @@ public class GraphViewStore {
         }
     }
 
+    /**
+     * Rebuilds the arrays of views which are updated on insertion from
+     * <code>views</code>.
+     */
+    protected void indexViews() {
+        nodeOnlyViews = new GraphViewImpl[0];
+        predicateViews = new GraphViewImpl[0];
+        for (GraphViewImpl view : views) {
+            if (view != null && view.nodeView && !view.edgeView) {
+                nodeOnlyViews = addToArray(nodeOnlyViews, view);
+            }
+            if (view != null && view.isPredicateView()) {
+                predicateViews = addToArray(predicateViews, view);
+            }
+        }
+    }
+
+    private GraphViewImpl[] addToArray(GraphViewImpl[] array, GraphViewImpl view) {
+        GraphViewImpl[] newArray = Arrays.copyOf(array, array.length + 1);
+        newArray[array.length] = view;
+        return newArray;
+    }
+
+    private GraphViewImpl[] removeFromArray(GraphViewImpl[] array, GraphViewImpl view) {
+        GraphViewImpl[] newArray = new GraphViewImpl[array.length - 1];
+        int index = 0;
+        for (GraphViewImpl v : array) {
+            if (v != view) {
+                newArray[index++] = v;
+            }
+        }
+        return newArray;
+    }
+
     private void ensureArraySize(int index) {
         if (index >= views.length) {
             GraphViewImpl[] newArray = new GraphViewImpl[index + 1];
@@ -346,6 +727,11 @@ public class GraphViewStore {
         }
     }
 
+    private boolean isColumnOf(final ColumnStore columnStore, final ColumnImpl column) {
+        int id = column.storeId;
+        return columnStore != null && id >= 0 && id < columnStore.columns.length && columnStore.columns[id] == column;
+    }
+
     private void checkDirectedAllowed() {
         if (graphStore.isUndirected()) {
             throw new RuntimeException("Can't get a directed subgraph from an undirected graph");
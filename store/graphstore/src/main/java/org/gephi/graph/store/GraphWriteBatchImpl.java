@@ -0,0 +1,229 @@
+/*
+ * Copyright 2012-2013 Gephi Consortium
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.gephi.graph.store;
+
+import it.unimi.dsi.fastutil.objects.ObjectOpenHashSet;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Set;
+import org.gephi.attribute.api.Column;
+import org.gephi.graph.api.Edge;
+import org.gephi.graph.api.Element;
+import org.gephi.graph.api.GraphWriteBatch;
+import org.gephi.graph.api.Node;
+
+/**
+ * Buffer of graph mutations applied at once.
+ * <p>
+ * Operations are recorded without touching the store and {@link #apply()}
+ * replays them in order under a single write lock acquisition. Graph, view
+ * and column versions are incremented at most once per batch, so observers
+ * see a single change. Within a run of consecutive removals or attribute
+ * sets, operations are applied in store id order for better memory locality,
+ * nodes before edges as they have separate store ids.
+ * <p>
+ * A batch isn't thread-safe and should be filled by a single thread. If an
+ * operation fails while applying, the previous ones remain applied and the
+ * exception is thrown; the batch is emptied in any case.
+ *
+ * @author mbastian
+ */
+public class GraphWriteBatchImpl implements GraphWriteBatch {
+
+    //Operation types
+    protected final static byte ADD_NODE = 0;
+    protected final static byte ADD_EDGE = 1;
+    protected final static byte REMOVE_NODE = 2;
+    protected final static byte REMOVE_EDGE = 3;
+    protected final static byte SET_ATTRIBUTE = 4;
+    //Store
+    protected final GraphStore graphStore;
+    //Operations
+    protected final List<Operation> operations;
+
+    public GraphWriteBatchImpl(GraphStore graphStore) {
+        this.graphStore = graphStore;
+        this.operations = new ArrayList<Operation>();
+    }
+
+    @Override
+    public GraphWriteBatch addNode(final Node node) {
+        checkNonNullObject(node);
+        operations.add(new Operation(ADD_NODE, (ElementImpl) node, null, null));
+        return this;
+    }
+
+    @Override
+    public GraphWriteBatch addEdge(final Edge edge) {
+        checkNonNullObject(edge);
+        operations.add(new Operation(ADD_EDGE, (ElementImpl) edge, null, null));
+        return this;
+    }
+
+    @Override
+    public GraphWriteBatch removeNode(final Node node) {
+        checkNonNullObject(node);
+        operations.add(new Operation(REMOVE_NODE, (ElementImpl) node, null, null));
+        return this;
+    }
+
+    @Override
+    public GraphWriteBatch removeEdge(final Edge edge) {
+        checkNonNullObject(edge);
+        operations.add(new Operation(REMOVE_EDGE, (ElementImpl) edge, null, null));
+        return this;
+    }
+
+    @Override
+    public GraphWriteBatch setAttribute(final Element element, final Column column, final Object value) {
+        checkNonNullObject(element);
+        checkNonNullObject(column);
+        operations.add(new Operation(SET_ATTRIBUTE, (ElementImpl) element, column, value));
+        return this;
+    }
+
+    @Override
+    public int size() {
+        return operations.size();
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return operations.isEmpty();
+    }
+
+    @Override
+    public void clear() {
+        operations.clear();
+    }
+
+    @Override
+    public void apply() {
+        if (operations.isEmpty()) {
+            return;
+        }
+        graphStore.autoWriteLock();
+        try {
+            Set<ColumnVersion> columnVersions = getColumnVersions();
+            graphStore.beginVersionBatch();
+            for (ColumnVersion columnVersion : columnVersions) {
+                columnVersion.beginBatch();
+            }
+            try {
+                final int size = operations.size();
+                int from = 0;
+                while (from < size) {
+                    byte type = operations.get(from).type;
+                    int to = from + 1;
+                    while (to < size && operations.get(to).type == type) {
+                        to++;
+                    }
+                    List<Operation> run = operations.subList(from, to);
+                    if (type != ADD_NODE && type != ADD_EDGE) {
+                        //Store ids are known, stable sort keeps the order of operations on the same element
+                        Collections.sort(run, STORE_ID_COMPARATOR);
+                    }
+                    for (Operation operation : run) {
+                        apply(operation);
+                    }
+                    from = to;
+                }
+            } finally {
+                graphStore.endVersionBatch();
+                for (ColumnVersion columnVersion : columnVersions) {
+                    columnVersion.endBatch();
+                }
+            }
+        } finally {
+            operations.clear();
+            graphStore.autoWriteUnlock();
+        }
+    }
+
+    private void apply(final Operation operation) {
+        switch (operation.type) {
+            case ADD_NODE:
+                graphStore.addNode((Node) operation.element);
+                break;
+            case ADD_EDGE:
+                graphStore.addEdge((Edge) operation.element);
+                break;
+            case REMOVE_NODE:
+                graphStore.removeNode((Node) operation.element);
+                break;
+            case REMOVE_EDGE:
+                graphStore.removeEdge((Edge) operation.element);
+                break;
+            case SET_ATTRIBUTE:
+                operation.element.setAttribute(operation.column, operation.value);
+                break;
+        }
+    }
+
+    private Set<ColumnVersion> getColumnVersions() {
+        Set<ColumnVersion> columnVersions = new ObjectOpenHashSet<ColumnVersion>();
+        for (Operation operation : operations) {
+            if (operation.type == SET_ATTRIBUTE) {
+                columnVersions.add(((ColumnImpl) operation.column).version);
+            }
+        }
+        return columnVersions;
+    }
+
+    private void checkNonNullObject(final Object o) {
+        if (o == null) {
+            throw new NullPointerException();
+        }
+    }
+
+    protected static final Comparator<Operation> STORE_ID_COMPARATOR = new Comparator<Operation>() {
+        @Override
+        public int compare(Operation o1, Operation o2) {
+            boolean node1 = o1.element instanceof NodeImpl;
+            boolean node2 = o2.element instanceof NodeImpl;
+            if (node1 != node2) {
+                return node1 ? -1 : 1;
+            }
+            int id1 = o1.getStoreId();
+            int id2 = o2.getStoreId();
+            return id1 < id2 ? -1 : (id1 == id2 ? 0 : 1);
+        }
+    };
+
+    protected static class Operation {
+
+        protected final byte type;
+        protected final ElementImpl element;
+        protected final Column column;
+        protected final Object value;
+
+        public Operation(byte type, ElementImpl element, Column column, Object value) {
+            this.type = type;
+            this.element = element;
+            this.column = column;
+            this.value = value;
+        }
+
+        protected int getStoreId() {
+            if (element instanceof NodeImpl) {
+                return ((NodeImpl) element).storeId;
+            }
+            return ((EdgeImpl) element).storeId;
+        }
+    }
+}
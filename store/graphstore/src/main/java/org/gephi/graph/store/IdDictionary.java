@@ -0,0 +1,269 @@
+/*
+ * Copyright 2012-2013 Gephi Consortium
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.gephi.graph.store;
+
+import it.unimi.dsi.fastutil.ints.Int2IntMap;
+import it.unimi.dsi.fastutil.ints.Int2IntOpenHashMap;
+import it.unimi.dsi.fastutil.longs.Long2IntMap;
+import it.unimi.dsi.fastutil.longs.Long2IntOpenHashMap;
+import it.unimi.dsi.fastutil.objects.Object2IntOpenHashMap;
+
+/**
+ * Dictionary from element ids to store ids.
+ * <p>
+ * The key type is chosen from the first id put in the dictionary: <code>Long</code>
+ * and <code>Integer</code> ids are kept in primitive maps, without boxing,
+ * other ids in an object map. If an id of another type comes later, the
+ * dictionary falls back to the object map for good.
+ * <p>
+ * The id type can also be fixed up front, see
+ * {@link GraphModelConfiguration#setNodeIdType(java.lang.Class)}. The map is
+ * then allocated right away and ids of any other type are rejected.
+ *
+ * @author mbastian
+ */
+public class IdDictionary {
+
+    //Const
+    protected final static int NULL_ID = -1;
+    protected final static int UNKNOWN_KEY = 0;
+    protected final static int LONG_KEY = 1;
+    protected final static int INTEGER_KEY = 2;
+    protected final static int OBJECT_KEY = 3;
+    //Config
+    protected final float loadFactor;
+    protected final Class idType;
+    protected int expectedSize;
+    //Data
+    protected int keyType;
+    protected Long2IntOpenHashMap longMap;
+    protected Int2IntOpenHashMap intMap;
+    protected Object2IntOpenHashMap objectMap;
+
+    public IdDictionary(int expectedSize, float loadFactor) {
+        this(expectedSize, loadFactor, Object.class);
+    }
+
+    public IdDictionary(int expectedSize, float loadFactor, Class idType) {
+        checkSupportedIdType(idType);
+        this.expectedSize = expectedSize;
+        this.loadFactor = loadFactor;
+        this.keyType = UNKNOWN_KEY;
+        if (idType.equals(Object.class)) {
+            this.idType = null;
+        } else {
+            this.idType = idType;
+            initMap(getKeyType(idType));
+        }
+    }
+
+    public int getInt(final Object id) {
+        switch (keyType) {
+            case LONG_KEY:
+                return id instanceof Long ? longMap.get(((Long) id).longValue()) : NULL_ID;
+            case INTEGER_KEY:
+                return id instanceof Integer ? intMap.get(((Integer) id).intValue()) : NULL_ID;
+            case OBJECT_KEY:
+                return objectMap.getInt(id);
+            default:
+                return NULL_ID;
+        }
+    }
+
+    public boolean containsKey(final Object id) {
+        switch (keyType) {
+            case LONG_KEY:
+                return id instanceof Long && longMap.containsKey(((Long) id).longValue());
+            case INTEGER_KEY:
+                return id instanceof Integer && intMap.containsKey(((Integer) id).intValue());
+            case OBJECT_KEY:
+                return objectMap.containsKey(id);
+            default:
+                return false;
+        }
+    }
+
+    public void put(final Object id, final int storeId) {
+        checkNonNullObject(id);
+        checkIdType(id);
+        if (keyType == UNKNOWN_KEY) {
+            initMap(getKeyType(id));
+        } else if (keyType != OBJECT_KEY && getKeyType(id) != keyType) {
+            convertToObjectMap();
+        }
+        switch (keyType) {
+            case LONG_KEY:
+                longMap.put(((Long) id).longValue(), storeId);
+                break;
+            case INTEGER_KEY:
+                intMap.put(((Integer) id).intValue(), storeId);
+                break;
+            default:
+                objectMap.put(id, storeId);
+        }
+    }
+
+    public int remove(final Object id) {
+        switch (keyType) {
+            case LONG_KEY:
+                return id instanceof Long ? longMap.remove(((Long) id).longValue()) : NULL_ID;
+            case INTEGER_KEY:
+                return id instanceof Integer ? intMap.remove(((Integer) id).intValue()) : NULL_ID;
+            case OBJECT_KEY:
+                return objectMap.removeInt(id);
+            default:
+                return NULL_ID;
+        }
+    }
+
+    public int size() {
+        switch (keyType) {
+            case LONG_KEY:
+                return longMap.size();
+            case INTEGER_KEY:
+                return intMap.size();
+            case OBJECT_KEY:
+                return objectMap.size();
+            default:
+                return 0;
+        }
+    }
+
+    public boolean trim(final int n) {
+        switch (keyType) {
+            case LONG_KEY:
+                return longMap.trim(n);
+            case INTEGER_KEY:
+                return intMap.trim(n);
+            case OBJECT_KEY:
+                return objectMap.trim(n);
+            default:
+                return true;
+        }
+    }
+
+    public void ensureCapacity(final int capacity) {
+        if (keyType == UNKNOWN_KEY) {
+            expectedSize = Math.max(expectedSize, capacity);
+            return;
+        }
+        switch (keyType) {
+            case LONG_KEY:
+                Long2IntOpenHashMap newLongMap = newLongMap(Math.max(capacity, longMap.size()));
+                newLongMap.putAll(longMap);
+                longMap = newLongMap;
+                break;
+            case INTEGER_KEY:
+                Int2IntOpenHashMap newIntMap = newIntMap(Math.max(capacity, intMap.size()));
+                newIntMap.putAll(intMap);
+                intMap = newIntMap;
+                break;
+            case OBJECT_KEY:
+                Object2IntOpenHashMap newObjectMap = newObjectMap(Math.max(capacity, objectMap.size()));
+                newObjectMap.putAll(objectMap);
+                objectMap = newObjectMap;
+                break;
+        }
+    }
+
+    private void initMap(int type) {
+        switch (type) {
+            case LONG_KEY:
+                longMap = newLongMap(expectedSize);
+                break;
+            case INTEGER_KEY:
+                intMap = newIntMap(expectedSize);
+                break;
+            default:
+                objectMap = newObjectMap(expectedSize);
+        }
+        keyType = type;
+    }
+
+    private void convertToObjectMap() {
+        Object2IntOpenHashMap newObjectMap = newObjectMap(Math.max(expectedSize, size()));
+        if (keyType == LONG_KEY) {
+            for (Long2IntMap.Entry entry : longMap.long2IntEntrySet()) {
+                newObjectMap.put(Long.valueOf(entry.getLongKey()), entry.getIntValue());
+            }
+            longMap = null;
+        } else if (keyType == INTEGER_KEY) {
+            for (Int2IntMap.Entry entry : intMap.int2IntEntrySet()) {
+                newObjectMap.put(Integer.valueOf(entry.getIntKey()), entry.getIntValue());
+            }
+            intMap = null;
+        }
+        objectMap = newObjectMap;
+        keyType = OBJECT_KEY;
+    }
+
+    private Long2IntOpenHashMap newLongMap(int capacity) {
+        Long2IntOpenHashMap map = new Long2IntOpenHashMap(capacity, loadFactor);
+        map.defaultReturnValue(NULL_ID);
+        return map;
+    }
+
+    private Int2IntOpenHashMap newIntMap(int capacity) {
+        Int2IntOpenHashMap map = new Int2IntOpenHashMap(capacity, loadFactor);
+        map.defaultReturnValue(NULL_ID);
+        return map;
+    }
+
+    private Object2IntOpenHashMap newObjectMap(int capacity) {
+        Object2IntOpenHashMap map = new Object2IntOpenHashMap(capacity, loadFactor);
+        map.defaultReturnValue(NULL_ID);
+        return map;
+    }
+
+    private static int getKeyType(final Object id) {
+        if (id instanceof Long) {
+            return LONG_KEY;
+        } else if (id instanceof Integer) {
+            return INTEGER_KEY;
+        }
+        return OBJECT_KEY;
+    }
+
+    private static int getKeyType(final Class idType) {
+        if (idType.equals(Long.class)) {
+            return LONG_KEY;
+        } else if (idType.equals(Integer.class)) {
+            return INTEGER_KEY;
+        }
+        return OBJECT_KEY;
+    }
+
+    protected static void checkSupportedIdType(final Class idType) {
+        if (idType == null) {
+            throw new NullPointerException();
+        }
+        if (!idType.equals(Object.class) && !idType.equals(String.class) && !idType.equals(Long.class) && !idType.equals(Integer.class)) {
+            throw new IllegalArgumentException("The id type must be Object, String, Long or Integer");
+        }
+    }
+
+    public void checkIdType(final Object id) {
+        if (idType != null && !idType.isInstance(id)) {
+            throw new IllegalArgumentException("The id must be of type " + idType.getSimpleName());
+        }
+    }
+
+    private void checkNonNullObject(final Object o) {
+        if (o == null) {
+            throw new NullPointerException();
+        }
+    }
+}
@@ -20,20 +20,25 @@ import it.unimi.dsi.fastutil.chars.Char2ObjectAVLTreeMap;
 import it.unimi.dsi.fastutil.doubles.Double2ObjectAVLTreeMap;
 import it.unimi.dsi.fastutil.floats.Float2ObjectAVLTreeMap;
 import it.unimi.dsi.fastutil.ints.Int2ObjectAVLTreeMap;
+import it.unimi.dsi.fastutil.ints.IntArrayList;
 import it.unimi.dsi.fastutil.longs.Long2ObjectAVLTreeMap;
 import it.unimi.dsi.fastutil.objects.Object2ObjectOpenHashMap;
 import it.unimi.dsi.fastutil.objects.ObjectOpenHashSet;
 import it.unimi.dsi.fastutil.shorts.Short2ObjectAVLTreeMap;
+import java.util.AbstractSet;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Iterator;
 import java.util.Map;
+import java.util.NoSuchElementException;
 import java.util.Set;
 import java.util.SortedMap;
 import org.gephi.attribute.api.Column;
 import org.gephi.attribute.api.Index;
+import org.gephi.graph.api.Edge;
 import org.gephi.graph.api.Element;
+import org.gephi.graph.api.Node;
 
 /**
  *
@@ -126,6 +131,37 @@ public class IndexImpl<T extends Element> implements Index<T> {
         }
     }
 
+    @Override
+    public int count(Column column, Number from, Number to) {
+        checkNonNullColumnObject(column);
+
+        lock();
+        try {
+            AbstractIndex index = getIndex((ColumnImpl) column);
+            return index.getCount(from, to);
+        } finally {
+            unlock();
+        }
+    }
+
+    @Override
+    public Iterable<T> get(Column column, Number from, Number to) {
+        return get(column, from, to, true);
+    }
+
+    @Override
+    public Iterable<T> get(Column column, Number from, Number to, boolean ascending) {
+        checkNonNullColumnObject(column);
+
+        lock();
+        try {
+            AbstractIndex index = getIndex((ColumnImpl) column);
+            return index.getValues(from, to, ascending);
+        } finally {
+            unlock();
+        }
+    }
+
     public Iterable<Map.Entry<Object, Set<T>>> get(Column column) {
         checkNonNullColumnObject(column);
 
@@ -184,6 +220,32 @@ public class IndexImpl<T extends Element> implements Index<T> {
         return index.putValue(element, value);
     }
 
+    /**
+     * Adds the first <em>count</em> elements with their values in the given
+     * <em>column</em>.
+     * <p>
+     * Elements are grouped by value so each value set is looked up or created
+     * once. On return, <em>values</em> holds the value instances kept by the
+     * index.
+     *
+     * @param column the column
+     * @param values the value of each element, replaced by the indexed ones
+     * @param elements the elements
+     * @param count the number of elements to add
+     */
+    public void put(Column column, Object[] values, T[] elements, int count) {
+        checkNonNullColumnObject(column);
+
+        AbstractIndex index = getIndex((ColumnImpl) column);
+        if (column.isArray()) {
+            for (int i = 0; i < count; i++) {
+                values[i] = index.putValue(elements[i], values[i]);
+            }
+        } else {
+            index.putValues(elements, values, count);
+        }
+    }
+
     public void remove(String key, Object value, T element) {
         checkNonNullObject(key);
 
@@ -275,6 +337,73 @@ public class IndexImpl<T extends Element> implements Index<T> {
         return columns.length;
     }
 
+    /**
+     * Returns the store ids of the elements with <em>value</em> in the given
+     * <em>column</em>.
+     * <p>
+     * Elements which don't belong to the graph store are ignored. The bitmap
+     * is a copy and can be modified.
+     *
+     * @param column the column
+     * @param value the value
+     * @return a bitmap of element store ids
+     */
+    protected RoaringBitmap getBitmap(ColumnImpl column, Object value) {
+        AbstractIndex index = getIndex(column);
+        return index.getBitmap(value);
+    }
+
+    /**
+     * Updates the bitmap postings after the elements of the store have been
+     * given new store ids.
+     *
+     * @param map the new store id of each old store id, or
+     * <code>NULL_ID</code> if removed
+     */
+    protected void remap(int[] map) {
+        for (AbstractIndex ai : columns) {
+            if (ai != null) {
+                ai.remap(map);
+            }
+        }
+    }
+
+    protected boolean hasBitmapPostings() {
+        return GraphStoreConfiguration.ENABLE_INDEX_BITMAP_POSTINGS && columnStore.graphStore != null;
+    }
+
+    /**
+     * Returns the store id of <em>element</em> if it belongs to the graph
+     * store of this index.
+     *
+     * @param element the element
+     * @return the store id or <code>NULL_ID</code>
+     */
+    protected int getStoreId(T element) {
+        int id = element.getStoreId();
+        if (id != NodeStore.NULL_ID && columnStore.graphStore != null) {
+            if (columnStore.elementType.equals(Node.class)) {
+                NodeStore nodeStore = columnStore.graphStore.nodeStore;
+                if (nodeStore.isValidIndex(id) && nodeStore.get(id) == element) {
+                    return id;
+                }
+            } else if (columnStore.elementType.equals(Edge.class)) {
+                EdgeStore edgeStore = columnStore.graphStore.edgeStore;
+                if (edgeStore.isValidIndex(id) && edgeStore.get(id) == element) {
+                    return id;
+                }
+            }
+        }
+        return NodeStore.NULL_ID;
+    }
+
+    protected T getElement(int storeId) {
+        if (columnStore.elementType.equals(Node.class)) {
+            return (T) columnStore.graphStore.nodeStore.get(storeId);
+        }
+        return (T) columnStore.graphStore.edgeStore.get(storeId);
+    }
+
     AbstractIndex createIndex(ColumnImpl column) {
         if (column.getTypeClass().equals(Byte.class)) {
             //Byte
@@ -383,6 +512,8 @@ public class IndexImpl<T extends Element> implements Index<T> {
         protected Map<K, Set<T>> map;
         //Variable
         protected int elements;
+        //Range queries
+        protected SortedPostings sortedPostings;
 
         public AbstractIndex(ColumnImpl column) {
             this.column = column;
@@ -403,11 +534,57 @@ public class IndexImpl<T extends Element> implements Index<T> {
 
                 if (set.add(element)) {
                     elements++;
+                    if (sortedPostings != null) {
+                        sortedPostings.update((Number) value, 1);
+                    }
                 }
             }
             return value;
         }
 
+        @SuppressWarnings("unchecked")
+        public void putValues(T[] elementArray, Object[] values, int count) {
+            //Group the elements by value
+            Map<Object, IntArrayList> groups = new Object2ObjectOpenHashMap<Object, IntArrayList>();
+            for (int i = 0; i < count; i++) {
+                Object value = values[i];
+                if (value == null) {
+                    if (nullSet.add(elementArray[i])) {
+                        elements++;
+                    }
+                } else {
+                    IntArrayList group = groups.get(value);
+                    if (group == null) {
+                        group = new IntArrayList();
+                        groups.put(value, group);
+                    }
+                    group.add(i);
+                }
+            }
+
+            for (Map.Entry<Object, IntArrayList> entry : groups.entrySet()) {
+                Set<T> set = getValueSet((K) entry.getKey());
+                if (set == null) {
+                    set = addValue((K) entry.getKey());
+                }
+                Object value = ((ValueSet) set).value;
+
+                int added = 0;
+                IntArrayList group = entry.getValue();
+                for (int i = 0; i < group.size(); i++) {
+                    int index = group.getInt(i);
+                    if (set.add(elementArray[index])) {
+                        added++;
+                    }
+                    values[index] = value;
+                }
+                elements += added;
+                if (sortedPostings != null && added > 0) {
+                    sortedPostings.update((Number) value, added);
+                }
+            }
+        }
+
         public void removeValue(T element, Object value) {
             if (value == null) {
                 if (nullSet.remove(element)) {
@@ -417,6 +594,9 @@ public class IndexImpl<T extends Element> implements Index<T> {
                 Set<T> set = getValueSet((K) value);
                 if (set.remove(element)) {
                     elements--;
+                    if (sortedPostings != null) {
+                        sortedPostings.update((Number) value, -1);
+                    }
                 }
                 if (set.isEmpty()) {
                     removeValue((K) value);
@@ -473,16 +653,28 @@ public class IndexImpl<T extends Element> implements Index<T> {
             }
         }
 
+        public int getCount(Number from, Number to) {
+            return getSortedPostings().count(from, to);
+        }
+
+        public Iterable<T> getValues(Number from, Number to, boolean ascending) {
+            //Copy the range so the iterable doesn't depend on later changes
+            Object[] result = getSortedPostings().toArray(from, to);
+            return new SortedPostingsIterable<T>(result, 0, result.length, ascending);
+        }
+
         protected void destroy() {
             map = null;
             nullSet.clear();
             elements = 0;
+            sortedPostings = null;
         }
 
         protected void clear() {
             map.clear();
             nullSet.clear();
             elements = 0;
+            sortedPostings = null;
         }
 
         @Override
@@ -499,18 +691,94 @@ public class IndexImpl<T extends Element> implements Index<T> {
 
         protected void removeValue(K value) {
             map.remove(value);
+            if (sortedPostings != null) {
+                sortedPostings.remove((Number) value);
+            }
         }
 
         protected Set<T> addValue(K value) {
-            ValueSet valueSet = new ValueSet(value);
+            Set<T> valueSet = createValueSet(value);
             map.put(value, valueSet);
+            if (sortedPostings != null) {
+                sortedPostings.insert((Number) value, valueSet);
+            }
             return valueSet;
         }
 
+        protected Set<T> createValueSet(K value) {
+            if (isLowCardinality() && hasBitmapPostings()) {
+                return new ValueSet(value, new PostingSet());
+            }
+            return new ValueSet(value);
+        }
+
+        /**
+         * Returns true if few distinct values are expected or observed, in
+         * which case elements are kept in bitmaps of store ids instead of hash
+         * sets.
+         */
+        protected boolean isLowCardinality() {
+            return false;
+        }
+
+        protected RoaringBitmap getBitmap(K value) {
+            Set<T> set = getValueSet(value);
+            RoaringBitmap bitmap = new RoaringBitmap();
+            if (set != null) {
+                PostingSet postingSet = getPostingSet(set);
+                if (postingSet != null) {
+                    return postingSet.bitmap.copy();
+                }
+                for (T element : set) {
+                    int id = getStoreId(element);
+                    if (id != NodeStore.NULL_ID) {
+                        bitmap.set(id);
+                    }
+                }
+            }
+            return bitmap;
+        }
+
+        protected void remap(int[] storeIdMap) {
+            if (map != null) {
+                for (Set<T> set : map.values()) {
+                    remap(set, storeIdMap);
+                }
+            }
+        }
+
+        protected void remap(Set<T> set, int[] storeIdMap) {
+            PostingSet postingSet = getPostingSet(set);
+            if (postingSet != null) {
+                postingSet.remap(storeIdMap);
+            }
+        }
+
+        private PostingSet getPostingSet(Set<T> set) {
+            if (set instanceof ValueSet && ((ValueSet) set).set instanceof IndexImpl.PostingSet) {
+                return (PostingSet) ((ValueSet) set).set;
+            }
+            return null;
+        }
+
         protected boolean isSortable() {
             return Number.class.isAssignableFrom(column.getTypeClass());
         }
 
+        protected boolean isDecimal() {
+            return false;
+        }
+
+        protected SortedPostings getSortedPostings() {
+            if (!isSortable()) {
+                throw new UnsupportedOperationException("is not a sortable column.");
+            }
+            if (sortedPostings == null) {
+                sortedPostings = new SortedPostings((SortedMap) map, isDecimal());
+            }
+            return sortedPostings;
+        }
+
         protected final class WithNullDecorator implements Collection<K> {
 
             private boolean hasNull() {
@@ -703,11 +971,15 @@ public class IndexImpl<T extends Element> implements Index<T> {
     private static final class ValueSet<K, T> implements Set<T> {
 
         private final K value;
-        private final Set<T> set;
+        private Set<T> set;
 
         public ValueSet(K value) {
+            this(value, new ObjectOpenHashSet<T>());
+        }
+
+        public ValueSet(K value, Set<T> set) {
             this.value = value;
-            this.set = new ObjectOpenHashSet<T>();
+            this.set = set;
         }
 
         @Override
@@ -786,13 +1058,501 @@ public class IndexImpl<T extends Element> implements Index<T> {
         }
     }
 
+    /**
+     * Set of elements kept as a bitmap of their store ids.
+     * <p>
+     * Elements which don't belong to the graph store, and therefore have no
+     * stable store id, are kept in a hash set instead.
+     */
+    private final class PostingSet extends AbstractSet<T> {
+
+        private RoaringBitmap bitmap;
+        private Set<T> detached;
+
+        public PostingSet() {
+            this.bitmap = new RoaringBitmap();
+        }
+
+        @Override
+        public int size() {
+            return bitmap.cardinality() + (detached != null ? detached.size() : 0);
+        }
+
+        @Override
+        public boolean isEmpty() {
+            return bitmap.isEmpty() && (detached == null || detached.isEmpty());
+        }
+
+        @Override
+        public boolean contains(Object o) {
+            int id = getStoreId((T) o);
+            if (id != NodeStore.NULL_ID && bitmap.get(id)) {
+                return true;
+            }
+            return detached != null && detached.contains(o);
+        }
+
+        @Override
+        public boolean add(T element) {
+            int id = getStoreId(element);
+            if (id != NodeStore.NULL_ID) {
+                return bitmap.set(id);
+            }
+            if (detached == null) {
+                detached = new ObjectOpenHashSet<T>();
+            }
+            return detached.add(element);
+        }
+
+        @Override
+        public boolean remove(Object o) {
+            int id = getStoreId((T) o);
+            if (id != NodeStore.NULL_ID && bitmap.clear(id)) {
+                return true;
+            }
+            return detached != null && detached.remove(o);
+        }
+
+        @Override
+        public Iterator<T> iterator() {
+            return new PostingSetIterator();
+        }
+
+        protected void remap(int[] storeIdMap) {
+            RoaringBitmap remapped = new RoaringBitmap();
+            for (int i = bitmap.nextSetBit(0); i >= 0 && i < storeIdMap.length; i = bitmap.nextSetBit(i + 1)) {
+                if (storeIdMap[i] != NodeStore.NULL_ID) {
+                    remapped.set(storeIdMap[i]);
+                }
+            }
+            bitmap = remapped;
+        }
+
+        private final class PostingSetIterator implements Iterator<T> {
+
+            private final Iterator<T> detachedIterator;
+            private int nextId;
+
+            public PostingSetIterator() {
+                nextId = bitmap.nextSetBit(0);
+                detachedIterator = detached != null ? detached.iterator() : null;
+            }
+
+            @Override
+            public boolean hasNext() {
+                return nextId >= 0 || (detachedIterator != null && detachedIterator.hasNext());
+            }
+
+            @Override
+            public T next() {
+                if (nextId >= 0) {
+                    T element = getElement(nextId);
+                    nextId = bitmap.nextSetBit(nextId + 1);
+                    return element;
+                } else if (detachedIterator != null) {
+                    return detachedIterator.next();
+                }
+                throw new NoSuchElementException();
+            }
+
+            @Override
+            public void remove() {
+                throw new UnsupportedOperationException("Not supported operation.");
+            }
+        }
+    }
+
+    /**
+     * Sorted view of the distinct values of a sortable index, for range
+     * queries.
+     * <p>
+     * Distinct values are kept in ascending order in chunks of at most
+     * <code>CHUNK_SIZE</code> values, next to their element sets which are
+     * shared with the index map rather than copied. A range therefore maps to
+     * a run of sets found by binary search over the chunks and then within a
+     * chunk. Each chunk keeps the number of elements in its sets, and a
+     * Fenwick tree over the chunks makes range counts logarithmic in the
+     * number of chunks plus a scan of the two boundary chunks.
+     * <p>
+     * It is built on the first range query and then patched by the index.
+     * Adding or removing an element updates its chunk and the tree. A new or
+     * removed distinct value only shifts the values of its chunk. The tree is
+     * rebuilt when a full chunk is split in two or an empty one is dropped, so
+     * continuous columns where almost every value is distinct stay cheap to
+     * fill after a range query.
+     */
+    protected static final class SortedPostings {
+
+        //Const
+        protected static final int CHUNK_SIZE = 128;
+        //Data
+        protected final boolean decimal;
+        protected Chunk[] chunks;
+        protected int chunkCount;
+        protected int[] counts;
+        protected int size;
+
+        public SortedPostings(SortedMap<? extends Number, ? extends Set> map, boolean decimal) {
+            this.decimal = decimal;
+            this.chunks = new Chunk[Math.max(1, (map.size() + CHUNK_SIZE - 1) / CHUNK_SIZE)];
+
+            Chunk chunk = null;
+            for (Map.Entry<? extends Number, ? extends Set> entry : map.entrySet()) {
+                if (chunk == null || chunk.size == CHUNK_SIZE) {
+                    chunk = new Chunk(decimal);
+                    chunks[chunkCount++] = chunk;
+                }
+                Set set = entry.getValue();
+                chunk.insert(chunk.size, entry.getKey(), set);
+                chunk.count += set.size();
+                size++;
+            }
+            buildCounts();
+        }
+
+        /**
+         * Adds a new distinct value with its element set.
+         */
+        public void insert(Number key, Set set) {
+            long position = decimal ? search(key.doubleValue(), 0l, false) : search(0.0, key.longValue(), false);
+            int index = chunkIndex(position);
+            int offset = chunkOffset(position);
+            boolean rebuild = false;
+            if (chunkCount == 0) {
+                chunks[0] = new Chunk(decimal);
+                chunkCount = 1;
+                rebuild = true;
+            } else if (index == chunkCount) {
+                index = chunkCount - 1;
+                offset = chunks[index].size;
+            }
+            if (chunks[index].size == CHUNK_SIZE) {
+                rebuild = true;
+                split(index);
+                if (offset > chunks[index].size) {
+                    offset -= chunks[index].size;
+                    index++;
+                }
+            }
+            Chunk chunk = chunks[index];
+            chunk.insert(offset, key, set);
+            size++;
+
+            int setSize = set.size();
+            chunk.count += setSize;
+            if (rebuild) {
+                buildCounts();
+            } else if (setSize != 0) {
+                add(index, setSize);
+            }
+        }
+
+        /**
+         * Removes a distinct value, whose element set is empty.
+         */
+        public void remove(Number key) {
+            long position = decimal ? search(key.doubleValue(), 0l, false) : search(0.0, key.longValue(), false);
+            int index = chunkIndex(position);
+            Chunk chunk = chunks[index];
+            int setSize = chunk.remove(chunkOffset(position));
+            size--;
+
+            chunk.count -= setSize;
+            if (chunk.size == 0) {
+                System.arraycopy(chunks, index + 1, chunks, index, chunkCount - index - 1);
+                chunks[--chunkCount] = null;
+                buildCounts();
+            } else if (setSize != 0) {
+                add(index, -setSize);
+            }
+        }
+
+        /**
+         * Adds <code>delta</code> to the element count of a distinct value.
+         */
+        public void update(Number key, int delta) {
+            long position = decimal ? search(key.doubleValue(), 0l, false) : search(0.0, key.longValue(), false);
+            int index = chunkIndex(position);
+            chunks[index].count += delta;
+            add(index, delta);
+        }
+
+        /**
+         * Returns the number of elements whose value is between
+         * <code>from</code> and <code>to</code>, both inclusive and null for
+         * unbounded.
+         */
+        public int count(Number from, Number to) {
+            long start = start(from);
+            long end = end(to);
+            if (start >= end) {
+                return 0;
+            }
+            int startIndex = chunkIndex(start);
+            int startOffset = chunkOffset(start);
+            int endIndex = chunkIndex(end);
+            int endOffset = chunkOffset(end);
+            if (startIndex == endIndex) {
+                return chunks[startIndex].count(startOffset, endOffset);
+            }
+            Chunk startChunk = chunks[startIndex];
+            int count = startChunk.count - startChunk.count(0, startOffset);
+            count += prefixCount(endIndex) - prefixCount(startIndex + 1);
+            if (endOffset > 0) {
+                count += chunks[endIndex].count(0, endOffset);
+            }
+            return count;
+        }
+
+        /**
+         * Returns the elements whose value is between <code>from</code> and
+         * <code>to</code>, both inclusive and null for unbounded, in ascending
+         * value order.
+         */
+        public Object[] toArray(Number from, Number to) {
+            Object[] result = new Object[count(from, to)];
+            long end = end(to);
+            int length = 0;
+            for (long position = start(from); position < end;) {
+                int index = chunkIndex(position);
+                int offset = chunkOffset(position);
+                for (Object element : chunks[index].sets[offset]) {
+                    result[length++] = element;
+                }
+                position = offset + 1 < chunks[index].size ? position + 1 : position(index + 1, 0);
+            }
+            return result;
+        }
+
+        private void split(int index) {
+            Chunk chunk = chunks[index];
+            Chunk next = chunk.split();
+            if (chunkCount == chunks.length) {
+                chunks = Arrays.copyOf(chunks, (int) (chunkCount * 1.5) + 1);
+            }
+            System.arraycopy(chunks, index + 1, chunks, index + 2, chunkCount - index - 1);
+            chunks[index + 1] = next;
+            chunkCount++;
+        }
+
+        private void add(int index, int delta) {
+            for (int i = index + 1; i <= chunkCount; i += i & -i) {
+                counts[i] += delta;
+            }
+        }
+
+        private int prefixCount(int end) {
+            int count = 0;
+            for (int i = end; i > 0; i -= i & -i) {
+                count += counts[i];
+            }
+            return count;
+        }
+
+        private void buildCounts() {
+            counts = new int[chunkCount + 1];
+            for (int i = 1; i <= chunkCount; i++) {
+                counts[i] += chunks[i - 1].count;
+                int parent = i + (i & -i);
+                if (parent <= chunkCount) {
+                    counts[parent] += counts[i];
+                }
+            }
+        }
+
+        /**
+         * Returns the position of the first value greater than or equal to
+         * <code>from</code>.
+         */
+        private long start(Number from) {
+            if (from == null) {
+                return position(0, 0);
+            }
+            if (decimal) {
+                return search(from.doubleValue(), 0l, false);
+            }
+            long key = isDecimal(from) ? (long) Math.ceil(from.doubleValue()) : from.longValue();
+            return search(0.0, key, false);
+        }
+
+        /**
+         * Returns the position following the last value lower than or equal
+         * to <code>to</code>.
+         */
+        private long end(Number to) {
+            if (to == null) {
+                return position(chunkCount, 0);
+            }
+            if (decimal) {
+                return search(to.doubleValue(), 0l, true);
+            }
+            long key = isDecimal(to) ? (long) Math.floor(to.doubleValue()) : to.longValue();
+            return search(0.0, key, true);
+        }
+
+        /**
+         * Returns the position of the first value greater than the key, or
+         * greater than or equal to it when <code>after</code> is false.
+         */
+        private long search(double doubleKey, long longKey, boolean after) {
+            int low = 0;
+            int high = chunkCount;
+            while (low < high) {
+                int mid = (low + high) >>> 1;
+                Chunk chunk = chunks[mid];
+                if (chunk.isBefore(chunk.size - 1, doubleKey, longKey, after)) {
+                    low = mid + 1;
+                } else {
+                    high = mid;
+                }
+            }
+            if (low == chunkCount) {
+                return position(chunkCount, 0);
+            }
+            Chunk chunk = chunks[low];
+            int lowOffset = 0;
+            int highOffset = chunk.size;
+            while (lowOffset < highOffset) {
+                int mid = (lowOffset + highOffset) >>> 1;
+                if (chunk.isBefore(mid, doubleKey, longKey, after)) {
+                    lowOffset = mid + 1;
+                } else {
+                    highOffset = mid;
+                }
+            }
+            return position(low, lowOffset);
+        }
+
+        private static long position(int index, int offset) {
+            return ((long) index << 32) | offset;
+        }
+
+        private static int chunkIndex(long position) {
+            return (int) (position >>> 32);
+        }
+
+        private static int chunkOffset(long position) {
+            return (int) position;
+        }
+
+        private static boolean isDecimal(Number number) {
+            return number instanceof Double || number instanceof Float;
+        }
+
+        protected static final class Chunk {
+
+            protected final long[] longKeys;
+            protected final double[] doubleKeys;
+            protected final Set[] sets;
+            protected int size;
+            protected int count;
+
+            public Chunk(boolean decimal) {
+                this.longKeys = decimal ? null : new long[CHUNK_SIZE];
+                this.doubleKeys = decimal ? new double[CHUNK_SIZE] : null;
+                this.sets = new Set[CHUNK_SIZE];
+            }
+
+            protected void insert(int offset, Number key, Set set) {
+                System.arraycopy(sets, offset, sets, offset + 1, size - offset);
+                if (doubleKeys != null) {
+                    System.arraycopy(doubleKeys, offset, doubleKeys, offset + 1, size - offset);
+                    doubleKeys[offset] = key.doubleValue();
+                } else {
+                    System.arraycopy(longKeys, offset, longKeys, offset + 1, size - offset);
+                    longKeys[offset] = key.longValue();
+                }
+                sets[offset] = set;
+                size++;
+            }
+
+            protected int remove(int offset) {
+                int setSize = sets[offset].size();
+                System.arraycopy(sets, offset + 1, sets, offset, size - offset - 1);
+                if (doubleKeys != null) {
+                    System.arraycopy(doubleKeys, offset + 1, doubleKeys, offset, size - offset - 1);
+                } else {
+                    System.arraycopy(longKeys, offset + 1, longKeys, offset, size - offset - 1);
+                }
+                sets[--size] = null;
+                return setSize;
+            }
+
+            protected Chunk split() {
+                Chunk next = new Chunk(doubleKeys != null);
+                int half = size / 2;
+                next.size = size - half;
+                System.arraycopy(sets, half, next.sets, 0, next.size);
+                if (doubleKeys != null) {
+                    System.arraycopy(doubleKeys, half, next.doubleKeys, 0, next.size);
+                } else {
+                    System.arraycopy(longKeys, half, next.longKeys, 0, next.size);
+                }
+                Arrays.fill(sets, half, size, null);
+                size = half;
+                next.count = next.count(0, next.size);
+                count -= next.count;
+                return next;
+            }
+
+            protected int count(int start, int end) {
+                int result = 0;
+                for (int i = start; i < end; i++) {
+                    result += sets[i].size();
+                }
+                return result;
+            }
+
+            protected boolean isBefore(int offset, double doubleKey, long longKey, boolean after) {
+                int cmp;
+                if (doubleKeys != null) {
+                    cmp = Double.compare(doubleKeys[offset], doubleKey);
+                } else {
+                    long key = longKeys[offset];
+                    cmp = key < longKey ? -1 : (key == longKey ? 0 : 1);
+                }
+                return after ? cmp <= 0 : cmp < 0;
+            }
+        }
+    }
+
     protected class DefaultIndex extends AbstractIndex<Object> {
 
+        //Bitmaps are used until the column shows too many distinct values
+        protected boolean lowCardinality = true;
+
         public DefaultIndex(ColumnImpl column) {
             super(column);
 
             map = new Object2ObjectOpenHashMap<Object, Set<T>>();
         }
+
+        @Override
+        protected boolean isLowCardinality() {
+            return lowCardinality && !isSortable();
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        protected Set<T> addValue(Object value) {
+            Set<T> valueSet = super.addValue(value);
+            if (lowCardinality && map.size() > GraphStoreConfiguration.INDEX_BITMAP_MAX_VALUES) {
+                lowCardinality = false;
+                for (Set<T> set : map.values()) {
+                    ValueSet<Object, T> vs = (ValueSet<Object, T>) set;
+                    if (vs.set instanceof IndexImpl.PostingSet) {
+                        vs.set = new ObjectOpenHashSet<T>(vs.set);
+                    }
+                }
+            }
+            return valueSet;
+        }
+
+        @Override
+        protected void clear() {
+            super.clear();
+            lowCardinality = true;
+        }
     }
 
     protected class BooleanIndex extends AbstractIndex<Boolean> {
@@ -803,20 +1563,33 @@ public class IndexImpl<T extends Element> implements Index<T> {
 
         public BooleanIndex(ColumnImpl column) {
             super(column);
-            trueSet = new ValueSet(Boolean.TRUE);
-            falseSet = new ValueSet(Boolean.FALSE);
+            trueSet = (ValueSet) createValueSet(Boolean.TRUE);
+            falseSet = (ValueSet) createValueSet(Boolean.FALSE);
             values = Arrays.asList(new Object[]{Boolean.TRUE, Boolean.FALSE});
         }
 
         @Override
         protected Set<T> getValueSet(Boolean value) {
-            if (value.equals(Boolean.TRUE)) {
+            if (value == null) {
+                return nullSet;
+            } else if (value.equals(Boolean.TRUE)) {
                 return trueSet;
             } else {
                 return falseSet;
             }
         }
 
+        @Override
+        protected boolean isLowCardinality() {
+            return true;
+        }
+
+        @Override
+        protected void remap(int[] storeIdMap) {
+            remap(trueSet, storeIdMap);
+            remap(falseSet, storeIdMap);
+        }
+
         @Override
         protected Set<T> addValue(Boolean value) {
             throw new RuntimeException("Not supposed to call that");
@@ -824,7 +1597,7 @@ public class IndexImpl<T extends Element> implements Index<T> {
 
         @Override
         protected void removeValue(Boolean value) {
-            throw new RuntimeException("Not supposed to call that");
+            //The true and false sets are kept when empty
         }
 
         @Override
@@ -840,14 +1613,14 @@ public class IndexImpl<T extends Element> implements Index<T> {
         @Override
         protected void destroy() {
             super.destroy();
-            trueSet = new ValueSet(Boolean.TRUE);
-            falseSet = new ValueSet(Boolean.FALSE);
+            trueSet = (ValueSet) createValueSet(Boolean.TRUE);
+            falseSet = (ValueSet) createValueSet(Boolean.FALSE);
         }
 
         @Override
         protected void clear() {
-            trueSet = new ValueSet(Boolean.TRUE);
-            falseSet = new ValueSet(Boolean.FALSE);
+            trueSet = (ValueSet) createValueSet(Boolean.TRUE);
+            falseSet = (ValueSet) createValueSet(Boolean.FALSE);
             elements = 0;
             nullSet.clear();
         }
@@ -860,6 +1633,11 @@ public class IndexImpl<T extends Element> implements Index<T> {
 
             map = new Double2ObjectAVLTreeMap<Set<T>>();
         }
+
+        @Override
+        protected boolean isDecimal() {
+            return true;
+        }
     }
 
     protected class IntegerIndex extends AbstractIndex<Integer> {
@@ -878,6 +1656,11 @@ public class IndexImpl<T extends Element> implements Index<T> {
 
             map = new Float2ObjectAVLTreeMap<Set<T>>();
         }
+
+        @Override
+        protected boolean isDecimal() {
+            return true;
+        }
     }
 
     protected class LongIndex extends AbstractIndex<Long> {
@@ -1252,6 +2035,61 @@ public class IndexImpl<T extends Element> implements Index<T> {
         }
     }
 
+    private static final class SortedPostingsIterable<T> implements Iterable<T> {
+
+        private final Object[] elements;
+        private final int start;
+        private final int end;
+        private final boolean ascending;
+
+        public SortedPostingsIterable(Object[] elements, int start, int end, boolean ascending) {
+            this.elements = elements;
+            this.start = start;
+            this.end = end;
+            this.ascending = ascending;
+        }
+
+        @Override
+        public Iterator<T> iterator() {
+            return new SortedPostingsIterator<T>(elements, start, end, ascending);
+        }
+    }
+
+    private static final class SortedPostingsIterator<T> implements Iterator<T> {
+
+        private final Object[] elements;
+        private final int start;
+        private final int end;
+        private final boolean ascending;
+        private int index;
+
+        public SortedPostingsIterator(Object[] elements, int start, int end, boolean ascending) {
+            this.elements = elements;
+            this.start = start;
+            this.end = end;
+            this.ascending = ascending;
+            this.index = ascending ? start : end - 1;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return ascending ? index < end : index >= start;
+        }
+
+        @Override
+        public T next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            return (T) elements[ascending ? index++ : index--];
+        }
+
+        @Override
+        public void remove() {
+            throw new UnsupportedOperationException("Not supported.");
+        }
+    }
+
     private class LockableIterable<T> implements Iterable<T> {
 
         private final Iterable<T> ite;
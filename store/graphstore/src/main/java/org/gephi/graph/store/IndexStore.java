@@ -193,16 +193,54 @@ public class IndexStore<T extends Element> {
         ElementImpl elementImpl = (ElementImpl) element;
         lock();
         try {
-            ensureAttributeArrayLength(elementImpl, columnStore.length);
+            indexElement(elementImpl, columnStore.length, columnStore.columns);
+        } finally {
+            unlock();
+        }
+    }
 
+    public void index(T[] elements, int count) {
+        lock();
+        try {
             final int length = columnStore.length;
             final ColumnImpl[] cols = columnStore.columns;
+
+            //Values are canonicalized in private copies, published once per element
+            Object[][] sources = new Object[count][];
+            Object[][] copies = new Object[count][];
+            for (int j = 0; j < count; j++) {
+                ElementImpl element = (ElementImpl) elements[j];
+                synchronized (element) {
+                    sources[j] = element.attributes;
+                    copies[j] = element.copyAttributes(length);
+                }
+            }
+
+            //Column by column, so each value set is looked up once per value
+            Object[] values = new Object[count];
             for (int i = 0; i < length; i++) {
-                Column c = cols[i];
+                ColumnImpl c = cols[i];
                 if (c != null && c.isIndexed()) {
-                    Object value = elementImpl.attributes[c.getIndex()];
-                    value = mainIndex.put(c, value, element);
-                    elementImpl.attributes[c.getIndex()] = value;
+                    int index = c.getIndex();
+                    for (int j = 0; j < count; j++) {
+                        values[j] = copies[j][index];
+                    }
+                    mainIndex.put(c, values, elements, count);
+                    for (int j = 0; j < count; j++) {
+                        copies[j][index] = values[j];
+                    }
+                }
+            }
+
+            for (int j = 0; j < count; j++) {
+                ElementImpl element = (ElementImpl) elements[j];
+                synchronized (element) {
+                    Object[] current = element.attributes;
+                    if (current == sources[j]) {
+                        element.attributes = copies[j];
+                    } else {
+                        element.attributes = mergeAttributes(current, sources[j], copies[j]);
+                    }
                 }
             }
         } finally {
@@ -210,6 +248,41 @@ public class IndexStore<T extends Element> {
         }
     }
 
+    private Object[] mergeAttributes(Object[] current, Object[] source, Object[] copy) {
+        //The element changed while indexing, only values still untouched take their canonical instance
+        Object[] newArray = new Object[Math.max(current.length, copy.length)];
+        System.arraycopy(current, 0, newArray, 0, current.length);
+        for (int i = 0; i < newArray.length; i++) {
+            Object original = i < source.length ? source[i] : null;
+            Object value = i < current.length ? current[i] : null;
+            if (value == original && i < copy.length) {
+                newArray[i] = copy[i];
+            }
+        }
+        return newArray;
+    }
+
+    protected RoaringBitmap getBitmap(ColumnImpl column, Object value) {
+        lock();
+        try {
+            return mainIndex.getBitmap(column, value);
+        } finally {
+            unlock();
+        }
+    }
+
+    protected void remap(int[] map) {
+        lock();
+        try {
+            mainIndex.remap(map);
+            for (IndexImpl index : viewIndexes.values()) {
+                index.remap(map);
+            }
+        } finally {
+            unlock();
+        }
+    }
+
     public void clear() {
         lock();
         try {
@@ -222,16 +295,19 @@ public class IndexStore<T extends Element> {
         }
     }
 
-    private void ensureAttributeArrayLength(ElementImpl element, int size) {
+    private void indexElement(ElementImpl element, int length, ColumnImpl[] cols) {
         synchronized (element) {
-            final Object[] attributes = element.attributes;
-            if (size > attributes.length) {
-                Object[] newArray = new Object[size];
-                System.arraycopy(attributes, 0, newArray, 0, attributes.length);
-                element.attributes = newArray;
+            Object[] attributes = element.copyAttributes(length);
+            for (int i = 0; i < length; i++) {
+                Column c = cols[i];
+                if (c != null && c.isIndexed()) {
+                    Object value = attributes[c.getIndex()];
+                    value = mainIndex.put(c, value, (T) element);
+                    attributes[c.getIndex()] = value;
+                }
             }
+            element.attributes = attributes;
         }
-
     }
 
     private void lock() {
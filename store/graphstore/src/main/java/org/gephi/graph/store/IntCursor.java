@@ -0,0 +1,111 @@
+/*
+ * Copyright 2012-2013 Gephi Consortium
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.gephi.graph.store;
+
+/**
+ * Primitive cursor over node or edge store ids.
+ * <p>
+ * A cursor walks a slice of the current {@link AdjacencySnapshot}, or, if
+ * the edges changed since it was built, a copy of the node's adjacency lists
+ * kept in buffers of its own. It can be reused across calls to avoid any
+ * allocation:
+ * <pre>
+ * IntCursor cursor = new IntCursor();
+ * for (...) {
+ *     graphStore.getAdjacencyCursors().outNeighbors(node, type, cursor);
+ *     while (cursor.hasNext()) {
+ *         int neighbor = cursor.next();
+ *     }
+ * }
+ * </pre>
+ * When opened on a view, the cursor skips the edges that don't belong to it
+ * and holds the read lock until <code>hasNext()</code> returns false, like the
+ * store iterators. Call {@link #doBreak()} to release it earlier. Store
+ * cursors only read the snapshot or their buffers and don't hold any lock.
+ *
+ * @author mbastian
+ */
+public final class IntCursor {
+
+    private int[] values;
+    private int[] edges;
+    private GraphViewImpl view;
+    private EdgeStore lockedStore;
+    private int position;
+    private int end;
+    //Buffers, used when there is no current snapshot
+    private int[] valueBuffer;
+    private int[] edgeBuffer;
+
+    public IntCursor() {
+    }
+
+    public boolean hasNext() {
+        if (view != null) {
+            while (position < end && !view.containsEdge(edges[position])) {
+                position++;
+            }
+        }
+        if (position < end) {
+            return true;
+        }
+        doBreak();
+        return false;
+    }
+
+    public int next() {
+        return values[position++];
+    }
+
+    /**
+     * Stops the iteration and releases the read lock, if held.
+     */
+    public void doBreak() {
+        position = end;
+        if (lockedStore != null) {
+            EdgeStore store = lockedStore;
+            lockedStore = null;
+            store.readUnlock();
+        }
+    }
+
+    void readLock(EdgeStore store) {
+        store.readLock();
+        lockedStore = store;
+    }
+
+    int[] getValueBuffer(int capacity) {
+        if (valueBuffer == null || valueBuffer.length < capacity) {
+            valueBuffer = new int[capacity];
+        }
+        return valueBuffer;
+    }
+
+    int[] getEdgeBuffer(int capacity) {
+        if (edgeBuffer == null || edgeBuffer.length < capacity) {
+            edgeBuffer = new int[capacity];
+        }
+        return edgeBuffer;
+    }
+
+    void reset(int[] values, int[] edges, int start, int end, GraphViewImpl view) {
+        this.values = values;
+        this.edges = edges;
+        this.position = start;
+        this.end = end;
+        this.view = view;
+    }
+}
@@ -0,0 +1,200 @@
+/*
+ * Copyright 2012-2013 Gephi Consortium
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.gephi.graph.store;
+
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+/**
+ * Acquisition counts and wait and hold time histograms of a lock.
+ * <p>
+ * Counters are striped by thread so concurrent readers rarely update the same
+ * cache line, values are summed when read. Only the longest write hold is
+ * updated under a monitor, and only when it's exceeded.
+ *
+ * @author mbastian
+ */
+public class LockMetrics implements LockMetricsMBean {
+
+    //Const
+    protected final static int BUCKETS = 40;
+    protected final static int STRIPES = 16;
+    protected final static int READ_COUNT = 0;
+    protected final static int WRITE_COUNT = 1;
+    protected final static int READ_WAIT = 2;
+    protected final static int WRITE_WAIT = READ_WAIT + BUCKETS;
+    protected final static int READ_HOLD = WRITE_WAIT + BUCKETS;
+    protected final static int WRITE_HOLD = READ_HOLD + BUCKETS;
+    //Stride rounded to a multiple of 8 longs so stripes don't share cache lines
+    protected final static int STRIDE = (WRITE_HOLD + BUCKETS + 7) & ~7;
+    //Lock
+    protected final ReentrantReadWriteLock readWriteLock;
+    //Cells
+    protected final AtomicLongArray cells;
+    //Longest write hold
+    protected volatile long longestWriteHold;
+    protected volatile String longestWriteHoldThread;
+
+    public LockMetrics(ReentrantReadWriteLock readWriteLock) {
+        this.readWriteLock = readWriteLock;
+        this.cells = new AtomicLongArray(STRIPES * STRIDE);
+    }
+
+    public void readAcquired(final long waitNanos) {
+        final int offset = stripeOffset();
+        cells.incrementAndGet(offset + READ_COUNT);
+        cells.incrementAndGet(offset + READ_WAIT + bucket(waitNanos));
+    }
+
+    public void writeAcquired(final long waitNanos) {
+        final int offset = stripeOffset();
+        cells.incrementAndGet(offset + WRITE_COUNT);
+        cells.incrementAndGet(offset + WRITE_WAIT + bucket(waitNanos));
+    }
+
+    public void readReleased(final long holdNanos) {
+        cells.incrementAndGet(stripeOffset() + READ_HOLD + bucket(holdNanos));
+    }
+
+    public void writeReleased(final long holdNanos) {
+        cells.incrementAndGet(stripeOffset() + WRITE_HOLD + bucket(holdNanos));
+        if (holdNanos > longestWriteHold) {
+            synchronized (this) {
+                if (holdNanos > longestWriteHold) {
+                    longestWriteHold = holdNanos;
+                    longestWriteHoldThread = Thread.currentThread().getName();
+                }
+            }
+        }
+    }
+
+    @Override
+    public long getReadAcquisitionCount() {
+        return sum(READ_COUNT);
+    }
+
+    @Override
+    public long getWriteAcquisitionCount() {
+        return sum(WRITE_COUNT);
+    }
+
+    @Override
+    public long[] getReadWaitHistogram() {
+        return histogram(READ_WAIT);
+    }
+
+    @Override
+    public long[] getWriteWaitHistogram() {
+        return histogram(WRITE_WAIT);
+    }
+
+    @Override
+    public long[] getReadHoldHistogram() {
+        return histogram(READ_HOLD);
+    }
+
+    @Override
+    public long[] getWriteHoldHistogram() {
+        return histogram(WRITE_HOLD);
+    }
+
+    @Override
+    public int getCurrentReaderCount() {
+        return readWriteLock != null ? readWriteLock.getReadLockCount() : 0;
+    }
+
+    @Override
+    public long getLongestWriteHoldNanos() {
+        return longestWriteHold;
+    }
+
+    @Override
+    public String getLongestWriteHoldThread() {
+        return longestWriteHoldThread;
+    }
+
+    @Override
+    public synchronized void reset() {
+        for (int i = 0; i < cells.length(); i++) {
+            cells.set(i, 0l);
+        }
+        longestWriteHold = 0l;
+        longestWriteHoldThread = null;
+    }
+
+    /**
+     * Registers these metrics to the platform MBean server.
+     *
+     * @param name the object name, e.g.
+     * <code>org.gephi.graph:type=GraphLock,name=main</code>
+     */
+    public void register(final String name) {
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            server.registerMBean(this, new ObjectName(name));
+        } catch (Exception e) {
+            throw new RuntimeException("Can't register the lock metrics MBean '" + name + "'", e);
+        }
+    }
+
+    /**
+     * Unregisters the MBean with the given name from the platform MBean
+     * server, if registered.
+     *
+     * @param name the object name
+     */
+    public static void unregister(final String name) {
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            ObjectName objectName = new ObjectName(name);
+            if (server.isRegistered(objectName)) {
+                server.unregisterMBean(objectName);
+            }
+        } catch (Exception e) {
+            throw new RuntimeException("Can't unregister the lock metrics MBean '" + name + "'", e);
+        }
+    }
+
+    protected static int bucket(final long nanos) {
+        if (nanos <= 0) {
+            return 0;
+        }
+        return Math.min(BUCKETS - 1, 64 - Long.numberOfLeadingZeros(nanos));
+    }
+
+    private long sum(final int index) {
+        long sum = 0;
+        for (int i = 0; i < STRIPES; i++) {
+            sum += cells.get(i * STRIDE + index);
+        }
+        return sum;
+    }
+
+    private long[] histogram(final int index) {
+        long[] histogram = new long[BUCKETS];
+        for (int i = 0; i < BUCKETS; i++) {
+            histogram[i] = sum(index + i);
+        }
+        return histogram;
+    }
+
+    private static int stripeOffset() {
+        return ((int) Thread.currentThread().getId() & (STRIPES - 1)) * STRIDE;
+    }
+}
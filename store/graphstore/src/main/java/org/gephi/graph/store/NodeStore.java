@@ -15,10 +15,10 @@
  */
 package org.gephi.graph.store;
 
-import it.unimi.dsi.fastutil.objects.Object2IntOpenHashMap;
 import it.unimi.dsi.fastutil.objects.ObjectOpenHashSet;
 import it.unimi.dsi.fastutil.objects.ObjectSet;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Iterator;
 import java.util.List;
@@ -46,11 +46,13 @@ public class NodeStore implements Collection<Node>, NodeIterable {
     protected int currentBlockIndex;
     protected NodeBlock blocks[];
     protected NodeBlock currentBlock;
-    protected Object2IntOpenHashMap dictionary;
+    protected IdDictionary dictionary;
+    protected final Class idType;
     //View store
     protected final GraphViewStore viewStore;
 
     public NodeStore() {
+        this.idType = Object.class;
         initStore();
         this.lock = null;
         this.edgeStore = null;
@@ -59,6 +61,11 @@ public class NodeStore implements Collection<Node>, NodeIterable {
     }
 
     public NodeStore(final EdgeStore edgeStore, final GraphLock lock, final GraphViewStore viewStore, final GraphVersion graphVersion) {
+        this(edgeStore, lock, viewStore, graphVersion, Object.class);
+    }
+
+    public NodeStore(final EdgeStore edgeStore, final GraphLock lock, final GraphViewStore viewStore, final GraphVersion graphVersion, final Class idType) {
+        this.idType = idType;
         initStore();
         this.lock = lock;
         this.edgeStore = edgeStore;
@@ -74,8 +81,7 @@ public class NodeStore implements Collection<Node>, NodeIterable {
         this.blocks = new NodeBlock[GraphStoreConfiguration.NODESTORE_DEFAULT_BLOCKS];
         this.blocks[0] = new NodeBlock(0);
         this.currentBlock = blocks[currentBlockIndex];
-        this.dictionary = new Object2IntOpenHashMap(GraphStoreConfiguration.NODESTORE_DEFAULT_DICTIONARY_SIZE, GraphStoreConfiguration.NODESTORE_DICTIONARY_LOAD_FACTOR);
-        this.dictionary.defaultReturnValue(NULL_ID);
+        this.dictionary = new IdDictionary(GraphStoreConfiguration.NODESTORE_DEFAULT_DICTIONARY_SIZE, GraphStoreConfiguration.NODESTORE_DICTIONARY_LOAD_FACTOR, idType);
     }
 
     private void ensureCapacity(final int capacity) {
@@ -157,6 +163,25 @@ public class NodeStore implements Collection<Node>, NodeIterable {
         return new NodeStoreIterator();
     }
 
+    public NodeIterable[] partition(final int count) {
+        if (count <= 0) {
+            throw new IllegalArgumentException("The partition count should be positive");
+        }
+        readLock();
+        try {
+            int blocksPerPartition = (int) Math.ceil(blocksCount / (double) count);
+            int partitionCount = (int) Math.ceil(blocksCount / (double) blocksPerPartition);
+            NodeIterable[] partitions = new NodeIterable[partitionCount];
+            for (int i = 0; i < partitionCount; i++) {
+                int fromBlock = i * blocksPerPartition;
+                partitions[i] = new NodeStorePartition(fromBlock, Math.min(fromBlock + blocksPerPartition, blocksCount));
+            }
+            return partitions;
+        } finally {
+            readUnlock();
+        }
+    }
+
     @Override
     public NodeImpl[] toArray() {
         readLock();
@@ -250,10 +275,10 @@ public class NodeStore implements Collection<Node>, NodeIterable {
                 currentBlock.add(node);
                 dictionary.put(node.getId(), node.storeId);
             }
+            node.indexAttributes();
             if (viewStore != null) {
                 viewStore.addNode(node);
             }
-            node.indexAttributes();
 
             size++;
 
@@ -308,6 +333,49 @@ public class NodeStore implements Collection<Node>, NodeIterable {
         return false;
     }
 
+    void reorder(final NodeImpl[] order) {
+        checkWriteLock();
+
+        if (order.length != size) {
+            throw new IllegalArgumentException("The order should contain every node of the store");
+        }
+        int[] map = new int[maxStoreId()];
+        Arrays.fill(map, NULL_ID);
+        for (int i = 0; i < order.length; i++) {
+            NodeImpl node = order[i];
+            checkNonNullNodeObject(node);
+            checkNodeExists(node);
+            if (map[node.storeId] != NULL_ID) {
+                throw new IllegalArgumentException("The node appears twice in the order");
+            }
+            map[node.storeId] = i;
+        }
+
+        incrementVersion();
+
+        //Relocate in dense blocks
+        int blocksNeeded = Math.max(1, (int) Math.ceil(size / (double) GraphStoreConfiguration.NODESTORE_BLOCK_SIZE));
+        blocks = new NodeBlock[Math.max(GraphStoreConfiguration.NODESTORE_DEFAULT_BLOCKS, blocksNeeded)];
+        for (int i = 0; i < blocksNeeded; i++) {
+            blocks[i] = new NodeBlock(i);
+        }
+        blocksCount = blocksNeeded;
+        currentBlockIndex = 0;
+        currentBlock = blocks[0];
+        for (NodeImpl node : order) {
+            if (currentBlock.getCapacity() == 0) {
+                currentBlock = blocks[++currentBlockIndex];
+            }
+            currentBlock.add(node);
+            dictionary.put(node.getId(), node.storeId);
+        }
+        garbageSize = 0;
+
+        if (viewStore != null) {
+            viewStore.reorderNodes(map, size);
+        }
+    }
+
     @Override
     public boolean contains(final Object o) {
         checkNonNullNodeObject(o);
@@ -473,6 +541,7 @@ public class NodeStore implements Collection<Node>, NodeIterable {
     }
 
     private void checkIdDoesntExist(Object id) {
+        dictionary.checkIdType(id);
         if (dictionary.containsKey(id)) {
             throw new IllegalArgumentException("The node id already exist");
         }
@@ -485,7 +554,7 @@ public class NodeStore implements Collection<Node>, NodeIterable {
         return 0;
     }
 
-    private boolean isValidIndex(int id) {
+    boolean isValidIndex(int id) {
         if (id < 0 || id >= currentBlock.offset + currentBlock.nodeLength) {
             return false;
         }
@@ -635,4 +704,119 @@ public class NodeStore implements Collection<Node>, NodeIterable {
             NodeStore.this.remove(pointer);
         }
     }
+
+    protected final class NodeStorePartition implements NodeIterable {
+
+        protected final int fromBlock;
+        protected final int toBlock;
+        protected NodeStoreRangeIterator iterator;
+
+        public NodeStorePartition(int fromBlock, int toBlock) {
+            this.fromBlock = fromBlock;
+            this.toBlock = toBlock;
+        }
+
+        @Override
+        public Iterator<Node> iterator() {
+            iterator = new NodeStoreRangeIterator(fromBlock, toBlock);
+            return iterator;
+        }
+
+        @Override
+        public Node[] toArray() {
+            List<Node> list = new ArrayList<Node>();
+            for (NodeStoreRangeIterator itr = new NodeStoreRangeIterator(fromBlock, toBlock); itr.hasNext();) {
+                list.add(itr.next());
+            }
+            return list.toArray(new Node[0]);
+        }
+
+        @Override
+        public Collection<Node> toCollection() {
+            List<Node> list = new ArrayList<Node>();
+            for (NodeStoreRangeIterator itr = new NodeStoreRangeIterator(fromBlock, toBlock); itr.hasNext();) {
+                list.add(itr.next());
+            }
+            return list;
+        }
+
+        @Override
+        public void doBreak() {
+            if (iterator != null) {
+                iterator.doBreak();
+            }
+        }
+    }
+
+    protected final class NodeStoreRangeIterator implements Iterator<Node> {
+
+        protected final int toBlock;
+        protected int blockIndex;
+        protected NodeImpl[] backingArray;
+        protected int blockLength;
+        protected int cursor;
+        protected NodeImpl pointer;
+        protected boolean started;
+        protected boolean finished;
+
+        public NodeStoreRangeIterator(int fromBlock, int toBlock) {
+            this.blockIndex = fromBlock;
+            this.toBlock = toBlock;
+        }
+
+        @Override
+        public boolean hasNext() {
+            if (finished) {
+                return false;
+            }
+            if (!started) {
+                //The read lock is taken by the consuming thread
+                started = true;
+                readLock();
+                if (blockIndex >= Math.min(toBlock, blocksCount)) {
+                    finished = true;
+                    readUnlock();
+                    return false;
+                }
+                backingArray = blocks[blockIndex].backingArray;
+                blockLength = blocks[blockIndex].nodeLength;
+            }
+            pointer = null;
+            while (cursor == blockLength || ((pointer = backingArray[cursor++]) == null)) {
+                if (cursor == blockLength) {
+                    if (++blockIndex < Math.min(toBlock, blocksCount)) {
+                        backingArray = blocks[blockIndex].backingArray;
+                        blockLength = blocks[blockIndex].nodeLength;
+                        cursor = 0;
+                    } else {
+                        break;
+                    }
+                }
+            }
+            if (pointer == null) {
+                finished = true;
+                readUnlock();
+                return false;
+            }
+            return true;
+        }
+
+        @Override
+        public NodeImpl next() {
+            return pointer;
+        }
+
+        @Override
+        public void remove() {
+            throw new UnsupportedOperationException("Remove not supported for this iterator");
+        }
+
+        public void doBreak() {
+            //The read lock is only held between the first hasNext() and the end
+            if (started && !finished) {
+                finished = true;
+                readUnlock();
+            }
+        }
+    }
 }
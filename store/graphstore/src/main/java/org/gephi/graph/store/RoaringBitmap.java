@@ -0,0 +1,773 @@
+/*
+ * Copyright 2012-2013 Gephi Consortium
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.gephi.graph.store;
+
+import java.util.Arrays;
+
+/**
+ * Compressed set of non-negative integers, in the spirit of Roaring bitmaps.
+ * <p>
+ * Integers are split in chunks of 65536 values sharing the same high 16 bits.
+ * Each chunk is a container: a sorted array of the low bits while sparse and
+ * a 1024-words bitmap once it holds more than 4096 values. Containers switch
+ * representation automatically as values are added or removed, and chunks
+ * without any value aren't stored at all. The memory usage is therefore
+ * proportional to the number of values rather than the largest one.
+ * <p>
+ * Copies are copy-on-write: {@link #copy() } shares the container arrays and
+ * the containers themselves with the original. The first write on either
+ * bitmap copies the container arrays and marks the containers as shared, and
+ * a shared container is only copied when a write changes it. Bitmaps which
+ * differ by a few values therefore only duplicate the chunks they differ in.
+ *
+ * @author mbastian
+ */
+public class RoaringBitmap {
+
+    //Const
+    protected final static int ARRAY_MAX_SIZE = 4096;
+    protected final static int BITMAP_WORDS = 1024;
+    protected final static int DEFAULT_CONTAINERS = 4;
+    //Containers, sorted by key
+    protected char[] keys;
+    protected Container[] containers;
+    protected int size;
+    //Cardinality
+    protected int cardinality;
+    //Copy-on-write
+    protected boolean sharedArrays;
+
+    public RoaringBitmap() {
+        this.keys = new char[DEFAULT_CONTAINERS];
+        this.containers = new Container[DEFAULT_CONTAINERS];
+    }
+
+    private RoaringBitmap(final RoaringBitmap bitmap) {
+        this.keys = bitmap.keys;
+        this.containers = bitmap.containers;
+        this.size = bitmap.size;
+        this.cardinality = bitmap.cardinality;
+        this.sharedArrays = true;
+    }
+
+    public boolean get(final int value) {
+        checkValue(value);
+        int index = indexOf(highBits(value));
+        return index >= 0 && containers[index].contains(lowBits(value));
+    }
+
+    /**
+     * Adds <code>value</code> to this bitmap.
+     *
+     * @param value the value
+     * @return true if the value wasn't already set, false otherwise
+     */
+    public boolean set(final int value) {
+        checkValue(value);
+        char high = highBits(value);
+        char low = lowBits(value);
+        int index = indexOf(high);
+        if (index >= 0 && containers[index].contains(low)) {
+            return false;
+        }
+        ensureOwnedArrays();
+        if (index < 0) {
+            index = -index - 1;
+            insertContainer(index, high, new ArrayContainer());
+        }
+        containers[index] = getOwnedContainer(index).add(low);
+        cardinality++;
+        return true;
+    }
+
+    /**
+     * Removes <code>value</code> from this bitmap.
+     *
+     * @param value the value
+     * @return true if the value was set, false otherwise
+     */
+    public boolean clear(final int value) {
+        checkValue(value);
+        char low = lowBits(value);
+        int index = indexOf(highBits(value));
+        if (index < 0 || !containers[index].contains(low)) {
+            return false;
+        }
+        ensureOwnedArrays();
+        Container container = getOwnedContainer(index).remove(low);
+        cardinality--;
+        if (container.cardinality() == 0) {
+            removeContainer(index);
+        } else {
+            containers[index] = container;
+        }
+        return true;
+    }
+
+    public void clear() {
+        keys = new char[DEFAULT_CONTAINERS];
+        containers = new Container[DEFAULT_CONTAINERS];
+        size = 0;
+        cardinality = 0;
+        sharedArrays = false;
+    }
+
+    public int cardinality() {
+        return cardinality;
+    }
+
+    public boolean isEmpty() {
+        return cardinality == 0;
+    }
+
+    /**
+     * Returns the smallest value greater than or equal to <code>from</code>.
+     *
+     * @param from the value to start from, inclusive
+     * @return the next set value or -1 if none
+     */
+    public int nextSetBit(final int from) {
+        int start = from < 0 ? 0 : from;
+        int index = indexOf(highBits(start));
+        int low;
+        if (index < 0) {
+            index = -index - 1;
+            low = 0;
+        } else {
+            low = lowBits(start);
+        }
+        for (; index < size; index++) {
+            int next = containers[index].next(low);
+            if (next >= 0) {
+                return (keys[index] << 16) | next;
+            }
+            low = 0;
+        }
+        return -1;
+    }
+
+    /**
+     * Returns the largest value of this bitmap.
+     *
+     * @return the last set value or -1 if empty
+     */
+    public int last() {
+        if (size == 0) {
+            return -1;
+        }
+        return (keys[size - 1] << 16) | containers[size - 1].last();
+    }
+
+    public int[] toArray() {
+        int[] res = new int[cardinality];
+        int i = 0;
+        for (int v = nextSetBit(0); v >= 0; v = nextSetBit(v + 1)) {
+            res[i++] = v;
+        }
+        return res;
+    }
+
+    /**
+     * Returns a new bitmap with the values set in both <code>a</code> and
+     * <code>b</code>.
+     *
+     * @param a first bitmap
+     * @param b second bitmap
+     * @return the intersection
+     */
+    public static RoaringBitmap and(final RoaringBitmap a, final RoaringBitmap b) {
+        RoaringBitmap res = new RoaringBitmap();
+        int i = 0;
+        int j = 0;
+        while (i < a.size && j < b.size) {
+            char ka = a.keys[i];
+            char kb = b.keys[j];
+            if (ka < kb) {
+                i++;
+            } else if (ka > kb) {
+                j++;
+            } else {
+                res.append(ka, a.containers[i++].and(b.containers[j++]));
+            }
+        }
+        return res;
+    }
+
+    /**
+     * Returns a new bitmap with the values set in <code>a</code> or
+     * <code>b</code>.
+     *
+     * @param a first bitmap
+     * @param b second bitmap
+     * @return the union
+     */
+    public static RoaringBitmap or(final RoaringBitmap a, final RoaringBitmap b) {
+        RoaringBitmap res = new RoaringBitmap();
+        int i = 0;
+        int j = 0;
+        while (i < a.size || j < b.size) {
+            if (j == b.size || (i < a.size && a.keys[i] < b.keys[j])) {
+                res.append(a.keys[i], a.containers[i++].share());
+            } else if (i == a.size || b.keys[j] < a.keys[i]) {
+                res.append(b.keys[j], b.containers[j++].share());
+            } else {
+                res.append(a.keys[i], a.containers[i++].or(b.containers[j++]));
+            }
+        }
+        return res;
+    }
+
+    /**
+     * Returns a new bitmap with the values set in <code>a</code> but not in
+     * <code>b</code>.
+     *
+     * @param a first bitmap
+     * @param b second bitmap
+     * @return the difference
+     */
+    public static RoaringBitmap andNot(final RoaringBitmap a, final RoaringBitmap b) {
+        RoaringBitmap res = new RoaringBitmap();
+        int j = 0;
+        for (int i = 0; i < a.size; i++) {
+            char ka = a.keys[i];
+            while (j < b.size && b.keys[j] < ka) {
+                j++;
+            }
+            if (j < b.size && b.keys[j] == ka) {
+                res.append(ka, a.containers[i].andNot(b.containers[j]));
+            } else {
+                res.append(ka, a.containers[i].share());
+            }
+        }
+        return res;
+    }
+
+    /**
+     * Returns a copy of this bitmap, in constant time. Both bitmaps share
+     * their containers until they're written to.
+     *
+     * @return the copy
+     */
+    public RoaringBitmap copy() {
+        sharedArrays = true;
+        return new RoaringBitmap(this);
+    }
+
+    /**
+     * Returns an estimate of the memory used by the containers, in bytes.
+     *
+     * @return the memory estimate
+     */
+    public long getSizeInBytes() {
+        long bytes = keys.length * 2l + containers.length * 4l;
+        for (int i = 0; i < size; i++) {
+            bytes += containers[i].getSizeInBytes();
+        }
+        return bytes;
+    }
+
+    @Override
+    public int hashCode() {
+        int hash = 7;
+        for (int i = 0; i < size; i++) {
+            hash = 31 * hash + keys[i];
+            hash = 31 * hash + containers[i].contentHashCode();
+        }
+        return hash;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (obj == null) {
+            return false;
+        }
+        if (getClass() != obj.getClass()) {
+            return false;
+        }
+        final RoaringBitmap other = (RoaringBitmap) obj;
+        if (this.cardinality != other.cardinality || this.size != other.size) {
+            return false;
+        }
+        for (int i = 0; i < size; i++) {
+            if (keys[i] != other.keys[i] || !containers[i].contentEquals(other.containers[i])) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    protected int indexOf(final char key) {
+        int low = 0;
+        int high = size - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            char midKey = keys[mid];
+            if (midKey < key) {
+                low = mid + 1;
+            } else if (midKey > key) {
+                high = mid - 1;
+            } else {
+                return mid;
+            }
+        }
+        return -(low + 1);
+    }
+
+    protected void insertContainer(final int index, final char key, final Container container) {
+        if (size == keys.length) {
+            int newLength = keys.length * 2;
+            keys = Arrays.copyOf(keys, newLength);
+            containers = Arrays.copyOf(containers, newLength);
+        }
+        System.arraycopy(keys, index, keys, index + 1, size - index);
+        System.arraycopy(containers, index, containers, index + 1, size - index);
+        keys[index] = key;
+        containers[index] = container;
+        size++;
+    }
+
+    /**
+     * Makes sure the key and container arrays aren't shared with another
+     * bitmap before they're modified. The containers themselves are marked as
+     * shared as the other bitmap still references them.
+     */
+    private void ensureOwnedArrays() {
+        if (sharedArrays) {
+            keys = Arrays.copyOf(keys, keys.length);
+            containers = Arrays.copyOf(containers, containers.length);
+            for (int i = 0; i < size; i++) {
+                containers[i].shared = true;
+            }
+            sharedArrays = false;
+        }
+    }
+
+    private Container getOwnedContainer(final int index) {
+        Container container = containers[index];
+        if (container.shared) {
+            container = container.copy();
+            containers[index] = container;
+        }
+        return container;
+    }
+
+    private void append(final char key, final Container container) {
+        int count = container.cardinality();
+        if (count > 0) {
+            insertContainer(size, key, container);
+            cardinality += count;
+        }
+    }
+
+    protected void removeContainer(final int index) {
+        System.arraycopy(keys, index + 1, keys, index, size - index - 1);
+        System.arraycopy(containers, index + 1, containers, index, size - index - 1);
+        containers[--size] = null;
+    }
+
+    protected static char highBits(final int value) {
+        return (char) (value >>> 16);
+    }
+
+    protected static char lowBits(final int value) {
+        return (char) value;
+    }
+
+    private void checkValue(final int value) {
+        if (value < 0) {
+            throw new IllegalArgumentException("The value must be positive");
+        }
+    }
+
+    protected static abstract class Container {
+
+        //Referenced by several bitmaps, copied before being modified
+        protected boolean shared;
+
+        protected abstract boolean contains(char value);
+
+        protected abstract Container add(char value);
+
+        protected abstract Container remove(char value);
+
+        protected abstract int cardinality();
+
+        protected abstract int next(int from);
+
+        protected abstract int last();
+
+        protected abstract Container copy();
+
+        protected abstract long getSizeInBytes();
+
+        protected abstract Container and(Container other);
+
+        protected abstract Container or(Container other);
+
+        protected abstract Container andNot(Container other);
+
+        protected Container share() {
+            shared = true;
+            return this;
+        }
+
+        protected static Container fromWords(final long[] words) {
+            int cardinality = 0;
+            for (int i = 0; i < BITMAP_WORDS; i++) {
+                cardinality += Long.bitCount(words[i]);
+            }
+            BitmapContainer container = new BitmapContainer(words, cardinality);
+            if (cardinality <= ARRAY_MAX_SIZE) {
+                return container.toArrayContainer();
+            }
+            return container;
+        }
+
+        protected int contentHashCode() {
+            int hash = 0;
+            for (int v = next(0); v >= 0; v = v < 0xFFFF ? next(v + 1) : -1) {
+                hash = 31 * hash + v;
+            }
+            return hash;
+        }
+
+        protected boolean contentEquals(Container other) {
+            if (cardinality() != other.cardinality()) {
+                return false;
+            }
+            int v = next(0);
+            int o = other.next(0);
+            while (v >= 0 && v == o) {
+                v = v < 0xFFFF ? next(v + 1) : -1;
+                o = o < 0xFFFF ? other.next(o + 1) : -1;
+            }
+            return v == o;
+        }
+    }
+
+    protected static final class ArrayContainer extends Container {
+
+        protected char[] values;
+        protected int cardinality;
+
+        public ArrayContainer() {
+            this.values = new char[4];
+        }
+
+        public ArrayContainer(char[] values, int cardinality) {
+            this.values = values;
+            this.cardinality = cardinality;
+        }
+
+        @Override
+        protected boolean contains(char value) {
+            return Arrays.binarySearch(values, 0, cardinality, value) >= 0;
+        }
+
+        @Override
+        protected Container add(char value) {
+            int index = Arrays.binarySearch(values, 0, cardinality, value);
+            if (index >= 0) {
+                return this;
+            }
+            if (cardinality >= ARRAY_MAX_SIZE) {
+                return toBitmapContainer().add(value);
+            }
+            index = -index - 1;
+            if (cardinality == values.length) {
+                values = Arrays.copyOf(values, Math.min(ARRAY_MAX_SIZE, Math.max(4, values.length * 2)));
+            }
+            System.arraycopy(values, index, values, index + 1, cardinality - index);
+            values[index] = value;
+            cardinality++;
+            return this;
+        }
+
+        @Override
+        protected Container remove(char value) {
+            int index = Arrays.binarySearch(values, 0, cardinality, value);
+            if (index >= 0) {
+                System.arraycopy(values, index + 1, values, index, cardinality - index - 1);
+                cardinality--;
+            }
+            return this;
+        }
+
+        @Override
+        protected int cardinality() {
+            return cardinality;
+        }
+
+        @Override
+        protected int next(int from) {
+            int index = Arrays.binarySearch(values, 0, cardinality, (char) from);
+            if (index < 0) {
+                index = -index - 1;
+            }
+            return index < cardinality ? values[index] : -1;
+        }
+
+        @Override
+        protected int last() {
+            return values[cardinality - 1];
+        }
+
+        @Override
+        protected Container copy() {
+            return new ArrayContainer(Arrays.copyOf(values, Math.max(cardinality, 4)), cardinality);
+        }
+
+        @Override
+        protected long getSizeInBytes() {
+            return values.length * 2l + 8;
+        }
+
+        @Override
+        protected Container and(Container other) {
+            char[] res = new char[Math.max(cardinality, 1)];
+            int count = 0;
+            if (other instanceof ArrayContainer) {
+                ArrayContainer o = (ArrayContainer) other;
+                int i = 0;
+                int j = 0;
+                while (i < cardinality && j < o.cardinality) {
+                    char x = values[i];
+                    char y = o.values[j];
+                    if (x < y) {
+                        i++;
+                    } else if (x > y) {
+                        j++;
+                    } else {
+                        res[count++] = x;
+                        i++;
+                        j++;
+                    }
+                }
+            } else {
+                for (int i = 0; i < cardinality; i++) {
+                    if (other.contains(values[i])) {
+                        res[count++] = values[i];
+                    }
+                }
+            }
+            return new ArrayContainer(res, count);
+        }
+
+        @Override
+        protected Container or(Container other) {
+            if (other instanceof BitmapContainer) {
+                return other.or(this);
+            }
+            ArrayContainer o = (ArrayContainer) other;
+            if (cardinality + o.cardinality > ARRAY_MAX_SIZE) {
+                return toBitmapContainer().or(o);
+            }
+            char[] res = new char[Math.max(cardinality + o.cardinality, 1)];
+            int count = 0;
+            int i = 0;
+            int j = 0;
+            while (i < cardinality || j < o.cardinality) {
+                if (j == o.cardinality || (i < cardinality && values[i] < o.values[j])) {
+                    res[count++] = values[i++];
+                } else if (i == cardinality || o.values[j] < values[i]) {
+                    res[count++] = o.values[j++];
+                } else {
+                    res[count++] = values[i++];
+                    j++;
+                }
+            }
+            return new ArrayContainer(res, count);
+        }
+
+        @Override
+        protected Container andNot(Container other) {
+            char[] res = new char[Math.max(cardinality, 1)];
+            int count = 0;
+            for (int i = 0; i < cardinality; i++) {
+                if (!other.contains(values[i])) {
+                    res[count++] = values[i];
+                }
+            }
+            return new ArrayContainer(res, count);
+        }
+
+        private BitmapContainer toBitmapContainer() {
+            BitmapContainer container = new BitmapContainer();
+            for (int i = 0; i < cardinality; i++) {
+                container.add(values[i]);
+            }
+            return container;
+        }
+    }
+
+    protected static final class BitmapContainer extends Container {
+
+        protected final long[] words;
+        protected int cardinality;
+
+        public BitmapContainer() {
+            this.words = new long[BITMAP_WORDS];
+        }
+
+        public BitmapContainer(long[] words, int cardinality) {
+            this.words = words;
+            this.cardinality = cardinality;
+        }
+
+        @Override
+        protected boolean contains(char value) {
+            return (words[value >>> 6] & (1l << value)) != 0;
+        }
+
+        @Override
+        protected Container add(char value) {
+            int index = value >>> 6;
+            long word = words[index];
+            long newWord = word | (1l << value);
+            if (word != newWord) {
+                words[index] = newWord;
+                cardinality++;
+            }
+            return this;
+        }
+
+        @Override
+        protected Container remove(char value) {
+            int index = value >>> 6;
+            long word = words[index];
+            long newWord = word & ~(1l << value);
+            if (word != newWord) {
+                words[index] = newWord;
+                cardinality--;
+                //Half the threshold so a container around it doesn't keep switching
+                if (cardinality < ARRAY_MAX_SIZE / 2) {
+                    return toArrayContainer();
+                }
+            }
+            return this;
+        }
+
+        @Override
+        protected int cardinality() {
+            return cardinality;
+        }
+
+        @Override
+        protected int next(int from) {
+            int index = from >>> 6;
+            long word = words[index] & (-1l << from);
+            while (true) {
+                if (word != 0) {
+                    return (index << 6) + Long.numberOfTrailingZeros(word);
+                }
+                if (++index == BITMAP_WORDS) {
+                    return -1;
+                }
+                word = words[index];
+            }
+        }
+
+        @Override
+        protected int last() {
+            for (int i = BITMAP_WORDS - 1; i >= 0; i--) {
+                if (words[i] != 0) {
+                    return (i << 6) + 63 - Long.numberOfLeadingZeros(words[i]);
+                }
+            }
+            return -1;
+        }
+
+        @Override
+        protected Container copy() {
+            return new BitmapContainer(Arrays.copyOf(words, BITMAP_WORDS), cardinality);
+        }
+
+        @Override
+        protected long getSizeInBytes() {
+            return BITMAP_WORDS * 8l + 8;
+        }
+
+        @Override
+        protected Container and(Container other) {
+            if (other instanceof ArrayContainer) {
+                return other.and(this);
+            }
+            long[] o = ((BitmapContainer) other).words;
+            long[] res = new long[BITMAP_WORDS];
+            for (int i = 0; i < BITMAP_WORDS; i++) {
+                res[i] = words[i] & o[i];
+            }
+            return fromWords(res);
+        }
+
+        @Override
+        protected Container or(Container other) {
+            long[] res = Arrays.copyOf(words, BITMAP_WORDS);
+            if (other instanceof ArrayContainer) {
+                ArrayContainer o = (ArrayContainer) other;
+                int count = cardinality;
+                for (int i = 0; i < o.cardinality; i++) {
+                    char value = o.values[i];
+                    long word = res[value >>> 6];
+                    long newWord = word | (1l << value);
+                    if (word != newWord) {
+                        res[value >>> 6] = newWord;
+                        count++;
+                    }
+                }
+                return new BitmapContainer(res, count);
+            }
+            long[] o = ((BitmapContainer) other).words;
+            int count = 0;
+            for (int i = 0; i < BITMAP_WORDS; i++) {
+                res[i] |= o[i];
+                count += Long.bitCount(res[i]);
+            }
+            return new BitmapContainer(res, count);
+        }
+
+        @Override
+        protected Container andNot(Container other) {
+            long[] res = Arrays.copyOf(words, BITMAP_WORDS);
+            if (other instanceof ArrayContainer) {
+                ArrayContainer o = (ArrayContainer) other;
+                for (int i = 0; i < o.cardinality; i++) {
+                    char value = o.values[i];
+                    res[value >>> 6] &= ~(1l << value);
+                }
+            } else {
+                long[] o = ((BitmapContainer) other).words;
+                for (int i = 0; i < BITMAP_WORDS; i++) {
+                    res[i] &= ~o[i];
+                }
+            }
+            return fromWords(res);
+        }
+
+        private ArrayContainer toArrayContainer() {
+            char[] values = new char[Math.max(cardinality, 4)];
+            int pos = 0;
+            for (int i = 0; i < BITMAP_WORDS; i++) {
+                long word = words[i];
+                while (word != 0) {
+                    values[pos++] = (char) ((i << 6) + Long.numberOfTrailingZeros(word));
+                    word &= word - 1;
+                }
+            }
+            return new ArrayContainer(values, cardinality);
+        }
+    }
+}
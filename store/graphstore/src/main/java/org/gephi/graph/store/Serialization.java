@@ -25,6 +25,7 @@ import java.io.IOException;
 import java.lang.reflect.Array;
 import java.math.BigDecimal;
 import java.math.BigInteger;
+import java.util.Arrays;
 import java.util.Date;
 import java.util.Locale;
 import java.util.Map;
@@ -171,6 +172,7 @@ public class Serialization {
     final static int TIMESTAMP_MAP = 228;
     final static int TIME_FORMAT = 229;
     final static int TIMESTAMP_STORE = 230;
+    final static int ROARING_BITMAP = 231;
     //Store
     protected final GraphStore store;
     protected final Int2IntMap idMap;
@@ -328,7 +330,7 @@ public class Serialization {
 
         EdgeImpl edge = (EdgeImpl) store.factory.newEdge(id, source, target, type, weight, directed);
         edge.attributes = attributes;
-        if (edge.properties != null) {
+        if (properties != null) {
             edge.setEdgeProperties(properties);
         }
 
@@ -484,10 +486,12 @@ public class Serialization {
         for (int i = 0; i < garbages.length; i++) {
             viewStore.garbageQueue.add(garbages[i]);
         }
+        viewStore.indexViews();
         return viewStore;
     }
 
     private void serializeGraphView(final DataOutput out, final GraphViewImpl view) throws IOException {
+        view.ensureMutualCounts();
         serialize(out, view.nodeView);
         serialize(out, view.edgeView);
         serialize(out, view.storeId);
@@ -504,6 +508,7 @@ public class Serialization {
         serialize(out, view.version);
 
         serialize(out, view.attributes);
+        //Predicates aren't serialized, predicate views are read back as static views
     }
 
     private GraphViewImpl deserializeGraphView(final DataInput is) throws IOException, ClassNotFoundException {
@@ -514,8 +519,8 @@ public class Serialization {
         int storeId = (Integer) deserialize(is);
         int nodeCount = (Integer) deserialize(is);
         int edgeCount = (Integer) deserialize(is);
-        BitVector nodeCountVector = (BitVector) deserialize(is);
-        BitVector edgeCountVector = (BitVector) deserialize(is);
+        RoaringBitmap nodeCountVector = toRoaringBitmap(deserialize(is));
+        RoaringBitmap edgeCountVector = toRoaringBitmap(deserialize(is));
         int[] typeCounts = (int[]) deserialize(is);
         int[] mutualEdgeTypeCounts = (int[]) deserialize(is);
         int mutualEdgesCount = (Integer) deserialize(is);
@@ -551,6 +556,65 @@ public class Serialization {
         return new BitVector(elements, size);
     }
 
+    private RoaringBitmap toRoaringBitmap(final Object obj) {
+        if (obj instanceof BitVector) {
+            //Views written before the switch to RoaringBitmap
+            BitVector bitVector = (BitVector) obj;
+            long[] elements = bitVector.elements();
+            RoaringBitmap bitmap = new RoaringBitmap();
+            for (int i = 0; i < elements.length; i++) {
+                long word = elements[i];
+                while (word != 0) {
+                    int index = i * 64 + Long.numberOfTrailingZeros(word);
+                    if (index < bitVector.size()) {
+                        bitmap.set(index);
+                    }
+                    word &= word - 1;
+                }
+            }
+            return bitmap;
+        }
+        return (RoaringBitmap) obj;
+    }
+
+    private void serializeRoaringBitmap(final DataOutput out, final RoaringBitmap bitmap) throws IOException {
+        serialize(out, bitmap.size);
+        serialize(out, Arrays.copyOf(bitmap.keys, bitmap.size));
+        for (int i = 0; i < bitmap.size; i++) {
+            RoaringBitmap.Container container = bitmap.containers[i];
+            if (container instanceof RoaringBitmap.ArrayContainer) {
+                RoaringBitmap.ArrayContainer arrayContainer = (RoaringBitmap.ArrayContainer) container;
+                serialize(out, Arrays.copyOf(arrayContainer.values, arrayContainer.cardinality));
+            } else {
+                serialize(out, ((RoaringBitmap.BitmapContainer) container).words);
+            }
+        }
+    }
+
+    private RoaringBitmap deserializeRoaringBitmap(final DataInput is) throws IOException, ClassNotFoundException {
+        int size = (Integer) deserialize(is);
+        char[] keys = (char[]) deserialize(is);
+        RoaringBitmap bitmap = new RoaringBitmap();
+        for (int i = 0; i < size; i++) {
+            Object values = deserialize(is);
+            RoaringBitmap.Container container;
+            if (values instanceof char[]) {
+                char[] array = (char[]) values;
+                container = new RoaringBitmap.ArrayContainer(array, array.length);
+            } else {
+                long[] words = (long[]) values;
+                int cardinality = 0;
+                for (long word : words) {
+                    cardinality += Long.bitCount(word);
+                }
+                container = new RoaringBitmap.BitmapContainer(words, cardinality);
+            }
+            bitmap.insertContainer(i, keys[i], container);
+            bitmap.cardinality += container.cardinality();
+        }
+        return bitmap;
+    }
+
     private void serializeGraphStoreConfiguration(final DataOutput out) throws IOException {
         out.write(GRAPH_STORE_CONFIGURATION);
         serialize(out, GraphStoreConfiguration.ENABLE_ELEMENT_LABEL);
@@ -1015,6 +1079,10 @@ public class Serialization {
             BitVector bv = (BitVector) obj;
             out.write(BIT_VECTOR);
             serializeBitVector(out, bv);
+        } else if (obj instanceof RoaringBitmap) {
+            RoaringBitmap b = (RoaringBitmap) obj;
+            out.write(ROARING_BITMAP);
+            serializeRoaringBitmap(out, b);
         } else if (obj instanceof GraphVersion) {
             GraphVersion b = (GraphVersion) obj;
             out.write(GRAPH_VERSION);
@@ -1565,6 +1633,9 @@ public class Serialization {
             case BIT_VECTOR:
                 ret = deserializeBitVector(is);
                 break;
+            case ROARING_BITMAP:
+                ret = deserializeRoaringBitmap(is);
+                break;
             case GRAPH_STORE_CONFIGURATION:
                 ret = deserializeGraphStoreConfiguration(is);
                 break;
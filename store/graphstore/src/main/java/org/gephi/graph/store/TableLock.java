@@ -25,16 +25,37 @@ import java.util.concurrent.locks.ReentrantLock;
 public class TableLock {
     
     protected final ReentrantLock lock;
+    //Metrics
+    protected final LockMetrics metrics;
+    protected long holdStart;
     
     public TableLock() {
+        this(GraphStoreConfiguration.ENABLE_LOCK_METRICS);
+    }
+    
+    public TableLock(boolean withMetrics) {
         lock = new ReentrantLock();
+        metrics = withMetrics ? new LockMetrics(null) : null;
     }
     
     public void lock() {
+        long start = metrics != null ? System.nanoTime() : 0l;
         lock.lock();
+        if (metrics != null && lock.getHoldCount() == 1) {
+            long now = System.nanoTime();
+            holdStart = now;
+            metrics.writeAcquired(now - start);
+        }
     }
     
     public void unlock() {
+        if (metrics != null && lock.getHoldCount() == 1) {
+            metrics.writeReleased(System.nanoTime() - holdStart);
+        }
         lock.unlock();
     }
+
+    public LockMetrics getMetrics() {
+        return metrics;
+    }
 }
@@ -142,6 +142,16 @@ public class UndirectedDecorator implements UndirectedGraph, UndirectedSubgraph
         return store.getNodeIterableWrapper(store.edgeStore.neighborIterator(node, type));
     }
 
+    @Override
+    public int countCommonNeighbors(Node node1, Node node2) {
+        return store.countCommonNeighbors(node1, node2);
+    }
+
+    @Override
+    public NodeIterable getCommonNeighbors(Node node1, Node node2) {
+        return store.getCommonNeighbors(node1, node2);
+    }
+
     @Override
     public EdgeIterable getEdges(Node node) {
         return store.getEdgeIterableWrapper(store.edgeStore.edgeUndirectedIterator(node));
@@ -0,0 +1,361 @@
+/*
+ * Copyright 2012-2013 Gephi Consortium
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.gephi.graph.store;
+
+import it.unimi.dsi.fastutil.ints.IntOpenHashSet;
+import it.unimi.dsi.fastutil.ints.IntSet;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import org.gephi.graph.api.Edge;
+import org.gephi.graph.api.Node;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+/**
+ *
+ * @author mbastian
+ */
+public class AdjacencySnapshotTest {
+
+    @Test
+    public void testEmpty() {
+        GraphStore graphStore = new GraphStore();
+        AdjacencySnapshot snapshot = graphStore.getAdjacencySnapshot();
+
+        Assert.assertEquals(snapshot.getNodeCount(), 0);
+        Assert.assertEquals(snapshot.getEdgeCount(), 0);
+        Assert.assertEquals(snapshot.getOutDegree(0), 0);
+        Assert.assertEquals(snapshot.getInDegree(0, 0), 0);
+    }
+
+    @Test
+    public void testDegrees() {
+        GraphStore graphStore = GraphGenerator.generateSmallMultiTypeGraphStore();
+        AdjacencySnapshot snapshot = graphStore.getAdjacencySnapshot();
+
+        Assert.assertEquals(snapshot.getEdgeCount(), graphStore.getEdgeCount());
+        for (Node n : graphStore.getNodes()) {
+            NodeImpl node = (NodeImpl) n;
+            Assert.assertEquals(snapshot.getOutDegree(node.storeId), node.outDegree);
+            Assert.assertEquals(snapshot.getInDegree(node.storeId), node.inDegree);
+            for (int type = 0; type < 3; type++) {
+                Assert.assertEquals(snapshot.getOutDegree(node.storeId, type), graphStore.getOutEdges(node, type).toArray().length);
+                Assert.assertEquals(snapshot.getInDegree(node.storeId, type), graphStore.getInEdges(node, type).toArray().length);
+            }
+        }
+    }
+
+    @Test
+    public void testNeighbors() {
+        GraphStore graphStore = GraphGenerator.generateSmallGraphStore();
+        AdjacencySnapshot snapshot = graphStore.getAdjacencySnapshot();
+
+        for (Node n : graphStore.getNodes()) {
+            NodeImpl node = (NodeImpl) n;
+            IntSet expectedEdges = new IntOpenHashSet();
+            IntSet expectedNeighbors = new IntOpenHashSet();
+            for (Edge e : graphStore.getOutEdges(node)) {
+                expectedEdges.add(((EdgeImpl) e).storeId);
+                expectedNeighbors.add(((NodeImpl) e.getTarget()).storeId);
+            }
+            IntSet edges = new IntOpenHashSet();
+            IntSet neighbors = new IntOpenHashSet();
+            int[] outNeighbors = snapshot.getOutNeighbors();
+            int[] outEdges = snapshot.getOutEdges();
+            for (int i = snapshot.outStart(node.storeId); i < snapshot.outEnd(node.storeId); i++) {
+                edges.add(outEdges[i]);
+                neighbors.add(outNeighbors[i]);
+            }
+            Assert.assertEquals(edges, expectedEdges);
+            Assert.assertEquals(neighbors, expectedNeighbors);
+        }
+    }
+
+    @Test
+    public void testInNeighbors() {
+        GraphStore graphStore = GraphGenerator.generateSmallGraphStore();
+        AdjacencySnapshot snapshot = graphStore.getAdjacencySnapshot();
+
+        for (Node n : graphStore.getNodes()) {
+            NodeImpl node = (NodeImpl) n;
+            IntSet expected = new IntOpenHashSet();
+            for (Edge e : graphStore.getInEdges(node)) {
+                expected.add(((NodeImpl) e.getSource()).storeId);
+            }
+            IntSet neighbors = new IntOpenHashSet();
+            int[] inNeighbors = snapshot.getInNeighbors();
+            for (int i = snapshot.inStart(node.storeId, 0); i < snapshot.inEnd(node.storeId, 0); i++) {
+                neighbors.add(inNeighbors[i]);
+            }
+            Assert.assertEquals(neighbors, expected);
+        }
+    }
+
+    @Test
+    public void testCached() {
+        GraphStore graphStore = GraphGenerator.generateSmallGraphStore();
+        AdjacencySnapshot snapshot = graphStore.getAdjacencySnapshot();
+
+        Assert.assertSame(graphStore.getAdjacencySnapshot(), snapshot);
+    }
+
+    @Test
+    public void testRebuildOnEdgeChange() {
+        GraphStore graphStore = GraphGenerator.generateSmallGraphStore();
+        AdjacencySnapshot snapshot = graphStore.getAdjacencySnapshot();
+
+        Edge edge = graphStore.getEdges().toArray()[0];
+        graphStore.removeEdge(edge);
+
+        AdjacencySnapshot newSnapshot = graphStore.getAdjacencySnapshot();
+        Assert.assertNotSame(newSnapshot, snapshot);
+        Assert.assertEquals(newSnapshot.getEdgeCount(), snapshot.getEdgeCount() - 1);
+    }
+
+    @Test
+    public void testConcurrentBuild() throws Exception {
+        final GraphStore graphStore = GraphGenerator.generateSmallGraphStore();
+        final CountDownLatch start = new CountDownLatch(1);
+        final AdjacencySnapshot[] snapshots = new AdjacencySnapshot[8];
+        Thread[] threads = new Thread[snapshots.length];
+        for (int i = 0; i < threads.length; i++) {
+            final int index = i;
+            threads[i] = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        start.await();
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                    snapshots[index] = graphStore.getAdjacencySnapshot();
+                }
+            });
+            threads[i].start();
+        }
+        start.countDown();
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        for (AdjacencySnapshot snapshot : snapshots) {
+            Assert.assertNotNull(snapshot);
+            Assert.assertSame(snapshot, snapshots[0]);
+        }
+    }
+
+        @Test
+    public void testRebuildWithoutVersion() {
+        EdgeStore edgeStore = new EdgeStore();
+        EdgeImpl[] edges = GraphGenerator.generateEdgeList(2);
+        edgeStore.add(edges[0]);
+
+        AdjacencySnapshot snapshot = edgeStore.getAdjacencySnapshot();
+        Assert.assertEquals(snapshot.getEdgeCount(), 1);
+        Assert.assertSame(edgeStore.getAdjacencySnapshot(), snapshot);
+
+        edgeStore.add(edges[1]);
+        Assert.assertEquals(edgeStore.getAdjacencySnapshot().getEdgeCount(), 2);
+    }
+
+    @Test
+    public void testSelfLoop() {
+        EdgeStore edgeStore = new EdgeStore();
+        EdgeImpl edge = GraphGenerator.generateSelfLoop(0, true);
+        edgeStore.add(edge);
+
+        AdjacencySnapshot snapshot = edgeStore.getAdjacencySnapshot();
+        int node = edge.source.storeId;
+        Assert.assertEquals(snapshot.getOutDegree(node), 1);
+        Assert.assertEquals(snapshot.getInDegree(node), 1);
+        Assert.assertEquals(snapshot.getOutNeighbors()[snapshot.outStart(node)], node);
+    }
+
+    @Test
+    public void testSortedSlices() {
+        GraphStore graphStore = GraphGenerator.generateSmallMultiTypeGraphStore();
+        graphStore.setSortedAdjacency(true);
+        AdjacencySnapshot snapshot = graphStore.getAdjacencySnapshot();
+
+        int[] outNeighbors = snapshot.getOutNeighbors();
+        int[] outEdges = snapshot.getOutEdges();
+        for (Node n : graphStore.getNodes()) {
+            int node = ((NodeImpl) n).storeId;
+            for (int type = 0; type < 3; type++) {
+                for (int i = snapshot.outStart(node, type); i < snapshot.outEnd(node, type); i++) {
+                    EdgeImpl edge = graphStore.edgeStore.get(outEdges[i]);
+                    Assert.assertEquals(edge.target.storeId, outNeighbors[i]);
+                    if (i > snapshot.outStart(node, type)) {
+                        Assert.assertTrue(outNeighbors[i - 1] <= outNeighbors[i]);
+                    }
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testIsAdjacent() {
+        GraphStore graphStore = GraphGenerator.generateSmallMultiTypeGraphStore();
+        assertIsAdjacent(graphStore);
+        graphStore.setSortedAdjacency(true);
+        assertIsAdjacent(graphStore);
+    }
+
+    @Test
+    public void testNeighborSets() {
+        GraphStore graphStore = GraphGenerator.generateSmallMultiTypeGraphStore();
+        graphStore.setSortedAdjacency(true);
+        AdjacencySnapshot snapshot = graphStore.getAdjacencySnapshot();
+
+        int[] neighbors = snapshot.getNeighbors();
+        for (Node n : graphStore.getNodes()) {
+            NodeImpl node = (NodeImpl) n;
+            IntSet expected = new IntOpenHashSet();
+            for (Node neighbor : graphStore.getNeighbors(node)) {
+                if (neighbor != node) {
+                    expected.add(((NodeImpl) neighbor).storeId);
+                }
+            }
+            IntSet actual = new IntOpenHashSet();
+            for (int i = snapshot.neighborStart(node.storeId); i < snapshot.neighborEnd(node.storeId); i++) {
+                actual.add(neighbors[i]);
+                if (i > snapshot.neighborStart(node.storeId)) {
+                    Assert.assertTrue(neighbors[i - 1] < neighbors[i]);
+                }
+            }
+            Assert.assertEquals(actual, expected);
+        }
+    }
+
+    @Test
+    public void testNotSortedByDefault() {
+        GraphStore graphStore = GraphGenerator.generateSmallGraphStore();
+        AdjacencySnapshot snapshot = graphStore.getAdjacencySnapshot();
+
+        Assert.assertFalse(snapshot.isSorted());
+    }
+
+    @Test
+    public void testNeighborsOnDemand() {
+        GraphStore graphStore = GraphGenerator.generateSmallGraphStore();
+        AdjacencySnapshot snapshot = graphStore.getAdjacencySnapshot();
+        graphStore.setSortedAdjacency(true);
+        AdjacencySnapshot sortedSnapshot = graphStore.getAdjacencySnapshot();
+
+        Assert.assertFalse(snapshot.isSorted());
+        Assert.assertEquals(snapshot.getNeighbors(), sortedSnapshot.getNeighbors());
+        for (Node n : graphStore.getNodes()) {
+            int id = n.getStoreId();
+            Assert.assertEquals(snapshot.neighborStart(id), sortedSnapshot.neighborStart(id));
+            Assert.assertEquals(snapshot.neighborEnd(id), sortedSnapshot.neighborEnd(id));
+            Assert.assertEquals(snapshot.getNeighborCount(id), sortedSnapshot.getNeighborCount(id));
+        }
+    }
+
+    @Test
+    public void testSetSortedAdjacency() {
+        GraphStore graphStore = GraphGenerator.generateSmallGraphStore();
+        AdjacencySnapshot snapshot = graphStore.getAdjacencySnapshot();
+
+        graphStore.setSortedAdjacency(true);
+        AdjacencySnapshot sortedSnapshot = graphStore.getAdjacencySnapshot();
+        Assert.assertNotSame(sortedSnapshot, snapshot);
+        Assert.assertTrue(sortedSnapshot.isSorted());
+        Assert.assertEquals(sortedSnapshot.getEdgeCount(), snapshot.getEdgeCount());
+
+        graphStore.setSortedAdjacency(true);
+        Assert.assertSame(graphStore.getAdjacencySnapshot(), sortedSnapshot);
+
+        graphStore.setSortedAdjacency(false);
+        Assert.assertFalse(graphStore.getAdjacencySnapshot().isSorted());
+    }
+
+    @Test
+    public void testCommonNeighborsSortedAndNot() {
+        GraphStore graphStore = GraphGenerator.generateSmallMultiTypeGraphStore();
+        AdjacencySnapshot snapshot = graphStore.getAdjacencySnapshot();
+        graphStore.setSortedAdjacency(true);
+        AdjacencySnapshot sortedSnapshot = graphStore.getAdjacencySnapshot();
+
+        for (Node n1 : graphStore.getNodes().toArray()) {
+            int node1 = ((NodeImpl) n1).storeId;
+            Assert.assertEquals(snapshot.getNeighbors(node1), sortedSnapshot.getNeighbors(node1));
+            for (Node n2 : graphStore.getNodes().toArray()) {
+                int node2 = ((NodeImpl) n2).storeId;
+                Assert.assertEquals(snapshot.countCommonNeighbors(node1, node2), sortedSnapshot.countCommonNeighbors(node1, node2));
+                Assert.assertEquals(snapshot.getCommonNeighbors(node1, node2), sortedSnapshot.getCommonNeighbors(node1, node2));
+            }
+        }
+    }
+
+    @Test
+    public void testDistinct() {
+        int[] array = new int[]{5, 3, 5, 1, 3, 2};
+        int length = AdjacencySnapshot.distinct(array, 0, array.length, 2);
+        Assert.assertEquals(Arrays.copyOf(array, length), new int[]{1, 3, 5});
+    }
+
+    @Test
+    public void testIntersect() {
+        Random random = new Random(123);
+        for (int ratio : new int[]{1, 4, 100}) {
+            int[] a = randomSortedSet(random, 50, 10000);
+            int[] b = randomSortedSet(random, 50 * ratio, 10000);
+
+            IntSet expected = new IntOpenHashSet(a);
+            expected.retainAll(new IntOpenHashSet(b));
+
+            int[] result = new int[a.length];
+            int count = AdjacencySnapshot.intersect(a, 0, a.length, b, 0, b.length, result);
+            Assert.assertEquals(count, expected.size());
+            Assert.assertEquals(AdjacencySnapshot.intersect(b, 0, b.length, a, 0, a.length, null), count);
+            for (int i = 0; i < count; i++) {
+                Assert.assertTrue(expected.contains(result[i]));
+                if (i > 0) {
+                    Assert.assertTrue(result[i - 1] < result[i]);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testIntersectEmpty() {
+        int[] a = new int[]{1, 2, 3};
+        Assert.assertEquals(AdjacencySnapshot.intersect(a, 0, 0, a, 0, 3, null), 0);
+        Assert.assertEquals(AdjacencySnapshot.intersect(a, 1, 3, a, 0, 3, null), 2);
+    }
+
+    private void assertIsAdjacent(GraphStore graphStore) {
+        AdjacencySnapshot snapshot = graphStore.getAdjacencySnapshot();
+        for (Node n1 : graphStore.getNodes().toArray()) {
+            for (Node n2 : graphStore.getNodes().toArray()) {
+                for (int type = 0; type < 3; type++) {
+                    Assert.assertEquals(snapshot.isAdjacent(((NodeImpl) n1).storeId, ((NodeImpl) n2).storeId, type), graphStore.getEdge(n1, n2, type) != null);
+                }
+            }
+        }
+    }
+
+        private int[] randomSortedSet(Random random, int size, int bound) {
+        IntSet set = new IntOpenHashSet();
+        while (set.size() < size) {
+            set.add(random.nextInt(bound));
+        }
+        int[] array = set.toIntArray();
+        Arrays.sort(array);
+        return array;
+    }
+}
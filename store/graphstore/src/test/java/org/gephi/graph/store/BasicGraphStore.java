@@ -345,6 +345,16 @@ public class BasicGraphStore implements DirectedGraph {
     public void writeUnlock() {
     }
 
+    @Override
+    public int countCommonNeighbors(Node node1, Node node2) {
+        throw new UnsupportedOperationException("Not supported yet.");
+    }
+
+    @Override
+    public NodeIterable getCommonNeighbors(Node node1, Node node2) {
+        throw new UnsupportedOperationException("Not supported yet.");
+    }
+
     @Override
     public EdgeIterable getSelfLoops() {
         throw new UnsupportedOperationException("Not supported yet.");
@@ -35,6 +35,7 @@ import java.util.List;
 import java.util.Random;
 import java.util.Set;
 import org.gephi.graph.api.Edge;
+import org.gephi.graph.api.EdgeIterable;
 import org.testng.Assert;
 import org.testng.annotations.Test;
 
@@ -259,6 +260,56 @@ public class EdgeStoreTest {
         Assert.assertFalse(c);
     }
 
+    @Test
+    public void testAddAllSameAsAdd() {
+        EdgeImpl[] edges1 = GraphGenerator.generateLargeMixedEdgeList();
+        EdgeImpl[] edges2 = GraphGenerator.generateLargeMixedEdgeList();
+        EdgeStore edgeStore1 = new EdgeStore();
+        EdgeStore edgeStore2 = new EdgeStore();
+
+        edgeStore1.addAll(Arrays.asList(edges1));
+        for (EdgeImpl edge : edges2) {
+            edgeStore2.add(edge);
+        }
+
+        Assert.assertEquals(edgeStore1.size(), edgeStore2.size());
+        Assert.assertEquals(edgeStore1.undirectedSize, edgeStore2.undirectedSize);
+        Assert.assertEquals(edgeStore1.mutualEdgesSize, edgeStore2.mutualEdgesSize);
+        Assert.assertEquals(edgeStore1.mutualEdgesTypeSize, edgeStore2.mutualEdgesTypeSize);
+        for (int i = 0; i < edges1.length; i++) {
+            EdgeImpl e1 = edges1[i];
+            EdgeImpl e2 = edges2[i];
+            Assert.assertEquals(e1.storeId, e2.storeId);
+            Assert.assertEquals(e1.isMutual(), e2.isMutual());
+            Assert.assertEquals(e1.source.outDegree, e2.source.outDegree);
+            Assert.assertEquals(e1.target.inDegree, e2.target.inDegree);
+            Assert.assertEquals(e1.source.mutualDegree, e2.source.mutualDegree);
+        }
+    }
+
+    @Test
+    public void testAddAllWithGarbage() {
+        EdgeStore edgeStore = new EdgeStore();
+        EdgeImpl[] edges = GraphGenerator.generateLargeEdgeList();
+        edgeStore.addAll(Arrays.asList(edges));
+        List<EdgeImpl> removed = removeSomeEdges(edgeStore, 0.3f);
+
+        Assert.assertTrue(edgeStore.addAll(removed));
+        Assert.assertEquals(edgeStore.size(), edges.length);
+        Assert.assertEquals(edgeStore.garbageSize, 0);
+        Assert.assertTrue(edgeStore.garbageQueue.isEmpty());
+        testContainsOnly(edgeStore, Arrays.asList(edges));
+    }
+
+    @Test
+    public void testAddAllDuplicates() {
+        EdgeStore edgeStore = new EdgeStore();
+        EdgeImpl[] edges = GraphGenerator.generateSmallEdgeList();
+
+        Assert.assertTrue(edgeStore.addAll(Arrays.asList(edges[0], edges[0], edges[1])));
+        Assert.assertEquals(edgeStore.size(), 2);
+    }
+
     @Test(expectedExceptions = IllegalArgumentException.class)
     public void testAddAllSelf() {
         EdgeStore edgeStore = new EdgeStore();
@@ -362,6 +413,26 @@ public class EdgeStoreTest {
         Assert.assertEquals(index, edges.length);
     }
 
+    @Test
+    public void testPartition() {
+        EdgeStore edgeStore = new EdgeStore();
+        EdgeImpl[] edges = GraphGenerator.generateLargeEdgeList();
+        edgeStore.addAll(Arrays.asList(edges));
+        removeSomeEdges(edgeStore);
+
+        EdgeIterable[] partitions = edgeStore.partition(edgeStore.blocksCount * 2);
+        Assert.assertEquals(partitions.length, edgeStore.blocksCount);
+
+        Set<Edge> set = new HashSet<Edge>();
+        for (EdgeIterable partition : partitions) {
+            for (Edge e : partition.toArray()) {
+                Assert.assertTrue(set.add(e));
+            }
+        }
+        Assert.assertEquals(set.size(), edgeStore.size());
+        testContainsOnly(edgeStore, new ArrayList(set));
+    }
+
     @Test
     public void testIteratorRemove() {
         EdgeStore edgeStore = new EdgeStore();
@@ -510,6 +581,167 @@ public class EdgeStoreTest {
         Assert.assertEquals(edgeStore.garbageSize, 0);
     }
 
+    @Test
+    public void testGarbageQueue() {
+        EdgeStore edgeStore = new EdgeStore();
+        EdgeImpl[] edges = GraphGenerator.generateLargeEdgeList();
+        edgeStore.addAll(Arrays.asList(edges));
+
+        Assert.assertTrue(edgeStore.garbageQueue.isEmpty());
+
+        edgeStore.remove(edges[GraphStoreConfiguration.EDGESTORE_BLOCK_SIZE + 1]);
+        Assert.assertEquals(edgeStore.garbageQueue.size(), 1);
+        Assert.assertEquals(edgeStore.garbageQueue.getInt(0), 1);
+
+        EdgeImpl edge = edges[GraphStoreConfiguration.EDGESTORE_BLOCK_SIZE + 1];
+        edgeStore.add(edge);
+        Assert.assertEquals(edge.storeId, GraphStoreConfiguration.EDGESTORE_BLOCK_SIZE + 1);
+        Assert.assertTrue(edgeStore.garbageQueue.isEmpty());
+        Assert.assertEquals(edgeStore.garbageSize, 0);
+    }
+
+    @Test
+    public void testGarbageQueueSeveralBlocks() {
+        EdgeStore edgeStore = new EdgeStore();
+        EdgeImpl[] edges = GraphGenerator.generateLargeEdgeList();
+        edgeStore.addAll(Arrays.asList(edges));
+        int blockSize = GraphStoreConfiguration.EDGESTORE_BLOCK_SIZE;
+
+        edgeStore.remove(edges[0]);
+        edgeStore.remove(edges[blockSize]);
+        edgeStore.remove(edges[2 * blockSize]);
+        Assert.assertEquals(edgeStore.garbageQueue.size(), 3);
+
+        //Slots are reused from the most recently freed block
+        edgeStore.add(edges[blockSize]);
+        Assert.assertEquals(edges[blockSize].storeId, 2 * blockSize);
+        edgeStore.add(edges[2 * blockSize]);
+        Assert.assertEquals(edges[2 * blockSize].storeId, blockSize);
+        Assert.assertEquals(edgeStore.garbageQueue.size(), 1);
+        Assert.assertEquals(edgeStore.garbageQueue.getInt(0), 0);
+        Assert.assertEquals(edgeStore.blocks[0].garbageQueueIndex, 0);
+        Assert.assertEquals(edgeStore.blocks[1].garbageQueueIndex, EdgeStore.NULL_ID);
+
+        edgeStore.add(edges[0]);
+        Assert.assertTrue(edgeStore.garbageQueue.isEmpty());
+        Assert.assertEquals(edgeStore.garbageSize, 0);
+        testContainsOnly(edgeStore, Arrays.asList(edges));
+    }
+
+        @Test
+    public void testGarbageQueueEmpty() {
+        EdgeStore edgeStore = new EdgeStore();
+        EdgeImpl[] edges = GraphGenerator.generateLargeEdgeList();
+        edgeStore.addAll(Arrays.asList(edges));
+        edgeStore.removeAll(Arrays.asList(edges));
+
+        Assert.assertTrue(edgeStore.garbageQueue.isEmpty());
+    }
+
+    @Test
+    public void testCompact() {
+        EdgeStore edgeStore = new EdgeStore();
+        EdgeImpl[] edges = GraphGenerator.generateLargeEdgeList();
+        edgeStore.addAll(Arrays.asList(edges));
+        List<EdgeImpl> removed = removeSomeEdges(edgeStore, 0.5f);
+
+        Assert.assertTrue(edgeStore.compact());
+        Assert.assertEquals(edgeStore.garbageSize, 0);
+        Assert.assertTrue(edgeStore.garbageQueue.isEmpty());
+        Assert.assertEquals(edgeStore.maxStoreId(), edgeStore.size());
+        Assert.assertEquals(edgeStore.size(), edges.length - removed.size());
+
+        Set<EdgeImpl> removedSet = new HashSet<EdgeImpl>(removed);
+        for (EdgeImpl edge : edges) {
+            if (!removedSet.contains(edge)) {
+                Assert.assertTrue(edgeStore.contains(edge));
+                Assert.assertSame(edgeStore.get(edge.getId()), edge);
+                Assert.assertSame(edgeStore.get(edge.source, edge.target, edge.type), edge);
+            }
+        }
+        for (NodeImpl node : getNodes(edges)) {
+            int outCount = 0;
+            for (EdgeStore.EdgeOutIterator itr = edgeStore.edgeOutIterator(node); itr.hasNext();) {
+                Assert.assertSame(itr.next().source, node);
+                outCount++;
+            }
+            Assert.assertEquals(outCount, node.outDegree);
+            int inCount = 0;
+            for (EdgeStore.EdgeInIterator itr = edgeStore.edgeInIterator(node); itr.hasNext();) {
+                Assert.assertSame(itr.next().target, node);
+                inCount++;
+            }
+            Assert.assertEquals(inCount, node.inDegree);
+        }
+    }
+
+    @Test
+    public void testCompactNoGarbage() {
+        EdgeStore edgeStore = new EdgeStore();
+        EdgeImpl[] edges = GraphGenerator.generateSmallEdgeList();
+        edgeStore.addAll(Arrays.asList(edges));
+
+        Assert.assertFalse(edgeStore.compact());
+        Assert.assertEquals(edgeStore.toArray(), edges);
+    }
+
+    @Test
+    public void testReorder() {
+        EdgeStore edgeStore = new EdgeStore();
+        EdgeImpl[] edges = GraphGenerator.generateLargeEdgeList();
+        edgeStore.addAll(Arrays.asList(edges));
+        removeSomeEdges(edgeStore, 0.2f);
+
+        EdgeImpl[] order = edgeStore.toArray();
+        Collections.reverse(Arrays.asList(order));
+        edgeStore.reorder(order);
+
+        Assert.assertEquals(edgeStore.garbageSize, 0);
+        Assert.assertEquals(edgeStore.maxStoreId(), order.length);
+        for (int i = 0; i < order.length; i++) {
+            EdgeImpl edge = order[i];
+            Assert.assertEquals(edge.storeId, i);
+            Assert.assertSame(edgeStore.get(edge.getId()), edge);
+            Assert.assertSame(edgeStore.get(edge.source, edge.target, edge.type), edge);
+        }
+        for (NodeImpl node : getNodes(order)) {
+            int outCount = 0;
+            for (EdgeStore.EdgeOutIterator itr = edgeStore.edgeOutIterator(node); itr.hasNext();) {
+                Assert.assertSame(itr.next().source, node);
+                outCount++;
+            }
+            Assert.assertEquals(outCount, node.outDegree);
+        }
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void testReorderIncomplete() {
+        EdgeStore edgeStore = new EdgeStore();
+        EdgeImpl[] edges = GraphGenerator.generateSmallEdgeList();
+        edgeStore.addAll(Arrays.asList(edges));
+
+        edgeStore.reorder(new EdgeImpl[]{edges[0]});
+    }
+
+    @Test
+    public void testCompactRemoveAdd() {
+        EdgeStore edgeStore = new EdgeStore();
+        EdgeImpl[] edges = GraphGenerator.generateLargeEdgeList();
+        edgeStore.addAll(Arrays.asList(edges));
+        List<EdgeImpl> removed = removeSomeEdges(edgeStore, 0.3f);
+        edgeStore.compact();
+
+        for (EdgeImpl edge : edges) {
+            if (edgeStore.contains(edge)) {
+                Assert.assertTrue(edgeStore.remove(edge));
+            }
+        }
+        Assert.assertTrue(edgeStore.isEmpty());
+        Assert.assertEquals(edgeStore.blocksCount, 1);
+        Assert.assertTrue(edgeStore.addAll(removed));
+        Assert.assertEquals(edgeStore.size(), removed.size());
+    }
+
     @Test
     public void testDictionary() {
         EdgeStore edgeStore = new EdgeStore();
@@ -1199,6 +1431,73 @@ public class EdgeStoreTest {
         Assert.assertTrue(mutualEdges > 0);
     }
 
+    @Test
+    public void testMutualIterator() {
+        EdgeImpl[] edges = GraphGenerator.generateMultiTypeEdgeList(1000, 3, true, true);
+        EdgeStore edgeStore = new EdgeStore();
+        edgeStore.addAll(Arrays.asList(edges));
+        removeSomeEdges(edgeStore, 0.2f);
+
+        for (int type = 0; type < 3; type++) {
+            Set<Edge> expected = new HashSet<Edge>();
+            for (EdgeStore.EdgeStoreIterator itr = edgeStore.iterator(); itr.hasNext();) {
+                EdgeImpl e = itr.next();
+                if (e.type == type && e.isMutual()) {
+                    expected.add(e);
+                }
+            }
+            Set<Edge> mutuals = new HashSet<Edge>();
+            for (Iterator<Edge> itr = edgeStore.iteratorMutual(type); itr.hasNext();) {
+                Edge e = itr.next();
+                Assert.assertSame(edgeStore.getMutualEdge(edgeStore.getMutualEdge(e)), e);
+                mutuals.add(e);
+            }
+            Assert.assertEquals(mutuals, expected);
+        }
+    }
+
+    @Test
+    public void testSelfLoopIteratorMultiType() {
+        EdgeImpl[] edges = GraphGenerator.generateMultiTypeEdgeList(1000, 3, true, true);
+        EdgeStore edgeStore = new EdgeStore();
+        edgeStore.addAll(Arrays.asList(edges));
+        removeSomeEdges(edgeStore, 0.2f);
+        edgeStore.compact();
+
+        Set<Edge> expected = new HashSet<Edge>();
+        for (EdgeStore.EdgeStoreIterator itr = edgeStore.iterator(); itr.hasNext();) {
+            EdgeImpl e = itr.next();
+            if (e.isSelfLoop()) {
+                expected.add(e);
+            }
+        }
+        Set<Edge> selfLoops = new HashSet<Edge>();
+        for (Iterator<Edge> itr = edgeStore.iteratorSelfLoop(); itr.hasNext();) {
+            selfLoops.add(itr.next());
+        }
+        Assert.assertEquals(selfLoops, expected);
+        Assert.assertFalse(edgeStore.iteratorSelfLoop(42).hasNext());
+    }
+
+    @Test
+    public void testSelfLoopIteratorRemove() {
+        EdgeStore edgeStore = new EdgeStore();
+        NodeStore nodeStore = GraphGenerator.generateNodeStore(2);
+        EdgeImpl[] edges = new EdgeImpl[]{new EdgeImpl("0", nodeStore.get(0), nodeStore.get(0), 0, 1.0, true), new EdgeImpl("1", nodeStore.get(1), nodeStore.get(1), 1, 1.0, true)};
+        edgeStore.addAll(Arrays.asList(edges));
+
+        Iterator<Edge> itr = edgeStore.iteratorSelfLoop();
+        int count = 0;
+        while (itr.hasNext()) {
+            itr.next();
+            itr.remove();
+            count++;
+        }
+        Assert.assertEquals(count, 2);
+        Assert.assertTrue(edgeStore.isEmpty());
+        Assert.assertFalse(edgeStore.iteratorSelfLoop().hasNext());
+    }
+
     @Test
     public void testAddSelfLoop() {
         EdgeStore edgeStore = new EdgeStore();
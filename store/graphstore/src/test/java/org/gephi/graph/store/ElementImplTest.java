@@ -445,6 +445,68 @@ public class ElementImplTest {
         node.getAttributes(column);
     }
 
+    @Test
+    public void testSetAttributeCopyOnWrite() {
+        GraphStore store = new GraphStore();
+        Column column = generateBasicColumn(store);
+
+        NodeImpl node = new NodeImpl(0, store);
+        node.setAttribute(column, 1);
+        Object[] attributes = node.attributes;
+        node.setAttribute(column, 2);
+
+        Assert.assertNotSame(node.attributes, attributes);
+        Assert.assertEquals(attributes[getFirstNonPropertyIndex()], 1);
+        Assert.assertEquals(node.getAttribute(column), 2);
+    }
+
+    @Test
+    public void testRemoveAttributeCopyOnWrite() {
+        GraphStore store = new GraphStore();
+        Column column = generateBasicColumn(store);
+
+        NodeImpl node = new NodeImpl(0, store);
+        node.setAttribute(column, 1);
+        Object[] attributes = node.attributes;
+        node.removeAttribute(column);
+
+        Assert.assertEquals(attributes[getFirstNonPropertyIndex()], 1);
+        Assert.assertNull(node.getAttribute(column));
+    }
+
+    @Test
+    public void testConcurrentAttributeReads() throws Exception {
+        GraphStore store = new GraphStore();
+        final Column column = generateBasicColumn(store);
+        final NodeImpl node = new NodeImpl(0, store);
+        node.setAttribute(column, 0);
+
+        final int count = 10000;
+        final boolean[] failed = new boolean[1];
+        Thread reader = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                int last = 0;
+                while (last < count - 1) {
+                    Integer value = (Integer) node.getAttribute(column);
+                    if (value == null || value < last) {
+                        failed[0] = true;
+                        return;
+                    }
+                    last = value;
+                }
+            }
+        });
+        reader.start();
+        for (int i = 1; i < count; i++) {
+            node.setAttribute(column, i);
+        }
+        reader.join();
+
+        Assert.assertFalse(failed[0]);
+        Assert.assertEquals(node.getAttribute(column), count - 1);
+    }
+
     //Utility
     private Column generateBasicColumn(GraphStore graphStore) {
         graphStore.nodeColumnStore.addColumn(new ColumnImpl("age", Integer.class, "Age", null, Origin.DATA, true, false));
@@ -62,4 +62,25 @@ public class ElementPropertiesTest {
         Color rgbaColor = new Color(properties.r(), properties.g(), properties.b(), properties.alpha());
         Assert.assertEquals(rgbaColor, color);
     }
+
+    @Test
+    public void testEdgePropertiesLazy() {
+        EdgeImpl edge = GraphGenerator.generateSingleEdge();
+        Assert.assertNull(edge.properties);
+        Assert.assertEquals(edge.getColor(), new Color(0, 0, 0, 255));
+        Assert.assertEquals(edge.alpha(), 1f);
+        Assert.assertNull(edge.properties);
+
+        edge.setColor(Color.RED);
+        Assert.assertNotNull(edge.properties);
+        Assert.assertEquals(edge.getColor(), Color.RED);
+    }
+
+    @Test
+    public void testEdgeTextPropertiesLazy() {
+        EdgeImpl edge = GraphGenerator.generateSingleEdge();
+        Assert.assertNotNull(edge.getTextProperties());
+        Assert.assertNotNull(edge.properties);
+        Assert.assertSame(edge.getTextProperties(), edge.getTextProperties());
+    }
 }
@@ -0,0 +1,59 @@
+/*
+ * Copyright 2012-2013 Gephi Consortium
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.gephi.graph.store;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+/**
+ *
+ * @author mbastian
+ */
+public class GraphLockTest {
+
+    @Test
+    public void testReadUnlockAll() {
+        GraphLock lock = new GraphLock();
+        lock.readLock();
+        lock.readLock();
+        lock.readUnlockAll();
+
+        Assert.assertEquals(lock.readWriteLock.getReadHoldCount(), 0);
+    }
+
+    @Test(expectedExceptions = IllegalMonitorStateException.class)
+    public void testWriteLockWhileReadLocked() {
+        GraphLock lock = new GraphLock();
+        lock.readLock();
+        try {
+            lock.writeLock();
+        } finally {
+            lock.readUnlock();
+        }
+    }
+
+    @Test
+    public void testReadLockWhileWriteLocked() {
+        GraphLock lock = new GraphLock();
+        lock.writeLock();
+        lock.readLock();
+        lock.readUnlock();
+        lock.writeUnlock();
+
+        Assert.assertFalse(lock.readWriteLock.isWriteLocked());
+        Assert.assertEquals(lock.readWriteLock.getReadLockCount(), 0);
+    }
+}
@@ -290,6 +290,48 @@ public class GraphObserverTest {
         Assert.assertSame(diff.getRemovedEdges(), EdgeIterable.EMPTY);
     }
 
+    @Test
+    public void testDiffCompact() {
+        GraphStore store = GraphGenerator.generateSmallGraphStore();
+        GraphObserverImpl graphObserver = store.createGraphObserver(store, true);
+        graphObserver.hasGraphChanged();
+        graphObserver.getDiff();
+
+        Edge[] removedEdges = new Edge[]{store.getEdges().toArray()[0]};
+        store.removeEdge(removedEdges[0]);
+        store.compact();
+
+        boolean a = graphObserver.hasGraphChanged();
+        GraphDiff diff = graphObserver.getDiff();
+
+        Edge[] edges = diff.getRemovedEdges().toArray();
+
+        Assert.assertTrue(a);
+        Assert.assertTrue(Arrays.deepEquals(edges, removedEdges));
+        Assert.assertSame(diff.getAddedEdges(), EdgeIterable.EMPTY);
+        Assert.assertSame(diff.getAddedNodes(), NodeIterable.EMPTY);
+        Assert.assertSame(diff.getRemovedNodes(), NodeIterable.EMPTY);
+    }
+
+    @Test
+    public void testDiffReorder() {
+        GraphStore store = GraphGenerator.generateSmallGraphStore();
+        GraphObserverImpl graphObserver = store.createGraphObserver(store, true);
+        graphObserver.hasGraphChanged();
+        graphObserver.getDiff();
+
+        Node[] removedNodes = new Node[]{store.getNodes().toArray()[0]};
+        store.removeNode(removedNodes[0]);
+        store.reorder();
+
+        Assert.assertTrue(graphObserver.hasGraphChanged());
+        GraphDiff diff = graphObserver.getDiff();
+
+        Assert.assertTrue(Arrays.deepEquals(diff.getRemovedNodes().toArray(), removedNodes));
+        Assert.assertSame(diff.getAddedNodes(), NodeIterable.EMPTY);
+        Assert.assertSame(diff.getAddedEdges(), EdgeIterable.EMPTY);
+    }
+
     @Test
     public void testDiffRemoveNodes() {
         GraphStore store = GraphGenerator.generateSmallGraphStore();
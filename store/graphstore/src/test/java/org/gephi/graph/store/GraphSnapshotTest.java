@@ -0,0 +1,208 @@
+/*
+ * Copyright 2012-2013 Gephi Consortium
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.gephi.graph.store;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+import org.gephi.graph.api.Edge;
+import org.gephi.graph.api.Graph;
+import org.gephi.graph.api.Node;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+/**
+ *
+ * @author mbastian
+ */
+public class GraphSnapshotTest {
+
+    @Test
+    public void testEmpty() {
+        GraphSnapshot snapshot = new GraphSnapshot(new GraphStore());
+
+        Assert.assertEquals(snapshot.getNodeCount(), 0);
+        Assert.assertEquals(snapshot.getEdgeCount(), 0);
+        Assert.assertFalse(snapshot.getNodes().iterator().hasNext());
+        Assert.assertFalse(snapshot.getEdges().iterator().hasNext());
+        Assert.assertNull(snapshot.getNode("foo"));
+    }
+
+    @Test
+    public void testSameTopology() {
+        GraphStore graphStore = GraphGenerator.generateSmallMultiTypeGraphStore();
+        GraphSnapshot snapshot = new GraphSnapshot(graphStore);
+
+        Assert.assertEquals(snapshot.getNodeCount(), graphStore.getNodeCount());
+        Assert.assertEquals(snapshot.getEdgeCount(), graphStore.getEdgeCount());
+        Assert.assertEquals(snapshot.getNodes().toArray(), graphStore.getNodes().toArray());
+        Assert.assertEquals(snapshot.getEdges().toArray(), graphStore.getEdges().toArray());
+        Assert.assertEquals(toSet(snapshot.getSelfLoops().toArray()), toSet(graphStore.getSelfLoops().toArray()));
+        for (int type = 0; type < 3; type++) {
+            Assert.assertEquals(snapshot.getEdgeCount(type), graphStore.edgeStore.size(type));
+        }
+
+        for (Node node : graphStore.getNodes().toArray()) {
+            Assert.assertTrue(snapshot.contains(node));
+            Assert.assertSame(snapshot.getNode(node.getId()), node);
+            Assert.assertEquals(snapshot.getDegree(node), graphStore.getDegree(node));
+            Assert.assertEquals(snapshot.getInDegree(node), graphStore.getInDegree(node));
+            Assert.assertEquals(snapshot.getOutDegree(node), graphStore.getOutDegree(node));
+            Assert.assertEquals(toSet(snapshot.getEdges(node).toArray()), toSet(graphStore.getEdges(node).toArray()));
+            Assert.assertEquals(toSet(snapshot.getInEdges(node).toArray()), toSet(graphStore.getInEdges(node).toArray()));
+            Assert.assertEquals(toSet(snapshot.getOutEdges(node).toArray()), toSet(graphStore.getOutEdges(node).toArray()));
+            Assert.assertEquals(toSet(snapshot.getSuccessors(node).toArray()), toSet(graphStore.getSuccessors(node).toArray()));
+            Assert.assertEquals(toSet(snapshot.getPredecessors(node).toArray()), toSet(graphStore.getPredecessors(node).toArray()));
+            Assert.assertEquals(toSet(snapshot.getNeighbors(node).toArray()), withoutSelf(graphStore.getNeighbors(node).toArray(), node));
+            for (int type = 0; type < 3; type++) {
+                Assert.assertEquals(toSet(snapshot.getEdges(node, type).toArray()), toSet(graphStore.getEdges(node, type).toArray()));
+                Assert.assertEquals(toSet(snapshot.getNeighbors(node, type).toArray()), withoutSelf(graphStore.getNeighbors(node, type).toArray(), node));
+            }
+        }
+        for (Edge edge : graphStore.getEdges().toArray()) {
+            Assert.assertTrue(snapshot.contains(edge));
+            Assert.assertSame(snapshot.getEdge(edge.getId()), edge);
+            Assert.assertSame(snapshot.getEdge(edge.getSource(), edge.getTarget(), edge.getType()), edge);
+            Assert.assertTrue(snapshot.isAdjacent(edge.getSource(), edge.getTarget(), edge.getType()));
+            Assert.assertSame(snapshot.getMutualEdge(edge), graphStore.getMutualEdge(edge));
+        }
+    }
+
+    @Test
+    public void testUndirectedEdge() {
+        GraphStore graphStore = new GraphStore();
+        NodeImpl n1 = new NodeImpl("0");
+        NodeImpl n2 = new NodeImpl("1");
+        graphStore.addAllNodes(Arrays.asList(new NodeImpl[]{n1, n2}));
+        EdgeImpl edge = new EdgeImpl("0", n1, n2, 0, 1.0, false);
+        graphStore.addEdge(edge);
+        GraphSnapshot snapshot = new GraphSnapshot(graphStore);
+
+        Assert.assertTrue(snapshot.isUndirected());
+        Assert.assertSame(snapshot.getEdge(n1, n2), edge);
+        Assert.assertSame(snapshot.getEdge(n2, n1), edge);
+        Assert.assertTrue(snapshot.isAdjacent(n2, n1));
+    }
+
+    @Test
+    public void testIsolation() {
+        GraphStore graphStore = GraphGenerator.generateSmallGraphStore();
+        Node[] nodes = graphStore.getNodes().toArray();
+        Edge[] edges = graphStore.getEdges().toArray();
+        GraphSnapshot snapshot = new GraphSnapshot(graphStore);
+        Assert.assertFalse(snapshot.isStale());
+
+        Node removed = nodes[0];
+        int degree = graphStore.getDegree(removed);
+        graphStore.removeNode(removed);
+        graphStore.addNode(new NodeImpl("new"));
+
+        Assert.assertTrue(snapshot.isStale());
+        Assert.assertEquals(snapshot.getNodeCount(), nodes.length);
+        Assert.assertEquals(snapshot.getEdgeCount(), edges.length);
+        Assert.assertEquals(snapshot.getNodes().toArray(), nodes);
+        Assert.assertEquals(snapshot.getEdges().toArray(), edges);
+        Assert.assertTrue(snapshot.contains(removed));
+        Assert.assertSame(snapshot.getNode(removed.getId()), removed);
+        Assert.assertEquals(snapshot.getDegree(removed), degree);
+        Assert.assertNull(snapshot.getNode("new"));
+    }
+
+    @Test
+    public void testIsolationAfterReorder() {
+        GraphStore graphStore = GraphGenerator.generateSmallGraphStore();
+        graphStore.removeNode(graphStore.getNodes().toArray()[0]);
+        GraphSnapshot snapshot = new GraphSnapshot(graphStore);
+        graphStore.reorder();
+
+        for (Node node : graphStore.getNodes().toArray()) {
+            Assert.assertTrue(snapshot.contains(node));
+            Assert.assertEquals(snapshot.getDegree(node), graphStore.getDegree(node));
+        }
+        for (Edge edge : graphStore.getEdges().toArray()) {
+            Assert.assertTrue(snapshot.contains(edge));
+            Assert.assertSame(snapshot.getEdge(edge.getSource(), edge.getTarget()), edge);
+        }
+    }
+
+    @Test
+    public void testIterateWhileWriting() {
+        GraphStore graphStore = GraphGenerator.generateSmallGraphStore();
+        GraphSnapshot snapshot = new GraphSnapshot(graphStore);
+
+        int count = 0;
+        for (Edge edge : snapshot.getEdges()) {
+            graphStore.removeEdge(edge);
+            count++;
+        }
+        Assert.assertEquals(count, snapshot.getEdgeCount());
+        Assert.assertEquals(graphStore.getEdgeCount(), 0);
+        Assert.assertEquals(graphStore.lock.readWriteLock.getReadLockCount(), 0);
+    }
+
+    @Test
+    public void testGraphModelSnapshot() {
+        GraphModelImpl graphModel = new GraphModelImpl();
+        Node node = graphModel.factory().newNode("0");
+        graphModel.getGraph().addNode(node);
+        Graph snapshot = graphModel.snapshot();
+        graphModel.getGraph().removeNode(node);
+
+        Assert.assertEquals(snapshot.getNodeCount(), 1);
+        Assert.assertTrue(snapshot.contains(node));
+    }
+
+    @Test
+    public void testAdjacencyLeavesStoreSnapshot() {
+        GraphStore graphStore = GraphGenerator.generateSmallGraphStore();
+        GraphSnapshot snapshot = new GraphSnapshot(graphStore);
+        Assert.assertTrue(snapshot.adjacency.isSorted());
+        Assert.assertNull(graphStore.edgeStore.getCurrentAdjacencySnapshot());
+
+        graphStore.setSortedAdjacency(true);
+        AdjacencySnapshot storeAdjacency = graphStore.getAdjacencySnapshot();
+        Assert.assertSame(new GraphSnapshot(graphStore).adjacency, storeAdjacency);
+    }
+
+    @Test(expectedExceptions = UnsupportedOperationException.class)
+    public void testAddNode() {
+        GraphSnapshot snapshot = new GraphSnapshot(new GraphStore());
+        snapshot.addNode(new NodeImpl("0"));
+    }
+
+    @Test(expectedExceptions = UnsupportedOperationException.class)
+    public void testClear() {
+        GraphSnapshot snapshot = new GraphSnapshot(GraphGenerator.generateSmallGraphStore());
+        snapshot.clear();
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void testNodeNotInSnapshot() {
+        GraphSnapshot snapshot = new GraphSnapshot(GraphGenerator.generateSmallGraphStore());
+        snapshot.getDegree(new NodeImpl("foo"));
+    }
+
+    //UTILITY
+    private static Set<Object> toSet(Object[] array) {
+        return new HashSet<Object>(Arrays.asList(array));
+    }
+
+    private static Set<Object> withoutSelf(Object[] array, Node node) {
+        Set<Object> set = toSet(array);
+        set.remove(node);
+        return set;
+    }
+}
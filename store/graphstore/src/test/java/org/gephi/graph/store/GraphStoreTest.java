@@ -448,6 +448,168 @@ public class GraphStoreTest {
         Assert.assertEquals(graphStore.getEdgeCount(), 0);
     }
 
+    @Test
+    public void testEdgePartitionsParallel() throws Exception {
+        GraphStore graphStore = new GraphStore();
+        NodeImpl[] nodes = GraphGenerator.generateNodeList(1000);
+        graphStore.addAllNodes(Arrays.asList(nodes));
+        EdgeImpl[] edges = GraphGenerator.generateEdgeList(graphStore.nodeStore, GraphStoreConfiguration.EDGESTORE_BLOCK_SIZE * 4, 0, true, true);
+        graphStore.addAllEdges(Arrays.asList(edges));
+
+        final EdgeIterable[] partitions = graphStore.getEdgePartitions(4);
+        final int[] counts = new int[partitions.length];
+        Thread[] threads = new Thread[partitions.length];
+        for (int i = 0; i < partitions.length; i++) {
+            final int index = i;
+            threads[i] = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    for (Edge e : partitions[index]) {
+                        counts[index]++;
+                    }
+                }
+            });
+            threads[i].start();
+        }
+        int total = 0;
+        for (int i = 0; i < threads.length; i++) {
+            threads[i].join();
+            total += counts[i];
+        }
+
+        Assert.assertEquals(total, graphStore.getEdgeCount());
+        Assert.assertEquals(graphStore.lock.readWriteLock.getReadLockCount(), 0);
+    }
+
+    @Test
+    public void testPointLookupsParallel() throws Exception {
+        final GraphStore graphStore = new GraphStore();
+        final NodeImpl[] nodes = GraphGenerator.generateNodeList(100);
+        graphStore.addAllNodes(Arrays.asList(nodes));
+        final EdgeImpl[] edges = GraphGenerator.generateEdgeList(graphStore.nodeStore, 500, 0, true, true);
+
+        final boolean[] failed = new boolean[1];
+        Thread writer = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                for (int i = 0; i < 20; i++) {
+                    graphStore.addAllEdges(Arrays.asList(edges));
+                    graphStore.removeAllEdges(Arrays.asList(edges));
+                }
+            }
+        });
+        writer.start();
+        while (writer.isAlive()) {
+            for (NodeImpl n : nodes) {
+                if (graphStore.getNode(n.getId()) != n || !graphStore.contains(n)) {
+                    failed[0] = true;
+                }
+            }
+        }
+        writer.join();
+
+        Assert.assertFalse(failed[0]);
+        Assert.assertEquals(graphStore.lock.readWriteLock.getReadLockCount(), 0);
+    }
+
+    @Test
+    public void testNodePartitions() {
+        GraphStore graphStore = GraphGenerator.generateSmallGraphStore();
+        NodeIterable[] partitions = graphStore.getNodePartitions(2);
+
+        Assert.assertEquals(partitions.length, 1);
+        testNodeSets(partitions[0], graphStore.getNodes());
+    }
+
+    @Test
+    public void testPartitionsBreak() {
+        GraphStore graphStore = GraphGenerator.generateSmallGraphStore();
+        NodeIterable nodePartition = graphStore.getNodePartitions(1)[0];
+        EdgeIterable edgePartition = graphStore.getEdgePartitions(1)[0];
+
+        //Before the first hasNext() no lock is held
+        nodePartition.iterator();
+        nodePartition.doBreak();
+        edgePartition.iterator();
+        edgePartition.doBreak();
+        Assert.assertEquals(graphStore.lock.readWriteLock.getReadHoldCount(), 0);
+
+        Iterator<Node> nodeIterator = nodePartition.iterator();
+        Assert.assertTrue(nodeIterator.hasNext());
+        Iterator<Edge> edgeIterator = edgePartition.iterator();
+        Assert.assertTrue(edgeIterator.hasNext());
+        Assert.assertEquals(graphStore.lock.readWriteLock.getReadHoldCount(), 2);
+        nodePartition.doBreak();
+        edgePartition.doBreak();
+        Assert.assertEquals(graphStore.lock.readWriteLock.getReadHoldCount(), 0);
+
+        //Breaking twice or after the end is a no-op
+        nodePartition.doBreak();
+        for (Node n : nodePartition) {
+        }
+        nodePartition.doBreak();
+        Assert.assertEquals(graphStore.lock.readWriteLock.getReadHoldCount(), 0);
+    }
+
+        @Test
+    public void testReorder() {
+        GraphStore graphStore = GraphGenerator.generateSmallMultiTypeGraphStore();
+        graphStore.removeNode(graphStore.getNodes().toArray()[0]);
+        Edge[] edges = graphStore.getEdges().toArray();
+        Node[] nodes = graphStore.getNodes().toArray();
+        int[] degrees = new int[nodes.length];
+        for (int i = 0; i < nodes.length; i++) {
+            degrees[i] = graphStore.getDegree(nodes[i]);
+        }
+
+        graphStore.reorder();
+        Assert.assertEquals(graphStore.nodeStore.maxStoreId(), nodes.length);
+        Assert.assertEquals(graphStore.edgeStore.maxStoreId(), edges.length);
+        for (int i = 0; i < nodes.length; i++) {
+            Assert.assertSame(graphStore.getNode(nodes[i].getId()), nodes[i]);
+            Assert.assertEquals(graphStore.getDegree(nodes[i]), degrees[i]);
+        }
+        for (Edge edge : edges) {
+            Assert.assertSame(graphStore.getEdge(edge.getId()), edge);
+            Assert.assertSame(graphStore.getEdge(edge.getSource(), edge.getTarget(), edge.getType()), edge);
+        }
+
+        //Edges are grouped by source
+        int lastSource = -1;
+        for (Edge e : graphStore.edgeStore) {
+            int source = ((EdgeImpl) e).source.storeId;
+            Assert.assertTrue(source >= lastSource);
+            lastSource = source;
+        }
+    }
+
+    @Test
+    public void testCommonNeighbors() {
+        GraphStore graphStore = GraphGenerator.generateSmallMultiTypeGraphStore();
+        Node[] nodes = graphStore.getNodes().toArray();
+
+        for (Node n1 : nodes) {
+            for (Node n2 : nodes) {
+                Set<Node> expected = new ObjectOpenHashSet<Node>();
+                for (Node neighbor : graphStore.getNeighbors(n1)) {
+                    if (neighbor != n1) {
+                        expected.add(neighbor);
+                    }
+                }
+                Set<Node> neighbors2 = new ObjectOpenHashSet<Node>();
+                for (Node neighbor : graphStore.getNeighbors(n2)) {
+                    if (neighbor != n2) {
+                        neighbors2.add(neighbor);
+                    }
+                }
+                expected.retainAll(neighbors2);
+
+                Assert.assertEquals(graphStore.countCommonNeighbors(n1, n2), expected.size());
+                Assert.assertEquals(new ObjectOpenHashSet<Node>(graphStore.getCommonNeighbors(n1, n2).toArray()), expected);
+            }
+        }
+    }
+
     private void testBasicStoreEquals(GraphStore graphStore, BasicGraphStore basicGraphStore) {
         BasicGraphStore.BasicEdgeStore basicEdgeStore = basicGraphStore.edgeStore;
         BasicGraphStore.BasicNodeStore basicNodeStore = basicGraphStore.nodeStore;
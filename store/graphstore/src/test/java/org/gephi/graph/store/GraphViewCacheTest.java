@@ -0,0 +1,284 @@
+/*
+ * Copyright 2012-2013 Gephi Consortium
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.gephi.graph.store;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Set;
+import org.gephi.graph.api.DirectedSubgraph;
+import org.gephi.graph.api.Edge;
+import org.gephi.graph.api.Node;
+import org.gephi.graph.api.UndirectedSubgraph;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+/**
+ *
+ * @author mbastian
+ */
+public class GraphViewCacheTest {
+
+    @Test
+    public void testEmpty() {
+        GraphStore graphStore = GraphGenerator.generateSmallGraphStore();
+        GraphViewImpl view = graphStore.viewStore.createView();
+        GraphViewCache cache = new GraphViewCache(view);
+
+        Assert.assertEquals(cache.getNodeCount(), 0);
+        Assert.assertEquals(cache.getEdgeCount(), 0);
+        Assert.assertEquals(cache.getTypeCount(), 0);
+        Assert.assertEquals(cache.rank(graphStore.nodeStore.get(0)), -1);
+        Assert.assertEquals(cache.getOutDegree(graphStore.nodeStore.get(0)), 0);
+    }
+
+    @Test
+    public void testRanks() {
+        GraphStore graphStore = GraphGenerator.generateSmallGraphStore();
+        GraphViewImpl view = createHalfView(graphStore);
+        GraphViewCache cache = new GraphViewCache(view);
+
+        Set<Node> nodes = new HashSet<Node>();
+        for (Edge e : graphStore.getEdges()) {
+            if (view.containsEdge((EdgeImpl) e)) {
+                nodes.add(e.getSource());
+                nodes.add(e.getTarget());
+            }
+        }
+        Assert.assertEquals(cache.getNodeCount(), nodes.size());
+        Assert.assertEquals(cache.getEdgeCount(), view.getEdgeCount());
+        int previous = -1;
+        for (Node n : graphStore.getNodes().toArray()) {
+            int rank = cache.rank((NodeImpl) n);
+            Assert.assertEquals(rank >= 0, nodes.contains(n));
+            if (rank >= 0) {
+                Assert.assertTrue(rank > previous);
+                previous = rank;
+            }
+        }
+    }
+
+    @Test
+    public void testDirectedQueries() {
+        GraphStore graphStore = GraphGenerator.generateSmallMultiTypeGraphStore();
+        GraphViewImpl view = createHalfView(graphStore);
+        DirectedSubgraph graph = graphStore.viewStore.getDirectedGraph(view);
+        buildCache(view);
+
+        for (Node n : graphStore.getNodes().toArray()) {
+            NodeImpl node = (NodeImpl) n;
+            Assert.assertEquals(toSet(graph.getOutEdges(n).iterator()), expected(view, graphStore.edgeStore.edgeOutIterator(n)));
+            Assert.assertEquals(toSet(graph.getInEdges(n).iterator()), expected(view, graphStore.edgeStore.edgeInIterator(n)));
+            Assert.assertEquals(toSet(graph.getEdges(n).iterator()), expected(view, graphStore.edgeStore.edgeIterator(n)));
+            for (int type = 0; type < 3; type++) {
+                Assert.assertEquals(toSet(graph.getOutEdges(n, type).iterator()), expected(view, graphStore.edgeStore.edgeOutIterator(n, type)));
+                Assert.assertEquals(toSet(graph.getInEdges(n, type).iterator()), expected(view, graphStore.edgeStore.edgeInIterator(n, type)));
+            }
+            Assert.assertEquals(graph.getOutDegree(n), expected(view, graphStore.edgeStore.edgeOutIterator(n)).size());
+            Assert.assertEquals(graph.getInDegree(n), expected(view, graphStore.edgeStore.edgeInIterator(n)).size());
+
+            int degree = 0;
+            for (Edge e : expected(view, graphStore.edgeStore.edgeIterator(n))) {
+                degree += e.isSelfLoop() ? 2 : 1;
+            }
+            Assert.assertEquals(graph.getDegree(n), degree);
+
+            Set<Node> successors = new HashSet<Node>();
+            for (Edge e : expected(view, graphStore.edgeStore.edgeOutIterator(n))) {
+                successors.add(e.getTarget());
+            }
+            Assert.assertEquals(new HashSet<Node>(Arrays.asList(graph.getSuccessors(node).toArray())), successors);
+        }
+        Assert.assertNotNull(view.cache);
+    }
+
+    @Test
+    public void testUndirectedQueries() {
+        GraphStore graphStore = GraphGenerator.generateSmallGraphStore();
+        GraphViewImpl view = createHalfView(graphStore);
+        UndirectedSubgraph graph = graphStore.viewStore.getUndirectedGraph(view);
+
+        Node[] nodes = graphStore.getNodes().toArray();
+        int[] degrees = new int[nodes.length];
+        Set[] neighbors = new Set[nodes.length];
+        for (int i = 0; i < nodes.length; i++) {
+            degrees[i] = graph.getDegree(nodes[i]);
+            neighbors[i] = new HashSet<Node>(Arrays.asList(graph.getNeighbors(nodes[i]).toArray()));
+        }
+
+        buildCache(view);
+        for (int i = 0; i < nodes.length; i++) {
+            Assert.assertEquals(graph.getDegree(nodes[i]), degrees[i]);
+            Assert.assertEquals(new HashSet<Node>(Arrays.asList(graph.getNeighbors(nodes[i]).toArray())), neighbors[i]);
+        }
+    }
+
+    @Test
+    public void testLazyBuild() {
+        GraphStore graphStore = GraphGenerator.generateSmallGraphStore();
+        GraphViewImpl view = graphStore.viewStore.createView();
+        view.fill();
+        DirectedSubgraph graph = graphStore.viewStore.getDirectedGraph(view);
+        Node node = graphStore.getNodes().toArray()[0];
+
+        graph.getOutDegree(node);
+        Assert.assertNull(view.cache);
+        buildCache(view);
+        Assert.assertNotNull(view.cache);
+    }
+
+    @Test
+    public void testInvalidation() {
+        GraphStore graphStore = GraphGenerator.generateSmallGraphStore();
+        GraphViewImpl view = createHalfView(graphStore);
+        DirectedSubgraph graph = graphStore.viewStore.getDirectedGraph(view);
+        buildCache(view);
+        Assert.assertNotNull(view.cache);
+
+        EdgeImpl edge = null;
+        for (Edge e : graph.getEdges()) {
+            edge = (EdgeImpl) e;
+        }
+        NodeImpl source = edge.source;
+        int outDegree = graph.getOutDegree(source);
+        graph.removeEdge(edge);
+        Assert.assertNull(view.cache);
+
+        buildCache(view);
+        Assert.assertEquals(graph.getOutDegree(source), outDegree - 1);
+        Assert.assertFalse(graph.getOutEdges(source).toCollection().contains(edge));
+
+        graph.addEdge(edge);
+        Assert.assertNull(view.cache);
+        buildCache(view);
+        Assert.assertEquals(graph.getOutDegree(source), outDegree);
+    }
+
+    @Test
+    public void testStoreRemoval() {
+        GraphStore graphStore = GraphGenerator.generateSmallGraphStore();
+        GraphViewImpl view = createHalfView(graphStore);
+        DirectedSubgraph graph = graphStore.viewStore.getDirectedGraph(view);
+        buildCache(view);
+
+        Edge edge = graph.getEdges().toArray()[0];
+        Node source = edge.getSource();
+        graphStore.removeEdge(edge);
+        Assert.assertNull(view.cache);
+
+        buildCache(view);
+        Assert.assertFalse(graph.getOutEdges(source).toCollection().contains(edge));
+    }
+
+    @Test
+    public void testIteratorRemove() {
+        GraphStore graphStore = GraphGenerator.generateSmallGraphStore();
+        GraphViewImpl view = createHalfView(graphStore);
+        DirectedSubgraph graph = graphStore.viewStore.getDirectedGraph(view);
+        buildCache(view);
+
+        Node node = graph.getEdges().toArray()[0].getSource();
+        graph.writeLock();
+        try {
+            Iterator<Edge> itr = graph.getOutEdges(node).iterator();
+            while (itr.hasNext()) {
+                itr.next();
+                itr.remove();
+            }
+        } finally {
+            graph.writeUnlock();
+        }
+        Assert.assertEquals(graph.getOutDegree(node), 0);
+    }
+
+    @Test
+    public void testConcurrentInvalidation() throws Exception {
+        GraphStore graphStore = GraphGenerator.generateSmallGraphStore();
+        final GraphViewImpl view = createHalfView(graphStore);
+        final DirectedSubgraph graph = graphStore.viewStore.getDirectedGraph(view);
+        final Edge[] edges = graph.getEdges().toArray();
+        final Node[] nodes = graph.getNodes().toArray();
+
+        Thread writer = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                for (int i = 0; i < 200; i++) {
+                    for (Edge e : edges) {
+                        graph.removeEdge(e);
+                    }
+                    for (Edge e : edges) {
+                        graph.addEdge(e);
+                    }
+                }
+            }
+        });
+        writer.start();
+        boolean failed = false;
+        while (writer.isAlive()) {
+            for (Node n : nodes) {
+                Iterator<Edge> itr = graph.getOutEdges(n).iterator();
+                while (itr.hasNext()) {
+                    if (!view.containsEdge((EdgeImpl) itr.next())) {
+                        failed = true;
+                    }
+                }
+            }
+        }
+        writer.join();
+
+        Assert.assertFalse(failed);
+        Assert.assertEquals(graphStore.lock.readWriteLock.getReadLockCount(), 0);
+    }
+
+    //Utility
+    private GraphViewImpl createHalfView(GraphStore graphStore) {
+        GraphViewImpl view = graphStore.viewStore.createView();
+        for (Node n : graphStore.getNodes()) {
+            view.addNode(n);
+        }
+        Edge[] edges = graphStore.getEdges().toArray();
+        for (int i = 0; i < edges.length; i += 2) {
+            view.addEdge(edges[i]);
+        }
+        return view;
+    }
+
+    private void buildCache(GraphViewImpl view) {
+        int attempts = 0;
+        while (view.getCache() == null) {
+            Assert.assertTrue(attempts++ < view.getEdgeCount() + 1);
+        }
+    }
+
+    private Set<Edge> toSet(Iterator<Edge> itr) {
+        Set<Edge> set = new HashSet<Edge>();
+        while (itr.hasNext()) {
+            Assert.assertTrue(set.add(itr.next()));
+        }
+        return set;
+    }
+
+    private Set<Edge> expected(GraphViewImpl view, Iterator<Edge> itr) {
+        Set<Edge> set = new HashSet<Edge>();
+        while (itr.hasNext()) {
+            EdgeImpl e = (EdgeImpl) itr.next();
+            if (view.containsEdge(e)) {
+                set.add(e);
+            }
+        }
+        return set;
+    }
+}
@@ -0,0 +1,346 @@
+/*
+ * Copyright 2012-2013 Gephi Consortium
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.gephi.graph.store;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.concurrent.CountDownLatch;
+import org.gephi.graph.api.DirectedSubgraph;
+import org.gephi.graph.api.Edge;
+import org.gephi.graph.api.Node;
+import org.gephi.graph.api.UndirectedSubgraph;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+/**
+ *
+ * @author mbastian
+ */
+public class GraphViewDegreesTest {
+
+    @Test
+    public void testEmpty() {
+        GraphStore graphStore = GraphGenerator.generateSmallGraphStore();
+        GraphViewImpl view = graphStore.viewStore.createView();
+        GraphViewDegrees degrees = new GraphViewDegrees(view);
+
+        for (Node n : graphStore.getNodes()) {
+            Assert.assertEquals(degrees.getDegree((NodeImpl) n), 0);
+            Assert.assertEquals(degrees.getUndirectedDegree((NodeImpl) n), 0);
+        }
+    }
+
+    @Test
+    public void testBuild() {
+        GraphStore graphStore = GraphGenerator.generateSmallGraphStore();
+        GraphViewImpl view = createHalfView(graphStore);
+
+        assertDegrees(graphStore, view, new GraphViewDegrees(view));
+    }
+
+    @Test
+    public void testBuildFullView() {
+        GraphStore graphStore = GraphGenerator.generateSmallMultiTypeGraphStore();
+        GraphViewImpl view = graphStore.viewStore.createView();
+        view.fill();
+
+        GraphViewDegrees degrees = new GraphViewDegrees(view);
+        assertDegrees(graphStore, view, degrees);
+        for (Node n : graphStore.getNodes()) {
+            NodeImpl node = (NodeImpl) n;
+            Assert.assertEquals(degrees.getInDegree(node), node.getInDegree());
+            Assert.assertEquals(degrees.getOutDegree(node), node.getOutDegree());
+            Assert.assertEquals(degrees.getMutualDegree(node), node.mutualDegree);
+        }
+    }
+
+    @Test
+    public void testViewEdgeChanges() {
+        GraphStore graphStore = GraphGenerator.generateSmallGraphStore();
+        GraphViewImpl view = createHalfView(graphStore);
+        GraphViewDegrees degrees = view.getDegrees();
+
+        Edge[] edges = graphStore.getEdges().toArray();
+        for (int i = 1; i < edges.length; i += 2) {
+            view.addEdge(edges[i]);
+            assertDegrees(graphStore, view, degrees);
+        }
+        for (int i = 0; i < edges.length; i += 3) {
+            view.removeEdge(edges[i]);
+            assertDegrees(graphStore, view, degrees);
+        }
+        Assert.assertSame(view.getDegrees(), degrees);
+    }
+
+    @Test
+    public void testViewNodeChanges() {
+        GraphStore graphStore = GraphGenerator.generateSmallGraphStore();
+        GraphViewImpl view = graphStore.viewStore.createView(true, false);
+        graphStore.viewStore.setCachedDegrees(view, true);
+        GraphViewDegrees degrees = view.getDegrees();
+
+        Node[] nodes = graphStore.getNodes().toArray();
+        for (Node n : nodes) {
+            view.addNode(n);
+            assertDegrees(graphStore, view, degrees);
+        }
+        for (int i = 0; i < nodes.length; i += 2) {
+            view.removeNode(nodes[i]);
+            assertDegrees(graphStore, view, degrees);
+        }
+    }
+
+    @Test
+    public void testStoreChanges() {
+        GraphStore graphStore = GraphGenerator.generateSmallGraphStore();
+        GraphViewImpl view = graphStore.viewStore.createView(true, false);
+        graphStore.viewStore.setCachedDegrees(view, true);
+        view.fill();
+        GraphViewDegrees degrees = view.getDegrees();
+
+        Edge[] edges = graphStore.getEdges().toArray();
+        for (int i = 0; i < edges.length; i += 3) {
+            graphStore.removeEdge(edges[i]);
+        }
+        assertDegrees(graphStore, view, degrees);
+
+        for (int i = 0; i < edges.length; i += 3) {
+            graphStore.addEdge(edges[i]);
+        }
+        assertDegrees(graphStore, view, degrees);
+
+        graphStore.removeNode(graphStore.getNodes().toArray()[0]);
+        assertDegrees(graphStore, view, degrees);
+
+        NodeImpl other = (NodeImpl) graphStore.getNodes().toArray()[0];
+        NodeImpl node = new NodeImpl("new");
+        graphStore.addNode(node);
+        view.addNode(node);
+        graphStore.addEdge(new EdgeImpl("a", node, other, 0, 1.0, true));
+        graphStore.addEdge(new EdgeImpl("b", other, node, 0, 1.0, true));
+        Assert.assertEquals(degrees.getMutualDegree(node), 1);
+        assertDegrees(graphStore, view, degrees);
+    }
+
+    @Test
+    public void testMutualPair() {
+        GraphStore graphStore = new GraphStore();
+        NodeImpl n1 = new NodeImpl("1");
+        NodeImpl n2 = new NodeImpl("2");
+        graphStore.addNode(n1);
+        graphStore.addNode(n2);
+        EdgeImpl e1 = new EdgeImpl("1", n1, n2, 0, 1.0, true);
+        EdgeImpl e2 = new EdgeImpl("2", n2, n1, 0, 1.0, true);
+        EdgeImpl loop = new EdgeImpl("3", n1, n1, 0, 1.0, true);
+        graphStore.addEdge(e1);
+        graphStore.addEdge(e2);
+        graphStore.addEdge(loop);
+
+        GraphViewImpl view = graphStore.viewStore.createView();
+        graphStore.viewStore.setCachedDegrees(view, true);
+        view.addNode(n1);
+        view.addNode(n2);
+        view.addEdge(e1);
+        UndirectedSubgraph undirected = graphStore.viewStore.getUndirectedGraph(view);
+        DirectedSubgraph directed = graphStore.viewStore.getDirectedGraph(view);
+        Assert.assertEquals(undirected.getDegree(n1), 1);
+
+        view.addEdge(e2);
+        Assert.assertEquals(undirected.getDegree(n1), 1);
+        Assert.assertEquals(undirected.getDegree(n2), 1);
+        Assert.assertEquals(directed.getDegree(n1), 2);
+
+        view.addEdge(loop);
+        Assert.assertEquals(undirected.getDegree(n1), 3);
+        Assert.assertEquals(directed.getDegree(n1), 4);
+        Assert.assertEquals(directed.getInDegree(n1), 2);
+
+        view.removeEdge(e1);
+        Assert.assertEquals(undirected.getDegree(n2), 1);
+        Assert.assertEquals(view.getDegrees().getMutualDegree(n2), 0);
+    }
+
+    @Test
+    public void testDroppedOnBulkChanges() {
+        GraphStore graphStore = GraphGenerator.generateSmallGraphStore();
+        GraphViewImpl view = createHalfView(graphStore);
+
+        view.getDegrees();
+        view.fill();
+        Assert.assertNull(view.degrees);
+        assertDegrees(graphStore, view, view.getDegrees());
+
+        view.clearEdges();
+        Assert.assertNull(view.degrees);
+        assertDegrees(graphStore, view, view.getDegrees());
+
+        view.getDegrees();
+        NodeImpl[] order = graphStore.nodeStore.toArray(new NodeImpl[0]);
+        Collections.reverse(Arrays.asList(order));
+        graphStore.writeLock();
+        try {
+            graphStore.nodeStore.reorder(order);
+        } finally {
+            graphStore.writeUnlock();
+        }
+        Assert.assertNull(view.degrees);
+    }
+
+    @Test
+    public void testDecoratorDegrees() {
+        GraphStore graphStore = GraphGenerator.generateSmallMultiTypeGraphStore();
+        GraphViewImpl view = createHalfView(graphStore);
+        DirectedSubgraph directed = graphStore.viewStore.getDirectedGraph(view);
+        UndirectedSubgraph undirected = graphStore.viewStore.getUndirectedGraph(view);
+
+        for (Node n : graphStore.getNodes()) {
+            int in = 0;
+            int out = 0;
+            for (Edge e : directed.getInEdges(n)) {
+                in++;
+            }
+            for (Edge e : directed.getOutEdges(n)) {
+                out++;
+            }
+            int undirectedDegree = 0;
+            for (Edge e : undirected.getEdges(n)) {
+                undirectedDegree += e.isSelfLoop() ? 2 : 1;
+            }
+            Assert.assertEquals(directed.getInDegree(n), in);
+            Assert.assertEquals(directed.getOutDegree(n), out);
+            Assert.assertEquals(directed.getDegree(n), in + out);
+            Assert.assertEquals(undirected.getDegree(n), undirectedDegree);
+        }
+        Assert.assertNotNull(view.degrees);
+    }
+
+    @Test
+    public void testDisabledByDefault() {
+        GraphStore graphStore = GraphGenerator.generateSmallGraphStore();
+        GraphViewImpl view = graphStore.viewStore.createView();
+        view.fill();
+        DirectedSubgraph directed = graphStore.viewStore.getDirectedGraph(view);
+
+        Node node = graphStore.getNodes().toArray()[0];
+        Assert.assertEquals(directed.getDegree(node), ((NodeImpl) node).getDegree());
+        Assert.assertNull(view.getDegrees());
+        Assert.assertNull(view.degrees);
+    }
+
+    @Test
+    public void testDisableReleases() {
+        GraphStore graphStore = GraphGenerator.generateSmallGraphStore();
+        GraphViewImpl view = createHalfView(graphStore);
+        DirectedSubgraph directed = graphStore.viewStore.getDirectedGraph(view);
+        Node node = graphStore.getNodes().toArray()[0];
+
+        int degree = directed.getDegree(node);
+        Assert.assertNotNull(view.degrees);
+        graphStore.viewStore.setCachedDegrees(view, false);
+        Assert.assertNull(view.degrees);
+        Assert.assertEquals(directed.getDegree(node), degree);
+        Assert.assertNull(view.degrees);
+
+        //Kept by copies
+        graphStore.viewStore.setCachedDegrees(view, true);
+        GraphViewImpl copy = graphStore.viewStore.createView(view);
+        Assert.assertNotNull(copy.getDegrees());
+    }
+
+    @Test
+    public void testConcurrentBuild() throws Exception {
+        final GraphStore graphStore = GraphGenerator.generateSmallGraphStore();
+        final GraphViewImpl view = createHalfView(graphStore);
+        Assert.assertNull(view.degrees);
+
+        final int threads = 8;
+        final CountDownLatch start = new CountDownLatch(1);
+        final GraphViewDegrees[] results = new GraphViewDegrees[threads];
+        Thread[] readers = new Thread[threads];
+        for (int i = 0; i < threads; i++) {
+            final int index = i;
+            readers[i] = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        start.await();
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                    graphStore.readLock();
+                    try {
+                        results[index] = view.getDegrees();
+                    } finally {
+                        graphStore.readUnlock();
+                    }
+                }
+            });
+            readers[i].start();
+        }
+        start.countDown();
+        for (Thread reader : readers) {
+            reader.join();
+        }
+
+        Assert.assertNotNull(view.degrees);
+        for (GraphViewDegrees result : results) {
+            Assert.assertSame(result, view.degrees);
+        }
+    }
+
+    //UTILITY
+    private GraphViewImpl createHalfView(GraphStore graphStore) {
+        GraphViewImpl view = graphStore.viewStore.createView();
+        graphStore.viewStore.setCachedDegrees(view, true);
+        for (Node n : graphStore.getNodes()) {
+            view.addNode(n);
+        }
+        Edge[] edges = graphStore.getEdges().toArray();
+        for (int i = 0; i < edges.length; i += 2) {
+            view.addEdge(edges[i]);
+        }
+        return view;
+    }
+
+    private void assertDegrees(GraphStore graphStore, GraphViewImpl view, GraphViewDegrees degrees) {
+        for (Node n : graphStore.getNodes()) {
+            NodeImpl node = (NodeImpl) n;
+            int in = 0;
+            int out = 0;
+            int mutual = 0;
+            for (Edge e : graphStore.getEdges()) {
+                EdgeImpl edge = (EdgeImpl) e;
+                if (!view.containsEdge(edge)) {
+                    continue;
+                }
+                if (edge.target == node) {
+                    in++;
+                }
+                if (edge.source == node) {
+                    out++;
+                    EdgeImpl reverse = graphStore.edgeStore.get(edge.target, edge.source, edge.type);
+                    if (!edge.isSelfLoop() && reverse != null && view.containsEdge(reverse)) {
+                        mutual++;
+                    }
+                }
+            }
+            Assert.assertEquals(degrees.getInDegree(node), in);
+            Assert.assertEquals(degrees.getOutDegree(node), out);
+            Assert.assertEquals(degrees.getMutualDegree(node), mutual);
+            Assert.assertEquals(degrees.getUndirectedDegree(node), in + out - mutual);
+        }
+    }
+}
@@ -17,12 +17,20 @@ package org.gephi.graph.store;
 
 import it.unimi.dsi.fastutil.objects.ObjectOpenHashSet;
 import it.unimi.dsi.fastutil.objects.ObjectSet;
+import java.util.Arrays;
+import java.util.Iterator;
 import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import org.gephi.attribute.api.Column;
+import org.gephi.attribute.api.Origin;
 import org.gephi.attribute.time.Interval;
 import org.gephi.graph.api.DirectedSubgraph;
 import org.gephi.graph.api.Edge;
 import org.gephi.graph.api.Element;
 import org.gephi.graph.api.ElementIterable;
+import org.gephi.graph.api.ElementPredicate;
+import org.gephi.graph.api.ElementPredicates;
+import org.gephi.graph.api.Graph;
 import org.gephi.graph.api.GraphModel;
 import org.gephi.graph.api.GraphView;
 import org.gephi.graph.api.Node;
@@ -718,6 +726,105 @@ public class GraphViewStoreTest {
         }
     }
 
+    @Test
+    public void testCompact() {
+        GraphStore graphStore = GraphGenerator.generateSmallMultiTypeGraphStore();
+        GraphViewStore store = graphStore.viewStore;
+        GraphViewImpl view = store.createView();
+        DirectedSubgraph graph = store.getDirectedGraph(view);
+
+        Edge[] edges = graphStore.getEdges().toArray();
+        for (Node n : graphStore.getNodes().toArray()) {
+            graph.addNode(n);
+        }
+        for (int i = 0; i < edges.length; i += 2) {
+            graph.addEdge(edges[i]);
+        }
+        for (int i = 0; i < edges.length; i += 3) {
+            graphStore.removeEdge(edges[i]);
+        }
+        int edgeCount = view.getEdgeCount();
+
+        Assert.assertTrue(graphStore.compact());
+        Assert.assertTrue(view.edgeBitVector.last() < graphStore.getEdgeCount());
+        Assert.assertEquals(view.getEdgeCount(), edgeCount);
+        for (int i = 0; i < edges.length; i++) {
+            if (i % 3 != 0) {
+                Assert.assertEquals(graph.contains(edges[i]), i % 2 == 0);
+            }
+        }
+    }
+
+    @Test
+    public void testReorder() {
+        GraphStore graphStore = GraphGenerator.generateSmallMultiTypeGraphStore();
+        GraphViewStore store = graphStore.viewStore;
+        GraphViewImpl view = store.createView();
+        DirectedSubgraph graph = store.getDirectedGraph(view);
+
+        Node[] nodes = graphStore.getNodes().toArray();
+        Edge[] edges = graphStore.getEdges().toArray();
+        for (int i = 0; i < nodes.length; i += 2) {
+            graph.addNode(nodes[i]);
+        }
+        for (Edge edge : edges) {
+            if (graph.contains(edge.getSource()) && graph.contains(edge.getTarget())) {
+                graph.addEdge(edge);
+            }
+        }
+        int nodeCount = view.getNodeCount();
+        int edgeCount = view.getEdgeCount();
+        int undirectedCount = view.getUndirectedEdgeCount();
+
+        graphStore.reorder();
+        Assert.assertEquals(view.getNodeCount(), nodeCount);
+        Assert.assertEquals(view.getEdgeCount(), edgeCount);
+        Assert.assertEquals(view.getUndirectedEdgeCount(), undirectedCount);
+        for (int i = 0; i < nodes.length; i++) {
+            Assert.assertEquals(graph.contains(nodes[i]), i % 2 == 0);
+        }
+        for (Edge edge : edges) {
+            Assert.assertEquals(graph.contains(edge), graph.contains(edge.getSource()) && graph.contains(edge.getTarget()));
+        }
+    }
+
+    @Test
+    public void testCommonNeighbors() {
+        GraphStore graphStore = GraphGenerator.generateSmallGraphStore();
+        GraphViewStore store = graphStore.viewStore;
+        GraphViewImpl view = store.createView();
+        DirectedSubgraph graph = store.getDirectedGraph(view);
+
+        for (Node n : graphStore.getNodes().toArray()) {
+            graph.addNode(n);
+        }
+        Edge[] edges = graphStore.getEdges().toArray();
+        for (int i = 0; i < edges.length; i += 2) {
+            graph.addEdge(edges[i]);
+        }
+
+        for (Node n1 : graph.getNodes().toArray()) {
+            for (Node n2 : graph.getNodes().toArray()) {
+                ObjectSet<Node> expected = new ObjectOpenHashSet<Node>();
+                for (Node neighbor : graph.getNeighbors(n1)) {
+                    if (neighbor != n1) {
+                        expected.add(neighbor);
+                    }
+                }
+                ObjectSet<Node> neighbors2 = new ObjectOpenHashSet<Node>();
+                for (Node neighbor : graph.getNeighbors(n2)) {
+                    if (neighbor != n2) {
+                        neighbors2.add(neighbor);
+                    }
+                }
+                expected.retainAll(neighbors2);
+
+                Assert.assertEquals(graph.countCommonNeighbors(n1, n2), expected.size());
+                Assert.assertEquals(new ObjectOpenHashSet<Node>(graph.getCommonNeighbors(n1, n2).toArray()), expected);
+            }
+        }
+    }
+
     @Test
     public void testMainView() {
         GraphStore graphStore = GraphGenerator.generateSmallMultiTypeGraphStore();
@@ -830,7 +937,7 @@ public class GraphViewStoreTest {
         NodeImpl node = new NodeImpl("A");
         graphStore.addNode(node);
 
-        Assert.assertTrue(view.nodeBitVector.size() >= node.storeId);
+        Assert.assertFalse(view.containsNode(node));
         boolean a = view.addNode(node);
         Assert.assertTrue(a);
         Assert.assertTrue(view.containsNode(node));
@@ -852,7 +959,7 @@ public class GraphViewStoreTest {
         EdgeImpl edge = new EdgeImpl("S", source, target, 0, 1.0, true);
         graphStore.addEdge(edge);
 
-        Assert.assertTrue(view.edgeBitVector.size() >= edge.storeId);
+        Assert.assertFalse(view.containsEdge(edge));
         boolean a = view.addEdge(edge);
         Assert.assertTrue(a);
         Assert.assertTrue(view.containsEdge(edge));
@@ -912,6 +1019,30 @@ public class GraphViewStoreTest {
         Assert.assertEquals(copyView.hashCode(), view.hashCode());
     }
 
+    @Test
+    public void testCopyViewIsIndependent() {
+        GraphStore graphStore = GraphGenerator.generateSmallGraphStore();
+        GraphViewStore store = graphStore.viewStore;
+        GraphViewImpl view = store.createView();
+        addSomeElements(graphStore, view);
+        GraphViewImpl expected = store.createView(view);
+
+        GraphViewImpl copyView = store.createView(view);
+        Assert.assertSame(copyView.nodeBitVector.containers, view.nodeBitVector.containers);
+        Assert.assertSame(copyView.edgeBitVector.containers, view.edgeBitVector.containers);
+
+        Edge edge = copyView.getDirectedGraph().getEdges().toArray()[0];
+        Node node = graphStore.getNodes().toArray()[0];
+        copyView.removeEdge(edge);
+        copyView.removeNode(node);
+        Assert.assertTrue(view.containsEdge((EdgeImpl) edge));
+        assertSameElements(view, expected);
+
+        view.clear();
+        Assert.assertFalse(copyView.containsEdge((EdgeImpl) edge));
+        Assert.assertTrue(copyView.getEdgeCount() > 0);
+    }
+
     @Test
     public void testViewIntersection() {
         GraphStore graphStore = GraphGenerator.generateSmallGraphStore();
@@ -981,6 +1112,190 @@ public class GraphViewStoreTest {
         Assert.assertTrue(view.containsEdge(e2));
     }
 
+    @Test
+    public void testCreateUnionView() {
+        GraphStore graphStore = GraphGenerator.generateSmallMultiTypeGraphStore();
+        GraphViewStore store = graphStore.viewStore;
+        GraphViewImpl view = store.createView();
+        GraphViewImpl view2 = store.createView();
+        addSomeElements(graphStore, view, 0.5, 1);
+        addSomeElements(graphStore, view2, 0.5, 2);
+
+        GraphViewImpl union = store.createUnionView(view, view2);
+        GraphViewImpl expected = store.createView(view);
+        expected.union(view2);
+
+        assertSameElements(union, expected);
+        Assert.assertTrue(store.contains(union));
+    }
+
+    @Test
+    public void testCreateUnionViewMultiple() {
+        GraphStore graphStore = GraphGenerator.generateSmallGraphStore();
+        GraphViewStore store = graphStore.viewStore;
+        GraphViewImpl view = store.createView();
+        GraphViewImpl view2 = store.createView();
+        GraphViewImpl view3 = store.createView();
+        addSomeElements(graphStore, view, 0.3, 1);
+        addSomeElements(graphStore, view2, 0.3, 2);
+        addSomeElements(graphStore, view3, 0.3, 3);
+
+        GraphViewImpl union = store.createUnionView(view, view2, view3);
+        GraphViewImpl expected = store.createView(view);
+        expected.union(view2);
+        expected.union(view3);
+
+        assertSameElements(union, expected);
+    }
+
+    @Test
+    public void testCreateIntersectionView() {
+        GraphStore graphStore = GraphGenerator.generateSmallMultiTypeGraphStore();
+        GraphViewStore store = graphStore.viewStore;
+        GraphViewImpl view = store.createView();
+        GraphViewImpl view2 = store.createView();
+        addSomeElements(graphStore, view, 0.7, 1);
+        addSomeElements(graphStore, view2, 0.7, 2);
+
+        GraphViewImpl intersection = store.createIntersectionView(view, view2);
+        GraphViewImpl expected = store.createView(view);
+        expected.intersection(view2);
+
+        assertSameElements(intersection, expected);
+    }
+
+    @Test
+    public void testCreateDifferenceView() {
+        GraphStore graphStore = GraphGenerator.generateSmallGraphStore();
+        GraphViewStore store = graphStore.viewStore;
+        GraphViewImpl view = store.createView();
+        GraphViewImpl view2 = store.createView();
+        addSomeElements(graphStore, view, 0.7, 1);
+        addSomeElements(graphStore, view2, 0.3, 2);
+
+        GraphViewImpl difference = store.createDifferenceView(view, view2);
+        GraphViewImpl expected = store.createView(view);
+        for (Node n : graphStore.getNodes()) {
+            if (view2.containsNode((NodeImpl) n)) {
+                expected.removeNode(n);
+            }
+        }
+
+        assertSameElements(difference, expected);
+    }
+
+    @Test
+    public void testCreateComplementView() {
+        GraphStore graphStore = GraphGenerator.generateSmallMultiTypeGraphStore();
+        GraphViewStore store = graphStore.viewStore;
+        GraphViewImpl view = store.createView();
+        addSomeElements(graphStore, view, 0.5, 1);
+
+        GraphViewImpl complement = store.createComplementView(view);
+        GraphViewImpl expected = store.createView();
+        for (Node n : graphStore.getNodes()) {
+            if (!view.containsNode((NodeImpl) n)) {
+                expected.addNode(n);
+            }
+        }
+        for (Edge e : graphStore.getEdges()) {
+            if (expected.containsNode((NodeImpl) e.getSource()) && expected.containsNode((NodeImpl) e.getTarget())) {
+                expected.addEdge(e);
+            }
+        }
+
+        assertSameElements(complement, expected);
+        Assert.assertEquals(store.createIntersectionView(view, complement).getNodeCount(), 0);
+    }
+
+    @Test
+    public void testCreateComplementEdgeView() {
+        GraphStore graphStore = GraphGenerator.generateSmallGraphStore();
+        GraphViewStore store = graphStore.viewStore;
+        GraphViewImpl view = store.createView(false, true);
+        Edge[] edges = graphStore.getEdges().toArray();
+        for (int i = 0; i < edges.length; i += 3) {
+            view.addEdge(edges[i]);
+        }
+
+        GraphViewImpl complement = store.createComplementView(view);
+        Assert.assertFalse(complement.nodeView);
+        Assert.assertEquals(complement.getEdgeCount(), graphStore.getEdgeCount() - view.getEdgeCount());
+        for (int i = 0; i < edges.length; i++) {
+            Assert.assertEquals(complement.containsEdge((EdgeImpl) edges[i]), i % 3 != 0);
+        }
+    }
+
+    @Test
+    public void testCreateUnionNodeOnlyView() {
+        GraphStore graphStore = GraphGenerator.generateSmallGraphStore();
+        GraphViewStore store = graphStore.viewStore;
+        GraphViewImpl view = store.createView(true, false);
+        GraphViewImpl view2 = store.createView(true, false);
+        Node[] nodes = graphStore.getNodes().toArray();
+        for (int i = 0; i < nodes.length; i++) {
+            if (i % 2 == 0) {
+                view.addNode(nodes[i]);
+            } else {
+                view2.addNode(nodes[i]);
+            }
+        }
+
+        //Edges between the two views are induced as well
+        GraphViewImpl union = store.createUnionView(view, view2);
+        Assert.assertEquals(union.getNodeCount(), graphStore.getNodeCount());
+        Assert.assertEquals(union.getEdgeCount(), graphStore.getEdgeCount());
+    }
+
+    @Test
+    public void testCreateUnionViewMainView() {
+        GraphStore graphStore = GraphGenerator.generateSmallGraphStore();
+        GraphViewStore store = graphStore.viewStore;
+        GraphViewImpl view = store.createView();
+        addSomeElements(graphStore, view, 0.5, 1);
+
+        GraphViewImpl union = store.createUnionView(view, graphStore.getView());
+        Assert.assertEquals(union.getNodeCount(), graphStore.getNodeCount());
+        Assert.assertEquals(union.getEdgeCount(), graphStore.getEdgeCount());
+    }
+
+    @Test
+    public void testCreateCombinedViewMainViewNodeAndEdgeOnly() {
+        GraphStore graphStore = GraphGenerator.generateSmallGraphStore();
+        GraphViewStore store = graphStore.viewStore;
+        GraphViewImpl nodeView = store.createView(true, false);
+        nodeView.addNode(graphStore.getNodes().toArray()[0]);
+        GraphViewImpl edgeView = store.createView(false, true);
+        edgeView.addEdge(graphStore.getEdges().toArray()[0]);
+
+        GraphViewImpl nodeUnion = store.createUnionView(graphStore.getView(), nodeView);
+        Assert.assertTrue(nodeUnion.nodeView);
+        Assert.assertFalse(nodeUnion.edgeView);
+        Assert.assertEquals(nodeUnion.getNodeCount(), graphStore.getNodeCount());
+        Assert.assertEquals(nodeUnion.getEdgeCount(), graphStore.getEdgeCount());
+
+        GraphViewImpl edgeDifference = store.createDifferenceView(graphStore.getView(), edgeView);
+        Assert.assertFalse(edgeDifference.nodeView);
+        Assert.assertTrue(edgeDifference.edgeView);
+        Assert.assertEquals(edgeDifference.getEdgeCount(), graphStore.getEdgeCount() - 1);
+
+        GraphViewImpl nodeComplement = store.createComplementView(nodeView);
+        Assert.assertEquals(nodeComplement.getNodeCount(), graphStore.getNodeCount() - 1);
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void testCreateUnionViewDifferentFlags() {
+        GraphStore graphStore = GraphGenerator.generateSmallGraphStore();
+        GraphViewStore store = graphStore.viewStore;
+        store.createUnionView(store.createView(), store.createView(true, false));
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void testCreateUnionViewEmpty() {
+        GraphStore graphStore = GraphGenerator.generateSmallGraphStore();
+        graphStore.viewStore.createUnionView();
+    }
+
     @Test
     public void testNodeView() {
         GraphStore graphStore = GraphGenerator.generateSmallGraphStore();
@@ -1019,6 +1334,31 @@ public class GraphViewStoreTest {
         Assert.assertTrue(view.containsEdge(edge));
     }
 
+    @Test
+    public void testNodeViewEdgeUpdateAddAll() {
+        GraphStore graphStore = GraphGenerator.generateSmallGraphStore();
+        GraphViewStore store = graphStore.viewStore;
+        GraphViewImpl view = store.createView(true, false);
+
+        NodeImpl n1 = graphStore.getNode("0");
+        NodeImpl n2 = graphStore.getNode("1");
+        NodeImpl n3 = graphStore.getNode("2");
+
+        view.addNode(n1);
+        view.addNode(n2);
+
+        EdgeImpl e1 = (EdgeImpl) graphStore.factory.newEdge(n1, n2, 42, true);
+        EdgeImpl e2 = (EdgeImpl) graphStore.factory.newEdge(n2, n1, 42, true);
+        EdgeImpl e3 = (EdgeImpl) graphStore.factory.newEdge(n1, n3, 42, true);
+        graphStore.addAllEdges(Arrays.asList(e1, e2, e3));
+
+        Assert.assertTrue(view.containsEdge(e1));
+        Assert.assertTrue(view.containsEdge(e2));
+        Assert.assertFalse(view.containsEdge(e3));
+        Assert.assertEquals(view.getEdgeCount(42), 2);
+        Assert.assertEquals(view.getUndirectedEdgeCount(42), 1);
+    }
+
     @Test
     public void testIsNodeView() {
         GraphStore graphStore = GraphGenerator.generateSmallGraphStore();
@@ -1079,7 +1419,452 @@ public class GraphViewStoreTest {
         Assert.assertEquals(visibleView, graphStore.mainGraphView);
     }
 
+    @Test
+    public void testCreatePredicateViewEdges() {
+        GraphModelImpl graphModel = createWeightedGraphModel(20, 80);
+        GraphViewStore store = graphModel.store.viewStore;
+        Column weight = graphModel.getEdgeTable().getColumn("weight");
+
+        ElementPredicate<Edge> predicate = ElementPredicates.greaterThan(weight, 0.5);
+        GraphViewImpl view = store.createView(null, predicate);
+        Assert.assertFalse(view.isNodeView());
+        Assert.assertTrue(view.isEdgeView());
+        Assert.assertTrue(view.isPredicateView());
+        Assert.assertEquals(store.predicateViews.length, 1);
+        assertMatchesPredicates(graphModel, view, null, predicate);
+    }
+
+    @Test
+    public void testPredicateViewAttributeChange() {
+        GraphModelImpl graphModel = createWeightedGraphModel(20, 80);
+        GraphViewStore store = graphModel.store.viewStore;
+        Column weight = graphModel.getEdgeTable().getColumn("weight");
+
+        ElementPredicate<Edge> predicate = ElementPredicates.greaterThan(weight, 0.5);
+        GraphViewImpl view = store.createView(null, predicate);
+        for (Edge e : graphModel.getGraph().getEdges().toArray()) {
+            e.setWeight(1.0 - e.getWeight());
+            Assert.assertEquals(view.containsEdge((EdgeImpl) e), e.getWeight() > 0.5);
+        }
+        Assert.assertFalse(store.hasPendingElements);
+        assertMatchesPredicates(graphModel, view, null, predicate);
+    }
+
+    @Test
+    public void testPredicateViewAddRemoveElements() {
+        GraphModelImpl graphModel = createWeightedGraphModel(20, 80);
+        GraphViewStore store = graphModel.store.viewStore;
+        Column weight = graphModel.getEdgeTable().getColumn("weight");
+        Graph graph = graphModel.getGraph();
+
+        ElementPredicate<Edge> predicate = ElementPredicates.greaterThan(weight, 0.5);
+        GraphViewImpl view = store.createView(null, predicate);
+        Node[] nodes = graph.getNodes().toArray();
+        Edge heavy = graphModel.factory().newEdge(nodes[0], nodes[1], 0, 2.0, true);
+        Edge light = graphModel.factory().newEdge(nodes[1], nodes[0], 0, 0.1, true);
+        graph.addEdge(heavy);
+        graph.addEdge(light);
+        Assert.assertTrue(view.containsEdge((EdgeImpl) heavy));
+        Assert.assertFalse(view.containsEdge((EdgeImpl) light));
+
+        int edgeCount = view.getEdgeCount();
+        graph.removeEdge(heavy);
+        Assert.assertEquals(view.getEdgeCount(), edgeCount - 1);
+        graph.removeNode(nodes[2]);
+        assertMatchesPredicates(graphModel, view, null, predicate);
+    }
+
+    @Test
+    public void testPredicateViewNodes() {
+        GraphModelImpl graphModel = createWeightedGraphModel(20, 80);
+        GraphViewStore store = graphModel.store.viewStore;
+        Column age = graphModel.getNodeTable().getColumn("age");
+
+        ElementPredicate<Node> predicate = ElementPredicates.greaterOrEqual(age, 10);
+        GraphViewImpl view = store.createView(predicate, null);
+        Assert.assertTrue(view.isNodeView());
+        Assert.assertFalse(view.isEdgeView());
+        assertMatchesPredicates(graphModel, view, predicate, null);
+
+        Graph graph = graphModel.getGraph();
+        for (Node n : graph.getNodes().toArray()) {
+            n.setAttribute(age, 19 - (Integer) n.getAttribute(age));
+        }
+        assertMatchesPredicates(graphModel, view, predicate, null);
+
+        Node node = graphModel.factory().newNode("new");
+        node.setAttribute(age, 50);
+        graph.addNode(node);
+        graph.addEdge(graphModel.factory().newEdge(node, graph.getNodes().toArray()[0], 0, 1.0, true));
+        Assert.assertTrue(view.containsNode((NodeImpl) node));
+        assertMatchesPredicates(graphModel, view, predicate, null);
+
+        graph.removeEdge(graph.getEdges().toArray()[0]);
+        assertMatchesPredicates(graphModel, view, predicate, null);
+
+        node.removeAttribute(age);
+        Assert.assertFalse(view.containsNode((NodeImpl) node));
+    }
+
+    @Test
+    public void testPredicateViewNodesAndEdges() {
+        GraphModelImpl graphModel = createWeightedGraphModel(20, 80);
+        GraphViewStore store = graphModel.store.viewStore;
+        Column age = graphModel.getNodeTable().getColumn("age");
+        Column weight = graphModel.getEdgeTable().getColumn("weight");
+
+        ElementPredicate<Node> nodePredicate = ElementPredicates.not(ElementPredicates.<Node>lessThan(age, 5));
+        ElementPredicate<Edge> edgePredicate = ElementPredicates.and(ElementPredicates.<Edge>lessOrEqual(weight, 0.7), ElementPredicates.edgeType(0));
+        GraphViewImpl view = store.createView(nodePredicate, edgePredicate);
+        assertMatchesPredicates(graphModel, view, nodePredicate, edgePredicate);
+
+        Graph graph = graphModel.getGraph();
+        for (Node n : graph.getNodes().toArray()) {
+            n.setAttribute(age, ((Integer) n.getAttribute(age) + 7) % 20);
+            assertMatchesPredicates(graphModel, view, nodePredicate, edgePredicate);
+        }
+        for (Edge e : graph.getEdges().toArray()) {
+            e.setWeight(1.0 - e.getWeight());
+        }
+        assertMatchesPredicates(graphModel, view, nodePredicate, edgePredicate);
+    }
+
+    @Test
+    public void testPredicateViewUnderReadLock() {
+        GraphModelImpl graphModel = createWeightedGraphModel(20, 80);
+        GraphViewStore store = graphModel.store.viewStore;
+        Column weight = graphModel.getEdgeTable().getColumn("weight");
+        Graph graph = graphModel.getGraph();
+
+        ElementPredicate<Edge> predicate = ElementPredicates.greaterThan(weight, 0.5);
+        GraphViewImpl view = store.createView(null, predicate);
+        for (Edge e : graph.getEdges()) {
+            e.setWeight(1.0 - e.getWeight());
+            Assert.assertTrue(store.hasPendingElements);
+        }
+
+
+        //Flushed when the iteration releases the read lock
+        Assert.assertFalse(store.hasPendingElements);
+        assertMatchesPredicates(graphModel, view, null, predicate);
+    }
+
+    @Test
+    public void testPredicateViewUnderNestedReadLock() {
+        GraphModelImpl graphModel = createWeightedGraphModel(20, 80);
+        GraphViewStore store = graphModel.store.viewStore;
+        Column weight = graphModel.getEdgeTable().getColumn("weight");
+        Graph graph = graphModel.getGraph();
+
+        ElementPredicate<Edge> predicate = ElementPredicates.greaterThan(weight, 0.5);
+        GraphViewImpl view = store.createView(null, predicate);
+        graph.readLock();
+        try {
+            for (Edge e : graph.getEdges()) {
+                e.setWeight(1.0 - e.getWeight());
+            }
+            //Still held by the outer read lock
+            Assert.assertTrue(store.hasPendingElements);
+        } finally {
+            graph.readUnlock();
+        }
+        Assert.assertFalse(store.hasPendingElements);
+        assertMatchesPredicates(graphModel, view, null, predicate);
+    }
+
+    @Test
+    public void testPredicateViewFlushedBeforeNextReadLock() throws InterruptedException {
+        GraphModelImpl graphModel = createWeightedGraphModel(20, 80);
+        final GraphViewStore store = graphModel.store.viewStore;
+        Column weight = graphModel.getEdgeTable().getColumn("weight");
+        final Graph graph = graphModel.getGraph();
+
+        ElementPredicate<Edge> predicate = ElementPredicates.greaterThan(weight, 0.5);
+        GraphViewImpl view = store.createView(null, predicate);
+
+        final CountDownLatch locked = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        Thread holder = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                graph.readLock();
+                try {
+                    locked.countDown();
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                } finally {
+                    graph.readUnlock();
+                }
+            }
+        });
+        holder.start();
+        locked.await();
+
+        for (Edge e : graph.getEdges()) {
+            e.setWeight(1.0 - e.getWeight());
+        }
+        //Can't be flushed while the other thread reads
+        Assert.assertTrue(store.hasPendingElements);
+
+        final boolean[] pending = new boolean[1];
+        Thread reader = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                graph.readLock();
+                try {
+                    pending[0] = store.hasPendingElements;
+                } finally {
+                    graph.readUnlock();
+                }
+            }
+        });
+        reader.start();
+        release.countDown();
+        holder.join();
+        reader.join();
+
+        Assert.assertFalse(pending[0]);
+        Assert.assertFalse(store.hasPendingElements);
+        assertMatchesPredicates(graphModel, view, null, predicate);
+    }
+
+    @Test
+    public void testPredicateViewWithoutLock() {
+        GraphModelImpl graphModel = createWeightedGraphModel(20, 80);
+        GraphViewStore store = graphModel.store.viewStore;
+        Column weight = graphModel.getEdgeTable().getColumn("weight");
+        Graph graph = graphModel.getGraph();
+
+        ElementPredicate<Edge> predicate = ElementPredicates.greaterThan(weight, 0.5);
+        GraphViewImpl view = store.createView(null, predicate);
+        int edgeVersion = view.version.edgeVersion;
+        for (Edge e : graph.getEdges().toArray()) {
+            e.setWeight(1.0 - e.getWeight());
+            //Evaluated right away, nothing is queued
+            Assert.assertFalse(store.hasPendingElements);
+        }
+        Assert.assertNotEquals(view.version.edgeVersion, edgeVersion);
+        assertMatchesPredicates(graphModel, view, null, predicate);
+    }
+
+    @Test
+    public void testPredicateViewIgnoresOtherColumns() {
+        GraphModelImpl graphModel = createWeightedGraphModel(20, 80);
+        GraphViewStore store = graphModel.store.viewStore;
+        Column age = graphModel.getNodeTable().getColumn("age");
+        Column other = graphModel.getNodeTable().addColumn("other", Integer.class);
+
+        GraphViewImpl view = store.createView(ElementPredicates.<Node>greaterOrEqual(age, 10), null);
+        int nodeVersion = view.version.nodeVersion;
+        Node node = graphModel.getGraph().getNodes().toArray()[0];
+        node.setAttribute(other, 1);
+        Assert.assertEquals(view.version.nodeVersion, nodeVersion);
+    }
+
+    @Test
+    public void testDestroyPredicateView() {
+        GraphModelImpl graphModel = createWeightedGraphModel(20, 80);
+        GraphViewStore store = graphModel.store.viewStore;
+        Column weight = graphModel.getEdgeTable().getColumn("weight");
+
+        GraphViewImpl view = store.createView(null, ElementPredicates.<Edge>greaterThan(weight, 0.5));
+        GraphViewImpl copy = store.createView(view, false, true);
+        Assert.assertFalse(copy.isPredicateView());
+        Assert.assertEquals(store.predicateViews.length, 1);
+
+        store.destroyView(view);
+        Assert.assertEquals(store.predicateViews.length, 0);
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void testCreatePredicateViewWithoutPredicate() {
+        GraphStore graphStore = new GraphStore();
+        graphStore.viewStore.createView((ElementPredicate<Node>) null, null);
+    }
+
+    @Test
+    public void testRemoveElementsWithNodeOrEdgeOnlyViews() {
+        GraphStore graphStore = GraphGenerator.generateSmallGraphStore();
+        GraphViewStore store = graphStore.viewStore;
+        GraphViewImpl edgeView = store.createView(false, true);
+        GraphViewImpl nodeView = store.createView(true, false);
+        nodeView.fill();
+        edgeView.fill();
+
+        Edge edge = graphStore.getEdges().toArray()[0];
+        graphStore.removeEdge(edge);
+        Assert.assertEquals(nodeView.getEdgeCount(), graphStore.getEdgeCount());
+        graphStore.removeNode(graphStore.getNodes().toArray()[0]);
+        Assert.assertEquals(nodeView.getNodeCount(), graphStore.getNodeCount());
+        Assert.assertEquals(edgeView.getEdgeCount(), graphStore.getEdgeCount());
+    }
+
+    @Test
+    public void testAddEdgeWithManyViews() {
+        GraphStore graphStore = GraphGenerator.generateSmallGraphStore();
+        GraphViewStore store = graphStore.viewStore;
+        GraphViewImpl[] views = new GraphViewImpl[50];
+        for (int i = 0; i < views.length; i++) {
+            views[i] = store.createView();
+        }
+        GraphViewImpl nodeView = store.createView(true, false);
+        nodeView.fill();
+        Assert.assertEquals(store.nodeOnlyViews.length, 1);
+
+        Node[] nodes = graphStore.getNodes().toArray();
+        EdgeImpl edge = new EdgeImpl("new", (NodeImpl) nodes[0], (NodeImpl) nodes[1], 0, 1.0, true);
+        graphStore.addEdge(edge);
+        Assert.assertTrue(nodeView.containsEdge(edge));
+        for (GraphViewImpl view : views) {
+            Assert.assertEquals(view.getEdgeCount(), 0);
+        }
+
+        store.destroyView(nodeView);
+        Assert.assertEquals(store.nodeOnlyViews.length, 0);
+    }
+
+    @Test
+    public void testMutualCountsAfterStoreChanges() {
+        GraphStore graphStore = GraphGenerator.generateSmallGraphStore();
+        GraphViewStore store = graphStore.viewStore;
+        GraphViewImpl view = store.createView();
+        view.fill();
+        GraphViewImpl nodeView = store.createView(true, false);
+        nodeView.fill();
+
+        Edge[] edges = graphStore.getEdges().toArray();
+        for (Edge edge : edges) {
+            if (!edge.isSelfLoop() && graphStore.getEdge(edge.getTarget(), edge.getSource()) == null) {
+                graphStore.addEdge(new EdgeImpl("reverse", (NodeImpl) edge.getTarget(), (NodeImpl) edge.getSource(), 0, 1.0, true));
+                break;
+            }
+        }
+        Assert.assertEquals(view.getUndirectedEdgeCount(), graphStore.edgeStore.undirectedSize() - 1);
+        Assert.assertEquals(nodeView.getUndirectedEdgeCount(), graphStore.edgeStore.undirectedSize());
+
+        for (Edge edge : edges) {
+            if (((EdgeImpl) edge).isMutual()) {
+                graphStore.removeEdge(edge);
+            }
+        }
+        GraphViewImpl expected = store.createView();
+        expected.fill();
+        Assert.assertEquals(nodeView.getUndirectedEdgeCount(), expected.getUndirectedEdgeCount());
+        Assert.assertEquals(nodeView.getUndirectedEdgeCount(0), expected.getUndirectedEdgeCount(0));
+
+        //Views aren't touched when a pair changes, they recount on the next query
+        int undirectedCount = view.getUndirectedEdgeCount();
+        int mutualVersion = view.mutualVersion;
+        Assert.assertEquals(mutualVersion, graphStore.edgeStore.mutualVersion);
+        for (Edge edge : graphStore.getEdges().toArray()) {
+            if (!edge.isSelfLoop() && graphStore.getEdge(edge.getTarget(), edge.getSource()) == null) {
+                graphStore.addEdge(new EdgeImpl("reverse2", (NodeImpl) edge.getTarget(), (NodeImpl) edge.getSource(), 0, 1.0, true));
+                break;
+            }
+        }
+        //Hashing and equality don't recount either
+        view.hashCode();
+        Assert.assertTrue(view.equals(view));
+        Assert.assertEquals(view.mutualVersion, mutualVersion);
+        Assert.assertEquals(view.getUndirectedEdgeCount(), undirectedCount);
+        Assert.assertEquals(view.mutualVersion, graphStore.edgeStore.mutualVersion);
+    }
+
+    @Test
+    public void testSparseViewIteration() {
+        GraphStore graphStore = GraphGenerator.generateSmallGraphStore();
+        GraphViewStore store = graphStore.viewStore;
+        GraphViewImpl view = store.createView();
+        addSomeElements(graphStore, view, 0.1, 1234);
+        DirectedSubgraph graph = view.getDirectedGraph();
+
+        ObjectSet<Node> nodes = new ObjectOpenHashSet<Node>();
+        for (Node n : graphStore.getNodes()) {
+            if (view.containsNode((NodeImpl) n)) {
+                nodes.add(n);
+            }
+        }
+        ObjectSet<Edge> edges = new ObjectOpenHashSet<Edge>();
+        for (Edge e : graphStore.getEdges()) {
+            if (view.containsEdge((EdgeImpl) e)) {
+                edges.add(e);
+            }
+        }
+        Assert.assertEquals(new ObjectOpenHashSet<Node>(graph.getNodes().toArray()), nodes);
+        Assert.assertEquals(new ObjectOpenHashSet<Edge>(graph.getEdges().toArray()), edges);
+        Assert.assertEquals(graphStore.lock.readWriteLock.getReadLockCount(), 0);
+    }
+
+    @Test
+    public void testViewIteratorRemove() {
+        GraphStore graphStore = GraphGenerator.generateSmallGraphStore();
+        GraphViewStore store = graphStore.viewStore;
+        GraphViewImpl view = store.createView();
+        addSomeElements(graphStore, view);
+        DirectedSubgraph graph = view.getDirectedGraph();
+
+        graph.writeLock();
+        try {
+            int count = 0;
+            for (Iterator<Node> itr = graph.getNodes().iterator(); itr.hasNext();) {
+                itr.next();
+                if (count++ % 2 == 0) {
+                    itr.remove();
+                }
+            }
+            Assert.assertEquals(view.getNodeCount(), count / 2);
+            for (Iterator<Edge> itr = graph.getEdges().iterator(); itr.hasNext();) {
+                itr.next();
+                itr.remove();
+            }
+        } finally {
+            graph.writeUnlock();
+        }
+        Assert.assertEquals(view.getEdgeCount(), 0);
+        Assert.assertEquals(graph.getEdges().toArray().length, 0);
+    }
+
     //UTILITY
+    @Test
+    public void testCreateIndexView() {
+        GraphModelImpl graphModel = createWeightedGraphModel(60, 200);
+        Column group = graphModel.getNodeTable().addColumn("group", String.class);
+        Column flag = graphModel.getNodeTable().addColumn("flag", Boolean.class);
+        Column kind = graphModel.getEdgeTable().addColumn("kind", String.class);
+        for (Node n : graphModel.getGraph().getNodes()) {
+            int age = (Integer) n.getAttribute("age");
+            n.setAttribute(group, "g" + (age % 3));
+            n.setAttribute(flag, age < 30);
+        }
+        for (Edge e : graphModel.getGraph().getEdges()) {
+            e.setAttribute(kind, e.getType() == 0 ? "a" : "b");
+        }
+
+        GraphViewImpl nodeView = (GraphViewImpl) graphModel.createIndexView(group, "g1");
+        assertMatchesPredicates(graphModel, nodeView, ElementPredicates.<Node>equal(group, "g1"), null);
+
+        GraphViewImpl edgeView = (GraphViewImpl) graphModel.createIndexView(kind, "a");
+        assertMatchesPredicates(graphModel, edgeView, null, ElementPredicates.<Edge>equal(kind, "a"));
+
+        GraphViewImpl flagView = (GraphViewImpl) graphModel.createIndexView(flag, Boolean.TRUE);
+        GraphViewImpl both = (GraphViewImpl) graphModel.createIntersectionView(nodeView, flagView);
+        ElementPredicate<Node> predicate = ElementPredicates.and(ElementPredicates.<Node>equal(group, "g1"), ElementPredicates.<Node>equal(flag, Boolean.TRUE));
+        assertMatchesPredicates(graphModel, both, predicate, null);
+
+        //Index views are snapshots
+        Node n = graphModel.getGraph().getNodes().toArray()[0];
+        n.setAttribute(group, "g1".equals(n.getAttribute(group)) ? "g2" : "g1");
+        Assert.assertEquals(nodeView.getDirectedGraph().contains(n), !"g1".equals(n.getAttribute(group)));
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void testCreateIndexViewNotIndexed() {
+        GraphModelImpl graphModel = new GraphModelImpl();
+        Column column = graphModel.getNodeTable().addColumn("foo", "foo", String.class, Origin.DATA, null, false);
+        graphModel.createIndexView(column, "bar");
+    }
+
     private boolean isIterablesEqual(ElementIterable n1, ElementIterable n2) {
         ObjectSet s1 = new ObjectOpenHashSet();
         for (Object n : n1) {
@@ -1092,6 +1877,45 @@ public class GraphViewStoreTest {
         return s1.equals(s2);
     }
 
+    private GraphModelImpl createWeightedGraphModel(int nodeCount, int edgeCount) {
+        GraphModelImpl graphModel = new GraphModelImpl();
+        Column age = graphModel.getNodeTable().addColumn("age", Integer.class);
+        Graph graph = graphModel.getGraph();
+        Random rand = new Random(4242);
+        Node[] nodes = new Node[nodeCount];
+        for (int i = 0; i < nodeCount; i++) {
+            nodes[i] = graphModel.factory().newNode(String.valueOf(i));
+            nodes[i].setAttribute(age, i);
+            graph.addNode(nodes[i]);
+        }
+        for (int i = 0; i < edgeCount; i++) {
+            Node source = nodes[rand.nextInt(nodeCount)];
+            Node target = nodes[rand.nextInt(nodeCount)];
+            if (graph.getEdge(source, target, i % 2) == null) {
+                graph.addEdge(graphModel.factory().newEdge(source, target, i % 2, rand.nextDouble(), true));
+            }
+        }
+        return graphModel;
+    }
+
+    private void assertMatchesPredicates(GraphModelImpl graphModel, GraphViewImpl view, ElementPredicate<Node> nodePredicate, ElementPredicate<Edge> edgePredicate) {
+        RoaringBitmap nodes = new RoaringBitmap();
+        for (Node n : graphModel.getGraph().getNodes()) {
+            if (nodePredicate != null && nodePredicate.evaluate(n)) {
+                nodes.set(((NodeImpl) n).storeId);
+            }
+        }
+        RoaringBitmap edges = new RoaringBitmap();
+        for (Edge e : graphModel.getGraph().getEdges()) {
+            if (edgePredicate != null && edgePredicate.evaluate(e)) {
+                edges.set(((EdgeImpl) e).storeId);
+            }
+        }
+        GraphViewImpl expected = new GraphViewImpl(graphModel.store, nodePredicate != null, edgePredicate != null);
+        expected.setBitVectors(nodes, edges);
+        assertSameElements(view, expected);
+    }
+
     private GraphStore convertToStore(GraphViewImpl view) {
         GraphStore store = new GraphStore();
         DirectedSubgraph graph = view.getDirectedGraph();
@@ -1109,8 +1933,11 @@ public class GraphViewStoreTest {
     }
 
     private void addSomeElements(GraphStore store, GraphViewImpl view) {
-        double perc = 0.8;
-        Random rand = new Random(98324);
+        addSomeElements(store, view, 0.8, 98324);
+    }
+
+    private void addSomeElements(GraphStore store, GraphViewImpl view, double perc, long seed) {
+        Random rand = new Random(seed);
         for (Node n : store.getNodes()) {
             if (rand.nextDouble() <= perc) {
                 view.addNode(n);
@@ -1124,4 +1951,16 @@ public class GraphViewStoreTest {
             }
         }
     }
+
+    private void assertSameElements(GraphViewImpl view, GraphViewImpl expected) {
+        Assert.assertEquals(view.nodeBitVector, expected.nodeBitVector);
+        Assert.assertEquals(view.edgeBitVector, expected.edgeBitVector);
+        Assert.assertEquals(view.getNodeCount(), expected.getNodeCount());
+        Assert.assertEquals(view.getEdgeCount(), expected.getEdgeCount());
+        Assert.assertEquals(view.getUndirectedEdgeCount(), expected.getUndirectedEdgeCount());
+        for (int type = 0; type < view.graphStore.edgeStore.longDictionary.length; type++) {
+            Assert.assertEquals(view.getEdgeCount(type), expected.getEdgeCount(type));
+            Assert.assertEquals(view.getUndirectedEdgeCount(type), expected.getUndirectedEdgeCount(type));
+        }
+    }
 }
@@ -0,0 +1,234 @@
+/*
+ * Copyright 2012-2013 Gephi Consortium
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.gephi.graph.store;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import org.gephi.attribute.api.Column;
+import org.gephi.attribute.api.Origin;
+import org.gephi.graph.api.Edge;
+import org.gephi.graph.api.GraphWriteBatch;
+import org.gephi.graph.api.Node;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+/**
+ *
+ * @author mbastian
+ */
+public class GraphWriteBatchTest {
+
+    @Test
+    public void testEmpty() {
+        GraphStore store = new GraphStore();
+        GraphWriteBatch batch = store.createWriteBatch();
+
+        Assert.assertTrue(batch.isEmpty());
+        Assert.assertEquals(batch.size(), 0);
+        int nodeVersion = store.version.nodeVersion;
+        batch.apply();
+        Assert.assertEquals(store.version.nodeVersion, nodeVersion);
+    }
+
+    @Test
+    public void testBuffered() {
+        GraphStore store = new GraphStore();
+        GraphWriteBatch batch = store.createWriteBatch();
+        batch.addNode(store.factory.newNode("0"));
+
+        Assert.assertEquals(batch.size(), 1);
+        Assert.assertEquals(store.getNodeCount(), 0);
+    }
+
+    @Test
+    public void testApply() {
+        GraphStore store = new GraphStore();
+        Node n1 = store.factory.newNode("1");
+        Node n2 = store.factory.newNode("2");
+        Node n3 = store.factory.newNode("3");
+        Edge e1 = store.factory.newEdge(n1, n2);
+        Edge e2 = store.factory.newEdge(n2, n3);
+
+        GraphWriteBatch batch = store.createWriteBatch();
+        batch.addNode(n1).addNode(n2).addNode(n3).addEdge(e1).addEdge(e2).removeEdge(e1).removeNode(n3);
+        batch.apply();
+
+        Assert.assertTrue(batch.isEmpty());
+        Assert.assertEquals(store.getNodeCount(), 2);
+        Assert.assertEquals(store.getEdgeCount(), 0);
+        Assert.assertTrue(store.contains(n1));
+        Assert.assertTrue(store.contains(n2));
+        Assert.assertFalse(store.contains(n3));
+        Assert.assertEquals(store.lock.readWriteLock.getWriteHoldCount(), 0);
+    }
+
+    @Test
+    public void testSingleVersionIncrement() {
+        GraphStore store = GraphGenerator.generateSmallGraphStore();
+        int nodeVersion = store.version.nodeVersion;
+        int edgeVersion = store.version.edgeVersion;
+
+        GraphWriteBatch batch = store.createWriteBatch();
+        for (Edge edge : store.getEdges().toArray()) {
+            batch.removeEdge(edge);
+        }
+        for (int i = 0; i < 10; i++) {
+            batch.addNode(store.factory.newNode("new" + i));
+        }
+        batch.apply();
+
+        Assert.assertEquals(store.getEdgeCount(), 0);
+        Assert.assertEquals(store.version.nodeVersion, nodeVersion + 1);
+        Assert.assertEquals(store.version.edgeVersion, edgeVersion + 1);
+    }
+
+    @Test
+    public void testObserver() {
+        GraphStore store = new GraphStore();
+        GraphObserverImpl graphObserver = store.createGraphObserver(store, true);
+        graphObserver.hasGraphChanged();
+
+        GraphWriteBatch batch = store.createWriteBatch();
+        Node[] nodes = new Node[5];
+        for (int i = 0; i < nodes.length; i++) {
+            nodes[i] = store.factory.newNode(String.valueOf(i));
+            batch.addNode(nodes[i]);
+        }
+        Assert.assertFalse(graphObserver.hasGraphChanged());
+        batch.apply();
+
+        Assert.assertTrue(graphObserver.hasGraphChanged());
+        Assert.assertFalse(graphObserver.hasGraphChanged());
+        Assert.assertEquals(graphObserver.getDiff().getAddedNodes().toArray().length, nodes.length);
+    }
+
+    @Test
+    public void testViewVersion() {
+        GraphStore store = GraphGenerator.generateSmallGraphStore();
+        GraphViewImpl view = store.viewStore.createView();
+        view.fill();
+        int edgeVersion = view.version.edgeVersion;
+
+        GraphWriteBatch batch = store.createWriteBatch();
+        for (Edge edge : store.getEdges().toArray()) {
+            batch.removeEdge(edge);
+        }
+        batch.apply();
+
+        Assert.assertEquals(view.getEdgeCount(), 0);
+        Assert.assertEquals(view.version.edgeVersion, edgeVersion + 1);
+    }
+
+    @Test
+    public void testSetAttribute() {
+        GraphStore store = new GraphStore();
+        store.nodeColumnStore.addColumn(new ColumnImpl("age", Integer.class, "Age", null, Origin.DATA, true, false));
+        Column column = store.nodeColumnStore.getColumn("age");
+        Node n1 = store.factory.newNode("1");
+        Node n2 = store.factory.newNode("2");
+
+        GraphWriteBatch batch = store.createWriteBatch();
+        batch.addNode(n1).addNode(n2);
+        batch.setAttribute(n2, column, 1).setAttribute(n1, column, 2).setAttribute(n2, column, 3);
+        batch.apply();
+
+        Assert.assertEquals(n1.getAttribute(column), 2);
+        Assert.assertEquals(n2.getAttribute(column), 3);
+        Assert.assertEquals(store.nodeColumnStore.indexStore.getIndex(store).count(column, 3), 1);
+        Assert.assertEquals(store.nodeColumnStore.indexStore.getIndex(store).count(column, 1), 0);
+    }
+
+    @Test
+    public void testSingleColumnVersionIncrement() {
+        GraphStore store = new GraphStore();
+        store.nodeColumnStore.addColumn(new ColumnImpl("age", Integer.class, "Age", null, Origin.DATA, false, false));
+        ColumnImpl column = (ColumnImpl) store.nodeColumnStore.getColumn("age");
+        Node n1 = store.factory.newNode("1");
+        Node n2 = store.factory.newNode("2");
+        store.addNode(n1);
+        store.addNode(n2);
+        int version = column.version.version;
+
+        GraphWriteBatch batch = store.createWriteBatch();
+        batch.setAttribute(n1, column, 1).setAttribute(n2, column, 2).setAttribute(n1, column, 3);
+        batch.apply();
+
+        Assert.assertEquals(column.version.version, version + 1);
+        Assert.assertEquals(column.version.batchDepth, 0);
+        n1.setAttribute(column, 4);
+        Assert.assertEquals(column.version.version, version + 2);
+    }
+
+    @Test
+    public void testSortNodesBeforeEdges() {
+        GraphStore store = GraphGenerator.generateSmallGraphStore();
+        Node[] nodes = store.getNodes().toArray();
+        Edge[] edges = store.getEdges().toArray();
+        Column label = store.nodeColumnStore.getColumn("label");
+
+        List<GraphWriteBatchImpl.Operation> run = new ArrayList<GraphWriteBatchImpl.Operation>();
+        run.add(new GraphWriteBatchImpl.Operation(GraphWriteBatchImpl.SET_ATTRIBUTE, (ElementImpl) edges[1], label, null));
+        run.add(new GraphWriteBatchImpl.Operation(GraphWriteBatchImpl.SET_ATTRIBUTE, (ElementImpl) nodes[1], label, null));
+        run.add(new GraphWriteBatchImpl.Operation(GraphWriteBatchImpl.SET_ATTRIBUTE, (ElementImpl) edges[0], label, null));
+        run.add(new GraphWriteBatchImpl.Operation(GraphWriteBatchImpl.SET_ATTRIBUTE, (ElementImpl) nodes[0], label, null));
+        Collections.sort(run, GraphWriteBatchImpl.STORE_ID_COMPARATOR);
+
+        Assert.assertSame(run.get(0).element, nodes[0]);
+        Assert.assertSame(run.get(1).element, nodes[1]);
+        Assert.assertSame(run.get(2).element, edges[0]);
+        Assert.assertSame(run.get(3).element, edges[1]);
+    }
+
+    @Test
+    public void testGraphModel() {
+        GraphModelImpl graphModel = new GraphModelImpl();
+        Node n1 = graphModel.factory().newNode("1");
+        Node n2 = graphModel.factory().newNode("2");
+
+        org.gephi.graph.api.GraphModel model = graphModel;
+        model.createWriteBatch().addNode(n1).addNode(n2).addEdge(graphModel.factory().newEdge(n1, n2)).apply();
+        Assert.assertEquals(graphModel.getGraph().getNodeCount(), 2);
+        Assert.assertEquals(graphModel.getGraph().getEdgeCount(), 1);
+    }
+
+    @Test
+    public void testFailure() {
+        GraphStore store = new GraphStore();
+        Node n1 = store.factory.newNode("1");
+        int nodeVersion = store.version.nodeVersion;
+
+        GraphWriteBatch batch = store.createWriteBatch();
+        batch.addNode(n1).addNode(store.factory.newNode("1"));
+        try {
+            batch.apply();
+            Assert.fail();
+        } catch (IllegalArgumentException e) {
+        }
+
+        Assert.assertTrue(batch.isEmpty());
+        Assert.assertTrue(store.contains(n1));
+        Assert.assertEquals(store.version.nodeVersion, nodeVersion + 1);
+        Assert.assertEquals(store.version.batchDepth, 0);
+        Assert.assertEquals(store.lock.readWriteLock.getWriteHoldCount(), 0);
+    }
+
+    @Test(expectedExceptions = NullPointerException.class)
+    public void testAddNull() {
+        GraphStore store = new GraphStore();
+        store.createWriteBatch().addNode(null);
+    }
+}
@@ -0,0 +1,147 @@
+/*
+ * Copyright 2012-2013 Gephi Consortium
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.gephi.graph.store;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+/**
+ *
+ * @author mbastian
+ */
+public class IdDictionaryTest {
+
+    @Test
+    public void testEmpty() {
+        IdDictionary dictionary = new IdDictionary(10, .7f);
+
+        Assert.assertEquals(dictionary.size(), 0);
+        Assert.assertEquals(dictionary.keyType, IdDictionary.UNKNOWN_KEY);
+        Assert.assertEquals(dictionary.getInt("foo"), IdDictionary.NULL_ID);
+        Assert.assertFalse(dictionary.containsKey("foo"));
+        Assert.assertEquals(dictionary.remove("foo"), IdDictionary.NULL_ID);
+    }
+
+    @Test
+    public void testLongKeys() {
+        IdDictionary dictionary = new IdDictionary(10, .7f);
+        dictionary.put(1l, 0);
+        dictionary.put(2l, 1);
+
+        Assert.assertEquals(dictionary.keyType, IdDictionary.LONG_KEY);
+        Assert.assertNull(dictionary.objectMap);
+        Assert.assertEquals(dictionary.size(), 2);
+        Assert.assertEquals(dictionary.getInt(2l), 1);
+        Assert.assertTrue(dictionary.containsKey(1l));
+        Assert.assertFalse(dictionary.containsKey(1));
+        Assert.assertEquals(dictionary.getInt(1), IdDictionary.NULL_ID);
+
+        Assert.assertEquals(dictionary.remove(1l), 0);
+        Assert.assertFalse(dictionary.containsKey(1l));
+        Assert.assertEquals(dictionary.size(), 1);
+    }
+
+    @Test
+    public void testIntegerKeys() {
+        IdDictionary dictionary = new IdDictionary(10, .7f);
+        dictionary.put(1, 0);
+        dictionary.put(2, 1);
+
+        Assert.assertEquals(dictionary.keyType, IdDictionary.INTEGER_KEY);
+        Assert.assertEquals(dictionary.getInt(2), 1);
+        Assert.assertFalse(dictionary.containsKey("1"));
+        Assert.assertEquals(dictionary.remove(2), 1);
+        Assert.assertEquals(dictionary.size(), 1);
+    }
+
+    @Test
+    public void testObjectKeys() {
+        IdDictionary dictionary = new IdDictionary(10, .7f);
+        dictionary.put("1", 0);
+
+        Assert.assertEquals(dictionary.keyType, IdDictionary.OBJECT_KEY);
+        Assert.assertEquals(dictionary.getInt("1"), 0);
+        Assert.assertEquals(dictionary.getInt(1), IdDictionary.NULL_ID);
+    }
+
+    @Test
+    public void testMixedKeys() {
+        IdDictionary dictionary = new IdDictionary(10, .7f);
+        dictionary.put(1, 0);
+        dictionary.put(1l, 1);
+        dictionary.put("1", 2);
+
+        Assert.assertEquals(dictionary.keyType, IdDictionary.OBJECT_KEY);
+        Assert.assertNull(dictionary.intMap);
+        Assert.assertEquals(dictionary.size(), 3);
+        Assert.assertEquals(dictionary.getInt(1), 0);
+        Assert.assertEquals(dictionary.getInt(1l), 1);
+        Assert.assertEquals(dictionary.getInt("1"), 2);
+    }
+
+    @Test
+    public void testEnsureCapacity() {
+        IdDictionary dictionary = new IdDictionary(10, .7f);
+        dictionary.ensureCapacity(100);
+        Assert.assertEquals(dictionary.expectedSize, 100);
+
+        for (int i = 0; i < 50; i++) {
+            dictionary.put(i, i);
+        }
+        dictionary.ensureCapacity(1000);
+        Assert.assertEquals(dictionary.size(), 50);
+        for (int i = 0; i < 50; i++) {
+            Assert.assertEquals(dictionary.getInt(i), i);
+        }
+    }
+
+    @Test
+    public void testFixedLongKeys() {
+        IdDictionary dictionary = new IdDictionary(10, .7f, Long.class);
+
+        Assert.assertEquals(dictionary.keyType, IdDictionary.LONG_KEY);
+        Assert.assertNotNull(dictionary.longMap);
+        dictionary.put(1l, 0);
+        Assert.assertEquals(dictionary.getInt(1l), 0);
+        Assert.assertFalse(dictionary.containsKey(1));
+    }
+
+    @Test
+    public void testFixedStringKeys() {
+        IdDictionary dictionary = new IdDictionary(10, .7f, String.class);
+
+        Assert.assertEquals(dictionary.keyType, IdDictionary.OBJECT_KEY);
+        dictionary.put("1", 0);
+        Assert.assertEquals(dictionary.getInt("1"), 0);
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void testFixedTypeRejectsOtherIds() {
+        IdDictionary dictionary = new IdDictionary(10, .7f, Long.class);
+        dictionary.put(1, 0);
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void testUnsupportedIdType() {
+        new IdDictionary(10, .7f, Double.class);
+    }
+
+    @Test(expectedExceptions = NullPointerException.class)
+    public void testPutNull() {
+        IdDictionary dictionary = new IdDictionary(10, .7f);
+        dictionary.put(null, 0);
+    }
+}
@@ -20,6 +20,7 @@ import it.unimi.dsi.fastutil.objects.Object2IntOpenHashMap;
 import it.unimi.dsi.fastutil.objects.ObjectOpenHashSet;
 import it.unimi.dsi.fastutil.objects.ObjectSet;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.List;
 import java.util.Map;
@@ -27,6 +28,7 @@ import java.util.Random;
 import java.util.Set;
 import org.gephi.attribute.api.Column;
 import org.gephi.attribute.api.Origin;
+import org.gephi.graph.api.Graph;
 import org.gephi.graph.api.Node;
 import org.testng.Assert;
 import org.testng.annotations.Test;
@@ -342,7 +344,324 @@ public class IndexImplTest {
 
     }
 
+    @Test
+    public void testRangeCount() {
+        IndexImpl<Node> index = generateEmptyIndex();
+        NodeImpl[] nodes = generateNodesWithUniqueAttributes(index, true);
+        putAll(nodes, index);
+
+        Column ageCol = index.columnStore.getColumn("age");
+        int[][] ranges = new int[][]{{0, 99}, {10, 20}, {20, 10}, {-5, 3}, {50, 50}, {98, 200}};
+        for (int[] range : ranges) {
+            int expected = 0;
+            for (NodeImpl n : nodes) {
+                Integer v = (Integer) n.getAttribute(ageCol);
+                if (v != null && v >= range[0] && v <= range[1]) {
+                    expected++;
+                }
+            }
+            Assert.assertEquals(index.count(ageCol, range[0], range[1]), expected);
+            Assert.assertEquals(getIterable(index.get(ageCol, range[0], range[1])).length, expected);
+        }
+        Assert.assertEquals(index.count(ageCol, null, null), index.countElements(ageCol) - index.count(ageCol, null));
+    }
+
+    @Test
+    public void testRangeGetOrder() {
+        IndexImpl<Node> index = generateEmptyIndex();
+        NodeImpl[] nodes = generateNodesWithUniqueAttributes(index, false);
+        putAll(nodes, index);
+
+        Column ageCol = index.columnStore.getColumn("age");
+        Node[] ascending = getIterable(index.get(ageCol, 10, 19));
+        Node[] descending = getIterable(index.get(ageCol, 10, 19, false));
+        Assert.assertEquals(ascending.length, 10);
+        for (int i = 0; i < 10; i++) {
+            Assert.assertEquals(ascending[i].getAttribute(ageCol), 10 + i);
+            Assert.assertSame(descending[9 - i], ascending[i]);
+        }
+
+        Node[] all = getIterable(index.get(ageCol, null, null, false));
+        Assert.assertEquals(all.length, nodes.length);
+        Assert.assertEquals(all[0].getAttribute(ageCol), 99);
+        Assert.assertEquals(getIterable(index.get(ageCol, null, 1)).length, 2);
+        Assert.assertEquals(getIterable(index.get(ageCol, 98, null)).length, 2);
+    }
+
+    @Test
+    public void testRangeDecimalBounds() {
+        IndexImpl<Node> index = generateEmptyIndex();
+        NodeImpl[] nodes = generateNodesWithUniqueAttributes(index, false);
+        putAll(nodes, index);
+
+        Column ageCol = index.columnStore.getColumn("age");
+        Assert.assertEquals(index.count(ageCol, 9.5, 12.5), 3);
+        Assert.assertEquals(index.count(ageCol, 10.0, 12.0), 3);
+        Assert.assertEquals(index.count(ageCol, 10l, 12l), 3);
+        Assert.assertEquals(index.count(ageCol, 10.2, 10.8), 0);
+    }
+
+    @Test
+    public void testRangeDoubleColumn() {
+        ColumnStore<Node> columnStore = generateEmptyNodeStore();
+        Column column = new ColumnImpl("score", Double.class, null, null, Origin.DATA, true, false);
+        columnStore.addColumn(column);
+        IndexImpl<Node> index = columnStore.indexStore.mainIndex;
+
+        NodeImpl[] nodes = new NodeImpl[10];
+        for (int i = 0; i < nodes.length; i++) {
+            nodes[i] = new NodeImpl(i);
+            index.put(column, i / 10.0, nodes[i]);
+        }
+        Assert.assertEquals(index.count(column, 0.25, 0.55), 3);
+        Assert.assertEquals(index.count(column, 0.3, 0.3), 1);
+        Assert.assertEquals(index.count(column, 0, 1), 10);
+        Node[] range = getIterable(index.get(column, 0.15, 0.35, false));
+        Assert.assertEquals(range, new Node[]{nodes[3], nodes[2]});
+    }
+
+    @Test
+    public void testRangeAfterChanges() {
+        IndexImpl<Node> index = generateEmptyIndex();
+        NodeImpl[] nodes = generateNodesWithUniqueAttributes(index, false);
+        putAll(nodes, index);
+
+        Column ageCol = index.columnStore.getColumn("age");
+        Iterable<Node> before = index.get(ageCol, 0, 9);
+        Assert.assertEquals(index.count(ageCol, 0, 9), 10);
+
+        index.remove(ageCol, 5, nodes[5]);
+        Assert.assertEquals(index.count(ageCol, 0, 9), 9);
+        index.set(ageCol, 50, 3, nodes[50]);
+        Assert.assertEquals(index.count(ageCol, 0, 9), 10);
+        Assert.assertEquals(index.count(ageCol, 3, 3), 2);
+
+        //Iterables reflect the index at the time of the call
+        Assert.assertEquals(getIterable(before).length, 10);
+        Assert.assertTrue(Arrays.asList(getIterable(before)).contains(nodes[5]));
+    }
+
+    @Test
+    public void testRangePatchedIncrementally() {
+        ColumnStore<Node> columnStore = generateEmptyNodeStore();
+        Column column = new ColumnImpl("score", Double.class, null, null, Origin.DATA, true, false);
+        columnStore.addColumn(column);
+        IndexImpl<Node> index = columnStore.indexStore.mainIndex;
+        IndexImpl.AbstractIndex columnIndex = index.getIndex((ColumnImpl) column);
+
+        Random random = new Random(42);
+        NodeImpl[] nodes = new NodeImpl[200];
+        Double[] values = new Double[nodes.length];
+        for (int i = 0; i < nodes.length; i++) {
+            nodes[i] = new NodeImpl(i);
+            values[i] = (double) random.nextInt(50);
+            index.put(column, values[i], nodes[i]);
+        }
+        Assert.assertEquals(index.count(column, null, null), nodes.length);
+        IndexImpl.SortedPostings postings = columnIndex.sortedPostings;
+        Assert.assertNotNull(postings);
+
+        for (int step = 0; step < 1000; step++) {
+            int i = random.nextInt(nodes.length);
+            Double value = random.nextInt(10) == 0 ? null : (double) random.nextInt(80) - 10;
+            index.set(column, values[i], value, nodes[i]);
+            values[i] = value;
+
+            double from = random.nextInt(90) - 20;
+            double to = from + random.nextInt(40);
+            int expected = 0;
+            for (Double v : values) {
+                if (v != null && v >= from && v <= to) {
+                    expected++;
+                }
+            }
+            Assert.assertEquals(index.count(column, from, to), expected);
+            Assert.assertEquals(getIterable(index.get(column, from, to)).length, expected);
+        }
+        Assert.assertSame(columnIndex.sortedPostings, postings);
+        Assert.assertEquals(postings.size, index.countValues(column) - (index.count(column, null) > 0 ? 1 : 0));
+    }
+
+    @Test
+    public void testRangeManyDistinctValuesAfterQuery() {
+        ColumnStore<Node> columnStore = generateEmptyNodeStore();
+        Column column = new ColumnImpl("score", Double.class, null, null, Origin.DATA, true, false);
+        columnStore.addColumn(column);
+        IndexImpl<Node> index = columnStore.indexStore.mainIndex;
+        IndexImpl.AbstractIndex columnIndex = index.getIndex((ColumnImpl) column);
+
+        Assert.assertEquals(index.count(column, null, null), 0);
+        IndexImpl.SortedPostings postings = columnIndex.sortedPostings;
+        Assert.assertNotNull(postings);
+
+        Random random = new Random(7);
+        int count = 20000;
+        NodeImpl[] nodes = new NodeImpl[count];
+        double[] values = new double[count];
+        for (int i = 0; i < count; i++) {
+            nodes[i] = new NodeImpl(i);
+            values[i] = random.nextDouble();
+            index.put(column, values[i], nodes[i]);
+        }
+        Assert.assertSame(columnIndex.sortedPostings, postings);
+        Assert.assertEquals(postings.size, count);
+        Assert.assertTrue(postings.chunkCount > 1);
+        assertRangeCounts(index, column, values, count, random);
+
+        for (int i = 0; i < count; i += 2) {
+            index.remove(column, values[i], nodes[i]);
+        }
+        Assert.assertSame(columnIndex.sortedPostings, postings);
+        Assert.assertEquals(postings.size, count / 2);
+        double[] remaining = new double[count / 2];
+        for (int i = 1; i < count; i += 2) {
+            remaining[i / 2] = values[i];
+        }
+        assertRangeCounts(index, column, remaining, remaining.length, random);
+    }
+
+        @Test
+    public void testRangeArrayColumn() {
+        ColumnStore<Node> columnStore = generateEmptyNodeStore();
+        Column column = new ColumnImpl("c", int[].class, null, null, Origin.DATA, true, false);
+        columnStore.addColumn(column);
+        IndexImpl<Node> index = columnStore.indexStore.mainIndex;
+
+        NodeImpl n1 = new NodeImpl(0);
+        index.put(column, new int[]{1, 5}, n1);
+        Assert.assertEquals(index.count(column, 0, 3), 1);
+        Assert.assertEquals(index.count(column, 0, 10), 2);
+    }
+
+    @Test(expectedExceptions = UnsupportedOperationException.class)
+    public void testRangeNoNumber() {
+        IndexImpl<Node> index = generateEmptyIndex();
+        index.count(index.columnStore.getColumn("foo"), 0, 1);
+    }
+
+    @Test
+    public void testBitmapPostings() {
+        GraphModelImpl graphModel = new GraphModelImpl();
+        Column flag = graphModel.getNodeTable().addColumn("flag", Boolean.class);
+        Column group = graphModel.getNodeTable().addColumn("group", String.class);
+        NodeImpl[] nodes = addNodesWithGroups(graphModel, flag, group, 100);
+
+        IndexImpl<Node> index = (IndexImpl<Node>) graphModel.getNodeIndex();
+        Assert.assertEquals(index.count(flag, Boolean.TRUE), 50);
+        Assert.assertEquals(index.count(flag, Boolean.FALSE), 50);
+        Assert.assertEquals(index.count(group, "g0"), 34);
+        Assert.assertEquals(index.count(group, "g1"), 33);
+        Assert.assertEquals(index.count(group, "g4"), 0);
+        for (Node n : index.get(group, "g2")) {
+            Assert.assertEquals(n.getAttribute(group), "g2");
+        }
+        Assert.assertEquals(getIterable(index.get(group, "g2")).length, 33);
+
+        RoaringBitmap bitmap = index.getBitmap((ColumnImpl) group, "g0");
+        Assert.assertEquals(bitmap.cardinality(), 34);
+        Assert.assertTrue(bitmap.get(nodes[3].storeId));
+        Assert.assertFalse(bitmap.get(nodes[4].storeId));
+
+        graphModel.getGraph().removeNode(nodes[3]);
+        Assert.assertEquals(index.count(group, "g0"), 33);
+        Assert.assertFalse(Arrays.asList(getIterable(index.get(group, "g0"))).contains(nodes[3]));
+
+        //Bitmaps are copies
+        Assert.assertEquals(bitmap.cardinality(), 34);
+    }
+
+    @Test
+    public void testBitmapPostingsRemoveLastValue() {
+        GraphModelImpl graphModel = new GraphModelImpl();
+        Column flag = graphModel.getNodeTable().addColumn("flag", Boolean.class);
+        NodeImpl n1 = (NodeImpl) graphModel.factory().newNode("1");
+        n1.setAttribute(flag, Boolean.TRUE);
+        graphModel.getGraph().addNode(n1);
+
+        IndexImpl<Node> index = (IndexImpl<Node>) graphModel.getNodeIndex();
+        Assert.assertEquals(index.count(flag, Boolean.TRUE), 1);
+        n1.setAttribute(flag, Boolean.FALSE);
+        Assert.assertEquals(index.count(flag, Boolean.TRUE), 0);
+        Assert.assertEquals(index.count(flag, Boolean.FALSE), 1);
+        graphModel.getGraph().removeNode(n1);
+        Assert.assertEquals(index.count(flag, Boolean.FALSE), 0);
+    }
+
+    @Test
+    public void testBitmapPostingsReorder() {
+        GraphModelImpl graphModel = new GraphModelImpl();
+        Column flag = graphModel.getNodeTable().addColumn("flag", Boolean.class);
+        Column group = graphModel.getNodeTable().addColumn("group", String.class);
+        NodeImpl[] nodes = addNodesWithGroups(graphModel, flag, group, 50);
+        Graph graph = graphModel.getGraph();
+        for (int i = 0; i < 49; i++) {
+            graph.addEdge(graphModel.factory().newEdge(nodes[(i * 7) % 50], nodes[(i * 13 + 1) % 50]));
+        }
+        graph.removeNode(nodes[10]);
+        graph.removeNode(nodes[25]);
+
+        graphModel.store.reorder();
+
+        IndexImpl<Node> index = (IndexImpl<Node>) graphModel.getNodeIndex();
+        for (String value : new String[]{"g0", "g1", "g2"}) {
+            RoaringBitmap bitmap = index.getBitmap((ColumnImpl) group, value);
+            int count = 0;
+            for (Node n : graph.getNodes()) {
+                NodeImpl node = (NodeImpl) n;
+                boolean match = value.equals(n.getAttribute(group));
+                Assert.assertEquals(bitmap.get(node.storeId), match);
+                if (match) {
+                    count++;
+                }
+            }
+            Assert.assertEquals(bitmap.cardinality(), count);
+            Assert.assertEquals(getIterable(index.get(group, value)).length, count);
+        }
+        for (Node n : index.get(flag, Boolean.TRUE)) {
+            Assert.assertEquals(n.getAttribute(flag), Boolean.TRUE);
+        }
+    }
+
+    @Test
+    public void testBitmapPostingsHighCardinality() {
+        GraphModelImpl graphModel = new GraphModelImpl();
+        Column flag = graphModel.getNodeTable().addColumn("flag", Boolean.class);
+        Column group = graphModel.getNodeTable().addColumn("group", String.class);
+        Column name = graphModel.getNodeTable().addColumn("name", String.class);
+        int count = GraphStoreConfiguration.INDEX_BITMAP_MAX_VALUES * 2;
+        NodeImpl[] nodes = addNodesWithGroups(graphModel, flag, group, count);
+        for (NodeImpl node : nodes) {
+            node.setAttribute(name, "n" + node.getId());
+        }
+
+        IndexImpl<Node> index = (IndexImpl<Node>) graphModel.getNodeIndex();
+        Assert.assertTrue(((IndexImpl.DefaultIndex) index.getIndex((ColumnImpl) group)).lowCardinality);
+        Assert.assertFalse(((IndexImpl.DefaultIndex) index.getIndex((ColumnImpl) name)).lowCardinality);
+
+        Assert.assertEquals(index.countValues(name), count);
+        for (NodeImpl node : nodes) {
+            Object value = node.getAttribute(name);
+            Assert.assertEquals(index.count(name, value), 1);
+            Assert.assertEquals(getIterable(index.get(name, value)), new Node[]{node});
+            Assert.assertTrue(index.getBitmap((ColumnImpl) name, value).get(node.storeId));
+        }
+        graphModel.getGraph().removeNode(nodes[0]);
+        Assert.assertEquals(index.count(name, "n0"), 0);
+        Assert.assertEquals(index.countValues(name), count - 1);
+    }
+
     //UTILITIES
+    private NodeImpl[] addNodesWithGroups(GraphModelImpl graphModel, Column flag, Column group, int count) {
+        NodeImpl[] nodes = new NodeImpl[count];
+        for (int i = 0; i < count; i++) {
+            nodes[i] = (NodeImpl) graphModel.factory().newNode(String.valueOf(i));
+            nodes[i].setAttribute(flag, i % 2 == 0);
+            nodes[i].setAttribute(group, "g" + (i % 3));
+            graphModel.getGraph().addNode(nodes[i]);
+        }
+        return nodes;
+    }
+
     private NodeImpl[] generateNodesWithUniqueAttributes(IndexImpl<Node> index, boolean withNulls) {
         int count = 100;
         Random random = new Random(342);
@@ -399,4 +718,20 @@ public class IndexImplTest {
         }
         return list.toArray(new Node[0]);
     }
+
+    private void assertRangeCounts(IndexImpl<Node> index, Column column, double[] values, int length, Random random) {
+        for (int step = 0; step < 50; step++) {
+            double from = random.nextDouble();
+            double to = from + random.nextDouble() / 4;
+            int expected = 0;
+            for (int i = 0; i < length; i++) {
+                if (values[i] >= from && values[i] <= to) {
+                    expected++;
+                }
+            }
+            Assert.assertEquals(index.count(column, from, to), expected);
+            Assert.assertEquals(getIterable(index.get(column, from, to)).length, expected);
+        }
+        Assert.assertEquals(index.count(column, null, null), length);
+    }
 }
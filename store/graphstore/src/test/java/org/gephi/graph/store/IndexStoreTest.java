@@ -108,6 +108,84 @@ public class IndexStoreTest {
     }
 
     @Test
+    public void testIndexNodes() {
+        ColumnStore<Node> columnStore = generateBasicNodeColumnStore();
+        IndexStore<Node> indexStore = columnStore.indexStore;
+        IndexImpl<Node> mainIndex = indexStore.mainIndex;
+
+        Column col1 = columnStore.getColumn("foo");
+
+        NodeImpl[] nodes = new NodeImpl[]{new NodeImpl("0"), new NodeImpl("1"), new NodeImpl("2")};
+        nodes[0].setAttribute(col1, "A");
+        nodes[1].setAttribute(col1, "A");
+        nodes[2].setAttribute(col1, "B");
+        indexStore.index(nodes, 2);
+
+        Assert.assertEquals(mainIndex.count(col1, "A"), 2);
+        Assert.assertEquals(mainIndex.count(col1, "B"), 0);
+        Assert.assertEquals(mainIndex.countElements(col1), 2);
+    }
+
+    @Test
+    public void testIndexNodesPublishesCopy() {
+        ColumnStore<Node> columnStore = generateBasicNodeColumnStore();
+        IndexStore<Node> indexStore = columnStore.indexStore;
+
+        Column col1 = columnStore.getColumn("foo");
+
+        NodeImpl[] nodes = new NodeImpl[]{new NodeImpl("0"), new NodeImpl("1")};
+        nodes[0].setAttribute(col1, new String("A"));
+        nodes[1].setAttribute(col1, new String("A"));
+        Object[] attributes = nodes[1].attributes;
+        Object value = attributes[col1.getIndex()];
+        indexStore.index(nodes, 2);
+
+        Assert.assertNotSame(nodes[1].attributes, attributes);
+        Assert.assertSame(attributes[col1.getIndex()], value);
+        Assert.assertSame(nodes[1].getAttribute(col1), nodes[0].getAttribute(col1));
+    }
+
+    @Test
+    public void testIndexNodesGroupedByValue() {
+        ColumnStore<Node> columnStore = generateBasicNodeColumnStore();
+        columnStore.addColumn(new ColumnImpl("tags", int[].class, "Tags", null, Origin.DATA, true, false));
+        IndexStore<Node> indexStore = columnStore.indexStore;
+        IndexImpl<Node> mainIndex = indexStore.mainIndex;
+        Column foo = columnStore.getColumn("foo");
+        Column age = columnStore.getColumn("age");
+        Column tags = columnStore.getColumn("tags");
+
+        //Range postings built before the batch are patched
+        Assert.assertEquals(mainIndex.count(age, 0, 10), 0);
+
+        NodeImpl[] nodes = new NodeImpl[30];
+        for (int i = 0; i < nodes.length; i++) {
+            nodes[i] = new NodeImpl(String.valueOf(i));
+            nodes[i].setAttribute(foo, i % 5 == 0 ? null : new String("v" + (i % 3)));
+            nodes[i].setAttribute(age, i % 10);
+            nodes[i].setAttribute(tags, new int[]{i % 2, 2});
+        }
+        indexStore.index(nodes, nodes.length);
+
+        Assert.assertEquals(mainIndex.count(foo, null), 6);
+        Assert.assertEquals(mainIndex.count(foo, "v0") + mainIndex.count(foo, "v1") + mainIndex.count(foo, "v2"), 24);
+        Assert.assertEquals(mainIndex.countValues(foo), 4);
+        Assert.assertEquals(mainIndex.countElements(foo), 30);
+        Assert.assertEquals(mainIndex.count(age, 3), 3);
+        Assert.assertEquals(mainIndex.count(age, 0, 4), 15);
+        Assert.assertEquals(mainIndex.count(tags, 2), 30);
+        Assert.assertEquals(mainIndex.count(tags, 1), 15);
+
+        //Equal values share the indexed instance
+        Object value = nodes[1].getAttribute(foo);
+        for (NodeImpl node : nodes) {
+            if (value.equals(node.getAttribute(foo))) {
+                Assert.assertSame(node.getAttribute(foo), value);
+            }
+        }
+    }
+
+        @Test
     public void testIndexNodeNullValue() {
         ColumnStore<Node> columnStore = generateBasicNodeColumnStore();
         IndexStore<Node> indexStore = columnStore.indexStore;
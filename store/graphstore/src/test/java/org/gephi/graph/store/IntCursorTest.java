@@ -0,0 +1,193 @@
+/*
+ * Copyright 2012-2013 Gephi Consortium
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.gephi.graph.store;
+
+import it.unimi.dsi.fastutil.ints.IntOpenHashSet;
+import it.unimi.dsi.fastutil.ints.IntSet;
+import org.gephi.graph.api.Edge;
+import org.gephi.graph.api.Node;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+/**
+ *
+ * @author mbastian
+ */
+public class IntCursorTest {
+
+    @Test
+    public void testEmpty() {
+        GraphStore graphStore = new GraphStore();
+        IntCursor cursor = graphStore.getAdjacencyCursors().outNeighbors(0);
+
+        Assert.assertFalse(cursor.hasNext());
+    }
+
+    @Test
+    public void testOutNeighbors() {
+        GraphStore graphStore = GraphGenerator.generateSmallMultiTypeGraphStore();
+
+        IntCursor cursor = new IntCursor();
+        for (Node n : graphStore.getNodes()) {
+            NodeImpl node = (NodeImpl) n;
+            for (int type = 0; type < 3; type++) {
+                IntSet expected = new IntOpenHashSet();
+                for (Node neighbor : graphStore.getSuccessors(node, type)) {
+                    expected.add(((NodeImpl) neighbor).storeId);
+                }
+                Assert.assertSame(graphStore.getAdjacencyCursors().outNeighbors(node.storeId, type, cursor), cursor);
+                Assert.assertEquals(toSet(cursor), expected);
+            }
+        }
+    }
+
+    @Test
+    public void testInNeighbors() {
+        GraphStore graphStore = GraphGenerator.generateSmallGraphStore();
+
+        IntCursor cursor = new IntCursor();
+        for (Node n : graphStore.getNodes()) {
+            NodeImpl node = (NodeImpl) n;
+            IntSet expected = new IntOpenHashSet();
+            for (Node neighbor : graphStore.getPredecessors(node)) {
+                expected.add(((NodeImpl) neighbor).storeId);
+            }
+            Assert.assertEquals(toSet(graphStore.getAdjacencyCursors().inNeighbors(node.storeId, cursor)), expected);
+        }
+    }
+
+    @Test
+    public void testOutEdges() {
+        GraphStore graphStore = GraphGenerator.generateSmallGraphStore();
+
+        for (Node n : graphStore.getNodes()) {
+            NodeImpl node = (NodeImpl) n;
+            IntSet expected = new IntOpenHashSet();
+            for (Edge edge : graphStore.getOutEdges(node, 0)) {
+                expected.add(((EdgeImpl) edge).storeId);
+            }
+            Assert.assertEquals(toSet(graphStore.getAdjacencyCursors().outEdges(node.storeId, 0)), expected);
+        }
+    }
+
+    @Test
+    public void testEdgesAllTypes() {
+        GraphStore graphStore = GraphGenerator.generateSmallMultiTypeGraphStore();
+
+        IntCursor cursor = new IntCursor();
+        for (Node n : graphStore.getNodes()) {
+            NodeImpl node = (NodeImpl) n;
+            IntSet expectedOut = new IntOpenHashSet();
+            for (Edge edge : graphStore.getOutEdges(node)) {
+                expectedOut.add(((EdgeImpl) edge).storeId);
+            }
+            IntSet expectedIn = new IntOpenHashSet();
+            for (Edge edge : graphStore.getInEdges(node)) {
+                expectedIn.add(((EdgeImpl) edge).storeId);
+            }
+            Assert.assertEquals(toSet(graphStore.getAdjacencyCursors().outEdges(node.storeId, cursor)), expectedOut);
+            Assert.assertEquals(toSet(graphStore.getAdjacencyCursors().inEdges(node.storeId)), expectedIn);
+        }
+    }
+
+    @Test
+    public void testInvalidType() {
+        GraphStore graphStore = GraphGenerator.generateSmallGraphStore();
+        NodeImpl node = (NodeImpl) graphStore.getNodes().toArray()[0];
+
+        Assert.assertFalse(graphStore.getAdjacencyCursors().outNeighbors(node.storeId, 42).hasNext());
+    }
+
+    @Test
+    public void testSnapshotNotBuilt() {
+        GraphStore graphStore = GraphGenerator.generateSmallMultiTypeGraphStore();
+        Node[] nodes = graphStore.getNodes().toArray();
+
+        //Without a current snapshot, cursors walk the adjacency lists
+        IntSet[] outNeighbors = new IntSet[nodes.length];
+        IntSet[] inEdges = new IntSet[nodes.length];
+        for (int i = 0; i < nodes.length; i++) {
+            outNeighbors[i] = toSet(graphStore.getAdjacencyCursors().outNeighbors(((NodeImpl) nodes[i]).storeId));
+            inEdges[i] = toSet(graphStore.getAdjacencyCursors().inEdges(((NodeImpl) nodes[i]).storeId, 1));
+        }
+        Assert.assertNull(graphStore.edgeStore.getCurrentAdjacencySnapshot());
+
+        graphStore.getAdjacencySnapshot();
+        for (int i = 0; i < nodes.length; i++) {
+            Assert.assertEquals(toSet(graphStore.getAdjacencyCursors().outNeighbors(((NodeImpl) nodes[i]).storeId)), outNeighbors[i]);
+            Assert.assertEquals(toSet(graphStore.getAdjacencyCursors().inEdges(((NodeImpl) nodes[i]).storeId, 1)), inEdges[i]);
+        }
+    }
+
+    @Test
+    public void testView() {
+        GraphStore graphStore = GraphGenerator.generateSmallGraphStore();
+        GraphViewStore store = graphStore.viewStore;
+        GraphViewImpl view = store.createView();
+        GraphViewDecorator graph = (GraphViewDecorator) store.getDirectedGraph(view);
+
+        Edge[] edges = graphStore.getEdges().toArray();
+        EdgeImpl edge = (EdgeImpl) edges[0];
+        graph.addNode(edge.source);
+        graph.addNode(edge.target);
+        graph.addEdge(edge);
+
+        IntCursor cursor = graph.getAdjacencyCursors().outNeighbors(edge.source.storeId);
+        Assert.assertTrue(cursor.hasNext());
+        Assert.assertEquals(cursor.next(), edge.target.storeId);
+        Assert.assertFalse(cursor.hasNext());
+
+        cursor = graph.getAdjacencyCursors().outEdges(edge.source.storeId, 0, cursor);
+        Assert.assertTrue(cursor.hasNext());
+        Assert.assertEquals(cursor.next(), edge.storeId);
+        Assert.assertFalse(cursor.hasNext());
+    }
+
+    @Test
+    public void testViewReadLock() {
+        GraphStore graphStore = GraphGenerator.generateSmallGraphStore();
+        GraphViewStore store = graphStore.viewStore;
+        GraphViewImpl view = store.createView();
+        view.fill();
+        GraphViewDecorator graph = (GraphViewDecorator) store.getDirectedGraph(view);
+        EdgeImpl edge = (EdgeImpl) graphStore.getEdges().toArray()[0];
+
+        IntCursor cursor = graph.getAdjacencyCursors().outEdges(edge.source.storeId);
+        Assert.assertEquals(graphStore.lock.readWriteLock.getReadHoldCount(), 1);
+        toSet(cursor);
+        Assert.assertEquals(graphStore.lock.readWriteLock.getReadHoldCount(), 0);
+
+        //Reopening or breaking a cursor releases the lock
+        graph.getAdjacencyCursors().outEdges(edge.source.storeId, cursor);
+        graph.getAdjacencyCursors().inEdges(edge.target.storeId, cursor);
+        Assert.assertEquals(graphStore.lock.readWriteLock.getReadHoldCount(), 1);
+        cursor.doBreak();
+        Assert.assertEquals(graphStore.lock.readWriteLock.getReadHoldCount(), 0);
+        Assert.assertFalse(cursor.hasNext());
+
+        //Store cursors don't lock
+        graphStore.getAdjacencyCursors().outEdges(edge.source.storeId, cursor);
+        Assert.assertEquals(graphStore.lock.readWriteLock.getReadHoldCount(), 0);
+    }
+
+    private IntSet toSet(IntCursor cursor) {
+        IntSet set = new IntOpenHashSet();
+        while (cursor.hasNext()) {
+            set.add(cursor.next());
+        }
+        return set;
+    }
+}
@@ -0,0 +1,234 @@
+/*
+ * Copyright 2012-2013 Gephi Consortium
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.gephi.graph.store;
+
+import java.lang.management.ManagementFactory;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import org.gephi.graph.api.Node;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+/**
+ *
+ * @author mbastian
+ */
+public class LockMetricsTest {
+
+    @Test
+    public void testBucket() {
+        Assert.assertEquals(LockMetrics.bucket(0l), 0);
+        Assert.assertEquals(LockMetrics.bucket(1l), 1);
+        Assert.assertEquals(LockMetrics.bucket(2l), 2);
+        Assert.assertEquals(LockMetrics.bucket(3l), 2);
+        Assert.assertEquals(LockMetrics.bucket(1024l), 11);
+        Assert.assertEquals(LockMetrics.bucket(Long.MAX_VALUE), LockMetrics.BUCKETS - 1);
+    }
+
+    @Test
+    public void testCounts() {
+        LockMetrics metrics = new LockMetrics(null);
+        metrics.readAcquired(1l);
+        metrics.readAcquired(0l);
+        metrics.writeAcquired(5l);
+        metrics.readReleased(100l);
+        metrics.writeReleased(1000l);
+
+        Assert.assertEquals(metrics.getReadAcquisitionCount(), 2);
+        Assert.assertEquals(metrics.getWriteAcquisitionCount(), 1);
+        Assert.assertEquals(metrics.getReadWaitHistogram()[0], 1);
+        Assert.assertEquals(metrics.getReadWaitHistogram()[1], 1);
+        Assert.assertEquals(metrics.getWriteWaitHistogram()[LockMetrics.bucket(5l)], 1);
+        Assert.assertEquals(metrics.getReadHoldHistogram()[LockMetrics.bucket(100l)], 1);
+        Assert.assertEquals(metrics.getWriteHoldHistogram()[LockMetrics.bucket(1000l)], 1);
+        Assert.assertEquals(metrics.getCurrentReaderCount(), 0);
+    }
+
+    @Test
+    public void testLongestWriteHold() {
+        LockMetrics metrics = new LockMetrics(null);
+        metrics.writeReleased(10l);
+        metrics.writeReleased(1000l);
+        metrics.writeReleased(100l);
+
+        Assert.assertEquals(metrics.getLongestWriteHoldNanos(), 1000l);
+        Assert.assertEquals(metrics.getLongestWriteHoldThread(), Thread.currentThread().getName());
+    }
+
+    @Test
+    public void testStripes() throws Exception {
+        final LockMetrics metrics = new LockMetrics(null);
+        Thread[] threads = new Thread[8];
+        for (int i = 0; i < threads.length; i++) {
+            threads[i] = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    for (int j = 0; j < 1000; j++) {
+                        metrics.readAcquired(j);
+                    }
+                }
+            });
+            threads[i].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        Assert.assertEquals(metrics.getReadAcquisitionCount(), 8000);
+        long total = 0;
+        for (long count : metrics.getReadWaitHistogram()) {
+            total += count;
+        }
+        Assert.assertEquals(total, 8000);
+    }
+
+    @Test
+    public void testReset() {
+        LockMetrics metrics = new LockMetrics(null);
+        metrics.writeAcquired(1l);
+        metrics.writeReleased(1l);
+        metrics.reset();
+
+        Assert.assertEquals(metrics.getWriteAcquisitionCount(), 0);
+        Assert.assertEquals(metrics.getLongestWriteHoldNanos(), 0l);
+        Assert.assertNull(metrics.getLongestWriteHoldThread());
+    }
+
+    @Test
+    public void testGraphLock() {
+        GraphLock lock = new GraphLock(true);
+        LockMetrics metrics = lock.getMetrics();
+        lock.readLock();
+        lock.readLock();
+        Assert.assertEquals(metrics.getCurrentReaderCount(), 2);
+        lock.readUnlock();
+        lock.readUnlock();
+        lock.writeLock();
+        lock.writeLock();
+        lock.writeUnlock();
+        lock.writeUnlock();
+
+        Assert.assertEquals(metrics.getReadAcquisitionCount(), 1);
+        Assert.assertEquals(metrics.getWriteAcquisitionCount(), 1);
+        Assert.assertEquals(sum(metrics.getReadHoldHistogram()), 1);
+        Assert.assertEquals(sum(metrics.getWriteHoldHistogram()), 1);
+        Assert.assertEquals(metrics.getLongestWriteHoldThread(), Thread.currentThread().getName());
+        Assert.assertEquals(metrics.getCurrentReaderCount(), 0);
+    }
+
+    @Test
+    public void testGraphLockReadUnlockAll() {
+        GraphLock lock = new GraphLock(true);
+        lock.readLock();
+        lock.readLock();
+        lock.readUnlockAll();
+
+        Assert.assertEquals(sum(lock.getMetrics().getReadHoldHistogram()), 1);
+        Assert.assertEquals(lock.getMetrics().getCurrentReaderCount(), 0);
+    }
+
+    @Test
+    public void testTableLock() {
+        TableLock lock = new TableLock(true);
+        lock.lock();
+        lock.lock();
+        lock.unlock();
+        lock.unlock();
+
+        Assert.assertEquals(lock.getMetrics().getWriteAcquisitionCount(), 1);
+        Assert.assertEquals(sum(lock.getMetrics().getWriteHoldHistogram()), 1);
+    }
+
+    @Test
+    public void testDisabledByDefault() {
+        GraphLock lock = new GraphLock();
+        lock.readLock();
+        lock.readUnlock();
+        Assert.assertNull(lock.getMetrics());
+        Assert.assertNull(new TableLock().getMetrics());
+
+        GraphModelImpl graphModel = new GraphModelImpl();
+        Assert.assertNull(graphModel.getGraphLockMetrics());
+        Assert.assertNull(graphModel.getNodeTableLockMetrics());
+        Assert.assertNull(graphModel.getEdgeTableLockMetrics());
+        graphModel.registerLockMetrics("disabled");
+        graphModel.unregisterLockMetrics("disabled");
+    }
+
+    @Test
+    public void testEnabledInConfiguration() {
+        GraphModelConfiguration configuration = new GraphModelConfiguration();
+        configuration.setEnableLockMetrics(true);
+        GraphModelImpl graphModel = new GraphModelImpl(configuration);
+        Assert.assertNotNull(graphModel.getGraphLockMetrics());
+        Assert.assertNotNull(graphModel.getNodeTableLockMetrics());
+        Assert.assertNotNull(graphModel.getEdgeTableLockMetrics());
+
+        long writes = graphModel.getGraphLockMetrics().getWriteAcquisitionCount();
+        Node node = graphModel.factory().newNode("0");
+        graphModel.getGraph().addNode(node);
+        Assert.assertEquals(graphModel.getGraphLockMetrics().getWriteAcquisitionCount(), writes + 1);
+
+        long tableWrites = graphModel.getNodeTableLockMetrics().getWriteAcquisitionCount();
+        graphModel.getNodeTable().addColumn("age", Integer.class);
+        Assert.assertTrue(graphModel.getNodeTableLockMetrics().getWriteAcquisitionCount() > tableWrites);
+    }
+
+    @Test
+    public void testRegisterGraphModel() throws Exception {
+        GraphModelConfiguration configuration = new GraphModelConfiguration();
+        configuration.setEnableLockMetrics(true);
+        GraphModelImpl graphModel = new GraphModelImpl(configuration);
+
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        graphModel.registerLockMetrics("model");
+        try {
+            Assert.assertTrue(server.isRegistered(new ObjectName("org.gephi.graph:type=GraphLock,name=model")));
+            Assert.assertTrue(server.isRegistered(new ObjectName("org.gephi.graph:type=NodeTableLock,name=model")));
+            Assert.assertTrue(server.isRegistered(new ObjectName("org.gephi.graph:type=EdgeTableLock,name=model")));
+        } finally {
+            graphModel.unregisterLockMetrics("model");
+        }
+        Assert.assertFalse(server.isRegistered(new ObjectName("org.gephi.graph:type=GraphLock,name=model")));
+    }
+
+    @Test
+    public void testRegister() throws Exception {
+        GraphLock lock = new GraphLock(true);
+        lock.writeLock();
+        lock.writeUnlock();
+
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        ObjectName name = new ObjectName("org.gephi.graph:type=GraphLock,name=test");
+        lock.getMetrics().register(name.toString());
+        try {
+            Assert.assertTrue(server.isRegistered(name));
+            Assert.assertEquals(server.getAttribute(name, "WriteAcquisitionCount"), 1l);
+        } finally {
+            LockMetrics.unregister(name.toString());
+        }
+        Assert.assertFalse(server.isRegistered(name));
+    }
+
+    //UTILITY
+    private static long sum(long[] histogram) {
+        long sum = 0;
+        for (long count : histogram) {
+            sum += count;
+        }
+        return sum;
+    }
+}
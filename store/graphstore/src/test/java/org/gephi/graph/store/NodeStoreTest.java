@@ -25,6 +25,7 @@ import java.util.List;
 import java.util.Random;
 import java.util.Set;
 import org.gephi.graph.api.Node;
+import org.gephi.graph.api.NodeIterable;
 import org.testng.Assert;
 import org.testng.annotations.Test;
 
@@ -332,6 +333,80 @@ public class NodeStoreTest {
         Assert.assertEquals(index, nodes.length);
     }
 
+    @Test
+    public void testPartition() {
+        NodeStore nodeStore = new NodeStore();
+        NodeImpl[] nodes = GraphGenerator.generateLargeNodeList();
+        nodeStore.addAll(Arrays.asList(nodes));
+        for (int i = 0; i < nodes.length; i += 3) {
+            nodeStore.remove(nodes[i]);
+        }
+
+        NodeIterable[] partitions = nodeStore.partition(3);
+        Assert.assertEquals(partitions.length, 2);
+
+        Set<Node> set = new HashSet<Node>();
+        for (NodeIterable partition : partitions) {
+            for (Node n : partition) {
+                Assert.assertTrue(set.add(n));
+            }
+        }
+        Assert.assertEquals(set.size(), nodeStore.size());
+        for (Node n : nodeStore) {
+            Assert.assertTrue(set.contains(n));
+        }
+    }
+
+    @Test
+    public void testPartitionEmpty() {
+        NodeStore nodeStore = new NodeStore();
+        NodeIterable[] partitions = nodeStore.partition(4);
+
+        Assert.assertEquals(partitions.length, 1);
+        Assert.assertFalse(partitions[0].iterator().hasNext());
+        Assert.assertEquals(partitions[0].toArray().length, 0);
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void testPartitionInvalidCount() {
+        NodeStore nodeStore = new NodeStore();
+        nodeStore.partition(0);
+    }
+
+    @Test
+    public void testReorder() {
+        NodeStore nodeStore = new NodeStore();
+        NodeImpl[] nodes = GraphGenerator.generateNodeList(10);
+        nodeStore.addAll(Arrays.asList(nodes));
+        nodeStore.remove(nodes[3]);
+
+        NodeImpl[] order = new NodeImpl[nodes.length - 1];
+        for (int i = nodes.length - 1, j = 0; i >= 0; i--) {
+            if (i != 3) {
+                order[j++] = nodes[i];
+            }
+        }
+        nodeStore.reorder(order);
+
+        Assert.assertEquals(nodeStore.size(), order.length);
+        Assert.assertEquals(nodeStore.garbageSize, 0);
+        Assert.assertEquals(nodeStore.maxStoreId(), order.length);
+        for (int i = 0; i < order.length; i++) {
+            Assert.assertEquals(order[i].storeId, i);
+            Assert.assertSame(nodeStore.get(i), order[i]);
+            Assert.assertSame(nodeStore.get(order[i].getId()), order[i]);
+        }
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void testReorderDuplicate() {
+        NodeStore nodeStore = new NodeStore();
+        NodeImpl[] nodes = GraphGenerator.generateNodeList(2);
+        nodeStore.addAll(Arrays.asList(nodes));
+
+        nodeStore.reorder(new NodeImpl[]{nodes[0], nodes[0]});
+    }
+
     @Test
     public void testIteratorRemove() {
         NodeStore nodeStore = new NodeStore();
@@ -502,6 +577,24 @@ public class NodeStoreTest {
         nodeStore.add(node2);
     }
 
+    @Test
+    public void testConfiguredIdType() {
+        GraphModelConfiguration configuration = new GraphModelConfiguration();
+        configuration.setNodeIdType(Long.class);
+        GraphModelImpl graphModel = new GraphModelImpl(configuration);
+        NodeStore nodeStore = graphModel.store.nodeStore;
+
+        Assert.assertEquals(nodeStore.dictionary.keyType, IdDictionary.LONG_KEY);
+        graphModel.getGraph().addNode(graphModel.factory().newNode(1l));
+        Assert.assertNotNull(nodeStore.get(1l));
+        try {
+            graphModel.getGraph().addNode(graphModel.factory().newNode("2"));
+            Assert.fail();
+        } catch (IllegalArgumentException e) {
+        }
+        Assert.assertEquals(nodeStore.size(), 1);
+    }
+
     private void testContainsOnly(NodeStore store, List<NodeImpl> list) {
         for (NodeImpl n : list) {
             Assert.assertTrue(store.contains(n));
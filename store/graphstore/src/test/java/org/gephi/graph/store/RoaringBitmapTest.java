@@ -0,0 +1,311 @@
+/*
+ * Copyright 2012-2013 Gephi Consortium
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.gephi.graph.store;
+
+import java.util.BitSet;
+import java.util.Random;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+/**
+ *
+ * @author mbastian
+ */
+public class RoaringBitmapTest {
+
+    @Test
+    public void testEmpty() {
+        RoaringBitmap bitmap = new RoaringBitmap();
+
+        Assert.assertTrue(bitmap.isEmpty());
+        Assert.assertEquals(bitmap.cardinality(), 0);
+        Assert.assertEquals(bitmap.nextSetBit(0), -1);
+        Assert.assertEquals(bitmap.last(), -1);
+        Assert.assertFalse(bitmap.get(42));
+    }
+
+    @Test
+    public void testSet() {
+        RoaringBitmap bitmap = new RoaringBitmap();
+
+        Assert.assertTrue(bitmap.set(5));
+        Assert.assertFalse(bitmap.set(5));
+        Assert.assertTrue(bitmap.set(100000));
+        Assert.assertTrue(bitmap.get(5));
+        Assert.assertTrue(bitmap.get(100000));
+        Assert.assertFalse(bitmap.get(6));
+        Assert.assertEquals(bitmap.cardinality(), 2);
+        Assert.assertEquals(bitmap.last(), 100000);
+    }
+
+    @Test
+    public void testClear() {
+        RoaringBitmap bitmap = new RoaringBitmap();
+        bitmap.set(5);
+        bitmap.set(100000);
+
+        Assert.assertTrue(bitmap.clear(100000));
+        Assert.assertFalse(bitmap.clear(100000));
+        Assert.assertFalse(bitmap.clear(7));
+        Assert.assertEquals(bitmap.cardinality(), 1);
+        Assert.assertEquals(bitmap.size, 1);
+
+        bitmap.clear();
+        Assert.assertTrue(bitmap.isEmpty());
+        Assert.assertFalse(bitmap.get(5));
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void testSetNegative() {
+        RoaringBitmap bitmap = new RoaringBitmap();
+        bitmap.set(-1);
+    }
+
+    @Test
+    public void testNextSetBit() {
+        RoaringBitmap bitmap = new RoaringBitmap();
+        bitmap.set(3);
+        bitmap.set(65535);
+        bitmap.set(65536);
+        bitmap.set(300000);
+
+        Assert.assertEquals(bitmap.nextSetBit(-5), 3);
+        Assert.assertEquals(bitmap.nextSetBit(3), 3);
+        Assert.assertEquals(bitmap.nextSetBit(4), 65535);
+        Assert.assertEquals(bitmap.nextSetBit(65536), 65536);
+        Assert.assertEquals(bitmap.nextSetBit(65537), 300000);
+        Assert.assertEquals(bitmap.nextSetBit(300001), -1);
+        Assert.assertEquals(bitmap.toArray(), new int[]{3, 65535, 65536, 300000});
+    }
+
+    @Test
+    public void testContainerConversion() {
+        RoaringBitmap bitmap = new RoaringBitmap();
+        for (int i = 0; i <= RoaringBitmap.ARRAY_MAX_SIZE; i++) {
+            bitmap.set(i * 3);
+        }
+        Assert.assertTrue(bitmap.containers[0] instanceof RoaringBitmap.BitmapContainer);
+        Assert.assertEquals(bitmap.cardinality(), RoaringBitmap.ARRAY_MAX_SIZE + 1);
+
+        for (int i = 0; i <= RoaringBitmap.ARRAY_MAX_SIZE; i++) {
+            bitmap.clear(i * 3);
+        }
+        Assert.assertTrue(bitmap.isEmpty());
+        Assert.assertEquals(bitmap.size, 0);
+    }
+
+    @Test
+    public void testSparseMemory() {
+        RoaringBitmap bitmap = new RoaringBitmap();
+        for (int i = 0; i < 100; i++) {
+            bitmap.set(i * 100000);
+        }
+        //A plain bit vector would need about 1.25MB
+        Assert.assertTrue(bitmap.getSizeInBytes() < 10000);
+    }
+
+    @Test
+    public void testRandomAgainstBitSet() {
+        Random random = new Random(42);
+        RoaringBitmap bitmap = new RoaringBitmap();
+        BitSet bitSet = new BitSet();
+        for (int i = 0; i < 50000; i++) {
+            int value = random.nextInt(200000);
+            if (random.nextInt(3) == 0) {
+                Assert.assertEquals(bitmap.clear(value), bitSet.get(value));
+                bitSet.clear(value);
+            } else {
+                Assert.assertEquals(bitmap.set(value), !bitSet.get(value));
+                bitSet.set(value);
+            }
+        }
+        Assert.assertEquals(bitmap.cardinality(), bitSet.cardinality());
+        int i = bitSet.nextSetBit(0);
+        int j = bitmap.nextSetBit(0);
+        while (i >= 0) {
+            Assert.assertEquals(j, i);
+            i = bitSet.nextSetBit(i + 1);
+            j = bitmap.nextSetBit(j + 1);
+        }
+        Assert.assertEquals(j, -1);
+        Assert.assertEquals(bitmap.last(), bitSet.length() - 1);
+    }
+
+    @Test
+    public void testCopy() {
+        RoaringBitmap bitmap = new RoaringBitmap();
+        for (int i = 0; i < 10000; i++) {
+            bitmap.set(i);
+        }
+        bitmap.set(1000000);
+        RoaringBitmap copy = bitmap.copy();
+
+        Assert.assertEquals(copy, bitmap);
+        Assert.assertEquals(copy.hashCode(), bitmap.hashCode());
+
+        copy.clear(5);
+        copy.clear(1000000);
+        Assert.assertTrue(bitmap.get(5));
+        Assert.assertTrue(bitmap.get(1000000));
+        Assert.assertFalse(copy.equals(bitmap));
+    }
+
+    @Test
+    public void testCopyOnWrite() {
+        RoaringBitmap bitmap = new RoaringBitmap();
+        for (int i = 0; i < 300000; i += 3) {
+            bitmap.set(i);
+        }
+        RoaringBitmap copy = bitmap.copy();
+        Assert.assertSame(copy.containers, bitmap.containers);
+
+        //Only the written chunk diverges
+        Assert.assertTrue(copy.set(70001));
+        Assert.assertNotSame(copy.containers, bitmap.containers);
+        Assert.assertNotSame(copy.containers[1], bitmap.containers[1]);
+        for (int i = 0; i < copy.size; i++) {
+            if (i != 1) {
+                Assert.assertSame(copy.containers[i], bitmap.containers[i]);
+            }
+        }
+        Assert.assertFalse(bitmap.get(70001));
+
+        //Writes on the original don't affect the copy
+        Assert.assertTrue(bitmap.clear(3));
+        Assert.assertTrue(bitmap.set(1000000));
+        Assert.assertTrue(copy.get(3));
+        Assert.assertFalse(copy.get(1000000));
+        Assert.assertEquals(copy.cardinality(), 100001);
+        Assert.assertEquals(bitmap.cardinality(), 100000);
+    }
+
+    @Test
+    public void testCopyOfCopy() {
+        RoaringBitmap bitmap = new RoaringBitmap();
+        bitmap.set(1);
+        RoaringBitmap copy = bitmap.copy();
+        RoaringBitmap copy2 = copy.copy();
+        copy.set(2);
+        copy2.clear(1);
+        bitmap.set(3);
+
+        Assert.assertEquals(bitmap.toArray(), new int[]{1, 3});
+        Assert.assertEquals(copy.toArray(), new int[]{1, 2});
+        Assert.assertTrue(copy2.isEmpty());
+    }
+
+    @Test
+    public void testNoCopyOnNoOpWrite() {
+        RoaringBitmap bitmap = new RoaringBitmap();
+        bitmap.set(1);
+        RoaringBitmap copy = bitmap.copy();
+        Assert.assertFalse(copy.set(1));
+        Assert.assertFalse(copy.clear(2));
+        Assert.assertSame(copy.containers, bitmap.containers);
+    }
+
+    @Test
+    public void testEqualsDifferentContainers() {
+        RoaringBitmap bitmap = new RoaringBitmap();
+        RoaringBitmap other = new RoaringBitmap();
+        for (int i = 0; i < 3000; i++) {
+            bitmap.set(i);
+            other.set(i);
+        }
+        //Grow the other one to a bitmap container and shrink it back above the conversion threshold
+        for (int i = 3000; i < 5000; i++) {
+            other.set(i);
+        }
+        for (int i = 3000; i < 5000; i++) {
+            other.clear(i);
+        }
+        Assert.assertTrue(other.containers[0] instanceof RoaringBitmap.BitmapContainer);
+        Assert.assertEquals(other, bitmap);
+        Assert.assertEquals(other.hashCode(), bitmap.hashCode());
+    }
+
+    @Test
+    public void testAndOrAndNot() {
+        Random random = new Random(7);
+        for (int round = 0; round < 20; round++) {
+            BitSet bitSetA = new BitSet();
+            BitSet bitSetB = new BitSet();
+            RoaringBitmap a = randomBitmap(random, bitSetA);
+            RoaringBitmap b = randomBitmap(random, bitSetB);
+            RoaringBitmap aCopy = a.copy();
+            RoaringBitmap bCopy = b.copy();
+
+            BitSet and = (BitSet) bitSetA.clone();
+            and.and(bitSetB);
+            assertSame(RoaringBitmap.and(a, b), and);
+
+            BitSet or = (BitSet) bitSetA.clone();
+            or.or(bitSetB);
+            assertSame(RoaringBitmap.or(a, b), or);
+
+            BitSet andNot = (BitSet) bitSetA.clone();
+            andNot.andNot(bitSetB);
+            assertSame(RoaringBitmap.andNot(a, b), andNot);
+
+            //Operands are left untouched
+            Assert.assertEquals(a, aCopy);
+            Assert.assertEquals(b, bCopy);
+        }
+    }
+
+    @Test
+    public void testOperationResultIsMutable() {
+        RoaringBitmap a = new RoaringBitmap();
+        RoaringBitmap b = new RoaringBitmap();
+        a.set(1);
+        b.set(2);
+        RoaringBitmap and = RoaringBitmap.and(a, b);
+        Assert.assertTrue(and.isEmpty());
+        Assert.assertTrue(and.set(3));
+        RoaringBitmap or = RoaringBitmap.or(a, b);
+        Assert.assertTrue(or.set(70000));
+        Assert.assertTrue(or.clear(1));
+        Assert.assertFalse(a.get(70000));
+        Assert.assertTrue(a.get(1));
+        Assert.assertEquals(or.cardinality(), 2);
+    }
+
+    private RoaringBitmap randomBitmap(Random random, BitSet bitSet) {
+        RoaringBitmap bitmap = new RoaringBitmap();
+        int chunks = 1 + random.nextInt(4);
+        for (int c = 0; c < chunks; c++) {
+            int chunk = random.nextInt(6);
+            //Sparse or dense chunk
+            int count = random.nextBoolean() ? random.nextInt(100) : 3000 + random.nextInt(30000);
+            for (int i = 0; i < count; i++) {
+                int value = (chunk << 16) | random.nextInt(65536);
+                bitmap.set(value);
+                bitSet.set(value);
+            }
+        }
+        return bitmap;
+    }
+
+    private void assertSame(RoaringBitmap bitmap, BitSet bitSet) {
+        Assert.assertEquals(bitmap.cardinality(), bitSet.cardinality());
+        int j = bitmap.nextSetBit(0);
+        for (int i = bitSet.nextSetBit(0); i >= 0; i = bitSet.nextSetBit(i + 1)) {
+            Assert.assertEquals(j, i);
+            j = bitmap.nextSetBit(j + 1);
+        }
+        Assert.assertEquals(j, -1);
+    }
+}
@@ -36,6 +36,8 @@ import org.gephi.attribute.time.TimestampSet;
 import org.gephi.attribute.time.TimestampShortSet;
 import org.gephi.attribute.time.TimestampStringSet;
 import org.gephi.graph.api.Edge;
+import org.gephi.graph.api.ElementPredicates;
+import org.gephi.graph.utils.DataInputOutput;
 import org.testng.Assert;
 import org.testng.annotations.Test;
 
@@ -246,6 +248,40 @@ public class SerializationTest {
         Assert.assertEquals(viewStore, l);
     }
 
+    @Test
+    public void testViewStoreNodeOnlyViews() throws IOException, ClassNotFoundException {
+        GraphStore graphStore = GraphGenerator.generateSmallGraphStore();
+        GraphViewStore viewStore = graphStore.viewStore;
+        viewStore.createView();
+        viewStore.createView(true, false);
+
+        Serialization ser = new Serialization(graphStore);
+        byte[] buf = ser.serialize(viewStore);
+
+        graphStore = new GraphStore();
+        ser = new Serialization(graphStore);
+        GraphViewStore l = (GraphViewStore) ser.deserialize(buf);
+        Assert.assertEquals(l.nodeOnlyViews.length, 1);
+        Assert.assertSame(l.nodeOnlyViews[0], l.views[1]);
+    }
+
+    @Test
+    public void testPredicateGraphView() throws IOException, ClassNotFoundException {
+        GraphStore graphStore = GraphGenerator.generateSmallMultiTypeGraphStore();
+        GraphViewImpl view = graphStore.viewStore.createView(null, ElementPredicates.edgeType(1));
+        Assert.assertTrue(view.isPredicateView());
+
+        Serialization ser = new Serialization(graphStore);
+        byte[] buf = ser.serialize(view);
+
+        graphStore = new GraphStore();
+        ser = new Serialization(graphStore);
+        GraphViewImpl l = (GraphViewImpl) ser.deserialize(buf);
+        //Predicates aren't serialized, only the elements
+        Assert.assertEquals(view, l);
+        Assert.assertFalse(l.isPredicateView());
+    }
+
     @Test
     public void testGraphView() throws IOException, ClassNotFoundException {
         GraphStore graphStore = GraphGenerator.generateSmallMultiTypeGraphStore();
@@ -265,6 +301,42 @@ public class SerializationTest {
         Assert.assertEquals(view, l);
     }
 
+    @Test
+    public void testGraphViewBitVectorFormat() throws IOException, ClassNotFoundException {
+        GraphStore graphStore = GraphGenerator.generateSmallMultiTypeGraphStore();
+        GraphViewImpl view = graphStore.viewStore.createView();
+
+        Edge edge = graphStore.getEdge("0");
+        view.addNode(edge.getSource());
+        view.addNode(edge.getTarget());
+        view.addEdge(edge);
+
+        //Format written before views used RoaringBitmap
+        Serialization ser = new Serialization(graphStore);
+        DataInputOutput out = new DataInputOutput();
+        out.write(Serialization.GRAPH_VIEW);
+        ser.serialize(out, view.nodeView);
+        ser.serialize(out, view.edgeView);
+        ser.serialize(out, view.storeId);
+        ser.serialize(out, view.nodeCount);
+        ser.serialize(out, view.edgeCount);
+        ser.serialize(out, toBitVector(view.nodeBitVector, graphStore.nodeStore.maxStoreId()));
+        ser.serialize(out, toBitVector(view.edgeBitVector, graphStore.edgeStore.maxStoreId()));
+        ser.serialize(out, view.typeCounts);
+        ser.serialize(out, view.mutualEdgeTypeCounts);
+        ser.serialize(out, view.mutualEdgesCount);
+        ser.serialize(out, view.version);
+        ser.serialize(out, view.attributes);
+        byte[] buf = out.toByteArray();
+
+        graphStore = new GraphStore();
+        ser = new Serialization(graphStore);
+        GraphViewImpl l = (GraphViewImpl) ser.deserialize(buf);
+        Assert.assertEquals(view, l);
+        Assert.assertEquals(l.nodeBitVector, view.nodeBitVector);
+        Assert.assertEquals(l.edgeBitVector, view.edgeBitVector);
+    }
+
     @Test
     public void testBitVector() throws IOException, ClassNotFoundException {
         BitVector bitVector = new BitVector(10);
@@ -277,6 +349,23 @@ public class SerializationTest {
         Assert.assertEquals(bitVector, l);
     }
 
+    @Test
+    public void testRoaringBitmap() throws IOException, ClassNotFoundException {
+        RoaringBitmap bitmap = new RoaringBitmap();
+        bitmap.set(1);
+        bitmap.set(4);
+        bitmap.set(200000);
+        for (int i = 0; i < 5000; i++) {
+            bitmap.set(70000 + i * 2);
+        }
+
+        Serialization ser = new Serialization(null);
+        byte[] buf = ser.serialize(bitmap);
+        RoaringBitmap l = (RoaringBitmap) ser.deserialize(buf);
+        Assert.assertEquals(bitmap, l);
+        Assert.assertEquals(l.cardinality(), bitmap.cardinality());
+    }
+
     @Test
     public void testGraphVersion() throws IOException, ClassNotFoundException {
         GraphStore store = new GraphStore();
@@ -785,4 +874,12 @@ public class SerializationTest {
         Assert.assertEquals(Locale.CANADA_FRENCH, ser.deserialize(ser.serialize(Locale.CANADA_FRENCH)));
         Assert.assertEquals(Locale.SIMPLIFIED_CHINESE, ser.deserialize(ser.serialize(Locale.SIMPLIFIED_CHINESE)));
     }
+
+    private BitVector toBitVector(RoaringBitmap bitmap, int size) {
+        BitVector bitVector = new BitVector(size);
+        for (int i = bitmap.nextSetBit(0); i >= 0; i = bitmap.nextSetBit(i + 1)) {
+            bitVector.set(i);
+        }
+        return bitVector;
+    }
 }